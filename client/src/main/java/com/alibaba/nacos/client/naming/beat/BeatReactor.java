@@ -15,12 +15,22 @@
  */
 package com.alibaba.nacos.client.naming.beat;
 
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.naming.CommonParams;
+import com.alibaba.nacos.api.naming.NamingResponseCode;
 import com.alibaba.nacos.client.monitor.MetricsMonitor;
 import com.alibaba.nacos.client.naming.net.NamingProxy;
 import com.alibaba.nacos.client.naming.utils.UtilAndComs;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.*;
 
 import static com.alibaba.nacos.client.utils.LogUtils.NAMING_LOGGER;
@@ -30,20 +40,32 @@ import static com.alibaba.nacos.client.utils.LogUtils.NAMING_LOGGER;
  */
 public class BeatReactor {
 
+    private static final int MAX_BATCH_SIZE = 32;
+
     private ScheduledExecutorService executorService;
 
     private NamingProxy serverProxy;
 
     public final Map<String, BeatInfo> dom2Beat = new ConcurrentHashMap<String, BeatInfo>();
 
+    private volatile boolean lightBeatEnabled = false;
+
+    /**
+     * Random phase of this reactor, so beats of different clients are not due at the same time
+     */
+    private final long phase = new Random().nextInt(Integer.MAX_VALUE);
+
+    /**
+     * Beats grouped by the time they are due
+     */
+    private final Map<Long, List<BeatInfo>> dueBeats = new HashMap<Long, List<BeatInfo>>();
+
     public BeatReactor(NamingProxy serverProxy) {
         this(serverProxy, UtilAndComs.DEFAULT_CLIENT_BEAT_THREAD_COUNT);
     }
 
     public BeatReactor(NamingProxy serverProxy, int threadCount) {
-        this.serverProxy = serverProxy;
-
-        executorService = new ScheduledThreadPoolExecutor(threadCount, new ThreadFactory() {
+        this(serverProxy, new ScheduledThreadPoolExecutor(threadCount, new ThreadFactory() {
             @Override
             public Thread newThread(Runnable r) {
                 Thread thread = new Thread(r);
@@ -51,13 +73,24 @@ public class BeatReactor {
                 thread.setName("com.alibaba.nacos.naming.beat.sender");
                 return thread;
             }
-        });
+        }));
+    }
+
+    /**
+     * Create a reactor sending beats on the given executor
+     *
+     * @param serverProxy     proxy to send beats with
+     * @param executorService executor to schedule beat tasks on
+     */
+    public BeatReactor(NamingProxy serverProxy, ScheduledExecutorService executorService) {
+        this.serverProxy = serverProxy;
+        this.executorService = executorService;
     }
 
     public void addBeatInfo(String serviceName, BeatInfo beatInfo) {
         NAMING_LOGGER.info("[BEAT] adding beat: {} to beat map.", beatInfo);
         dom2Beat.put(buildKey(serviceName, beatInfo.getIp(), beatInfo.getPort()), beatInfo);
-        executorService.schedule(new BeatTask(beatInfo), beatInfo.getPeriod(), TimeUnit.MILLISECONDS);
+        schedule(beatInfo, beatInfo.getPeriod());
         MetricsMonitor.getDom2BeatSizeMonitor().set(dom2Beat.size());
     }
 
@@ -76,22 +109,131 @@ public class BeatReactor {
             + ip + Constants.NAMING_INSTANCE_ID_SPLITTER + port;
     }
 
+    /**
+     * Schedule the next beat at a multiple of the period shifted by the phase of this reactor, so beats with the
+     * same period are due at the same time and sent in one batch.
+     */
+    private void schedule(BeatInfo beatInfo, long period) {
+        long now = System.currentTimeMillis();
+        long offset = phase % period;
+        long dueTime = ((now - offset) / period + 1) * period + offset;
+
+        synchronized (dueBeats) {
+            List<BeatInfo> beats = dueBeats.get(dueTime);
+            if (beats == null) {
+                beats = new ArrayList<BeatInfo>();
+                dueBeats.put(dueTime, beats);
+                executorService.schedule(new BeatTask(dueTime), dueTime - now, TimeUnit.MILLISECONDS);
+            }
+            beats.add(beatInfo);
+        }
+    }
+
     class BeatTask implements Runnable {
 
-        BeatInfo beatInfo;
+        long dueTime;
 
-        public BeatTask(BeatInfo beatInfo) {
-            this.beatInfo = beatInfo;
+        public BeatTask(long dueTime) {
+            this.dueTime = dueTime;
         }
 
         @Override
         public void run() {
-            if (beatInfo.isStopped()) {
+            List<BeatInfo> beats;
+            synchronized (dueBeats) {
+                beats = dueBeats.remove(dueTime);
+            }
+
+            List<BeatInfo> liveBeats = new ArrayList<BeatInfo>();
+            for (BeatInfo beatInfo : beats) {
+                if (!beatInfo.isStopped()) {
+                    liveBeats.add(beatInfo);
+                }
+            }
+
+            if (lightBeatEnabled && liveBeats.size() > 1) {
+                // beats are sent in the query string, so keep a batch well below the limit of url length:
+                for (int i = 0; i < liveBeats.size(); i += MAX_BATCH_SIZE) {
+                    sendBatch(liveBeats.subList(i, Math.min(i + MAX_BATCH_SIZE, liveBeats.size())));
+                }
                 return;
             }
-            long result = serverProxy.sendBeat(beatInfo);
-            long nextTime = result > 0 ? result : beatInfo.getPeriod();
-            executorService.schedule(new BeatTask(beatInfo), nextTime, TimeUnit.MILLISECONDS);
+
+            for (BeatInfo beatInfo : liveBeats) {
+                send(beatInfo);
+            }
+        }
+
+        private void sendBatch(List<BeatInfo> beats) {
+            JSONObject result = serverProxy.sendBeats(beats);
+            if (result == null) {
+                // the server may not support batch beats yet:
+                for (BeatInfo beatInfo : beats) {
+                    send(beatInfo);
+                }
+                return;
+            }
+
+            lightBeatEnabled = result.getBooleanValue("lightBeatEnabled");
+
+            Set<String> notFound = toKeys(result.getJSONArray("notFound"));
+            Set<String> failed = toKeys(result.getJSONArray("failed"));
+            JSONArray intervals = result.getJSONArray("intervals");
+
+            for (int i = 0; i < beats.size(); i++) {
+                BeatInfo beatInfo = beats.get(i);
+                String key = buildKey(beatInfo.getServiceName(), beatInfo.getIp(), beatInfo.getPort());
+                if (failed.contains(key)) {
+                    // the responsible server did not acknowledge the beat, send it on its own:
+                    send(beatInfo);
+                    continue;
+                }
+                if (notFound.contains(key)) {
+                    // the server lost the instance, a full beat registers it again:
+                    serverProxy.sendBeat(beatInfo, false);
+                }
+
+                long nextTime = beatInfo.getPeriod();
+                if (intervals != null && i < intervals.size() && intervals.getLongValue(i) > 0) {
+                    nextTime = intervals.getLongValue(i);
+                }
+                schedule(beatInfo, nextTime);
+            }
+        }
+
+        private Set<String> toKeys(JSONArray beats) {
+            Set<String> keys = new HashSet<String>();
+            if (beats != null) {
+                for (int i = 0; i < beats.size(); i++) {
+                    JSONObject beat = beats.getJSONObject(i);
+                    keys.add(buildKey(beat.getString("serviceName"), beat.getString("ip"), beat.getIntValue("port")));
+                }
+            }
+            return keys;
+        }
+
+        private void send(BeatInfo beatInfo) {
+            boolean lightBeat = lightBeatEnabled;
+            JSONObject result = serverProxy.sendBeat(beatInfo, lightBeat);
+            if (result == null && lightBeat) {
+                // fall back to full beats until the server enables light beats again:
+                lightBeatEnabled = false;
+                result = serverProxy.sendBeat(beatInfo, false);
+            }
+            if (result != null && result.getIntValue(CommonParams.CODE) == NamingResponseCode.RESOURCE_NOT_FOUND) {
+                // the server lost the instance, a full beat registers it again:
+                result = serverProxy.sendBeat(beatInfo, false);
+            }
+
+            long nextTime = beatInfo.getPeriod();
+            if (result != null) {
+                long interval = result.getLongValue("clientBeatInterval");
+                if (interval > 0) {
+                    nextTime = interval;
+                }
+                lightBeatEnabled = result.getBooleanValue("lightBeatEnabled");
+            }
+            schedule(beatInfo, nextTime);
         }
     }
 }
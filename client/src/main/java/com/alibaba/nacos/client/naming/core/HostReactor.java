@@ -276,7 +276,8 @@ public class HostReactor {
         ServiceInfo oldService = getServiceInfo0(serviceName, clusters);
         try {
 
-            String result = serverProxy.queryList(serviceName, clusters, pushReceiver.getUDPPort(), false);
+            String result = serverProxy.queryList(serviceName, clusters, pushReceiver.getUDPPort(), false,
+                oldService == null ? StringUtils.EMPTY : oldService.getChecksum());
 
             if (StringUtils.isNotEmpty(result)) {
                 processServiceJSON(result);
@@ -294,7 +295,9 @@ public class HostReactor {
 
     public void refreshOnly(String serviceName, String clusters) {
         try {
-            serverProxy.queryList(serviceName, clusters, pushReceiver.getUDPPort(), false);
+            ServiceInfo serviceObj = getServiceInfo0(serviceName, clusters);
+            serverProxy.queryList(serviceName, clusters, pushReceiver.getUDPPort(), false,
+                serviceObj == null ? StringUtils.EMPTY : serviceObj.getChecksum());
         } catch (Exception e) {
             NAMING_LOGGER.error("[NA] failed to update serviceName: " + serviceName, e);
         }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.client.naming.net;
+
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.client.naming.utils.CollectionUtils;
+import com.alibaba.nacos.client.naming.utils.UtilAndComs;
+import com.alibaba.nacos.client.utils.StringUtils;
+import com.alibaba.nacos.common.util.ConsistentHashRing;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Map services to their responsible servers the same way the servers do.
+ * <p>
+ * The mapping is fetched from the servers, so a request that can only be processed by the responsible
+ * server of its service is sent there directly instead of being forwarded by a random server. The servers
+ * return the version of their mapping with every response, the mapping is dropped as soon as it differs.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class DistroRouter {
+
+    private volatile Ring ring;
+
+    /**
+     * Update the mapping with the one returned by server
+     *
+     * @param json mapping returned by server
+     */
+    public void update(JSONObject json) {
+        JSONArray servers = json.getJSONArray("servers");
+        boolean distroEnabled = json.getBooleanValue("distroEnabled");
+        if (!distroEnabled || servers == null || servers.isEmpty()) {
+            ring = null;
+            return;
+        }
+
+        ring = new Ring(json.getString("version"), servers.toArray(new String[servers.size()]),
+            json.getBooleanValue("consistentHash"), json.getIntValue("virtualNodes"));
+    }
+
+    /**
+     * Check the version of mapping returned by server
+     *
+     * @param version version of the mapping of server
+     * @return true if the mapping is dropped and should be fetched again
+     */
+    public boolean checkVersion(String version) {
+        Ring current = ring;
+        if (current == null || StringUtils.isEmpty(version) || version.equals(current.version)) {
+            return false;
+        }
+
+        ring = null;
+        return true;
+    }
+
+    /**
+     * Get the responsible server of a service
+     *
+     * @param serviceName       name of service, with or without group
+     * @param groupName         group of service, used if the name has no group
+     * @param servers           servers known by client
+     * @param defaultServerPort port of servers without one
+     * @return the responsible server as it is in the servers, null if unknown
+     */
+    public String route(String serviceName, String groupName, List<String> servers, int defaultServerPort) {
+        Ring current = ring;
+        if (current == null || StringUtils.isEmpty(serviceName) || CollectionUtils.isEmpty(servers)) {
+            return null;
+        }
+
+        if (!serviceName.contains(Constants.SERVICE_INFO_SPLITER)) {
+            serviceName = (StringUtils.isEmpty(groupName) ? Constants.DEFAULT_GROUP : groupName)
+                + Constants.SERVICE_INFO_SPLITER + serviceName;
+        }
+
+        String owner = current.get(serviceName);
+        for (String server : servers) {
+            String address = server;
+            if (!address.contains(UtilAndComs.SERVER_ADDR_IP_SPLITER)) {
+                address = address + UtilAndComs.SERVER_ADDR_IP_SPLITER + defaultServerPort;
+            }
+            if (address.equals(owner)) {
+                return server;
+            }
+        }
+
+        // the responsible server may be known by another address only in the cluster:
+        return null;
+    }
+
+    public String getVersion() {
+        Ring current = ring;
+        return current == null ? null : current.version;
+    }
+
+    private static class Ring {
+
+        private final String version;
+
+        private final String[] servers;
+
+        private final ConsistentHashRing consistentHashRing;
+
+        Ring(String version, String[] servers, boolean consistentHash, int virtualNodes) {
+            this.version = version;
+            this.servers = servers;
+            this.consistentHashRing = consistentHash && virtualNodes > 0 ?
+                ConsistentHashRing.of(Arrays.asList(servers), virtualNodes) : null;
+        }
+
+        String get(String serviceName) {
+            if (consistentHashRing == null) {
+                return servers[Math.abs(serviceName.hashCode() % Integer.MAX_VALUE) % servers.length];
+            }
+            return consistentHashRing.get(serviceName);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.alibaba.nacos.client.naming.net;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.api.PropertyKeyConst;
@@ -53,6 +54,8 @@ public class NamingProxy {
 
     private static final int DEFAULT_SERVER_PORT = 8848;
 
+    private static final int MAX_DISTRO_RING_BACKOFF_SHIFT = 5;
+
     private int serverPort = DEFAULT_SERVER_PORT;
 
     private String namespaceId;
@@ -71,6 +74,19 @@ public class NamingProxy {
 
     private Properties properties;
 
+    private final DistroRouter distroRouter = new DistroRouter();
+
+    private ScheduledExecutorService distroExecutor;
+
+    /**
+     * Distro ring state below is only accessed by the thread of distroExecutor
+     */
+    private boolean distroRingSupported = true;
+
+    private int distroRingFailures = 0;
+
+    private long nextDistroRingRefreshTime = 0L;
+
     public NamingProxy(String namespaceId, String endpoint, String serverList) {
 
         this.namespaceId = namespaceId;
@@ -83,6 +99,7 @@ public class NamingProxy {
         }
 
         initRefreshSrvIfNeed();
+        initRefreshDistroRing();
     }
 
     private void initRefreshSrvIfNeed() {
@@ -110,6 +127,74 @@ public class NamingProxy {
         refreshSrvIfNeed();
     }
 
+    private void initRefreshDistroRing() {
+        distroExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("com.alibaba.nacos.client.naming.distro.updater");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        distroExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                refreshDistroRing();
+            }
+        }, 0, vipSrvRefInterMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void refreshDistroRing() {
+        if (!distroRingSupported || System.currentTimeMillis() < nextDistroRingRefreshTime) {
+            return;
+        }
+
+        List<String> snapshot = serversFromEndpoint;
+        if (!CollectionUtils.isEmpty(serverList)) {
+            snapshot = serverList;
+        }
+
+        String server = nacosDomain;
+        if (!CollectionUtils.isEmpty(snapshot)) {
+            server = snapshot.get(new Random().nextInt(snapshot.size()));
+        }
+        if (StringUtils.isEmpty(server)) {
+            return;
+        }
+
+        try {
+            String result = callServer(UtilAndComs.NACOS_URL_BASE + "/operator/distro/ring",
+                new HashMap<String, String>(2), server);
+            distroRouter.update(JSON.parseObject(result));
+            distroRingFailures = 0;
+            nextDistroRingRefreshTime = 0L;
+        } catch (NacosException e) {
+            if (HttpURLConnection.HTTP_NOT_FOUND == e.getErrCode()) {
+                // servers of old versions have no distro ring, stop asking for it:
+                distroRingSupported = false;
+                NAMING_LOGGER.warn("[DISTRO] server {} does not support distro ring, requests are sent to random servers",
+                    server);
+                return;
+            }
+            distroRingFailed(server, e);
+        } catch (Throwable e) {
+            distroRingFailed(server, e);
+        }
+    }
+
+    private void distroRingFailed(String server, Throwable e) {
+        long backoff = vipSrvRefInterMillis << Math.min(distroRingFailures, MAX_DISTRO_RING_BACKOFF_SHIFT);
+        nextDistroRingRefreshTime = System.currentTimeMillis() + backoff;
+        if (distroRingFailures++ == 0) {
+            NAMING_LOGGER.warn("[DISTRO] failed to refresh distro ring from {}, requests are sent to random servers",
+                server, e);
+        } else {
+            NAMING_LOGGER.debug("[DISTRO] failed to refresh distro ring from {}, retry in {} ms", server, backoff, e);
+        }
+    }
+
     public List<String> getServerListFromEndpoint() {
 
         try {
@@ -186,7 +271,7 @@ public class NamingProxy {
         params.put("ephemeral", String.valueOf(instance.isEphemeral()));
         params.put("metadata", JSON.toJSONString(instance.getMetadata()));
 
-        reqAPI(UtilAndComs.NACOS_URL_INSTANCE, params, HttpMethod.POST);
+        reqDistroAPI(UtilAndComs.NACOS_URL_INSTANCE, params, HttpMethod.POST);
 
     }
 
@@ -203,7 +288,7 @@ public class NamingProxy {
         params.put("port", String.valueOf(instance.getPort()));
         params.put("ephemeral", String.valueOf(instance.isEphemeral()));
 
-        reqAPI(UtilAndComs.NACOS_URL_INSTANCE, params, HttpMethod.DELETE);
+        reqDistroAPI(UtilAndComs.NACOS_URL_INSTANCE, params, HttpMethod.DELETE);
     }
 
     public void updateInstance(String serviceName, String groupName, Instance instance) throws NacosException {
@@ -222,7 +307,7 @@ public class NamingProxy {
         params.put("ephemeral", String.valueOf(instance.isEphemeral()));
         params.put("metadata", JSON.toJSONString(instance.getMetadata()));
 
-        reqAPI(UtilAndComs.NACOS_URL_INSTANCE, params, HttpMethod.PUT);
+        reqDistroAPI(UtilAndComs.NACOS_URL_INSTANCE, params, HttpMethod.PUT);
     }
 
     public Service queryService(String serviceName, String groupName) throws NacosException {
@@ -286,6 +371,22 @@ public class NamingProxy {
 
     public String queryList(String serviceName, String clusters, int udpPort, boolean healthyOnly)
         throws NacosException {
+        return queryList(serviceName, clusters, udpPort, healthyOnly, StringUtils.EMPTY);
+    }
+
+    /**
+     * Query instances of service
+     *
+     * @param serviceName service name
+     * @param clusters    clusters, split by comma
+     * @param udpPort     udp port to receive pushes
+     * @param healthyOnly only return healthy instances
+     * @param checksum    checksum of service the client holds, an empty string is returned if it is not changed
+     * @return instances in json, or empty if not modified
+     * @throws NacosException if request failed
+     */
+    public String queryList(String serviceName, String clusters, int udpPort, boolean healthyOnly, String checksum)
+        throws NacosException {
 
         final Map<String, String> params = new HashMap<String, String>(8);
         params.put(CommonParams.NAMESPACE_ID, namespaceId);
@@ -294,29 +395,73 @@ public class NamingProxy {
         params.put("udpPort", String.valueOf(udpPort));
         params.put("clientIP", NetUtils.localIP());
         params.put("healthyOnly", String.valueOf(healthyOnly));
+        if (StringUtils.isNotEmpty(checksum)) {
+            params.put("checksum", checksum);
+        }
 
         return reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/list", params, HttpMethod.GET);
     }
 
-    public long sendBeat(BeatInfo beatInfo) {
+    /**
+     * Send a beat of an instance
+     *
+     * @param beatInfo         beat of instance
+     * @param lightBeatEnabled true to send ip, port and cluster only, the server must have the instance
+     * @return response of server, null if failed
+     */
+    public JSONObject sendBeat(BeatInfo beatInfo, boolean lightBeatEnabled) {
         try {
             if (NAMING_LOGGER.isDebugEnabled()) {
                 NAMING_LOGGER.debug("[BEAT] {} sending beat to server: {}", namespaceId, beatInfo.toString());
             }
-            Map<String, String> params = new HashMap<String, String>(4);
-            params.put("beat", JSON.toJSONString(beatInfo));
+            Map<String, String> params = new HashMap<String, String>(8);
+            if (lightBeatEnabled) {
+                params.put("ip", beatInfo.getIp());
+                params.put("port", String.valueOf(beatInfo.getPort()));
+                params.put(CommonParams.CLUSTER_NAME, beatInfo.getCluster());
+            } else {
+                params.put("beat", JSON.toJSONString(beatInfo));
+            }
             params.put(CommonParams.NAMESPACE_ID, namespaceId);
             params.put(CommonParams.SERVICE_NAME, beatInfo.getServiceName());
-            String result = reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/beat", params, HttpMethod.PUT);
-            JSONObject jsonObject = JSON.parseObject(result);
+            String result = reqDistroAPI(UtilAndComs.NACOS_URL_BASE + "/instance/beat", params, HttpMethod.PUT);
+            return JSON.parseObject(result);
+        } catch (Exception e) {
+            NAMING_LOGGER.error("[CLIENT-BEAT] failed to send beat: " + JSON.toJSONString(beatInfo), e);
+        }
+        return null;
+    }
 
-            if (jsonObject != null) {
-                return jsonObject.getLong("clientBeatInterval");
+    /**
+     * Send light beats of many instances in one request
+     *
+     * @param beatInfos beats of instances
+     * @return response of server, null if failed
+     */
+    public JSONObject sendBeats(List<BeatInfo> beatInfos) {
+        try {
+            JSONArray beats = new JSONArray();
+            for (BeatInfo beatInfo : beatInfos) {
+                JSONObject beat = new JSONObject();
+                beat.put("serviceName", beatInfo.getServiceName());
+                beat.put("ip", beatInfo.getIp());
+                beat.put("port", beatInfo.getPort());
+                beat.put("cluster", beatInfo.getCluster());
+                beats.add(beat);
             }
+            if (NAMING_LOGGER.isDebugEnabled()) {
+                NAMING_LOGGER.debug("[BEAT] {} sending beats to server: {}", namespaceId, beats);
+            }
+
+            Map<String, String> params = new HashMap<String, String>(4);
+            params.put("beats", beats.toJSONString());
+            params.put(CommonParams.NAMESPACE_ID, namespaceId);
+            String result = reqAPI(UtilAndComs.NACOS_URL_BASE + "/instance/beat/batch", params, HttpMethod.PUT);
+            return JSON.parseObject(result);
         } catch (Exception e) {
-            NAMING_LOGGER.error("[CLIENT-BEAT] failed to send beat: " + JSON.toJSONString(beatInfo), e);
+            NAMING_LOGGER.error("[CLIENT-BEAT] failed to send beats of " + beatInfos.size() + " instances", e);
         }
-        return 0L;
+        return null;
     }
 
     public boolean serverHealthy() {
@@ -387,6 +532,39 @@ public class NamingProxy {
         return reqAPI(api, params, snapshot, method);
     }
 
+    /**
+     * Request an API processed by the responsible server of the service in params only
+     * <p>
+     * The request is sent to the responsible server directly if it is known, or else to a random server
+     * which forwards it.
+     *
+     * @param api    api to request
+     * @param params params with service name
+     * @param method http method
+     * @return response
+     * @throws NacosException if request failed
+     */
+    public String reqDistroAPI(String api, Map<String, String> params, String method) throws NacosException {
+
+        List<String> snapshot = serversFromEndpoint;
+        if (!CollectionUtils.isEmpty(serverList)) {
+            snapshot = serverList;
+        }
+
+        String server = distroRouter.route(params.get(CommonParams.SERVICE_NAME), params.get(CommonParams.GROUP_NAME),
+            snapshot, serverPort);
+        if (server != null) {
+            try {
+                params.put(CommonParams.NAMESPACE_ID, getNamespaceId());
+                return callServer(api, params, server, method);
+            } catch (Exception e) {
+                NAMING_LOGGER.warn("[DISTRO] request {} failed, try other servers.", server, e);
+            }
+        }
+
+        return reqAPI(api, params, snapshot, method);
+    }
+
     public String callServer(String api, Map<String, String> params, String curServer) throws NacosException {
         return callServer(api, params, curServer, HttpMethod.GET);
     }
@@ -411,6 +589,15 @@ public class NamingProxy {
         HttpClient.HttpResult result = HttpClient.request(url, headers, params, UtilAndComs.ENCODING, method);
         end = System.currentTimeMillis();
 
+        if (distroRouter.checkVersion(result.getHeader(UtilAndComs.DISTRO_VERSION_HEADER)) && distroExecutor != null) {
+            distroExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    refreshDistroRing();
+                }
+            });
+        }
+
         MetricsMonitor.getNamingRequestMonitor(method, url, String.valueOf(result.code))
             .observe(end - start);
 
@@ -422,7 +609,7 @@ public class NamingProxy {
             return StringUtils.EMPTY;
         }
 
-        throw new NacosException(NacosException.SERVER_ERROR, "failed to req API:"
+        throw new NacosException(result.code, "failed to req API:"
             + curServer + api + ". code:"
             + result.code + " msg: " + result.content);
     }
@@ -50,6 +50,8 @@ public class UtilAndComs {
 
     public static final String SERVER_ADDR_IP_SPLITER = ":";
 
+    public static final String DISTRO_VERSION_HEADER = "Distro-Version";
+
     public static final int DEFAULT_CLIENT_BEAT_THREAD_COUNT = Runtime.getRuntime()
         .availableProcessors() > 1 ? Runtime.getRuntime().availableProcessors() / 2
         : 1;
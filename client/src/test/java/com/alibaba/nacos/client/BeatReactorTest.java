@@ -1,5 +1,7 @@
 package com.alibaba.nacos.client;
 
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.client.naming.beat.BeatInfo;
 import com.alibaba.nacos.client.naming.beat.BeatReactor;
 import com.alibaba.nacos.client.naming.net.NamingProxy;
@@ -11,8 +13,14 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author caoyixiong
@@ -37,7 +45,7 @@ public class BeatReactorTest {
         beatInfo.setScheduled(false);
         beatInfo.setPeriod(1000L);
 
-        Mockito.doReturn(0L).when(namingProxy).sendBeat(beatInfo);
+        Mockito.doReturn(null).when(namingProxy).sendBeat(beatInfo, false);
         beatReactor.addBeatInfo("testService", beatInfo);
 
         Assert.assertEquals(1, getActiveThread(beatReactor));
@@ -47,6 +55,167 @@ public class BeatReactorTest {
         Assert.assertEquals(0, getActiveThread(beatReactor));
     }
 
+    @Test
+    public void testBatch() throws Exception {
+        BeatReactor beatReactor = new BeatReactor(namingProxy);
+        Field field = BeatReactor.class.getDeclaredField("lightBeatEnabled");
+        field.setAccessible(true);
+        field.set(beatReactor, true);
+
+        JSONObject result = new JSONObject();
+        result.put("lightBeatEnabled", true);
+        Mockito.doReturn(result).when(namingProxy).sendBeats(Mockito.<BeatInfo>anyList());
+
+        for (int port = 1234; port < 1237; port++) {
+            BeatInfo beatInfo = new BeatInfo();
+            beatInfo.setServiceName("test");
+            beatInfo.setIp("11.11.11.11");
+            beatInfo.setPort(port);
+            beatInfo.setCluster("clusterName");
+            beatInfo.setPeriod(1000L);
+            beatReactor.addBeatInfo("test", beatInfo);
+        }
+
+        Assert.assertEquals(1, getActiveThread(beatReactor));
+        Thread.sleep(1100L);
+        Mockito.verify(namingProxy, Mockito.atLeastOnce()).sendBeats(Mockito.<BeatInfo>anyList());
+        Mockito.verify(namingProxy, Mockito.never()).sendBeat(Mockito.any(BeatInfo.class), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void testBatchFailed() throws Exception {
+        BeatReactor beatReactor = new BeatReactor(namingProxy);
+        Field field = BeatReactor.class.getDeclaredField("lightBeatEnabled");
+        field.setAccessible(true);
+        field.set(beatReactor, true);
+
+        List<BeatInfo> beatInfos = new ArrayList<BeatInfo>();
+        for (int port = 1234; port < 1237; port++) {
+            BeatInfo beatInfo = new BeatInfo();
+            beatInfo.setServiceName("test");
+            beatInfo.setIp("11.11.11.11");
+            beatInfo.setPort(port);
+            beatInfo.setCluster("clusterName");
+            beatInfo.setPeriod(1000L);
+            beatInfos.add(beatInfo);
+        }
+
+        JSONObject failedBeat = new JSONObject();
+        failedBeat.put("serviceName", "test");
+        failedBeat.put("ip", "11.11.11.11");
+        failedBeat.put("port", 1235);
+        JSONArray failed = new JSONArray();
+        failed.add(failedBeat);
+        JSONObject result = new JSONObject();
+        result.put("lightBeatEnabled", true);
+        result.put("failed", failed);
+        Mockito.doReturn(result).when(namingProxy).sendBeats(Mockito.<BeatInfo>anyList());
+        Mockito.doReturn(new JSONObject()).when(namingProxy).sendBeat(Mockito.any(BeatInfo.class), Mockito.anyBoolean());
+
+        for (BeatInfo beatInfo : beatInfos) {
+            beatReactor.addBeatInfo("test", beatInfo);
+        }
+
+        Thread.sleep(1100L);
+        for (BeatInfo beatInfo : beatInfos) {
+            beatReactor.removeBeatInfo("test", beatInfo.getIp(), beatInfo.getPort());
+        }
+        Mockito.verify(namingProxy, Mockito.atLeastOnce()).sendBeat(beatInfos.get(1), true);
+        Mockito.verify(namingProxy, Mockito.never()).sendBeat(Mockito.eq(beatInfos.get(0)), Mockito.anyBoolean());
+        Mockito.verify(namingProxy, Mockito.never()).sendBeat(Mockito.eq(beatInfos.get(2)), Mockito.anyBoolean());
+    }
+
+    @Test
+    public void testLightBeatFailed() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        BeatReactor beatReactor = new BeatReactor(namingProxy, executor);
+        Field field = BeatReactor.class.getDeclaredField("lightBeatEnabled");
+        field.setAccessible(true);
+        field.set(beatReactor, true);
+
+        BeatInfo beatInfo = new BeatInfo();
+        beatInfo.setServiceName("test");
+        beatInfo.setIp("11.11.11.11");
+        beatInfo.setPort(1234);
+        beatInfo.setCluster("clusterName");
+        beatInfo.setPeriod(1000L);
+
+        Mockito.doReturn(null).when(namingProxy).sendBeat(beatInfo, true);
+        Mockito.doReturn(new JSONObject()).when(namingProxy).sendBeat(beatInfo, false);
+        beatReactor.addBeatInfo("test", beatInfo);
+
+        executor.runNext();
+        Mockito.verify(namingProxy).sendBeat(beatInfo, true);
+        Mockito.verify(namingProxy).sendBeat(beatInfo, false);
+        Assert.assertFalse((Boolean) field.get(beatReactor));
+
+        executor.runNext();
+        Mockito.verify(namingProxy, Mockito.times(1)).sendBeat(beatInfo, true);
+        Mockito.verify(namingProxy, Mockito.times(2)).sendBeat(beatInfo, false);
+    }
+
+    @Test
+    public void testLightBeatDisabledByServer() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        BeatReactor beatReactor = new BeatReactor(namingProxy, executor);
+        Field field = BeatReactor.class.getDeclaredField("lightBeatEnabled");
+        field.setAccessible(true);
+        field.set(beatReactor, true);
+
+        BeatInfo beatInfo = new BeatInfo();
+        beatInfo.setServiceName("test");
+        beatInfo.setIp("11.11.11.11");
+        beatInfo.setPort(1234);
+        beatInfo.setCluster("clusterName");
+        beatInfo.setPeriod(1000L);
+
+        JSONObject result = new JSONObject();
+        result.put("lightBeatEnabled", false);
+        Mockito.doReturn(result).when(namingProxy).sendBeat(Mockito.eq(beatInfo), Mockito.anyBoolean());
+        beatReactor.addBeatInfo("test", beatInfo);
+
+        executor.runNext();
+        executor.runNext();
+        Mockito.verify(namingProxy, Mockito.times(1)).sendBeat(beatInfo, true);
+        Mockito.verify(namingProxy, Mockito.times(1)).sendBeat(beatInfo, false);
+    }
+
+    @Test
+    public void testBatchIntervals() throws Exception {
+        ManualExecutor executor = new ManualExecutor();
+        BeatReactor beatReactor = new BeatReactor(namingProxy, executor);
+        Field field = BeatReactor.class.getDeclaredField("lightBeatEnabled");
+        field.setAccessible(true);
+        field.set(beatReactor, true);
+
+        JSONArray intervals = new JSONArray();
+        intervals.add(10000L);
+        intervals.add(0L);
+        JSONObject result = new JSONObject();
+        result.put("lightBeatEnabled", true);
+        result.put("intervals", intervals);
+        Mockito.doReturn(result).when(namingProxy).sendBeats(Mockito.<BeatInfo>anyList());
+
+        for (int port = 1234; port < 1236; port++) {
+            BeatInfo beatInfo = new BeatInfo();
+            beatInfo.setServiceName("test");
+            beatInfo.setIp("11.11.11.11");
+            beatInfo.setPort(port);
+            beatInfo.setCluster("clusterName");
+            beatInfo.setPeriod(1000L);
+            beatReactor.addBeatInfo("test", beatInfo);
+        }
+        Assert.assertEquals(1, executor.tasks.size());
+
+        executor.runNext();
+        // the first beat follows the interval returned by the server, the second one its own period:
+        Assert.assertEquals(2, executor.tasks.size());
+        long first = executor.delays.poll();
+        long second = executor.delays.poll();
+        Assert.assertTrue(Math.max(first, second) > 1000L);
+        Assert.assertTrue(Math.min(first, second) <= 1000L);
+    }
+
     private int getActiveThread(BeatReactor beatReactor) throws NoSuchFieldException, IllegalAccessException {
         Field field = BeatReactor.class.getDeclaredField("executorService");
         field.setAccessible(true);
@@ -54,4 +223,29 @@ public class BeatReactorTest {
         return scheduledExecutorService.getQueue().size();
     }
 
+    /**
+     * Keeps scheduled beat tasks until the test runs them
+     */
+    private static class ManualExecutor extends ScheduledThreadPoolExecutor {
+
+        private final Queue<Runnable> tasks = new LinkedList<Runnable>();
+
+        private final Queue<Long> delays = new LinkedList<Long>();
+
+        ManualExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            tasks.add(command);
+            delays.add(unit.toMillis(delay));
+            return null;
+        }
+
+        void runNext() {
+            delays.poll();
+            tasks.poll().run();
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package com.alibaba.nacos.client;
+
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.nacos.client.naming.net.DistroRouter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author nkorange
+ */
+public class DistroRouterTest {
+
+    private static final List<String> SERVERS = Arrays.asList("1.1.1.1:8848", "1.1.1.2:8848", "1.1.1.3:8848");
+
+    @Test
+    public void testModulo() {
+        DistroRouter router = new DistroRouter();
+        router.update(ring(false, "v1"));
+
+        String serviceName = "DEFAULT_GROUP@@test.service";
+        int index = Math.abs(serviceName.hashCode() % Integer.MAX_VALUE) % SERVERS.size();
+        Assert.assertEquals(SERVERS.get(index), router.route("test.service", null, SERVERS, 8848));
+        Assert.assertEquals(SERVERS.get(index), router.route(serviceName, "other", SERVERS, 8848));
+
+        String server = SERVERS.get(index);
+        String host = server.substring(0, server.indexOf(':'));
+        Assert.assertEquals(host, router.route(serviceName, null, Arrays.asList(host), 8848));
+        Assert.assertNull(router.route(serviceName, null, Arrays.asList("2.2.2.2:8848"), 8848));
+    }
+
+    @Test
+    public void testConsistentHash() {
+        DistroRouter router = new DistroRouter();
+        router.update(ring(true, "v1"));
+
+        for (int i = 0; i < 100; i++) {
+            String server = router.route("service" + i, null, SERVERS, 8848);
+            Assert.assertTrue(SERVERS.contains(server));
+            Assert.assertEquals(server, router.route("service" + i, null, SERVERS, 8848));
+        }
+    }
+
+    @Test
+    public void testVersion() {
+        DistroRouter router = new DistroRouter();
+        Assert.assertFalse(router.checkVersion("v1"));
+
+        router.update(ring(false, "v1"));
+        Assert.assertFalse(router.checkVersion("v1"));
+        Assert.assertFalse(router.checkVersion(null));
+        Assert.assertNotNull(router.route("test", null, SERVERS, 8848));
+
+        Assert.assertTrue(router.checkVersion("v2"));
+        Assert.assertNull(router.getVersion());
+        Assert.assertNull(router.route("test", null, SERVERS, 8848));
+    }
+
+    private JSONObject ring(boolean consistentHash, String version) {
+        JSONObject json = new JSONObject();
+        json.put("distroEnabled", true);
+        json.put("consistentHash", consistentHash);
+        json.put("virtualNodes", 160);
+        json.put("version", version);
+        json.put("servers", SERVERS);
+        return json;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.common.util;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * Immutable consistent hash ring of servers.
+ * <p>
+ * Every server is placed on the ring as a number of virtual nodes, and a key belongs to the first
+ * virtual node at or after its hash. Adding or removing one of N servers only moves about 1/N of the
+ * keys. The ring is kept as a sorted array, so a lookup is a binary search.
+ * <p>
+ * Servers and clients build the same ring from the same servers, so both map a key to the same server.
+ * <p>
+ * Servers and clients build the same ring from the same servers, so both map a key to the same server.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class ConsistentHashRing {
+
+    public static final ConsistentHashRing EMPTY = new ConsistentHashRing(new int[0], new String[0]);
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32();
+
+    private static final String VIRTUAL_NODE_SPLITER = "#";
+
+    private final int[] hashes;
+
+    private final String[] servers;
+
+    private ConsistentHashRing(int[] hashes, String[] servers) {
+        this.hashes = hashes;
+        this.servers = servers;
+    }
+
+    /**
+     * Build a ring
+     *
+     * @param servers      servers on the ring
+     * @param virtualNodes number of virtual nodes of every server
+     * @return ring
+     */
+    public static ConsistentHashRing of(Collection<String> servers, int virtualNodes) {
+        final int[] nodeHashes = new int[servers.size() * virtualNodes];
+        String[] nodeServers = new String[nodeHashes.length];
+        Integer[] order = new Integer[nodeHashes.length];
+
+        int node = 0;
+        for (String server : servers) {
+            for (int i = 0; i < virtualNodes; i++) {
+                nodeHashes[node] = hash(server + VIRTUAL_NODE_SPLITER + i);
+                nodeServers[node] = server;
+                order[node] = node;
+                node++;
+            }
+        }
+
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                int h1 = nodeHashes[o1];
+                int h2 = nodeHashes[o2];
+                return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+            }
+        });
+
+        int[] sortedHashes = new int[order.length];
+        String[] sortedServers = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedHashes[i] = nodeHashes[order[i]];
+            sortedServers[i] = nodeServers[order[i]];
+        }
+        return new ConsistentHashRing(sortedHashes, sortedServers);
+    }
+
+    /**
+     * Get the server a key belongs to
+     *
+     * @param key key to map
+     * @return server, null if the ring is empty
+     */
+    public String get(String key) {
+        if (hashes.length == 0) {
+            return null;
+        }
+
+        int index = Arrays.binarySearch(hashes, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return servers[index == hashes.length ? 0 : index];
+    }
+
+    public boolean isEmpty() {
+        return hashes.length == 0;
+    }
+
+    private static int hash(String key) {
+        return HASH_FUNCTION.hashString(key, Charsets.UTF_8).asInt();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.common.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two level hashed timing wheel.
+ * <p>
+ * The inner wheel holds elements expiring within one revolution, one slot per tick. The outer wheel holds
+ * elements expiring later, one slot per revolution of the inner wheel, and its slots are cascaded into the
+ * inner wheel as time goes by. Elements expiring beyond the outer wheel are kept in its farthest slot and
+ * cascaded again until they fit. Adding and expiring an element are O(1), whatever the number of elements.
+ * <p>
+ * Elements can not be cancelled, the caller checks whether an expired element is still valid.
+ *
+ * @param <E> type of elements
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class TimingWheel<E> {
+
+    private final long tickMillis;
+
+    private final int wheelSize;
+
+    private final List<Node<E>>[] inner;
+
+    private final List<Node<E>>[] outer;
+
+    private long currentTick;
+
+    private int size = 0;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(int wheelSize, long tickMillis, long nowMillis) {
+        this.wheelSize = wheelSize;
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+        this.inner = new List[wheelSize];
+        this.outer = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            inner[i] = new ArrayList<Node<E>>();
+            outer[i] = new ArrayList<Node<E>>();
+        }
+    }
+
+    /**
+     * Add an element expiring at the deadline
+     *
+     * @param element        element to add
+     * @param deadlineMillis deadline in milliseconds, an element past the deadline expires at next tick
+     */
+    public synchronized void add(E element, long deadlineMillis) {
+        place(new Node<E>(element, deadlineMillis), currentTick + 1);
+        size++;
+    }
+
+    /**
+     * Move the wheel forward to the time
+     *
+     * @param nowMillis current time in milliseconds
+     * @return elements expired since last advance
+     */
+    public synchronized List<E> advance(long nowMillis) {
+        List<E> expired = new ArrayList<E>();
+        long nowTick = nowMillis / tickMillis;
+
+        while (currentTick < nowTick) {
+            currentTick++;
+
+            if (currentTick % wheelSize == 0) {
+                List<Node<E>> slot = outer[(int) (currentTick / wheelSize % wheelSize)];
+                List<Node<E>> cascaded = new ArrayList<Node<E>>(slot);
+                slot.clear();
+                for (Node<E> node : cascaded) {
+                    place(node, currentTick);
+                }
+            }
+
+            List<Node<E>> slot = inner[(int) (currentTick % wheelSize)];
+            for (Node<E> node : slot) {
+                expired.add(node.element);
+            }
+            size -= slot.size();
+            slot.clear();
+        }
+
+        return expired;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    private void place(Node<E> node, long minTick) {
+        long tick = Math.max(node.deadlineMillis / tickMillis, minTick);
+
+        if (tick - currentTick < wheelSize) {
+            inner[(int) (tick % wheelSize)].add(node);
+            return;
+        }
+
+        long round = Math.min(tick / wheelSize, currentTick / wheelSize + wheelSize - 1);
+        outer[(int) (round % wheelSize)].add(node);
+    }
+
+    private static class Node<E> {
+
+        private final E element;
+
+        private final long deadlineMillis;
+
+        Node(E element, long deadlineMillis) {
+            this.element = element;
+            this.deadlineMillis = deadlineMillis;
+        }
+    }
+}
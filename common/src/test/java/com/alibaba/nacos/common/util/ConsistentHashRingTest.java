@@ -0,0 +1,69 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author nkorange
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEY_COUNT = 10000;
+
+    @Test
+    public void emptyRing() {
+        Assert.assertNull(ConsistentHashRing.EMPTY.get("nacos.service.1"));
+        Assert.assertTrue(ConsistentHashRing.of(new ArrayList<String>(), 160).isEmpty());
+    }
+
+    @Test
+    public void removeServer() {
+        List<String> servers = new ArrayList<String>();
+        for (int i = 1; i <= 7; i++) {
+            servers.add("192.168.0." + i + ":8848");
+        }
+        ConsistentHashRing ring = ConsistentHashRing.of(servers, 160);
+
+        Map<String, Integer> counts = new HashMap<String, Integer>(16);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String server = ring.get("DEFAULT_GROUP@@service." + i);
+            counts.put(server, counts.containsKey(server) ? counts.get(server) + 1 : 1);
+        }
+        Assert.assertEquals(7, counts.size());
+        for (int count : counts.values()) {
+            Assert.assertTrue(count > KEY_COUNT / 7 / 2);
+        }
+
+        String removed = servers.remove(3);
+        ConsistentHashRing newRing = ConsistentHashRing.of(servers, 160);
+
+        for (int i = 0; i < KEY_COUNT; i++) {
+            String key = "DEFAULT_GROUP@@service." + i;
+            if (!removed.equals(ring.get(key))) {
+                Assert.assertEquals(ring.get(key), newRing.get(key));
+            } else {
+                Assert.assertNotEquals(removed, newRing.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.common.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author nkorange
+ */
+public class TimingWheelTest {
+
+    @Test
+    public void expireInnerWheel() {
+        TimingWheel<String> wheel = new TimingWheel<String>(8, 100L, 0L);
+        wheel.add("a", 250L);
+        wheel.add("b", 50L);
+        wheel.add("c", 790L);
+
+        Assert.assertEquals(Collections.singletonList("b"), wheel.advance(100L));
+        Assert.assertTrue(wheel.advance(199L).isEmpty());
+        Assert.assertEquals(Collections.singletonList("a"), wheel.advance(200L));
+        Assert.assertEquals(Collections.singletonList("c"), wheel.advance(800L));
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void cascadeOuterWheel() {
+        TimingWheel<String> wheel = new TimingWheel<String>(8, 100L, 0L);
+        wheel.add("a", 2000L);
+        wheel.add("b", 100000L);
+
+        Assert.assertTrue(wheel.advance(1900L).isEmpty());
+        Assert.assertEquals(Collections.singletonList("a"), wheel.advance(2000L));
+
+        List<String> expired = wheel.advance(99900L);
+        Assert.assertTrue(expired.isEmpty());
+        Assert.assertEquals(1, wheel.size());
+        Assert.assertEquals(Collections.singletonList("b"), wheel.advance(100000L));
+    }
+
+    @Test
+    public void expireOverRounds() {
+        TimingWheel<String> wheel = new TimingWheel<String>(4, 100L, 0L);
+        wheel.add("a", 350L);
+        wheel.add("b", 950L);
+
+        Assert.assertEquals(Arrays.asList("a", "b"), wheel.advance(2000L));
+    }
+}
@@ -18,12 +18,14 @@ package com.alibaba.nacos.config.server.controller;
 import com.alibaba.nacos.config.server.constant.Constants;
 import com.alibaba.nacos.config.server.model.CacheItem;
 import com.alibaba.nacos.config.server.model.ConfigInfoBase;
+import com.alibaba.nacos.config.server.service.ConfigContentCache;
 import com.alibaba.nacos.config.server.service.ConfigService;
 import com.alibaba.nacos.config.server.service.DiskUtil;
 import com.alibaba.nacos.config.server.service.LongPollingService;
 import com.alibaba.nacos.config.server.service.PersistService;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.*;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -36,7 +38,9 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
@@ -137,14 +141,24 @@ public class ConfigServletInner {
                 File file = null;
                 ConfigInfoBase configInfoBase = null;
                 PrintWriter out = null;
+                // 命中内容缓存或快照存储时不再读取配置文件或数据库
+                ByteBuffer cachedContent = null;
+                String cacheKey;
                 if (isBeta) {
                     md5 = cacheItem.getMd54Beta();
                     lastModified = cacheItem.getLastModifiedTs4Beta();
+                    cacheKey = ConfigContentCache.betaKey(groupKey);
+                    cachedContent = ConfigContentCache.get(cacheKey, md5);
+                    if (cachedContent == null) {
+                        cachedContent = DiskUtil.getBetaSnapshot(dataId, group, tenant, md5);
+                    }
                     // 注释1：单体下，从数据查，否则从文件查
-                    if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                        configInfoBase = persistService.findConfigInfo4Beta(dataId, group, tenant);
-                    } else {
-                        file = DiskUtil.targetBetaFile(dataId, group, tenant);
+                    if (cachedContent == null) {
+                        if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                            configInfoBase = persistService.findConfigInfo4Beta(dataId, group, tenant);
+                        } else {
+                            file = DiskUtil.targetBetaFile(dataId, group, tenant);
+                        }
                     }
                     response.setHeader("isBeta", "true");
                 } else {
@@ -158,10 +172,17 @@ public class ConfigServletInner {
                                     lastModified = cacheItem.tagLastModifiedTs.get(autoTag);
                                 }
                             }
-                            if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                                configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
-                            } else {
-                                file = DiskUtil.targetTagFile(dataId, group, tenant, autoTag);
+                            cacheKey = ConfigContentCache.tagKey(groupKey, autoTag);
+                            cachedContent = ConfigContentCache.get(cacheKey, md5);
+                            if (cachedContent == null) {
+                                cachedContent = DiskUtil.getTagSnapshot(dataId, group, tenant, autoTag, md5);
+                            }
+                            if (cachedContent == null) {
+                                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                                    configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, autoTag);
+                                } else {
+                                    file = DiskUtil.targetTagFile(dataId, group, tenant, autoTag);
+                                }
                             }
 
                             response.setHeader("Vipserver-Tag",
@@ -169,12 +190,19 @@ public class ConfigServletInner {
                         } else {
                             md5 = cacheItem.getMd5();
                             lastModified = cacheItem.getLastModifiedTs();
-                            if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                                configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
-                            } else {
-                                file = DiskUtil.targetFile(dataId, group, tenant);
+                            cacheKey = ConfigContentCache.formalKey(groupKey);
+                            cachedContent = ConfigContentCache.get(cacheKey, md5);
+                            if (cachedContent == null) {
+                                cachedContent = DiskUtil.getSnapshot(dataId, group, tenant, md5);
+                            }
+                            if (cachedContent == null) {
+                                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                                    configInfoBase = persistService.findConfigInfo(dataId, group, tenant);
+                                } else {
+                                    file = DiskUtil.targetFile(dataId, group, tenant);
+                                }
                             }
-                            if (configInfoBase == null && fileNotExist(file)) {
+                            if (cachedContent == null && configInfoBase == null && fileNotExist(file)) {
                                 // FIXME CacheItem
                                 // 不存在了无法简单的计算推送delayed，这里简单的记做-1
                                 ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
@@ -201,12 +229,19 @@ public class ConfigServletInner {
                                 }
                             }
                         }
-                        if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
-                            configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, tag);
-                        } else {
-                            file = DiskUtil.targetTagFile(dataId, group, tenant, tag);
+                        cacheKey = ConfigContentCache.tagKey(groupKey, tag);
+                        cachedContent = ConfigContentCache.get(cacheKey, md5);
+                        if (cachedContent == null) {
+                            cachedContent = DiskUtil.getTagSnapshot(dataId, group, tenant, tag, md5);
+                        }
+                        if (cachedContent == null) {
+                            if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                                configInfoBase = persistService.findConfigInfo4Tag(dataId, group, tenant, tag);
+                            } else {
+                                file = DiskUtil.targetTagFile(dataId, group, tenant, tag);
+                            }
                         }
-                        if (configInfoBase == null && fileNotExist(file)) {
+                        if (cachedContent == null && configInfoBase == null && fileNotExist(file)) {
                             // FIXME CacheItem
                             // 不存在了无法简单的计算推送delayed，这里简单的记做-1
                             ConfigTraceService.logPullEvent(dataId, group, tenant, requestIpApp, -1,
@@ -231,19 +266,29 @@ public class ConfigServletInner {
                 response.setHeader("Pragma", "no-cache");
                 response.setDateHeader("Expires", 0);
                 response.setHeader("Cache-Control", "no-cache,no-store");
-                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                boolean fromDb = STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql();
+                if (cachedContent != null || fromDb) {
                     response.setDateHeader("Last-Modified", lastModified);
                 } else {
-                    fis = new FileInputStream(file);
                     response.setDateHeader("Last-Modified", file.lastModified());
                 }
 
-                if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
+                if (cachedContent == null) {
+                    cachedContent = fillContentCache(cacheKey, md5, configInfoBase, file);
+                }
+
+                if (cachedContent != null) {
+                    WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+                    while (cachedContent.hasRemaining()) {
+                        channel.write(cachedContent);
+                    }
+                } else if (STANDALONE_MODE && !PropertyUtil.isStandaloneUseMysql()) {
                     out = response.getWriter();
                     out.print(configInfoBase.getContent());
                     out.flush();
                     out.close();
                 } else {
+                    fis = new FileInputStream(file);
                     fis.getChannel().transferTo(0L, fis.getChannel().size(),
                         Channels.newChannel(response.getOutputStream()));
                 }
@@ -287,6 +332,30 @@ public class ConfigServletInner {
         return HttpServletResponse.SC_OK + "";
     }
 
+    /**
+     * 内容缓存未命中时，在读锁内把读到的内容放入缓存，读锁保证文件内容与md5一致
+     *
+     * @return 缓存的内容，内容过大或与md5不一致时返回null
+     */
+    private static ByteBuffer fillContentCache(String cacheKey, String md5, ConfigInfoBase configInfoBase, File file)
+        throws IOException {
+        if (md5 == null) {
+            return null;
+        }
+        if (configInfoBase != null) {
+            String content = configInfoBase.getContent();
+            // 数据库中的内容可能已经比dump的md5新，不一致时不缓存
+            if (content == null || !md5.equals(MD5.getInstance().getMD5String(content))) {
+                return null;
+            }
+            return ConfigContentCache.put(cacheKey, md5, content);
+        }
+        if (file == null || !ConfigContentCache.isCacheable(file.length())) {
+            return null;
+        }
+        return ConfigContentCache.put(cacheKey, md5, FileUtils.readFileToByteArray(file));
+    }
+
     private static void releaseConfigReadLock(String groupKey) {
         ConfigService.releaseReadLock(groupKey);
     }
@@ -17,9 +17,11 @@ package com.alibaba.nacos.config.server.monitor;
 
 import io.micrometer.core.instrument.*;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Metrics Monitor
@@ -33,6 +35,8 @@ public class MetricsMonitor {
     private static AtomicInteger configCount = new AtomicInteger();
     private static AtomicInteger notifyTask = new AtomicInteger();
     private static AtomicInteger dumpTask = new AtomicInteger();
+    private static AtomicLong contentCacheBytes = new AtomicLong();
+    private static AtomicLong dumpAllPending = new AtomicLong();
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -65,6 +69,16 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("name", "dumpTask"));
 
         Metrics.gauge("nacos_monitor", tags, dumpTask);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "contentCacheBytes"));
+        Metrics.gauge("nacos_monitor", tags, contentCacheBytes);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "config"));
+        tags.add(new ImmutableTag("name", "dumpAllPending"));
+        Metrics.gauge("nacos_monitor", tags, dumpAllPending);
     }
 
     public static AtomicInteger getConfigMonitor() {
@@ -91,11 +105,54 @@ public class MetricsMonitor {
         return dumpTask;
     }
 
+    public static AtomicLong getContentCacheBytesMonitor() {
+        return contentCacheBytes;
+    }
+
+    /**
+     * 全量dump中尚未落盘的配置数，启动时降到0即dump完成
+     *
+     * @return pending count
+     */
+    public static AtomicLong getDumpAllPendingMonitor() {
+        return dumpAllPending;
+    }
+
+    public static Counter getDumpAllFailedCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "config", "name", "dumpAllFailed");
+    }
+
+    public static Counter getContentCacheHitCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "config", "name", "contentCacheHit");
+    }
+
+    public static Counter getContentCacheMissCounter() {
+        return Metrics.counter("nacos_counter",
+            "module", "config", "name", "contentCacheMiss");
+    }
+
     public static Timer getNotifyRtTimer() {
         return Metrics.timer("nacos_timer",
             "module", "config", "name", "notifyRt");
     }
 
+    /**
+     * 配置变更到长轮询响应的耗时，导出p99
+     *
+     * @return timer
+     */
+    public static Timer getLongPollingResponseTimer() {
+        return Timer.builder("nacos_timer")
+            .tags("module", "config", "name", "longPollingResponse")
+            .publishPercentiles(0.99)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(Metrics.globalRegistry);
+    }
+
     public static Counter getIllegalArgumentException() {
         return Metrics.counter("nacos_exception",
             "module", "config", "name", "illegalArgument");
@@ -0,0 +1,186 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * 配置内容缓存，热点配置的读取不再访问磁盘或数据库
+ * <p>
+ * 内容在读取未命中时放入，只缓存被读到的配置，启动时全量dump不会占用堆外内存。内容以UTF-8编码存放在堆外，
+ * 总字节数超过上限时按LRU淘汰。缓存项带有内容的md5，只有与CacheItem中的md5一致时才命中，不一致的旧内容在读取时移除。
+ *
+ * @author Nacos
+ */
+public class ConfigContentCache {
+
+    private static final String BETA_SUFFIX = "+beta";
+
+    private static final String TAG_SUFFIX = "+tag+";
+
+    /**
+     * 超过容量1/8的配置不缓存，避免一个大配置淘汰大量热点配置
+     */
+    private static final int MAX_ITEM_RATIO = 8;
+
+    private static final Charset ENCODE = Charset.forName(Constants.ENCODE);
+
+    /**
+     * 缓存key -> 内容，按访问顺序排列
+     */
+    private static final LinkedHashMap<String, Item> CACHE = new LinkedHashMap<String, Item>(1024, 0.75f, true);
+
+    private static long totalBytes = 0L;
+
+    static public String formalKey(String groupKey) {
+        return groupKey;
+    }
+
+    static public String betaKey(String groupKey) {
+        return groupKey + BETA_SUFFIX;
+    }
+
+    static public String tagKey(String groupKey, String tag) {
+        return groupKey + TAG_SUFFIX + tag;
+    }
+
+    /**
+     * 缓存配置内容
+     *
+     * @param key     缓存key
+     * @param md5     内容的md5
+     * @param content 内容
+     * @return 缓存的内容，内容过大不缓存时返回null
+     */
+    static public ByteBuffer put(String key, String md5, String content) {
+        return put(key, md5, content.getBytes(ENCODE));
+    }
+
+    /**
+     * 缓存配置内容
+     *
+     * @param key   缓存key
+     * @param md5   内容的md5
+     * @param bytes UTF-8编码的内容
+     * @return 缓存的内容，内容过大不缓存时返回null
+     */
+    static public ByteBuffer put(String key, String md5, byte[] bytes) {
+        if (!isCacheable(bytes.length)) {
+            remove(key);
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+        Item item = new Item(md5, buffer.asReadOnlyBuffer());
+
+        long maxBytes = PropertyUtil.getContentCacheMaxBytes();
+        synchronized (CACHE) {
+            Item old = CACHE.put(key, item);
+            totalBytes += bytes.length - (old == null ? 0 : old.size());
+
+            Iterator<Item> iter = CACHE.values().iterator();
+            while (totalBytes > maxBytes && iter.hasNext()) {
+                totalBytes -= iter.next().size();
+                iter.remove();
+            }
+            MetricsMonitor.getContentCacheBytesMonitor().set(totalBytes);
+        }
+        return item.content.duplicate();
+    }
+
+    /**
+     * 内容是否可以缓存
+     *
+     * @param size 内容的字节数
+     * @return 超过容量1/8时返回false
+     */
+    static public boolean isCacheable(long size) {
+        return size <= PropertyUtil.getContentCacheMaxBytes() / MAX_ITEM_RATIO;
+    }
+
+    /**
+     * 读取配置内容
+     *
+     * @param key 缓存key
+     * @param md5 期望内容的md5
+     * @return 内容，不存在或md5不一致时返回null
+     */
+    static public ByteBuffer get(String key, String md5) {
+        Item item;
+        synchronized (CACHE) {
+            item = CACHE.get(key);
+        }
+
+        if (item == null) {
+            MetricsMonitor.getContentCacheMissCounter().increment();
+            return null;
+        }
+        if (!item.md5.equals(md5)) {
+            synchronized (CACHE) {
+                if (CACHE.get(key) == item) {
+                    CACHE.remove(key);
+                    totalBytes -= item.size();
+                    MetricsMonitor.getContentCacheBytesMonitor().set(totalBytes);
+                }
+            }
+            MetricsMonitor.getContentCacheMissCounter().increment();
+            return null;
+        }
+        MetricsMonitor.getContentCacheHitCounter().increment();
+        return item.content.duplicate();
+    }
+
+    static public void remove(String key) {
+        synchronized (CACHE) {
+            Item old = CACHE.remove(key);
+            if (old != null) {
+                totalBytes -= old.size();
+                MetricsMonitor.getContentCacheBytesMonitor().set(totalBytes);
+            }
+        }
+    }
+
+    static public long size() {
+        synchronized (CACHE) {
+            return totalBytes;
+        }
+    }
+
+    static private class Item {
+
+        final String md5;
+
+        final ByteBuffer content;
+
+        Item(String md5, ByteBuffer content) {
+            this.md5 = md5;
+            this.content = content;
+        }
+
+        int size() {
+            return content.capacity();
+        }
+    }
+}
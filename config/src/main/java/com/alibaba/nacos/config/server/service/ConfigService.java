@@ -328,6 +328,8 @@ public class ConfigService {
                 DiskUtil.removeConfigInfo(dataId, group, tenant);
             }
             CACHE.remove(groupKey);
+            ConfigContentCache.remove(ConfigContentCache.formalKey(groupKey));
+            ConfigContentCache.remove(ConfigContentCache.betaKey(groupKey));
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey));
 
             return true;
@@ -365,6 +367,7 @@ public class ConfigService {
             CACHE.get(groupKey).setBeta(false);
             CACHE.get(groupKey).setIps4Beta(null);
             CACHE.get(groupKey).setMd54Beta(Constants.NULL);
+            ConfigContentCache.remove(ConfigContentCache.betaKey(groupKey));
             return true;
         } finally {
             releaseWriteLock(groupKey);
@@ -400,6 +403,7 @@ public class ConfigService {
             CacheItem ci = CACHE.get(groupKey);
             ci.tagMd5.remove(tag);
             ci.tagLastModifiedTs.remove(tag);
+            ConfigContentCache.remove(ConfigContentCache.tagKey(groupKey, tag));
             EventDispatcher.fireEvent(new LocalDataChangeEvent(groupKey, false, null, tag));
             return true;
         } finally {
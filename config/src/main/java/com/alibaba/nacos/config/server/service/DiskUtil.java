@@ -16,8 +16,11 @@
 package com.alibaba.nacos.config.server.service;
 
 import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.service.snapshot.SnapshotStore;
+import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.LogUtil;
 import com.alibaba.nacos.config.server.utils.MD5;
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -28,13 +31,15 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
 
 import static com.alibaba.nacos.core.utils.SystemUtils.NACOS_HOME;
 
 /**
  * 磁盘操作工具类。
  * <p>
- * 只有一个dump线程。
+ * 只有一个dump线程。启用快照存储后，配置不再一个配置一个文件，而是保存在{@link SnapshotStore}中。
  *
  * @author jiuRen
  */
@@ -47,6 +52,39 @@ public class DiskUtil {
     static final String TENANT_BETA_DIR = File.separator + "data" + File.separator + "tenant-beta-data";
     static final String TAG_DIR = File.separator + "data" + File.separator + "tag-data";
     static final String TENANT_TAG_DIR = File.separator + "data" + File.separator + "tag-beta-data";
+    static final String SNAPSHOT_DIR = File.separator + "data" + File.separator + "config-snapshot";
+    static final String BETA_SNAPSHOT_DIR = File.separator + "data" + File.separator + "beta-snapshot";
+    static final String TAG_SNAPSHOT_DIR = File.separator + "data" + File.separator + "tag-snapshot";
+    static final int COMPACT_INTERVAL_IN_MINUTE = 10;
+
+    private static volatile SnapshotStore configStore;
+    private static volatile SnapshotStore betaStore;
+    private static volatile SnapshotStore tagStore;
+
+    /**
+     * 启用快照存储时打开各快照存储并定时整理，需要在dump之前调用
+     */
+    static synchronized public void initSnapshotStores() throws IOException {
+        if (!PropertyUtil.isSnapshotStoreEnabled() || configStore != null) {
+            return;
+        }
+        configStore = new SnapshotStore(new File(NACOS_HOME, SNAPSHOT_DIR));
+        betaStore = new SnapshotStore(new File(NACOS_HOME, BETA_SNAPSHOT_DIR));
+        tagStore = new SnapshotStore(new File(NACOS_HOME, TAG_SNAPSHOT_DIR));
+
+        TimerTaskService.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    configStore.compact();
+                    betaStore.compact();
+                    tagStore.compact();
+                } catch (Throwable e) {
+                    LogUtil.fatalLog.error("compact snapshot store failed", e);
+                }
+            }
+        }, COMPACT_INTERVAL_IN_MINUTE, COMPACT_INTERVAL_IN_MINUTE, TimeUnit.MINUTES);
+    }
 
     static public void saveHeartBeatToDisk(String heartBeatTime)
         throws IOException {
@@ -58,6 +96,10 @@ public class DiskUtil {
      * 保存配置信息到磁盘
      */
     static public void saveToDisk(String dataId, String group, String tenant, String content) throws IOException {
+        if (configStore != null) {
+            configStore.put(GroupKey2.getKey(dataId, group, tenant), content);
+            return;
+        }
         File targetFile = targetFile(dataId, group, tenant);
         FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
     }
@@ -66,6 +108,10 @@ public class DiskUtil {
      * 保存配置信息到磁盘
      */
     static public void saveBetaToDisk(String dataId, String group, String tenant, String content) throws IOException {
+        if (betaStore != null) {
+            betaStore.put(GroupKey2.getKey(dataId, group, tenant), content);
+            return;
+        }
         File targetFile = targetBetaFile(dataId, group, tenant);
         FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
     }
@@ -75,6 +121,10 @@ public class DiskUtil {
      */
     static public void saveTagToDisk(String dataId, String group, String tenant, String tag, String content)
         throws IOException {
+        if (tagStore != null) {
+            tagStore.put(tagKey(dataId, group, tenant, tag), content);
+            return;
+        }
         File targetFile = targetTagFile(dataId, group, tenant, tag);
         FileUtils.writeStringToFile(targetFile, content, Constants.ENCODE);
     }
@@ -83,6 +133,10 @@ public class DiskUtil {
      * 删除磁盘上的配置文件
      */
     static public void removeConfigInfo(String dataId, String group, String tenant) {
+        if (configStore != null) {
+            removeQuietly(configStore, GroupKey2.getKey(dataId, group, tenant));
+            return;
+        }
         FileUtils.deleteQuietly(targetFile(dataId, group, tenant));
     }
 
@@ -90,7 +144,10 @@ public class DiskUtil {
      * 删除磁盘上的配置文件
      */
     static public void removeConfigInfo4Beta(String dataId, String group, String tenant) {
-
+        if (betaStore != null) {
+            removeQuietly(betaStore, GroupKey2.getKey(dataId, group, tenant));
+            return;
+        }
         FileUtils.deleteQuietly(targetBetaFile(dataId, group, tenant));
     }
 
@@ -98,7 +155,10 @@ public class DiskUtil {
      * 删除磁盘上的配置文件
      */
     static public void removeConfigInfo4Tag(String dataId, String group, String tenant, String tag) {
-
+        if (tagStore != null) {
+            removeQuietly(tagStore, tagKey(dataId, group, tenant, tag));
+            return;
+        }
         FileUtils.deleteQuietly(targetTagFile(dataId, group, tenant, tag));
     }
 
@@ -157,6 +217,10 @@ public class DiskUtil {
 
     static public String getConfig(String dataId, String group, String tenant)
         throws IOException {
+        if (configStore != null) {
+            String content = configStore.getString(GroupKey2.getKey(dataId, group, tenant));
+            return content == null ? StringUtils.EMPTY : content;
+        }
         File file = targetFile(dataId, group, tenant);
         if (file.exists()) {
             FileInputStream fis = null;
@@ -175,9 +239,42 @@ public class DiskUtil {
 
     static public String getLocalConfigMd5(String dataId, String group, String tenant)
         throws IOException {
+        if (configStore != null) {
+            String md5 = configStore.getMd5(GroupKey2.getKey(dataId, group, tenant));
+            if (md5 != null) {
+                return md5;
+            }
+        }
         return MD5.getInstance().getMD5String(getConfig(dataId, group, tenant));
     }
 
+    /**
+     * 从快照存储读取配置内容，不拷贝
+     *
+     * @return 未启用快照存储、配置不存在或md5不一致时返回null
+     */
+    static public ByteBuffer getSnapshot(String dataId, String group, String tenant, String md5) {
+        return configStore == null ? null : configStore.get(GroupKey2.getKey(dataId, group, tenant), md5);
+    }
+
+    /**
+     * 从快照存储读取beta配置内容，不拷贝
+     *
+     * @return 未启用快照存储、配置不存在或md5不一致时返回null
+     */
+    static public ByteBuffer getBetaSnapshot(String dataId, String group, String tenant, String md5) {
+        return betaStore == null ? null : betaStore.get(GroupKey2.getKey(dataId, group, tenant), md5);
+    }
+
+    /**
+     * 从快照存储读取tag配置内容，不拷贝
+     *
+     * @return 未启用快照存储、配置不存在或md5不一致时返回null
+     */
+    static public ByteBuffer getTagSnapshot(String dataId, String group, String tenant, String tag, String md5) {
+        return tagStore == null ? null : tagStore.get(tagKey(dataId, group, tenant, tag), md5);
+    }
+
     static public File heartBeatFile() {
         return new File(NACOS_HOME, "status/heartBeat.txt");
     }
@@ -187,6 +284,7 @@ public class DiskUtil {
     }
 
     static public void clearAll() {
+        clearQuietly(configStore);
         File file = new File(NACOS_HOME, BASE_DIR);
         if (FileUtils.deleteQuietly(file)) {
             LogUtil.defaultLog.info("clear all config-info success.");
@@ -202,6 +300,7 @@ public class DiskUtil {
     }
 
     static public void clearAllBeta() {
+        clearQuietly(betaStore);
         File file = new File(NACOS_HOME, BETA_DIR);
         if (FileUtils.deleteQuietly(file)) {
             LogUtil.defaultLog.info("clear all config-info-beta success.");
@@ -217,6 +316,7 @@ public class DiskUtil {
     }
 
     static public void clearAllTag() {
+        clearQuietly(tagStore);
         File file = new File(NACOS_HOME, TAG_DIR);
         if (FileUtils.deleteQuietly(file)) {
             LogUtil.defaultLog.info("clear all config-info-tag success.");
@@ -230,4 +330,28 @@ public class DiskUtil {
             LogUtil.defaultLog.warn("clear all config-info-tag-tenant failed.");
         }
     }
+
+    private static String tagKey(String dataId, String group, String tenant, String tag) {
+        return ConfigContentCache.tagKey(GroupKey2.getKey(dataId, group, tenant), tag);
+    }
+
+    private static void removeQuietly(SnapshotStore store, String key) {
+        try {
+            store.remove(key);
+        } catch (IOException e) {
+            LogUtil.fatalLog.error("remove from snapshot store failed, " + key, e);
+        }
+    }
+
+    private static void clearQuietly(SnapshotStore store) {
+        if (store == null) {
+            return;
+        }
+        try {
+            store.clear();
+            LogUtil.defaultLog.info("clear snapshot store success.");
+        } catch (IOException e) {
+            LogUtil.fatalLog.error("clear snapshot store failed", e);
+        }
+    }
 }
@@ -15,6 +15,7 @@
  */
 package com.alibaba.nacos.config.server.service;
 
+import com.alibaba.nacos.common.util.TimingWheel;
 import com.alibaba.nacos.config.server.model.SampleResult;
 import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
 import com.alibaba.nacos.config.server.utils.GroupKey;
@@ -29,8 +30,10 @@ import org.springframework.stereotype.Service;
 import javax.servlet.AsyncContext;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BiFunction;
 
 import static com.alibaba.nacos.config.server.utils.LogUtil.memoryLog;
 import static com.alibaba.nacos.config.server.utils.LogUtil.pullLog;
@@ -51,6 +54,15 @@ public class LongPollingService extends AbstractEventListener {
 
     private static final String TRUE_STR = "true";
 
+    private static final long TICK_MILLIS = 100L;
+
+    private static final int WHEEL_SIZE = 512;
+
+    /**
+     * 每个响应任务处理的长轮询个数
+     */
+    private static final int RESPONSE_BATCH_SIZE = 128;
+
     private Map<String, Long> retainIps = new ConcurrentHashMap<String, Long>();
 
     private static boolean isFixedPolling() {
@@ -80,9 +92,10 @@ public class LongPollingService extends AbstractEventListener {
         SampleResult sampleResult = new SampleResult();
         Map<String, String> lisentersGroupkeyStatus = new HashMap<String, String>(50);
 
-        for (ClientLongPolling clientLongPolling : allSubs) {
-            if (clientLongPolling.clientMd5Map.containsKey(groupKey)) {
-                lisentersGroupkeyStatus.put(clientLongPolling.ip, clientLongPolling.clientMd5Map.get(groupKey));
+        for (ClientLongPolling clientLongPolling : subsByGroupKey.get(groupKey)) {
+            String md5 = clientLongPolling.clientMd5Map.get(groupKey);
+            if (md5 != null) {
+                lisentersGroupkeyStatus.put(clientLongPolling.ip, md5);
             }
         }
         sampleResult.setLisentersGroupkeyStatus(lisentersGroupkeyStatus);
@@ -93,12 +106,10 @@ public class LongPollingService extends AbstractEventListener {
         SampleResult sampleResult = new SampleResult();
         Map<String, String> lisentersGroupkeyStatus = new HashMap<String, String>(50);
 
-        for (ClientLongPolling clientLongPolling : allSubs) {
-            if (clientLongPolling.ip.equals(clientIp)) {
-                // 一个ip可能有多个监听
-                if (!lisentersGroupkeyStatus.equals(clientLongPolling.clientMd5Map)) {
-                    lisentersGroupkeyStatus.putAll(clientLongPolling.clientMd5Map);
-                }
+        for (ClientLongPolling clientLongPolling : subsByIp.get(clientIp)) {
+            // 一个ip可能有多个监听
+            if (!lisentersGroupkeyStatus.equals(clientLongPolling.clientMd5Map)) {
+                lisentersGroupkeyStatus.putAll(clientLongPolling.clientMd5Map);
             }
         }
         sampleResult.setLisentersGroupkeyStatus(lisentersGroupkeyStatus);
@@ -189,19 +200,8 @@ public class LongPollingService extends AbstractEventListener {
     }
 
     private ClientLongPolling getClientPollingRecord(String clientIp) {
-        if (allSubs == null) {
-            return null;
-        }
-
-        for (ClientLongPolling clientLongPolling : allSubs) {
-            HttpServletRequest request = (HttpServletRequest) clientLongPolling.asyncContext.getRequest();
-
-            if (clientIp.equals(RequestUtil.getRemoteIp(request))) {
-                return clientLongPolling;
-            }
-        }
-
-        return null;
+        Iterator<ClientLongPolling> iter = subsByIp.get(clientIp).iterator();
+        return iter.hasNext() ? iter.next() : null;
     }
 
     public void addLongPollingClient(HttpServletRequest req, HttpServletResponse rsp, Map<String, String> clientMd5Map,
@@ -243,8 +243,7 @@ public class LongPollingService extends AbstractEventListener {
         asyncContext.setTimeout(0L);
         // 注释1：定时任务，10s一次，内部也会根据内存中的 CacheItem 对比key进行判断是否更新过
         // TODO：分布式情况 CacheItem 怎么办？创建在A服务器上，请求到B服务器上
-        scheduler.execute(
-            new ClientLongPolling(asyncContext, clientMd5Map, ip, probeRequestSize, timeout, appName, tag));
+        new ClientLongPolling(asyncContext, clientMd5Map, ip, probeRequestSize, timeout, appName, tag).start();
     }
 
     @Override
@@ -272,7 +271,9 @@ public class LongPollingService extends AbstractEventListener {
 
     @SuppressWarnings("PMD.ThreadPoolCreationRule")
     public LongPollingService() {
-        allSubs = new ConcurrentLinkedQueue<ClientLongPolling>();
+        allSubs = Collections.newSetFromMap(new ConcurrentHashMap<ClientLongPolling, Boolean>());
+        subsByGroupKey = new SubscriberIndex();
+        subsByIp = new SubscriberIndex();
 
         scheduler = Executors.newScheduledThreadPool(1, new ThreadFactory() {
             @Override
@@ -284,6 +285,19 @@ public class LongPollingService extends AbstractEventListener {
             }
         });
         scheduler.scheduleWithFixedDelay(new StatTask(), 0L, 10L, TimeUnit.SECONDS);
+        scheduler.scheduleAtFixedRate(new TimeoutTask(), TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        int responseThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        responseExecutor = new ThreadPoolExecutor(responseThreads, responseThreads, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("com.alibaba.nacos.LongPolling.response");
+                return t;
+            }
+        });
     }
 
     // =================
@@ -291,12 +305,103 @@ public class LongPollingService extends AbstractEventListener {
     static public final String LONG_POLLING_HEADER = "Long-Pulling-Timeout";
     static public final String LONG_POLLING_NO_HANG_UP_HEADER = "Long-Pulling-Timeout-No-Hangup";
 
+    /**
+     * 处理配置变更、超时检查和统计，不做任何IO
+     */
     final ScheduledExecutorService scheduler;
 
+    /**
+     * 写长轮询响应，按批提交，避免热点配置的大量订阅者阻塞超时检查
+     */
+    final ExecutorService responseExecutor;
+
+    /**
+     * 长轮询的超时时间轮，响应后不从时间轮删除，超时时已不在订阅关系中的直接忽略
+     */
+    final TimingWheel<ClientLongPolling> timeoutWheel = new TimingWheel<ClientLongPolling>(WHEEL_SIZE, TICK_MILLIS,
+        System.currentTimeMillis());
+
     /**
      * 长轮询订阅关系
      */
-    final Queue<ClientLongPolling> allSubs;
+    final Set<ClientLongPolling> allSubs;
+
+    /**
+     * 按groupKey索引的订阅关系，配置变更时只需通知该配置的订阅者
+     */
+    final SubscriberIndex subsByGroupKey;
+
+    /**
+     * 按客户端ip索引的订阅关系
+     */
+    final SubscriberIndex subsByIp;
+
+    void addSubscriber(ClientLongPolling clientSub) {
+        allSubs.add(clientSub);
+        for (String groupKey : clientSub.clientMd5Map.keySet()) {
+            subsByGroupKey.add(groupKey, clientSub);
+        }
+        subsByIp.add(clientSub.ip, clientSub);
+    }
+
+    /**
+     * 认领订阅，只从allSubs删除，索引由响应线程清理，避免大量groupKey的订阅阻塞调度线程
+     *
+     * @param clientSub 订阅
+     * @return 是否由本次调用认领，已被认领的订阅不应再次响应
+     */
+    boolean claimSubscriber(ClientLongPolling clientSub) {
+        return allSubs.remove(clientSub);
+    }
+
+    /**
+     * 从索引中删除已认领的订阅
+     *
+     * @param clientSub 订阅
+     */
+    void unindexSubscriber(ClientLongPolling clientSub) {
+        for (String groupKey : clientSub.clientMd5Map.keySet()) {
+            subsByGroupKey.remove(groupKey, clientSub);
+        }
+        subsByIp.remove(clientSub.ip, clientSub);
+    }
+
+    /**
+     * 按批提交响应任务，响应前先清理订阅的索引
+     *
+     * @param clientSubs 已认领的长轮询
+     * @param task       响应一批长轮询的任务
+     */
+    void submitResponses(List<ClientLongPolling> clientSubs, final ResponseTask task) {
+        for (int i = 0; i < clientSubs.size(); i += RESPONSE_BATCH_SIZE) {
+            final List<ClientLongPolling> batch = clientSubs.subList(i,
+                Math.min(clientSubs.size(), i + RESPONSE_BATCH_SIZE));
+            responseExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (ClientLongPolling clientSub : batch) {
+                        try {
+                            unindexSubscriber(clientSub);
+                            task.respond(clientSub);
+                        } catch (Throwable t) {
+                            LogUtil.defaultLog.error("long polling error:" + t.getMessage(), t.getCause());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    interface ResponseTask {
+
+        /**
+         * 响应一个长轮询
+         *
+         * @param clientSub 长轮询
+         * @throws Exception 响应失败
+         */
+        void respond(ClientLongPolling clientSub) throws Exception;
+    }
 
     // =================
 
@@ -305,30 +410,46 @@ public class LongPollingService extends AbstractEventListener {
         public void run() {
             try {
                 ConfigService.getContentBetaMd5(groupKey);
-                for (Iterator<ClientLongPolling> iter = allSubs.iterator(); iter.hasNext(); ) {
-                    ClientLongPolling clientSub = iter.next();
-                    if (clientSub.clientMd5Map.containsKey(groupKey)) {
-                        // 如果beta发布且不在beta列表直接跳过
-                        if (isBeta && !betaIps.contains(clientSub.ip)) {
-                            continue;
-                        }
+                List<ClientLongPolling> changedSubs = new ArrayList<ClientLongPolling>();
+                for (ClientLongPolling clientSub : subsByGroupKey.get(groupKey)) {
+                    // 如果beta发布且不在beta列表直接跳过
+                    if (isBeta && !betaIps.contains(clientSub.ip)) {
+                        continue;
+                    }
 
-                        // 如果tag发布且不在tag列表直接跳过
-                        if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
-                            continue;
-                        }
+                    // 如果tag发布且不在tag列表直接跳过
+                    if (StringUtils.isNotBlank(tag) && !tag.equals(clientSub.tag)) {
+                        continue;
+                    }
 
-                        getRetainIps().put(clientSub.ip, System.currentTimeMillis());
-                        iter.remove(); // 删除订阅关系
+                    // 认领订阅，已被认领的直接跳过
+                    if (!claimSubscriber(clientSub)) {
+                        continue;
+                    }
+                    getRetainIps().put(clientSub.ip, System.currentTimeMillis());
+                    changedSubs.add(clientSub);
+                }
+
+                if (changedSubs.isEmpty()) {
+                    return;
+                }
+
+                // 同一变更的响应内容相同，只生成一次
+                final String respString = MD5Util.compareMd5ResultString(Arrays.asList(groupKey));
+                submitResponses(changedSubs, new ResponseTask() {
+                    @Override
+                    public void respond(ClientLongPolling clientSub) {
                         LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}|{}",
                             (System.currentTimeMillis() - changeTime),
                             "in-advance",
                             RequestUtil.getRemoteIp((HttpServletRequest)clientSub.asyncContext.getRequest()),
                             "polling",
                             clientSub.clientMd5Map.size(), clientSub.probeRequestSize, groupKey);
-                        clientSub.sendResponse(Arrays.asList(groupKey));
+                        clientSub.generateResponse(respString);
+                        MetricsMonitor.getLongPollingResponseTimer().record(System.currentTimeMillis() - changeTime,
+                            TimeUnit.MILLISECONDS);
                     }
-                }
+                });
             } catch (Throwable t) {
                 LogUtil.defaultLog.error("data change error:" + t.getMessage(), t.getCause());
             }
@@ -358,6 +479,80 @@ public class LongPollingService extends AbstractEventListener {
 
     // =================
 
+    /**
+     * 订阅关系的倒排索引，key为groupKey或客户端ip
+     */
+    static class SubscriberIndex {
+
+        private final ConcurrentHashMap<String, Set<ClientLongPolling>> index =
+            new ConcurrentHashMap<String, Set<ClientLongPolling>>(1024);
+
+        /**
+         * 增删都在key对应的节点锁内完成，集合变空时与删除同时进行，新加入的订阅不会随空集合一起被删除
+         */
+        void add(String key, final ClientLongPolling clientSub) {
+            index.compute(key, new BiFunction<String, Set<ClientLongPolling>, Set<ClientLongPolling>>() {
+                @Override
+                public Set<ClientLongPolling> apply(String k, Set<ClientLongPolling> subs) {
+                    if (subs == null) {
+                        subs = Collections.newSetFromMap(new ConcurrentHashMap<ClientLongPolling, Boolean>(4));
+                    }
+                    subs.add(clientSub);
+                    return subs;
+                }
+            });
+        }
+
+        void remove(String key, final ClientLongPolling clientSub) {
+            index.computeIfPresent(key, new BiFunction<String, Set<ClientLongPolling>, Set<ClientLongPolling>>() {
+                @Override
+                public Set<ClientLongPolling> apply(String k, Set<ClientLongPolling> subs) {
+                    subs.remove(clientSub);
+                    return subs.isEmpty() ? null : subs;
+                }
+            });
+        }
+
+        Set<ClientLongPolling> get(String key) {
+            Set<ClientLongPolling> subs = index.get(key);
+            return subs == null ? Collections.<ClientLongPolling>emptySet() : subs;
+        }
+    }
+
+    // =================
+
+    /**
+     * 推进超时时间轮，超时的长轮询按批交给响应线程
+     */
+    class TimeoutTask implements Runnable {
+        @Override
+        public void run() {
+            try {
+                List<ClientLongPolling> timeoutSubs = new ArrayList<ClientLongPolling>();
+                for (ClientLongPolling clientSub : timeoutWheel.advance(System.currentTimeMillis())) {
+                    /**
+                     * 认领订阅，已响应的直接忽略
+                     */
+                    if (claimSubscriber(clientSub)) {
+                        getRetainIps().put(clientSub.ip, System.currentTimeMillis());
+                        timeoutSubs.add(clientSub);
+                    }
+                }
+
+                submitResponses(timeoutSubs, new ResponseTask() {
+                    @Override
+                    public void respond(ClientLongPolling clientSub) throws Exception {
+                        clientSub.onTimeout();
+                    }
+                });
+            } catch (Throwable t) {
+                LogUtil.defaultLog.error("long polling error:" + t.getMessage(), t.getCause());
+            }
+        }
+    }
+
+    // =================
+
     class StatTask implements Runnable {
         @Override
         public void run() {
@@ -373,64 +568,39 @@ public class LongPollingService extends AbstractEventListener {
      * 要么被10s一次的任务刷到
      * 要么被配置修改接口发送事件时调用，从而实现实时的配置更新：generateResponse 方法的调用
      */
-    class ClientLongPolling implements Runnable {
-
-        @Override
-        public void run() {
-            asyncTimeoutFuture = scheduler.schedule(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        getRetainIps().put(ClientLongPolling.this.ip, System.currentTimeMillis());
-                        /**
-                         * 删除订阅关系
-                         */
-                        allSubs.remove(ClientLongPolling.this);
-
-                        if (isFixedPolling()) {
-                            LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}",
-                                (System.currentTimeMillis() - createTime),
-                                "fix", RequestUtil.getRemoteIp((HttpServletRequest)asyncContext.getRequest()),
-                                "polling",
-                                clientMd5Map.size(), probeRequestSize);
-                            List<String> changedGroups = MD5Util.compareMd5(
-                                (HttpServletRequest)asyncContext.getRequest(),
-                                (HttpServletResponse)asyncContext.getResponse(), clientMd5Map);
-                            if (changedGroups.size() > 0) {
-                                sendResponse(changedGroups);
-                            } else {
-                                sendResponse(null);
-                            }
-                        } else {
-                            LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}",
-                                (System.currentTimeMillis() - createTime),
-                                "timeout", RequestUtil.getRemoteIp((HttpServletRequest)asyncContext.getRequest()),
-                                "polling",
-                                clientMd5Map.size(), probeRequestSize);
-                            sendResponse(null);
-                        }
-                    } catch (Throwable t) {
-                        LogUtil.defaultLog.error("long polling error:" + t.getMessage(), t.getCause());
-                    }
+    class ClientLongPolling {
 
-                }
-
-            }, timeoutTime, TimeUnit.MILLISECONDS);
-
-            allSubs.add(this);
+        void start() {
+            addSubscriber(this);
+            timeoutWheel.add(this, createTime + timeoutTime);
         }
 
-        void sendResponse(List<String> changedGroups) {
-            /**
-             *  取消超时任务
-             */
-            if (null != asyncTimeoutFuture) {
-                asyncTimeoutFuture.cancel(false);
+        void onTimeout() throws Exception {
+            if (isFixedPolling()) {
+                LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}",
+                    (System.currentTimeMillis() - createTime),
+                    "fix", RequestUtil.getRemoteIp((HttpServletRequest)asyncContext.getRequest()),
+                    "polling",
+                    clientMd5Map.size(), probeRequestSize);
+                List<String> changedGroups = MD5Util.compareMd5(
+                    (HttpServletRequest)asyncContext.getRequest(),
+                    (HttpServletResponse)asyncContext.getResponse(), clientMd5Map);
+                if (changedGroups.size() > 0) {
+                    sendResponse(changedGroups);
+                } else {
+                    sendResponse(null);
+                }
+            } else {
+                LogUtil.clientLog.info("{}|{}|{}|{}|{}|{}",
+                    (System.currentTimeMillis() - createTime),
+                    "timeout", RequestUtil.getRemoteIp((HttpServletRequest)asyncContext.getRequest()),
+                    "polling",
+                    clientMd5Map.size(), probeRequestSize);
+                sendResponse(null);
             }
-            generateResponse(changedGroups);
         }
 
-        void generateResponse(List<String> changedGroups) {
+        void sendResponse(List<String> changedGroups) throws IOException {
             if (null == changedGroups) {
                 /**
                  * 告诉容器发送HTTP响应
@@ -439,11 +609,13 @@ public class LongPollingService extends AbstractEventListener {
                 return;
             }
 
+            generateResponse(MD5Util.compareMd5ResultString(changedGroups));
+        }
+
+        void generateResponse(String respString) {
             HttpServletResponse response = (HttpServletResponse)asyncContext.getResponse();
 
             try {
-                String respString = MD5Util.compareMd5ResultString(changedGroups);
-
                 // 禁用缓存
                 response.setHeader("Pragma", "no-cache");
                 response.setDateHeader("Expires", 0);
@@ -479,8 +651,6 @@ public class LongPollingService extends AbstractEventListener {
         final String tag;
         final int probeRequestSize;
         final long timeoutTime;
-
-        Future<?> asyncTimeoutFuture;
     }
 
     void generateResponse(HttpServletRequest request, HttpServletResponse response, List<String> changedGroups) {
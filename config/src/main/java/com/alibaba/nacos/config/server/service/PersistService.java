@@ -35,6 +35,7 @@ import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
@@ -1839,6 +1840,18 @@ public class PersistService {
         }
     }
 
+    /**
+     * 流式查询的逐条回调
+     */
+    public interface RowHandler<T> {
+        /**
+         * 处理一条记录
+         *
+         * @param row 记录
+         */
+        void handle(T row);
+    }
+
     public static class ConfigInfoWrapper extends ConfigInfo {
         private static final long serialVersionUID = 4511997359365712505L;
 
@@ -1996,6 +2009,63 @@ public class PersistService {
         }
     }
 
+    /**
+     * 以流式游标读取全部配置，逐条交给handler，用于全量dump
+     */
+    public void findAllConfigInfoForDumpAll(final RowHandler<ConfigInfoWrapper> handler) {
+        String sql = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified FROM config_info";
+        streamQuery(sql, CONFIG_INFO_WRAPPER_ROW_MAPPER, handler);
+    }
+
+    /**
+     * 以流式游标读取全部beta配置，逐条交给handler，用于全量dump
+     */
+    public void findAllConfigInfoBetaForDumpAll(final RowHandler<ConfigInfoBetaWrapper> handler) {
+        String sql = "SELECT id,data_id,group_id,tenant_id,app_name,content,md5,gmt_modified,beta_ips "
+            + "FROM config_info_beta";
+        streamQuery(sql, CONFIG_INFO_BETA_WRAPPER_ROW_MAPPER, handler);
+    }
+
+    /**
+     * 以流式游标读取全部tag配置，逐条交给handler，用于全量dump
+     */
+    public void findAllConfigInfoTagForDumpAll(final RowHandler<ConfigInfoTagWrapper> handler) {
+        String sql = "SELECT id,data_id,group_id,tenant_id,tag_id,app_name,content,md5,gmt_modified "
+            + "FROM config_info_tag";
+        streamQuery(sql, CONFIG_INFO_TAG_WRAPPER_ROW_MAPPER, handler);
+    }
+
+    /**
+     * 只读、只进的游标查询，结果不会整体加载到内存。MySQL驱动只在fetchSize为Integer.MIN_VALUE时逐行读取，其他数据库按批读取。
+     * 共用的jt带有maxRows和查询超时，会截断全量读取，因此使用同一数据源上不带这些限制的JdbcTemplate
+     */
+    private <T> void streamQuery(final String sql, final RowMapper<T> rowMapper, final RowHandler<T> handler) {
+        PreparedStatementCreator creator = new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+                boolean useMysql = StringUtils.containsIgnoreCase(connection.getMetaData().getDatabaseProductName(),
+                    "mysql");
+                PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(useMysql ? Integer.MIN_VALUE : STREAM_FETCH_SIZE);
+                return ps;
+            }
+        };
+        try {
+            new JdbcTemplate(jt.getDataSource()).query(creator, new RowCallbackHandler() {
+                private int rowNum = 0;
+
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    handler.handle(rowMapper.mapRow(rs, rowNum++));
+                }
+            });
+        } catch (CannotGetJdbcConnectionException e) {
+            fatalLog.error("[db-error] " + e.toString(), e);
+            throw e;
+        }
+    }
+
     /**
      * 通过select in方式实现db记录的批量查询； subQueryLimit指定in中条件的个数，上限20
      */
@@ -3599,6 +3669,7 @@ public class PersistService {
 
     private static String PATTERN_STR = "*";
     private final static int QUERY_LIMIT_SIZE = 50;
+    private final static int STREAM_FETCH_SIZE = 1000;
     private JdbcTemplate jt;
     private TransactionTemplate tjt;
 
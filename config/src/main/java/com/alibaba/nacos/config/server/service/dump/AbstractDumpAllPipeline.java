@@ -0,0 +1,233 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.service.PersistService.RowHandler;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+import static com.alibaba.nacos.config.server.utils.LogUtil.fatalLog;
+
+/**
+ * 全量dump流水线
+ * <p>
+ * 调用线程以流式游标读取数据库，经有界队列交给多个dump线程并行计算md5、写磁盘和更新缓存，队列满时读取线程等待。dump失败的配置
+ * (如与其他dump争用写锁)在读取结束后重试一次，仍然失败的交给dump任务异步重试，最后输出一致性报告。
+ *
+ * @author Nacos
+ */
+abstract class AbstractDumpAllPipeline<T> {
+
+    static final int WORKER_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    static final int QUEUE_SIZE_PER_WORKER = 64;
+
+    static final int PROGRESS_LOG_INTERVAL = 1000;
+
+    private static final Object END = new Object();
+
+    private final String name;
+
+    private final int workerCount;
+
+    private final BlockingQueue<Object> queue;
+
+    private final AtomicLong read = new AtomicLong();
+
+    private final AtomicLong dumped = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<T> failed = new ConcurrentLinkedQueue<T>();
+
+    AbstractDumpAllPipeline(String name) {
+        this(name, WORKER_COUNT);
+    }
+
+    AbstractDumpAllPipeline(String name, int workerCount) {
+        this.name = name;
+        this.workerCount = workerCount;
+        this.queue = new ArrayBlockingQueue<Object>(workerCount * QUEUE_SIZE_PER_WORKER);
+    }
+
+    /**
+     * 数据库中的记录数，用于进度和一致性报告
+     *
+     * @return count
+     */
+    abstract int count();
+
+    /**
+     * 以流式游标读取全部记录
+     *
+     * @param handler 逐条回调
+     */
+    abstract void fetch(RowHandler<T> handler);
+
+    /**
+     * dump一条记录
+     *
+     * @param row 记录
+     * @return 是否成功
+     */
+    abstract boolean dump(T row);
+
+    /**
+     * 交给dump任务异步重试
+     *
+     * @param row 记录
+     */
+    abstract void dumpLater(T row);
+
+    /**
+     * 日志中记录的描述
+     *
+     * @param row 记录
+     * @return 描述
+     */
+    abstract String describe(T row);
+
+    /**
+     * 执行全量dump，数据库异常时抛出
+     *
+     * @return 是否全部dump成功，读取到的记录少于count时(读取被截断)也视为失败
+     */
+    boolean run() {
+        final long startTime = System.currentTimeMillis();
+        final int expected = count();
+        MetricsMonitor.getDumpAllPendingMonitor().addAndGet(expected);
+        defaultLog.info("[all-dump-{}] start, count={}, workers={}", name, expected, workerCount);
+
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("com.alibaba.nacos.DumpAll." + name);
+                return t;
+            }
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(new Worker());
+        }
+
+        try {
+            fetch(new RowHandler<T>() {
+                @Override
+                public void handle(T row) {
+                    read.incrementAndGet();
+                    put(row);
+                }
+            });
+        } finally {
+            for (int i = 0; i < workerCount; i++) {
+                put(END);
+            }
+            workers.shutdown();
+            awaitTermination(workers);
+            // 读取到的行数与count不一致时(dump期间有增删)，让进度回到0
+            MetricsMonitor.getDumpAllPendingMonitor().addAndGet(read.get() - expected);
+        }
+
+        int retried = 0;
+        int unresolved = 0;
+        T row;
+        while ((row = failed.poll()) != null) {
+            retried++;
+            if (!dumpQuietly(row)) {
+                unresolved++;
+                MetricsMonitor.getDumpAllFailedCounter().increment();
+                fatalLog.error("[all-dump-{}] dump failed, retry later. {}", name, describe(row));
+                dumpLater(row);
+            }
+        }
+
+        boolean complete = read.get() >= expected;
+        if (!complete) {
+            fatalLog.error("[all-dump-{}] read {} of {} records, the rest are not dumped", name, read.get(),
+                expected);
+        }
+        defaultLog.warn("[all-dump-{}] report: count={}, read={}, dumped={}, retried={}, unresolved={}, cost={}ms",
+            name, expected, read.get(), dumped.get(), retried, unresolved, System.currentTimeMillis() - startTime);
+        return complete && unresolved == 0;
+    }
+
+    private boolean dumpQuietly(T row) {
+        try {
+            return dump(row);
+        } catch (Throwable e) {
+            defaultLog.error("[all-dump-" + name + "] dump error. " + describe(row), e);
+            return false;
+        }
+    }
+
+    private void put(Object element) {
+        try {
+            queue.put(element);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("dump all " + name + " interrupted", e);
+        }
+    }
+
+    private void awaitTermination(ThreadPoolExecutor workers) {
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("dump all " + name + " interrupted", e);
+        }
+    }
+
+    private class Worker implements Runnable {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            while (true) {
+                Object element;
+                try {
+                    element = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (element == END) {
+                    return;
+                }
+
+                T row = (T)element;
+                if (dumpQuietly(row)) {
+                    long count = dumped.incrementAndGet();
+                    if (count % PROGRESS_LOG_INTERVAL == 0) {
+                        defaultLog.info("[all-dump-{}] {} / {}", name, count, read.get());
+                    }
+                } else {
+                    failed.add(row);
+                }
+                MetricsMonitor.getDumpAllPendingMonitor().decrementAndGet();
+            }
+        }
+    }
+}
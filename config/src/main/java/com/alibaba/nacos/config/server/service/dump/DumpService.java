@@ -43,6 +43,11 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -69,8 +74,8 @@ public class DumpService {
         LogUtil.defaultLog.warn("DumpService start");
         DumpProcessor processor = new DumpProcessor(this);
         DumpAllProcessor dumpAllProcessor = new DumpAllProcessor(this);
-        DumpAllBetaProcessor dumpAllBetaProcessor = new DumpAllBetaProcessor(this);
-        DumpAllTagProcessor dumpAllTagProcessor = new DumpAllTagProcessor(this);
+        final DumpAllBetaProcessor dumpAllBetaProcessor = new DumpAllBetaProcessor(this);
+        final DumpAllTagProcessor dumpAllTagProcessor = new DumpAllTagProcessor(this);
 
         dumpTaskMgr = new TaskManager(
             "com.alibaba.nacos.server.DumpTaskManager");
@@ -121,19 +126,46 @@ public class DumpService {
         };
 
         try {
-            dumpConfigInfo(dumpAllProcessor);
+            DiskUtil.initSnapshotStores();
 
-            // 更新beta缓存
-            LogUtil.defaultLog.info("start clear all config-info-beta.");
-            DiskUtil.clearAllBeta();
-            if (persistService.isExistTable(BETA_TABLE_NAME)) {
-                dumpAllBetaProcessor.process(DumpAllBetaTask.TASK_ID, new DumpAllBetaTask());
-            }
-            // 更新Tag缓存
-            LogUtil.defaultLog.info("start clear all config-info-tag.");
-            DiskUtil.clearAllTag();
-            if (persistService.isExistTable(TAG_TABLE_NAME)) {
-                dumpAllTagProcessor.process(DumpAllTagTask.TASK_ID, new DumpAllTagTask());
+            // beta和tag缓存与正式配置并行dump
+            ThreadPoolExecutor dumpExecutor = new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setDaemon(true);
+                    t.setName("com.alibaba.nacos.DumpAll.betaAndTag");
+                    return t;
+                }
+            });
+            Future<Boolean> betaDump = dumpExecutor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    // 更新beta缓存
+                    LogUtil.defaultLog.info("start clear all config-info-beta.");
+                    DiskUtil.clearAllBeta();
+                    return !persistService.isExistTable(BETA_TABLE_NAME)
+                        || dumpAllBetaProcessor.process(DumpAllBetaTask.TASK_ID, new DumpAllBetaTask());
+                }
+            });
+            Future<Boolean> tagDump = dumpExecutor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    // 更新Tag缓存
+                    LogUtil.defaultLog.info("start clear all config-info-tag.");
+                    DiskUtil.clearAllTag();
+                    return !persistService.isExistTable(TAG_TABLE_NAME)
+                        || dumpAllTagProcessor.process(DumpAllTagTask.TASK_ID, new DumpAllTagTask());
+                }
+            });
+
+            dumpConfigInfo(dumpAllProcessor);
+            try {
+                betaDump.get();
+                tagDump.get();
+            } finally {
+                dumpExecutor.shutdown();
             }
 
             // add to dump aggr
@@ -20,11 +20,11 @@ import com.alibaba.nacos.config.server.manager.TaskProcessor;
 import com.alibaba.nacos.config.server.model.ConfigInfo;
 import com.alibaba.nacos.config.server.model.ConfigInfo4Beta;
 import com.alibaba.nacos.config.server.model.ConfigInfo4Tag;
-import com.alibaba.nacos.config.server.model.Page;
 import com.alibaba.nacos.config.server.service.*;
 import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoBetaWrapper;
 import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoTagWrapper;
 import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.service.PersistService.RowHandler;
 import com.alibaba.nacos.config.server.service.trace.ConfigTraceService;
 import com.alibaba.nacos.config.server.utils.GroupKey2;
 import com.alibaba.nacos.config.server.utils.LogUtil;
@@ -34,7 +34,7 @@ import com.alibaba.nacos.config.server.utils.StringUtils;
 import java.sql.Timestamp;
 import java.util.List;
 
-import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+import static com.alibaba.nacos.core.utils.SystemUtils.LOCAL_IP;
 
 /**
  * Dump data task
@@ -239,45 +239,52 @@ class DumpAllProcessor implements TaskProcessor {
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        long currentMaxId = persistService.findConfigMaxId();
-        long lastMaxId = 0;
-        while (lastMaxId < currentMaxId) {
-            Page<PersistService.ConfigInfoWrapper> page = persistService.findAllConfigInfoFragment(lastMaxId,
-                PAGE_SIZE);
-            if (page != null && page.getPageItems() != null) {
-                for (PersistService.ConfigInfoWrapper cf : page.getPageItems()) {
-                    long id = cf.getId();
-                    lastMaxId = id > lastMaxId ? id : lastMaxId;
-                    if (cf.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
-                        AggrWhitelist.load(cf.getContent());
-                    }
+        new AbstractDumpAllPipeline<ConfigInfoWrapper>("config") {
+            @Override
+            int count() {
+                return persistService.configInfoCount();
+            }
 
-                    if (cf.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
-                        ClientIpWhiteList.load(cf.getContent());
-                    }
+            @Override
+            void fetch(RowHandler<ConfigInfoWrapper> handler) {
+                persistService.findAllConfigInfoForDumpAll(handler);
+            }
 
-                    if (cf.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
-                        SwitchService.load(cf.getContent());
-                    }
+            @Override
+            boolean dump(ConfigInfoWrapper cf) {
+                if (cf.getDataId().equals(AggrWhitelist.AGGRIDS_METADATA)) {
+                    AggrWhitelist.load(cf.getContent());
+                }
 
-                    boolean result = ConfigService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getContent(),
-                        cf.getLastModified());
+                if (cf.getDataId().equals(ClientIpWhiteList.CLIENT_IP_WHITELIST_METADATA)) {
+                    ClientIpWhiteList.load(cf.getContent());
+                }
 
-                    final String content = cf.getContent();
-                    final String md5 = MD5.getInstance().getMD5String(content);
-                    LogUtil.dumpLog.info("[dump-all-ok] {}, {}, length={}, md5={}",
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), content.length(), md5);
+                if (cf.getDataId().equals(SwitchService.SWITCH_META_DATAID)) {
+                    SwitchService.load(cf.getContent());
                 }
-                defaultLog.info("[all-dump] {} / {}", lastMaxId, currentMaxId);
-            } else {
-                lastMaxId += PAGE_SIZE;
+
+                boolean result = ConfigService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getContent(),
+                    cf.getLastModified());
+                LogUtil.dumpLog.info("[dump-all-ok] result={}, {}, {}, length={}, md5={}", result,
+                    GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent().length(),
+                    cf.getMd5());
+                return result;
             }
-        }
+
+            @Override
+            void dumpLater(ConfigInfoWrapper cf) {
+                dumpService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getLastModified(), LOCAL_IP);
+            }
+
+            @Override
+            String describe(ConfigInfoWrapper cf) {
+                return GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant());
+            }
+        }.run();
         return true;
     }
 
-    static final int PAGE_SIZE = 1000;
-
     final DumpService dumpService;
     final PersistService persistService;
 }
@@ -291,30 +298,41 @@ class DumpAllBetaProcessor implements TaskProcessor {
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        int rowCount = persistService.configInfoBetaCount();
-        int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-
-        int actualRowCount = 0;
-        for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-            Page<ConfigInfoBetaWrapper> page = persistService.findAllConfigInfoBetaForDumpAll(pageNo, PAGE_SIZE);
-            if (page != null) {
-                for (ConfigInfoBetaWrapper cf : page.getPageItems()) {
-                    boolean result = ConfigService.dumpBeta(cf.getDataId(), cf.getGroup(), cf.getTenant(),
-                        cf.getContent(), cf.getLastModified(), cf.getBetaIps());
-                    LogUtil.dumpLog.info("[dump-all-beta-ok] result={}, {}, {}, length={}, md5={}", result,
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
-                            .length(), cf.getMd5());
-                }
+        new AbstractDumpAllPipeline<ConfigInfoBetaWrapper>("beta") {
+            @Override
+            int count() {
+                return persistService.configInfoBetaCount();
+            }
 
-                actualRowCount += page.getPageItems().size();
-                defaultLog.info("[all-dump-beta] {} / {}", actualRowCount, rowCount);
+            @Override
+            void fetch(RowHandler<ConfigInfoBetaWrapper> handler) {
+                persistService.findAllConfigInfoBetaForDumpAll(handler);
             }
-        }
+
+            @Override
+            boolean dump(ConfigInfoBetaWrapper cf) {
+                boolean result = ConfigService.dumpBeta(cf.getDataId(), cf.getGroup(), cf.getTenant(),
+                    cf.getContent(), cf.getLastModified(), cf.getBetaIps());
+                LogUtil.dumpLog.info("[dump-all-beta-ok] result={}, {}, {}, length={}, md5={}", result,
+                    GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
+                        .length(), cf.getMd5());
+                return result;
+            }
+
+            @Override
+            void dumpLater(ConfigInfoBetaWrapper cf) {
+                dumpService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getLastModified(), LOCAL_IP,
+                    true);
+            }
+
+            @Override
+            String describe(ConfigInfoBetaWrapper cf) {
+                return GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant());
+            }
+        }.run();
         return true;
     }
 
-    static final int PAGE_SIZE = 1000;
-
     final DumpService dumpService;
     final PersistService persistService;
 }
@@ -328,30 +346,41 @@ class DumpAllTagProcessor implements TaskProcessor {
 
     @Override
     public boolean process(String taskType, AbstractTask task) {
-        int rowCount = persistService.configInfoTagCount();
-        int pageCount = (int)Math.ceil(rowCount * 1.0 / PAGE_SIZE);
-
-        int actualRowCount = 0;
-        for (int pageNo = 1; pageNo <= pageCount; pageNo++) {
-            Page<ConfigInfoTagWrapper> page = persistService.findAllConfigInfoTagForDumpAll(pageNo, PAGE_SIZE);
-            if (page != null) {
-                for (ConfigInfoTagWrapper cf : page.getPageItems()) {
-                    boolean result = ConfigService.dumpTag(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getTag(),
-                        cf.getContent(), cf.getLastModified());
-                    LogUtil.dumpLog.info("[dump-all-Tag-ok] result={}, {}, {}, length={}, md5={}", result,
-                        GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
-                            .length(), cf.getMd5());
-                }
+        new AbstractDumpAllPipeline<ConfigInfoTagWrapper>("tag") {
+            @Override
+            int count() {
+                return persistService.configInfoTagCount();
+            }
 
-                actualRowCount += page.getPageItems().size();
-                defaultLog.info("[all-dump-tag] {} / {}", actualRowCount, rowCount);
+            @Override
+            void fetch(RowHandler<ConfigInfoTagWrapper> handler) {
+                persistService.findAllConfigInfoTagForDumpAll(handler);
             }
-        }
+
+            @Override
+            boolean dump(ConfigInfoTagWrapper cf) {
+                boolean result = ConfigService.dumpTag(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getTag(),
+                    cf.getContent(), cf.getLastModified());
+                LogUtil.dumpLog.info("[dump-all-Tag-ok] result={}, {}, {}, length={}, md5={}", result,
+                    GroupKey2.getKey(cf.getDataId(), cf.getGroup()), cf.getLastModified(), cf.getContent()
+                        .length(), cf.getMd5());
+                return result;
+            }
+
+            @Override
+            void dumpLater(ConfigInfoTagWrapper cf) {
+                dumpService.dump(cf.getDataId(), cf.getGroup(), cf.getTenant(), cf.getTag(), cf.getLastModified(),
+                    LOCAL_IP);
+            }
+
+            @Override
+            String describe(ConfigInfoTagWrapper cf) {
+                return GroupKey2.getKey(cf.getDataId(), cf.getGroup(), cf.getTenant()) + ", tag=" + cf.getTag();
+            }
+        }.run();
         return true;
     }
 
-    static final int PAGE_SIZE = 1000;
-
     final DumpService dumpService;
     final PersistService persistService;
 }
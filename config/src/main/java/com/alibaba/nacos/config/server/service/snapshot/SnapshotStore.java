@@ -0,0 +1,707 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.snapshot;
+
+import com.alibaba.nacos.config.server.constant.Constants;
+import com.alibaba.nacos.config.server.utils.MD5;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+import static com.alibaba.nacos.config.server.utils.LogUtil.defaultLog;
+import static com.alibaba.nacos.config.server.utils.LogUtil.fatalLog;
+
+/**
+ * 分段追加写的配置快照存储，代替一个配置一个文件的dump目录。
+ * <p>
+ * 写入和删除都只在当前段末尾追加一条记录，内存索引记录每个key最新内容所在的段、偏移、长度和md5。当前段写满后封存，
+ * 并滚动到新段；有效数据不足一半的封存段由整理任务把仍然有效的记录搬到当前段，再从段列表中移除并删除文件。
+ * <p>
+ * 删除记录只在还有段保存着该key的旧内容时有效，否则重放时旧内容会复活；旧内容所在的段都被整理掉后，删除记录也随之失效。
+ * 有效的删除记录计入段的有效数据，只有删除记录的段不会被反复整理。
+ * <p>
+ * 段列表保存在MANIFEST中，先写临时文件并刷盘再原子改名。启动时删除不在MANIFEST中的段文件，按MANIFEST的顺序重放各段
+ * 重建索引，校验失败的记录及其后的内容被丢弃，所以写入一半的记录不会被读到；重放过的段只读，新的写入从新段开始。
+ * <p>
+ * 段文件映射到内存，读取返回映射区域的只读视图，不拷贝内容。记录写入后不再修改，段文件删除后已经返回的视图仍然可读。
+ *
+ * @author Nacos
+ */
+public class SnapshotStore {
+
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * 有效数据低于该比例的封存段会被整理
+     */
+    static final double COMPACT_LIVE_RATIO = 0.5;
+
+    static final String MANIFEST = "MANIFEST";
+
+    static final String MANIFEST_TMP = "MANIFEST.tmp";
+
+    static final String MANIFEST_HEADER = "nacos-snapshot-manifest 1";
+
+    static final String SEGMENT_PREFIX = "segment-";
+
+    private static final byte TYPE_PUT = 1;
+
+    private static final byte TYPE_DELETE = 2;
+
+    private static final int MD5_LENGTH = 16;
+
+    private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+    /**
+     * length(4) + crc(4) + type(1) + keyLength(2) + md5(16) + contentLength(4)
+     */
+    private static final int RECORD_OVERHEAD = 31;
+
+    private static final int CRC_OFFSET = 4;
+
+    private static final int BODY_OFFSET = 8;
+
+    private static final byte[] NO_MD5 = new byte[MD5_LENGTH];
+
+    private static final ByteBuffer NO_CONTENT = ByteBuffer.allocate(0);
+
+    private static final Charset CHARSET = Charset.forName(Constants.ENCODE);
+
+    private final File dir;
+
+    private final int segmentSize;
+
+    private final ConcurrentMap<String, Location> index = new ConcurrentHashMap<String, Location>(1024);
+
+    /**
+     * 被删除key的最新删除记录，由this保护
+     */
+    private final Map<String, Location> tombstones = new HashMap<String, Location>(16);
+
+    /**
+     * key -> 段中已被覆盖或删除的内容记录数，由this保护
+     */
+    private final Map<String, Integer> deadPuts = new HashMap<String, Integer>(16);
+
+    /**
+     * 按创建顺序排列，最后一个是当前段，由this保护
+     */
+    private final List<Segment> segments = new ArrayList<Segment>();
+
+    private long nextSegmentId = 1;
+
+    public SnapshotStore(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_SIZE);
+    }
+
+    SnapshotStore(File dir, int segmentSize) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        FileUtils.forceMkdir(dir);
+        recover();
+    }
+
+    /**
+     * 保存配置内容
+     *
+     * @param key     key
+     * @param content 内容
+     * @throws IOException 写入失败
+     */
+    public void put(String key, String content) throws IOException {
+        byte[] keyBytes = encodeKey(key);
+        byte[] bytes = content.getBytes(CHARSET);
+        byte[] md5 = MD5.getInstance().hash(bytes);
+        synchronized (this) {
+            Location location = append(TYPE_PUT, keyBytes, md5, ByteBuffer.wrap(bytes));
+            location.segment.liveBytes += location.recordLength;
+            retire(key, index.put(key, location));
+            release(tombstones.remove(key));
+        }
+    }
+
+    /**
+     * 删除配置内容
+     *
+     * @param key key
+     * @throws IOException 写入失败
+     */
+    public void remove(String key) throws IOException {
+        byte[] keyBytes = encodeKey(key);
+        synchronized (this) {
+            if (!index.containsKey(key)) {
+                return;
+            }
+            Location tombstone = append(TYPE_DELETE, keyBytes, NO_MD5, NO_CONTENT);
+            tombstone.segment.liveBytes += tombstone.recordLength;
+            retire(key, index.remove(key));
+            release(tombstones.put(key, tombstone));
+        }
+    }
+
+    /**
+     * 读取配置内容
+     *
+     * @param key key
+     * @param md5 期望的md5，为null时不校验
+     * @return 映射区域的只读视图，不存在或md5不一致时返回null
+     */
+    public ByteBuffer get(String key, String md5) {
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        return md5 == null || md5.equals(location.md5) ? location.content() : null;
+    }
+
+    /**
+     * 读取配置内容
+     *
+     * @param key key
+     * @return 内容，不存在时返回null
+     */
+    public String getString(String key) {
+        ByteBuffer content = get(key, null);
+        return content == null ? null : CHARSET.decode(content).toString();
+    }
+
+    /**
+     * 读取配置内容的md5，不读取内容本身
+     *
+     * @param key key
+     * @return md5，不存在时返回null
+     */
+    public String getMd5(String key) {
+        Location location = index.get(key);
+        return location == null ? null : location.md5;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    synchronized boolean hasTombstone(String key) {
+        return tombstones.containsKey(key);
+    }
+
+    /**
+     * 删除全部内容，只替换MANIFEST并删除段文件
+     *
+     * @throws IOException 写入MANIFEST失败
+     */
+    public synchronized void clear() throws IOException {
+        List<Segment> removed = new ArrayList<Segment>(segments);
+        segments.clear();
+        index.clear();
+        tombstones.clear();
+        deadPuts.clear();
+        writeManifest();
+        for (Segment segment : removed) {
+            deleteSegment(segment);
+        }
+    }
+
+    /**
+     * 整理有效数据不足的封存段
+     *
+     * @return 整理的段数
+     * @throws IOException 写入失败
+     */
+    public int compact() throws IOException {
+        List<Segment> candidates = new ArrayList<Segment>();
+        synchronized (this) {
+            for (Segment segment : segments) {
+                if (segment.sealed && segment.liveBytes <= segment.writePosition * COMPACT_LIVE_RATIO) {
+                    candidates.add(segment);
+                }
+            }
+        }
+
+        for (Segment segment : candidates) {
+            compact(segment);
+        }
+        return candidates.size();
+    }
+
+    private synchronized void compact(Segment segment) throws IOException {
+        if (!segments.contains(segment)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int moved = 0;
+        int position = 0;
+        while (position < segment.writePosition) {
+            Record record = Record.read(segment, position);
+            if (record.type == TYPE_PUT) {
+                Location location = index.get(record.key);
+                if (location != null && location.segment == segment && location.offset == record.contentOffset) {
+                    Location copied = append(TYPE_PUT, encodeKey(record.key), record.md5, record.content());
+                    copied.segment.liveBytes += copied.recordLength;
+                    release(index.put(record.key, copied));
+                    moved++;
+                } else {
+                    forget(record.key);
+                }
+            }
+            position += record.recordLength;
+        }
+
+        // 本段的旧内容都已移除后，再搬仍然有效的删除记录
+        position = 0;
+        while (position < segment.writePosition) {
+            Record record = Record.read(segment, position);
+            if (record.type == TYPE_DELETE) {
+                Location tombstone = tombstones.get(record.key);
+                if (tombstone != null && tombstone.segment == segment && tombstone.offset == record.contentOffset) {
+                    Location copied = append(TYPE_DELETE, encodeKey(record.key), NO_MD5, NO_CONTENT);
+                    copied.segment.liveBytes += copied.recordLength;
+                    release(tombstones.put(record.key, copied));
+                    moved++;
+                }
+            }
+            position += record.recordLength;
+        }
+
+        // 写满换段时已刷过盘，只需刷当前段；移动的记录落盘前不能删除原来的段，否则崩溃后会丢失
+        Segment active = segments.get(segments.size() - 1);
+        if (!active.sealed) {
+            active.force();
+        }
+        segments.remove(segment);
+        writeManifest();
+        deleteSegment(segment);
+        defaultLog.info("[snapshot-compact] {}, segment={}, moved={}, cost={}ms", dir, segment.id, moved,
+            System.currentTimeMillis() - startTime);
+    }
+
+    private Location append(byte type, byte[] keyBytes, byte[] md5, ByteBuffer content) throws IOException {
+        int contentLength = content.remaining();
+        int recordLength = RECORD_OVERHEAD + keyBytes.length + contentLength;
+        Segment segment = writableSegment(recordLength);
+        int position = segment.writePosition;
+
+        ByteBuffer out = segment.buffer.duplicate();
+        out.position(position + BODY_OFFSET);
+        out.put(type);
+        out.putShort((short)keyBytes.length);
+        out.put(keyBytes);
+        out.put(md5);
+        out.putInt(contentLength);
+        int contentOffset = out.position();
+        out.put(content.duplicate());
+
+        out.position(position + BODY_OFFSET);
+        out.limit(position + recordLength);
+        CRC32 crc = new CRC32();
+        crc.update(out);
+        segment.buffer.putInt(position + CRC_OFFSET, (int)crc.getValue());
+        // 最后写长度，写入一半的记录在重放时被当作段的结尾
+        segment.buffer.putInt(position, recordLength - CRC_OFFSET);
+        segment.writePosition += recordLength;
+
+        return new Location(segment, contentOffset, contentLength, recordLength,
+            type == TYPE_PUT ? MD5.getInstance().bytes2string(md5) : null);
+    }
+
+    private Segment writableSegment(int recordLength) throws IOException {
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active != null && !active.sealed && active.remaining() >= recordLength) {
+            return active;
+        }
+
+        if (active != null && !active.sealed) {
+            active.seal();
+        }
+        Segment segment = Segment.create(segmentFile(nextSegmentId), nextSegmentId, Math.max(segmentSize,
+            recordLength));
+        nextSegmentId++;
+        segments.add(segment);
+        writeManifest();
+        return segment;
+    }
+
+    private void release(Location location) {
+        if (location != null) {
+            location.segment.liveBytes -= location.recordLength;
+        }
+    }
+
+    /**
+     * 内容记录被覆盖或删除，记录仍在段中，删除记录需要保留到它被整理掉
+     */
+    private void retire(String key, Location location) {
+        if (location != null) {
+            release(location);
+            Integer count = deadPuts.get(key);
+            deadPuts.put(key, count == null ? 1 : count + 1);
+        }
+    }
+
+    /**
+     * 被覆盖或删除的内容记录随段一起移除，key的旧内容都移除后删除记录失效
+     */
+    private void forget(String key) {
+        Integer count = deadPuts.get(key);
+        if (count == null) {
+            return;
+        }
+        if (count > 1) {
+            deadPuts.put(key, count - 1);
+            return;
+        }
+        deadPuts.remove(key);
+        release(tombstones.remove(key));
+    }
+
+    private synchronized void recover() throws IOException {
+        List<Long> ids = readManifest();
+        deleteOrphanSegments(new HashSet<Long>(ids));
+
+        long startTime = System.currentTimeMillis();
+        for (int i = 0; i < ids.size(); i++) {
+            long id = ids.get(i);
+            File file = segmentFile(id);
+            if (!file.exists()) {
+                fatalLog.error("[snapshot-recover] segment lost, {}", file);
+                continue;
+            }
+            Segment segment = Segment.open(file, id);
+            replay(segment);
+            segments.add(segment);
+            nextSegmentId = Math.max(nextSegmentId, id + 1);
+        }
+        // 旧内容已不存在的删除记录不再有效
+        for (Iterator<Map.Entry<String, Location>> iter = tombstones.entrySet().iterator(); iter.hasNext(); ) {
+            Map.Entry<String, Location> entry = iter.next();
+            if (!deadPuts.containsKey(entry.getKey())) {
+                release(entry.getValue());
+                iter.remove();
+            }
+        }
+        defaultLog.warn("[snapshot-recover] {}, segments={}, keys={}, cost={}ms", dir, segments.size(), index.size(),
+            System.currentTimeMillis() - startTime);
+    }
+
+    private void replay(Segment segment) {
+        int position = 0;
+        int limit = segment.buffer.capacity();
+        while (position < limit) {
+            Record record = Record.tryRead(segment, position, limit);
+            if (record == null) {
+                break;
+            }
+            Location location = new Location(segment, record.contentOffset, record.contentLength,
+                record.recordLength, record.type == TYPE_PUT ? MD5.getInstance().bytes2string(record.md5) : null);
+            segment.liveBytes += record.recordLength;
+            if (record.type == TYPE_PUT) {
+                retire(record.key, index.put(record.key, location));
+                release(tombstones.remove(record.key));
+            } else {
+                retire(record.key, index.remove(record.key));
+                release(tombstones.put(record.key, location));
+            }
+            position += record.recordLength;
+        }
+        segment.writePosition = position;
+    }
+
+    private List<Long> readManifest() throws IOException {
+        List<Long> ids = new ArrayList<Long>();
+        File manifest = new File(dir, MANIFEST);
+        if (!manifest.exists()) {
+            return ids;
+        }
+
+        List<String> lines = FileUtils.readLines(manifest, Constants.ENCODE);
+        if (lines.isEmpty() || !MANIFEST_HEADER.equals(lines.get(0))) {
+            throw new IOException("illegal snapshot manifest: " + manifest);
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            if (!line.trim().isEmpty()) {
+                ids.add(Long.parseLong(line.trim()));
+            }
+        }
+        return ids;
+    }
+
+    private void writeManifest() throws IOException {
+        StringBuilder sb = new StringBuilder(MANIFEST_HEADER).append('\n');
+        for (Segment segment : segments) {
+            sb.append(segment.id).append('\n');
+        }
+
+        File tmp = new File(dir, MANIFEST_TMP);
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(sb.toString().getBytes(CHARSET));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(tmp.toPath(), new File(dir, MANIFEST).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        syncDir();
+    }
+
+    private void syncDir() {
+        try {
+            FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ);
+            try {
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            // 部分平台不支持打开目录，改名本身仍是原子的
+        }
+    }
+
+    private void deleteOrphanSegments(Set<Long> ids) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.startsWith(SEGMENT_PREFIX) && !ids.contains(parseSegmentId(name))) {
+                defaultLog.warn("[snapshot-recover] delete orphan segment {}", file);
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        if (!FileUtils.deleteQuietly(segment.file)) {
+            defaultLog.warn("[snapshot] delete segment failed, {}", segment.file);
+        }
+    }
+
+    private File segmentFile(long id) {
+        return new File(dir, SEGMENT_PREFIX + id);
+    }
+
+    private static long parseSegmentId(String name) {
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    private static byte[] encodeKey(String key) {
+        byte[] bytes = key.getBytes(CHARSET);
+        if (bytes.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("key too long: " + key);
+        }
+        return bytes;
+    }
+
+    private static class Segment {
+
+        private final long id;
+
+        private final File file;
+
+        private final MappedByteBuffer buffer;
+
+        private int writePosition;
+
+        private long liveBytes;
+
+        private boolean sealed;
+
+        private Segment(long id, File file, MappedByteBuffer buffer, boolean sealed) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+            this.sealed = sealed;
+        }
+
+        static Segment create(File file, long id, int capacity) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(capacity);
+                return new Segment(id, file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity),
+                    false);
+            } finally {
+                raf.close();
+            }
+        }
+
+        /**
+         * 打开已有的段，只读并且不再写入：损坏记录之后可能还有旧记录，在其后追加会让它们在下次重放时被读到
+         */
+        static Segment open(File file, long id) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                return new Segment(id, file, raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()),
+                    true);
+            } finally {
+                raf.close();
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - writePosition;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void seal() {
+            force();
+            sealed = true;
+        }
+    }
+
+    private static class Location {
+
+        private final Segment segment;
+
+        private final int offset;
+
+        private final int length;
+
+        private final int recordLength;
+
+        private final String md5;
+
+        Location(Segment segment, int offset, int length, int recordLength, String md5) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.recordLength = recordLength;
+            this.md5 = md5;
+        }
+
+        ByteBuffer content() {
+            ByteBuffer content = segment.buffer.asReadOnlyBuffer();
+            content.position(offset);
+            content.limit(offset + length);
+            return content.slice();
+        }
+    }
+
+    private static class Record {
+
+        private final Segment segment;
+
+        private final byte type;
+
+        private final String key;
+
+        private final byte[] md5;
+
+        private final int contentOffset;
+
+        private final int contentLength;
+
+        private final int recordLength;
+
+        private Record(Segment segment, byte type, String key, byte[] md5, int contentOffset, int contentLength,
+                       int recordLength) {
+            this.segment = segment;
+            this.type = type;
+            this.key = key;
+            this.md5 = md5;
+            this.contentOffset = contentOffset;
+            this.contentLength = contentLength;
+            this.recordLength = recordLength;
+        }
+
+        /**
+         * 读取一条已经校验过的记录
+         */
+        static Record read(Segment segment, int position) {
+            ByteBuffer in = segment.buffer.duplicate();
+            in.position(position);
+            int recordLength = in.getInt() + CRC_OFFSET;
+            in.position(position + BODY_OFFSET);
+            byte type = in.get();
+            byte[] keyBytes = new byte[in.getShort() & MAX_KEY_LENGTH];
+            in.get(keyBytes);
+            byte[] md5 = new byte[MD5_LENGTH];
+            in.get(md5);
+            int contentLength = in.getInt();
+            return new Record(segment, type, new String(keyBytes, CHARSET), md5, in.position(), contentLength,
+                recordLength);
+        }
+
+        /**
+         * 重放时读取一条记录
+         *
+         * @return 到达段的结尾或记录损坏时返回null
+         */
+        static Record tryRead(Segment segment, int position, int limit) {
+            if (limit - position < RECORD_OVERHEAD) {
+                return null;
+            }
+            int recordLength = segment.buffer.getInt(position) + CRC_OFFSET;
+            if (recordLength < RECORD_OVERHEAD || recordLength > limit - position) {
+                return null;
+            }
+
+            ByteBuffer body = segment.buffer.duplicate();
+            body.position(position + BODY_OFFSET);
+            body.limit(position + recordLength);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int)crc.getValue() != segment.buffer.getInt(position + CRC_OFFSET)) {
+                defaultLog.warn("[snapshot-recover] broken record, segment={}, position={}", segment.id, position);
+                return null;
+            }
+
+            Record record = read(segment, position);
+            boolean known = record.type == TYPE_PUT || record.type == TYPE_DELETE;
+            if (!known || record.contentOffset + record.contentLength != position + recordLength) {
+                return null;
+            }
+            return record;
+        }
+
+        ByteBuffer content() {
+            ByteBuffer content = segment.buffer.duplicate();
+            content.position(contentOffset);
+            content.limit(contentOffset + contentLength);
+            return content;
+        }
+    }
+}
@@ -21,7 +21,6 @@ import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * md5
@@ -43,16 +42,21 @@ public class MD5 {
     }
 
     private static MD5 me = new MD5();
-    private MessageDigest mHasher;
-    private ReentrantLock opLock = new ReentrantLock();
-
-    private MD5() {
-        try {
-            mHasher = MessageDigest.getInstance("md5");
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    /**
+     * 每个线程一个MessageDigest，并行dump时不必在同一把锁上排队
+     */
+    private final ThreadLocal<MessageDigest> mHasher = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("md5");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
         }
+    };
 
+    private MD5() {
     }
 
     public static MD5 getInstance() {
@@ -78,17 +82,10 @@ public class MD5 {
      * @return md5 byte[16]
      */
     public byte[] hash(String str) {
-        opLock.lock();
         try {
-            byte[] bt = mHasher.digest(str.getBytes(Constants.ENCODE));
-            if (null == bt || bt.length != DIGITS_COUNT) {
-                throw new IllegalArgumentException("md5 need");
-            }
-            return bt;
+            return hash(str.getBytes(Constants.ENCODE));
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException("unsupported utf-8 encoding", e);
-        } finally {
-            opLock.unlock();
         }
     }
 
@@ -99,16 +96,11 @@ public class MD5 {
      * @return md5 byte[16]
      */
     public byte[] hash(byte[] data) {
-        opLock.lock();
-        try {
-            byte[] bt = mHasher.digest(data);
-            if (null == bt || bt.length != DIGITS_COUNT) {
-                throw new IllegalArgumentException("md5 need");
-            }
-            return bt;
-        } finally {
-            opLock.unlock();
+        byte[] bt = mHasher.get().digest(data);
+        if (null == bt || bt.length != DIGITS_COUNT) {
+            throw new IllegalArgumentException("md5 need");
         }
+        return bt;
     }
 
     /**
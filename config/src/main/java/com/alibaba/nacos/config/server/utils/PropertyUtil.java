@@ -80,10 +80,18 @@ public class PropertyUtil {
      * 修正容量信息表使用量（usage）的时间间隔，单位为秒
      */
     private static int correctUsageDelay = 10 * 60;
+    /**
+     * 配置内容缓存的容量上限，单位为字节，0表示不缓存
+     */
+    private static long contentCacheMaxBytes = 64 * 1024 * 1024;
     /**
      * 单机模式使用db
      */
     private static boolean standaloneUseMysql = false;
+    /**
+     * dump的配置保存在分段快照存储中，而不是一个配置一个文件
+     */
+    private static boolean snapshotStoreEnabled = false;
 
 
     @Autowired
@@ -114,7 +122,10 @@ public class PropertyUtil {
             setDefaultMaxAggrSize(getInt("defaultMaxAggrSize", defaultMaxAggrSize));
             setCorrectUsageDelay(getInt("correctUsageDelay", correctUsageDelay));
             setInitialExpansionPercent(getInt("initialExpansionPercent", initialExpansionPercent));
+            setContentCacheMaxBytes(Long.parseLong(getString("contentCacheMaxBytes",
+                String.valueOf(contentCacheMaxBytes))));
             setStandaloneUseMysql(getString("spring.datasource.platform", "").equals("mysql"));
+            setSnapshotStoreEnabled(getBoolean("snapshotStoreEnabled", snapshotStoreEnabled));
 
         } catch (Exception e) {
             logger.error("read application.properties failed", e);
@@ -214,6 +225,22 @@ public class PropertyUtil {
         return standaloneUseMysql;
     }
 
+    public static long getContentCacheMaxBytes() {
+        return contentCacheMaxBytes;
+    }
+
+    public static void setContentCacheMaxBytes(long contentCacheMaxBytes) {
+        PropertyUtil.contentCacheMaxBytes = contentCacheMaxBytes;
+    }
+
+    public static boolean isSnapshotStoreEnabled() {
+        return snapshotStoreEnabled;
+    }
+
+    public static void setSnapshotStoreEnabled(boolean snapshotStoreEnabled) {
+        PropertyUtil.snapshotStoreEnabled = snapshotStoreEnabled;
+    }
+
     public static void setNotifyConnectTimeout(int notifyConnectTimeout) {
         PropertyUtil.notifyConnectTimeout = notifyConnectTimeout;
     }
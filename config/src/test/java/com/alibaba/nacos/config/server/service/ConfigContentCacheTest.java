@@ -0,0 +1,90 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.utils.PropertyUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ConfigContentCacheTest {
+
+    private final long maxBytes = PropertyUtil.getContentCacheMaxBytes();
+
+    @After
+    public void after() {
+        PropertyUtil.setContentCacheMaxBytes(maxBytes);
+        for (int i = 0; i < 10; i++) {
+            ConfigContentCache.remove("k" + i);
+        }
+        ConfigContentCache.remove("a");
+    }
+
+    @Test
+    public void testGetByMd5() {
+        ConfigContentCache.put("a", "md5-1", "内容");
+
+        ByteBuffer content = ConfigContentCache.get("a", "md5-1");
+        assertNotNull(content);
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        assertEquals("内容", new String(bytes, StandardCharsets.UTF_8));
+        // every read gets its own position
+        assertEquals(bytes.length, ConfigContentCache.get("a", "md5-1").remaining());
+
+        ConfigContentCache.remove("a");
+        assertNull(ConfigContentCache.get("a", "md5-1"));
+    }
+
+    @Test
+    public void testStaleContentDroppedOnRead() {
+        ConfigContentCache.put("a", "md5-1", "0123456789");
+        assertEquals(10, ConfigContentCache.size());
+
+        // the config was changed, the content of the old md5 is dropped
+        assertNull(ConfigContentCache.get("a", "md5-2"));
+        assertEquals(0, ConfigContentCache.size());
+        assertNull(ConfigContentCache.get("a", "md5-1"));
+    }
+
+    @Test
+    public void testEvictByBytes() {
+        PropertyUtil.setContentCacheMaxBytes(80);
+        for (int i = 0; i < 8; i++) {
+            ConfigContentCache.put("k" + i, "1", "0123456789");
+        }
+        // touch k0, so k1 is the eldest
+        assertNotNull(ConfigContentCache.get("k0", "1"));
+        ConfigContentCache.put("k8", "1", "0123456789");
+
+        assertNotNull(ConfigContentCache.get("k0", "1"));
+        assertNull(ConfigContentCache.get("k1", "1"));
+        assertNotNull(ConfigContentCache.get("k8", "1"));
+        assertEquals(80, ConfigContentCache.size());
+
+        // too large to be cached, the old content is dropped
+        ConfigContentCache.put("k0", "2", "01234567890");
+        assertNull(ConfigContentCache.get("k0", "1"));
+        assertNull(ConfigContentCache.get("k0", "2"));
+        assertEquals(70, ConfigContentCache.size());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service;
+
+import com.alibaba.nacos.config.server.service.PersistService.ConfigInfoWrapper;
+import com.alibaba.nacos.config.server.service.PersistService.RowHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class PersistServiceDumpAllTest {
+
+    private static final int ROWS = 20;
+
+    private JdbcTemplate jt;
+
+    private PersistService persistService;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:derby:memory:dumpAllTest;create=true");
+        jt = new JdbcTemplate(dataSource);
+        jt.execute("CREATE TABLE config_info (id bigint NOT NULL generated by default as identity, "
+            + "data_id varchar(255) NOT NULL, group_id varchar(128) NOT NULL, tenant_id varchar(128) default '', "
+            + "app_name varchar(128), content CLOB, md5 varchar(32) DEFAULT NULL, "
+            + "gmt_modified timestamp NOT NULL DEFAULT '2010-05-05 00:00:00')");
+        for (int i = 0; i < ROWS; i++) {
+            jt.update("INSERT INTO config_info (data_id, group_id, content) VALUES (?, ?, ?)", "dataId" + i, "group",
+                "content" + i);
+        }
+        // 与BasicDataSourceServiceImpl中共用的jt一样带有maxRows和查询超时
+        jt.setMaxRows(ROWS / 2);
+        jt.setQueryTimeout(3);
+
+        persistService = new PersistService();
+        ReflectionTestUtils.setField(persistService, "jt", jt);
+    }
+
+    @After
+    public void tearDown() {
+        jt.execute("DROP TABLE config_info");
+    }
+
+    @Test
+    public void testDumpAllNotLimitedByMaxRows() {
+        final List<ConfigInfoWrapper> rows = new ArrayList<ConfigInfoWrapper>();
+        persistService.findAllConfigInfoForDumpAll(new RowHandler<ConfigInfoWrapper>() {
+            @Override
+            public void handle(ConfigInfoWrapper row) {
+                rows.add(row);
+            }
+        });
+
+        assertEquals(ROWS / 2, jt.queryForList("SELECT id FROM config_info").size());
+        assertEquals(ROWS, rows.size());
+        assertEquals("content" + (ROWS - 1), rows.get(ROWS - 1).getContent());
+    }
+}
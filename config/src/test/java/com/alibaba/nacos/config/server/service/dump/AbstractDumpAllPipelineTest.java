@@ -0,0 +1,137 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.dump;
+
+import com.alibaba.nacos.config.server.monitor.MetricsMonitor;
+import com.alibaba.nacos.config.server.service.PersistService.RowHandler;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AbstractDumpAllPipelineTest {
+
+    @Test
+    public void testDumpAllInParallel() {
+        final ConcurrentMap<Integer, String> dumped = new ConcurrentHashMap<Integer, String>();
+        final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        long pending = MetricsMonitor.getDumpAllPendingMonitor().get();
+
+        boolean result = new TestPipeline(4, 5000) {
+            @Override
+            boolean dump(Integer row) {
+                threads.add(Thread.currentThread().getName());
+                dumped.put(row, Thread.currentThread().getName());
+                return true;
+            }
+        }.run();
+
+        assertTrue(result);
+        assertEquals(5000, dumped.size());
+        assertTrue(threads.size() >= 1);
+        assertFalse(threads.contains(Thread.currentThread().getName()));
+        assertEquals(pending, MetricsMonitor.getDumpAllPendingMonitor().get());
+    }
+
+    @Test
+    public void testRetryFailed() {
+        final ConcurrentMap<Integer, AtomicInteger> attempts = new ConcurrentHashMap<Integer, AtomicInteger>();
+        final Set<Integer> later = new HashSet<Integer>();
+
+        TestPipeline pipeline = new TestPipeline(2, 100) {
+            @Override
+            boolean dump(Integer row) {
+                attempts.putIfAbsent(row, new AtomicInteger());
+                int attempt = attempts.get(row).incrementAndGet();
+                if (row % 10 == 0) {
+                    // 第一次写锁冲突，重试成功
+                    return attempt > 1;
+                }
+                if (row == 7) {
+                    throw new IllegalStateException("disk error");
+                }
+                return true;
+            }
+
+            @Override
+            void dumpLater(Integer row) {
+                later.add(row);
+            }
+        };
+
+        assertFalse(pipeline.run());
+        assertEquals(2, attempts.get(10).get());
+        assertEquals(1, attempts.get(11).get());
+        assertEquals(2, attempts.get(7).get());
+        assertEquals(Collections.singleton(7), later);
+    }
+
+    @Test
+    public void testReadLessThanCount() {
+        boolean result = new TestPipeline(2, 100) {
+            @Override
+            int count() {
+                return 150;
+            }
+
+            @Override
+            boolean dump(Integer row) {
+                return true;
+            }
+        }.run();
+
+        assertFalse(result);
+    }
+
+    private abstract static class TestPipeline extends AbstractDumpAllPipeline<Integer> {
+
+        private final int rows;
+
+        TestPipeline(int workerCount, int rows) {
+            super("test", workerCount);
+            this.rows = rows;
+        }
+
+        @Override
+        int count() {
+            return rows;
+        }
+
+        @Override
+        void fetch(RowHandler<Integer> handler) {
+            for (int i = 0; i < rows; i++) {
+                handler.handle(i);
+            }
+        }
+
+        @Override
+        void dumpLater(Integer row) {
+        }
+
+        @Override
+        String describe(Integer row) {
+            return String.valueOf(row);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.config.server.service.snapshot;
+
+import com.alibaba.nacos.config.server.utils.MD5;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotStoreTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        store.put("a", "content-a");
+        store.put("b", "内容-b");
+        store.put("a", "content-a2");
+
+        assertEquals("content-a2", store.getString("a"));
+        assertEquals("内容-b", store.getString("b"));
+        assertEquals(MD5.getInstance().getMD5String("内容-b"), store.getMd5("b"));
+
+        ByteBuffer content = store.get("a", MD5.getInstance().getMD5String("content-a2"));
+        assertEquals("content-a2", StandardCharsets.UTF_8.decode(content).toString());
+        assertTrue(content.isReadOnly());
+        assertNull(store.get("a", MD5.getInstance().getMD5String("content-a")));
+
+        store.remove("a");
+        assertNull(store.getString("a"));
+        assertNull(store.getMd5("a"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testRecover() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        for (int i = 0; i < 100; i++) {
+            store.put("key" + i, "content" + i);
+        }
+        store.put("key1", "changed");
+        store.remove("key2");
+        assertTrue(store.segmentCount() > 1);
+
+        SnapshotStore recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals(99, recovered.size());
+        assertEquals("changed", recovered.getString("key1"));
+        assertNull(recovered.getString("key2"));
+        assertEquals("content99", recovered.getString("key99"));
+
+        recovered.put("key100", "content100");
+        assertEquals("content100", new SnapshotStore(folder.getRoot(), SEGMENT_SIZE).getString("key100"));
+    }
+
+    @Test
+    public void testRecoverBrokenRecord() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        store.put("a", "content-a");
+        store.put("b", "content-b");
+        store.put("c", "content-c");
+
+        // 破坏b的内容，b及其后的记录都被丢弃
+        File segment = new File(folder.getRoot(), SnapshotStore.SEGMENT_PREFIX + 1);
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        try {
+            byte[] bytes = new byte[SEGMENT_SIZE];
+            raf.readFully(bytes);
+            int position = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("content-b");
+            raf.seek(position);
+            raf.write('x');
+        } finally {
+            raf.close();
+        }
+
+        SnapshotStore recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals("content-a", recovered.getString("a"));
+        assertNull(recovered.getString("b"));
+        assertNull(recovered.getString("c"));
+
+        // 不在损坏的段上继续追加
+        recovered.put("d", "content-d");
+        recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals("content-d", recovered.getString("d"));
+        assertNull(recovered.getString("c"));
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        for (int i = 0; i < 20; i++) {
+            store.put("key" + i, "content" + i);
+        }
+        for (int i = 0; i < 20; i++) {
+            if (i % 5 != 0) {
+                store.remove("key" + i);
+            }
+        }
+        int segments = store.segmentCount();
+        ByteBuffer before = store.get("key0", null);
+
+        assertTrue(store.compact() > 0);
+        assertTrue(store.segmentCount() < segments);
+        assertEquals(4, store.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i % 5 == 0 ? "content" + i : null, store.getString("key" + i));
+        }
+        // 整理前返回的视图仍然可读
+        assertEquals("content0", StandardCharsets.UTF_8.decode(before).toString());
+
+        SnapshotStore recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals(4, recovered.size());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i % 5 == 0 ? "content" + i : null, recovered.getString("key" + i));
+        }
+    }
+
+    @Test
+    public void testCompactTombstones() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        store.put("x", "content-x");
+        int keeps = putUntil(store, "keep", 2);
+
+        // x的删除记录和一批被删除的内容在第二个段，x的旧内容还在第一个段
+        store.remove("x");
+        for (int i = 0; i < 8; i++) {
+            store.put("gone" + i, "content" + i);
+            store.remove("gone" + i);
+        }
+        int fills = putUntil(store, "fill", 3);
+        for (int i = 0; i < fills; i++) {
+            store.remove("fill" + i);
+        }
+        assertTrue(store.hasTombstone("x"));
+        assertTrue(store.hasTombstone("gone0"));
+
+        assertEquals(1, store.compact());
+        // 旧内容随段一起移除的删除记录不再保留
+        assertTrue(store.hasTombstone("x"));
+        assertFalse(store.hasTombstone("gone0"));
+        assertFalse(store.hasTombstone("fill0"));
+        assertEquals(0, store.compact());
+        assertNull(new SnapshotStore(folder.getRoot(), SEGMENT_SIZE).getString("x"));
+
+        // x的旧内容随第一个段被整理后，删除记录也失效
+        for (int i = 0; i < keeps; i++) {
+            store.remove("keep" + i);
+        }
+        assertEquals(1, store.compact());
+        assertFalse(store.hasTombstone("x"));
+
+        SnapshotStore recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals(0, recovered.size());
+        assertFalse(recovered.hasTombstone("x"));
+    }
+
+    @Test
+    public void testClearAndOrphanSegment() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        store.put("a", "content-a");
+        store.clear();
+        assertNull(store.getString("a"));
+        assertFalse(new File(folder.getRoot(), SnapshotStore.SEGMENT_PREFIX + 1).exists());
+
+        File orphan = new File(folder.getRoot(), SnapshotStore.SEGMENT_PREFIX + 100);
+        assertTrue(orphan.createNewFile());
+        SnapshotStore recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals(0, recovered.size());
+        assertFalse(orphan.exists());
+    }
+
+    @Test
+    public void testLargeContent() throws Exception {
+        SnapshotStore store = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < SEGMENT_SIZE; i++) {
+            sb.append(i % 10);
+        }
+        store.put("large", sb.toString());
+        store.put("small", "small");
+
+        SnapshotStore recovered = new SnapshotStore(folder.getRoot(), SEGMENT_SIZE);
+        assertEquals(sb.toString(), recovered.getString("large"));
+        assertEquals("small", recovered.getString("small"));
+    }
+
+    /**
+     * 写入内容直到段数达到要求
+     *
+     * @return 写入的个数
+     */
+    private int putUntil(SnapshotStore store, String prefix, int segments) throws Exception {
+        int count = 0;
+        while (store.segmentCount() < segments) {
+            store.put(prefix + count, "content" + count);
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.fastjson.TypeReference;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.pojo.Record;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary serializer for maps of instance list datums.
+ * <p>
+ * Layout: magic and version, a table of all strings (each distinct string is written once and
+ * referenced by index afterwards), then the datums. Integers are written as varints, weights with
+ * at most two decimals are written as scaled varints.
+ * <p>
+ * Any other data, and any data that does not start with the magic, is handled by {@link FastJsonSerializer},
+ * so data from servers that do not support this format can still be read.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+@Component
+public class BinarySerializer implements Serializer {
+
+    public static final String NAME = "binary";
+
+    private static final byte MAGIC_0 = 'N';
+
+    private static final byte MAGIC_1 = 'B';
+
+    private static final byte VERSION = 1;
+
+    private static final int FLAG_HEALTHY = 1;
+
+    private static final int FLAG_ENABLED = 1 << 1;
+
+    private static final int FLAG_EPHEMERAL = 1 << 2;
+
+    private static final int FLAG_MARKED = 1 << 3;
+
+    private static final int FLAG_WEIGHT_SCALED = 1 << 4;
+
+    private static final double WEIGHT_SCALE = 100.0D;
+
+    private static final long VAR_LONG_MASK = 0x7FL;
+
+    private static final int VAR_LONG_CONTINUE = 0x80;
+
+    @Autowired
+    private FastJsonSerializer jsonSerializer;
+
+    public BinarySerializer() {
+    }
+
+    public BinarySerializer(FastJsonSerializer jsonSerializer) {
+        this.jsonSerializer = jsonSerializer;
+    }
+
+    /**
+     * Check if data is encoded by this serializer
+     *
+     * @param data data to check
+     * @return true if data starts with the magic of this serializer
+     */
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 2 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    @Override
+    public <T> byte[] serialize(T data) {
+        if (!isDatumMap(data)) {
+            return jsonSerializer.serialize(data);
+        }
+        try {
+            return encode((Map<?, ?>) data);
+        } catch (IOException e) {
+            Loggers.SRV_LOG.error("serialize data failed.", e);
+            return jsonSerializer.serialize(data);
+        }
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, Class<T> clazz) {
+        return jsonSerializer.deserialize(data, clazz);
+    }
+
+    @Override
+    public <T> T deserialize(byte[] data, TypeReference<T> clazz) {
+        return jsonSerializer.deserialize(data, clazz);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Record> Map<String, Datum<T>> deserializeMap(byte[] data, Class<T> clazz) {
+        if (!isBinary(data) || clazz != Instances.class) {
+            return jsonSerializer.deserializeMap(data, clazz);
+        }
+        try {
+            return (Map) decode(data);
+        } catch (Exception e) {
+            // fail loudly, callers iterate the result and a truncated sync must not look like an empty one:
+            throw new IllegalStateException("deserialize binary data failed, length: " + data.length, e);
+        }
+    }
+
+    private boolean isDatumMap(Object data) {
+        if (!(data instanceof Map)) {
+            return false;
+        }
+        for (Object value : ((Map<?, ?>) data).values()) {
+            if (!(value instanceof Datum)) {
+                return false;
+            }
+            Record record = ((Datum) value).value;
+            if (record != null && !(record instanceof Instances)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] encode(Map<?, ?> datumMap) throws IOException {
+
+        Writer body = new Writer();
+        body.writeVarLong(datumMap.size());
+        for (Map.Entry<?, ?> entry : datumMap.entrySet()) {
+            Datum datum = (Datum) entry.getValue();
+            body.writeString((String) entry.getKey());
+            body.writeString(datum.key);
+            body.writeVarLong(datum.timestamp.get());
+            if (datum.value == null) {
+                body.write(0);
+                continue;
+            }
+            body.write(1);
+            List<Instance> instanceList = ((Instances) datum.value).getInstanceList();
+            body.writeVarLong(instanceList.size());
+            for (Instance instance : instanceList) {
+                writeInstance(body, instance);
+            }
+        }
+
+        Writer result = new Writer();
+        result.write(MAGIC_0);
+        result.write(MAGIC_1);
+        result.write(VERSION);
+        result.writeVarLong(body.strings.size());
+        for (String string : body.strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            result.writeVarLong(bytes.length);
+            result.write(bytes);
+        }
+        body.writeTo(result);
+        return result.toByteArray();
+    }
+
+    private void writeInstance(Writer writer, Instance instance) {
+
+        writer.writeString(instance.getInstanceId());
+        writer.writeString(instance.getIp());
+        writer.writeVarLong(instance.getPort());
+
+        int flags = 0;
+        flags |= instance.isHealthy() ? FLAG_HEALTHY : 0;
+        flags |= instance.isEnabled() ? FLAG_ENABLED : 0;
+        flags |= instance.isEphemeral() ? FLAG_EPHEMERAL : 0;
+        flags |= instance.isMarked() ? FLAG_MARKED : 0;
+
+        double scaledWeight = instance.getWeight() * WEIGHT_SCALE;
+        boolean weightScaled = instance.getWeight() >= 0 && scaledWeight == Math.rint(scaledWeight)
+            && scaledWeight / WEIGHT_SCALE == instance.getWeight();
+        flags |= weightScaled ? FLAG_WEIGHT_SCALED : 0;
+
+        writer.write(flags);
+        if (weightScaled) {
+            writer.writeVarLong((long) scaledWeight);
+        } else {
+            writer.writeFixedLong(Double.doubleToLongBits(instance.getWeight()));
+        }
+
+        writer.writeString(instance.getClusterName());
+        writer.writeString(instance.getServiceName());
+        writer.writeString(instance.getTenant());
+        writer.writeString(instance.getApp());
+        writer.writeVarLong(instance.getLastBeat());
+
+        Map<String, String> metadata = instance.getMetadata();
+        if (metadata == null) {
+            writer.writeVarLong(0);
+            return;
+        }
+        writer.writeVarLong(metadata.size());
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeString(entry.getValue());
+        }
+    }
+
+    private Map<String, Datum<Instances>> decode(byte[] data) {
+
+        Reader reader = new Reader(data);
+        reader.position = 2;
+        int version = reader.read();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported binary version: " + version);
+        }
+
+        int stringCount = (int) reader.readVarLong();
+        reader.strings = new String[stringCount + 1];
+        for (int i = 1; i <= stringCount; i++) {
+            int length = (int) reader.readVarLong();
+            reader.strings[i] = new String(data, reader.position, length, StandardCharsets.UTF_8);
+            reader.position += length;
+        }
+
+        int datumCount = (int) reader.readVarLong();
+        Map<String, Datum<Instances>> datumMap = new HashMap<>(datumCount);
+        for (int i = 0; i < datumCount; i++) {
+            String mapKey = reader.readString();
+            Datum<Instances> datum = new Datum<>();
+            datum.key = reader.readString();
+            datum.timestamp.set(reader.readVarLong());
+            if (reader.read() != 0) {
+                int instanceCount = (int) reader.readVarLong();
+                List<Instance> instanceList = new ArrayList<>(instanceCount);
+                for (int j = 0; j < instanceCount; j++) {
+                    instanceList.add(readInstance(reader));
+                }
+                datum.value = new Instances();
+                datum.value.setInstanceList(instanceList);
+            }
+            datumMap.put(mapKey, datum);
+        }
+        return datumMap;
+    }
+
+    private Instance readInstance(Reader reader) {
+
+        Instance instance = new Instance();
+        instance.setInstanceId(reader.readString());
+        instance.setIp(reader.readString());
+        instance.setPort((int) reader.readVarLong());
+
+        int flags = reader.read();
+        instance.setHealthy((flags & FLAG_HEALTHY) != 0);
+        instance.setEnabled((flags & FLAG_ENABLED) != 0);
+        instance.setEphemeral((flags & FLAG_EPHEMERAL) != 0);
+        instance.setMarked((flags & FLAG_MARKED) != 0);
+        if ((flags & FLAG_WEIGHT_SCALED) != 0) {
+            instance.setWeight(reader.readVarLong() / WEIGHT_SCALE);
+        } else {
+            instance.setWeight(Double.longBitsToDouble(reader.readFixedLong()));
+        }
+
+        instance.setClusterName(reader.readString());
+        instance.setServiceName(reader.readString());
+        instance.setTenant(reader.readString());
+        instance.setApp(reader.readString());
+        instance.setLastBeat(reader.readVarLong());
+
+        int metadataSize = (int) reader.readVarLong();
+        Map<String, String> metadata = new HashMap<>(metadataSize);
+        for (int i = 0; i < metadataSize; i++) {
+            metadata.put(reader.readString(), reader.readString());
+        }
+        instance.setMetadata(metadata);
+        return instance;
+    }
+
+    private static class Writer extends ByteArrayOutputStream {
+
+        private Map<String, Integer> stringIndexes = new HashMap<>(64);
+
+        private List<String> strings = new ArrayList<>();
+
+        Writer() {
+            super(1024);
+        }
+
+        void writeString(String string) {
+            if (string == null) {
+                writeVarLong(0);
+                return;
+            }
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                strings.add(string);
+                index = strings.size();
+                stringIndexes.put(string, index);
+            }
+            writeVarLong(index);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~VAR_LONG_MASK) != 0) {
+                write((int) ((value & VAR_LONG_MASK) | VAR_LONG_CONTINUE));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeFixedLong(long value) {
+            for (int i = Long.BYTES - 1; i >= 0; i--) {
+                write((int) (value >>> (i * Byte.SIZE)));
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private byte[] data;
+
+        private int position;
+
+        private String[] strings;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int read() {
+            return data[position++] & 0xFF;
+        }
+
+        String readString() {
+            return strings[(int) readVarLong()];
+        }
+
+        long readVarLong() {
+            long value = 0L;
+            int shift = 0;
+            while (true) {
+                int b = read();
+                value |= (b & VAR_LONG_MASK) << shift;
+                if ((b & VAR_LONG_CONTINUE) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        long readFixedLong() {
+            long value = 0L;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << Byte.SIZE) | read();
+            }
+            return value;
+        }
+    }
+}
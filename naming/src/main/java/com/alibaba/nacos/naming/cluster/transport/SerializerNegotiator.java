@@ -0,0 +1,127 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.nacos.naming.misc.GlobalConfig;
+import com.alibaba.nacos.naming.misc.Loggers;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Choose the serializer of data sent to other servers.
+ * <p>
+ * Every Distro request carries the {@link #ACCEPT_HEADER} header listing the serializers the sender
+ * can read. The binary serializer is only used towards a server after it has announced that it
+ * accepts it, and only if this server is configured to use it. Servers of older versions never
+ * announce anything, so they keep receiving JSON during a rolling upgrade.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+@Component
+public class SerializerNegotiator {
+
+    public static final String ACCEPT_HEADER = "Distro-Accept-Serializer";
+
+    public static final String ACCEPTED_SERIALIZERS = BinarySerializer.NAME + ",json";
+
+    public static final String BINARY_CONTENT_TYPE = "application/x-nacos-binary";
+
+    @Autowired
+    private FastJsonSerializer jsonSerializer;
+
+    @Autowired
+    private BinarySerializer binarySerializer;
+
+    @Autowired
+    private GlobalConfig globalConfig;
+
+    private Map<String, Boolean> binaryAcceptedServers = new ConcurrentHashMap<>();
+
+    /**
+     * Record serializers a server accepts
+     *
+     * @param server   server sending the request
+     * @param accepted value of {@link #ACCEPT_HEADER} header, null if not present
+     */
+    public void onReceive(String server, String accepted) {
+        if (StringUtils.isBlank(server)) {
+            return;
+        }
+        boolean binaryAccepted = acceptsBinary(accepted);
+        Boolean old = binaryAcceptedServers.put(server, binaryAccepted);
+        if (old == null || old != binaryAccepted) {
+            Loggers.DISTRO.info("serializers accepted by {}: {}", server, accepted);
+        }
+    }
+
+    /**
+     * Forget what a server accepts, used when a request to it failed
+     *
+     * @param server target server
+     */
+    public void reset(String server) {
+        binaryAcceptedServers.remove(server);
+    }
+
+    /**
+     * Select the serializer for data sent to a server
+     *
+     * @param server target server
+     * @return serializer to use
+     */
+    public Serializer select(String server) {
+        if (isBinaryEnabled() && Boolean.TRUE.equals(binaryAcceptedServers.get(server))) {
+            return binarySerializer;
+        }
+        return jsonSerializer;
+    }
+
+    /**
+     * Select the serializer for response data according to the accept header of request
+     *
+     * @param accepted value of {@link #ACCEPT_HEADER} header of request
+     * @return serializer to use
+     */
+    public Serializer selectForResponse(String accepted) {
+        if (isBinaryEnabled() && acceptsBinary(accepted)) {
+            return binarySerializer;
+        }
+        return jsonSerializer;
+    }
+
+    /**
+     * Get the serializer that is able to read the data
+     *
+     * @param data received data
+     * @return serializer to use
+     */
+    public Serializer detect(byte[] data) {
+        return BinarySerializer.isBinary(data) ? binarySerializer : jsonSerializer;
+    }
+
+    private boolean isBinaryEnabled() {
+        return BinarySerializer.NAME.equals(globalConfig.getDistroSerializer());
+    }
+
+    private boolean acceptsBinary(String accepted) {
+        return StringUtils.isNotBlank(accepted) && accepted.contains(BinarySerializer.NAME);
+    }
+}
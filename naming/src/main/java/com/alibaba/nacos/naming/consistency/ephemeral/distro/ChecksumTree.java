@@ -0,0 +1,150 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Two level hash tree of datum checksums, used by the timed anti-entropy sync.
+ * <p>
+ * Keys are put into buckets by the distro hash of their service name. The hash of a bucket is the sum
+ * of the hashes of its (key, checksum) pairs, so it does not depend on the order keys are added in,
+ * and the root is the sum of all bucket hashes. Two servers holding the same keys with the same
+ * checksums get the same root; if roots differ, only buckets with different hashes need to be compared
+ * key by key.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class ChecksumTree {
+
+    private int bucketCount;
+
+    private long[] buckets;
+
+    private Map<Integer, Map<String, String>> leaves = new HashMap<>(16);
+
+    public ChecksumTree(int bucketCount) {
+        this.bucketCount = bucketCount;
+        this.buckets = new long[bucketCount];
+    }
+
+    /**
+     * Add the checksum of a datum
+     *
+     * @param key        key of datum
+     * @param checksum   checksum of datum
+     * @param distroHash distro hash of the service name of datum
+     */
+    public void add(String key, String checksum, int distroHash) {
+        int bucket = bucketOf(distroHash, bucketCount);
+        buckets[bucket] += hash(key, checksum);
+
+        Map<String, String> leaf = leaves.get(bucket);
+        if (leaf == null) {
+            leaf = new HashMap<>(16);
+            leaves.put(bucket, leaf);
+        }
+        leaf.put(key, checksum);
+    }
+
+    public long getRoot() {
+        long root = 0L;
+        for (long bucket : buckets) {
+            root += bucket;
+        }
+        return root;
+    }
+
+    public boolean isEmpty() {
+        return leaves.isEmpty();
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public long[] getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * Get indexes of buckets whose hashes differ from the given ones
+     *
+     * @param otherBuckets bucket hashes of the other tree
+     * @return indexes of different buckets
+     */
+    public List<Integer> diff(long[] otherBuckets) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < bucketCount; i++) {
+            if (buckets[i] != otherBuckets[i]) {
+                result.add(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get checksums of all keys in this tree
+     *
+     * @return checksums of keys
+     */
+    public Map<String, String> getChecksums() {
+        return getChecksums(leaves.keySet());
+    }
+
+    /**
+     * Get checksums of all keys in the given buckets
+     *
+     * @param bucketIndexes indexes of buckets
+     * @return checksums of keys
+     */
+    public Map<String, String> getChecksums(Collection<Integer> bucketIndexes) {
+        Map<String, String> result = new HashMap<>(64);
+        for (Integer bucket : bucketIndexes) {
+            Map<String, String> leaf = leaves.get(bucket);
+            if (leaf != null) {
+                result.putAll(leaf);
+            }
+        }
+        return result;
+    }
+
+    public static int bucketOf(int distroHash, int bucketCount) {
+        return distroHash % bucketCount;
+    }
+
+    private static long hash(String key, String checksum) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = 31 * hash + key.charAt(i);
+        }
+        if (checksum != null) {
+            for (int i = 0; i < checksum.length(); i++) {
+                hash = 31 * hash + checksum.charAt(i);
+            }
+        }
+        // spread the bits so that sums of bucket hashes are not dominated by low bits:
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -36,11 +36,52 @@ public class DataStore {
 
     private Map<String, Datum> dataMap = new ConcurrentHashMap<>(1024);
 
+    private Map<String, DeltaLog> deltaLogs = new ConcurrentHashMap<>(1024);
+
     public void put(String key, Datum value) {
+        // value comes from another server, local deltas are not valid anymore:
+        deltaLogs.remove(key);
         dataMap.put(key, value);
     }
 
+    /**
+     * Put a locally written datum, its version is increased by one and the instance level delta is recorded
+     *
+     * @param key        key of datum
+     * @param value      datum to put
+     * @param maxHistory max count of deltas to keep for this key
+     */
+    public void putLocal(String key, Datum<Instances> value, int maxHistory) {
+
+        DeltaLog deltaLog = deltaLogs.computeIfAbsent(key, k -> new DeltaLog());
+
+        synchronized (deltaLog) {
+            Datum oldDatum = dataMap.get(key);
+            long baseVersion = oldDatum == null ? 0L : oldDatum.timestamp.get();
+            value.timestamp.set(baseVersion + 1);
+            dataMap.put(key, value);
+            deltaLog.record(key, baseVersion, value.timestamp.get(), value.value, maxHistory);
+        }
+    }
+
+    /**
+     * Get instance level delta of a datum between two versions
+     *
+     * @param key         key of datum
+     * @param fromVersion version the receiver holds
+     * @param toVersion   version to sync to
+     * @return merged delta, or null if not available
+     */
+    public DatumDelta getDelta(String key, long fromVersion, long toVersion) {
+        DeltaLog deltaLog = deltaLogs.get(key);
+        if (deltaLog == null) {
+            return null;
+        }
+        return deltaLog.since(fromVersion, toVersion);
+    }
+
     public Datum remove(String key) {
+        deltaLogs.remove(key);
         return dataMap.remove(key);
     }
 
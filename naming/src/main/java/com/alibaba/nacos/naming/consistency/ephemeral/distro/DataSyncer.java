@@ -18,6 +18,7 @@ package com.alibaba.nacos.naming.consistency.ephemeral.distro;
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.servers.Server;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.SerializerNegotiator;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.core.DistroMapper;
@@ -53,6 +54,9 @@ public class DataSyncer {
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private SerializerNegotiator serializerNegotiator;
+
     @Autowired
     private DistroMapper distroMapper;
 
@@ -61,6 +65,16 @@ public class DataSyncer {
 
     private Map<String, String> taskMap = new ConcurrentHashMap<>();
 
+    /**
+     * Version of each datum that has been successfully synced to each server
+     */
+    private Map<String, Long> syncedVersions = new ConcurrentHashMap<>();
+
+    /**
+     * Checksum tree of responsible data built in the latest timed sync
+     */
+    private volatile ChecksumTree checksumTree;
+
     @PostConstruct
     public void init() {
         startTimedSync();
@@ -114,11 +128,45 @@ public class DataSyncer {
                         return;
                     }
 
-                    byte[] data = serializer.serialize(datumMap);
+                    for (String key : task.getKeys()) {
+                        if (!datumMap.containsKey(key)) {
+                            syncedVersions.remove(buildKey(key, task.getTargetServer()));
+                        }
+                    }
+
+                    Map<String, Long> versions = new HashMap<>(datumMap.size());
+                    Map<String, DatumDelta> deltaMap = new HashMap<>(datumMap.size());
+                    Map<String, Datum> fullDatumMap = new HashMap<>(datumMap.size());
+                    for (Map.Entry<String, Datum> entry : datumMap.entrySet()) {
+                        long version = entry.getValue().timestamp.get();
+                        versions.put(entry.getKey(), version);
+
+                        DatumDelta delta = getDelta(entry.getKey(), version, task.getTargetServer());
+                        if (delta != null) {
+                            if (!delta.isEmpty()) {
+                                deltaMap.put(entry.getKey(), delta);
+                            }
+                            continue;
+                        }
+                        fullDatumMap.put(entry.getKey(), entry.getValue());
+                    }
 
                     long timestamp = System.currentTimeMillis();
-                    boolean success = NamingProxy.syncData(data, task.getTargetServer());
+                    boolean success = true;
+                    if (!deltaMap.isEmpty()) {
+                        success = NamingProxy.syncDelta(serializer.serialize(deltaMap), task.getTargetServer());
+                    }
+                    if (success && !fullDatumMap.isEmpty()) {
+                        Serializer datumSerializer = serializerNegotiator.select(task.getTargetServer());
+                        success = NamingProxy.syncData(datumSerializer.serialize(fullDatumMap), task.getTargetServer());
+                    }
+
                     if (!success) {
+                        // the remote version and serializers are unknown now, retry with whole datums in JSON:
+                        for (String key : task.getKeys()) {
+                            syncedVersions.remove(buildKey(key, task.getTargetServer()));
+                        }
+                        serializerNegotiator.reset(task.getTargetServer());
                         SyncTask syncTask = new SyncTask();
                         syncTask.setKeys(task.getKeys());
                         syncTask.setRetryCount(task.getRetryCount() + 1);
@@ -130,6 +178,9 @@ public class DataSyncer {
                         for (String key : task.getKeys()) {
                             taskMap.remove(buildKey(key, task.getTargetServer()));
                         }
+                        for (Map.Entry<String, Long> entry : versions.entrySet()) {
+                            syncedVersions.put(buildKey(entry.getKey(), task.getTargetServer()), entry.getValue());
+                        }
                     }
 
                 } catch (Exception e) {
@@ -139,6 +190,24 @@ public class DataSyncer {
         }, delay);
     }
 
+    private DatumDelta getDelta(String key, long version, String targetServer) {
+
+        if (!partitionConfig.isDeltaSyncEnabled()) {
+            return null;
+        }
+
+        Long syncedVersion = syncedVersions.get(buildKey(key, targetServer));
+        if (syncedVersion == null) {
+            return null;
+        }
+
+        if (syncedVersion == version) {
+            return new DatumDelta(key, version, version);
+        }
+
+        return dataStore.getDelta(key, syncedVersion, version);
+    }
+
     public void retrySync(SyncTask syncTask) {
 
         Server server = new Server();
@@ -168,29 +237,49 @@ public class DataSyncer {
                     Loggers.DISTRO.debug("server list is: {}", getServers());
                 }
 
-                // send local timestamps to other servers:
-                Map<String, String> keyChecksums = new HashMap<>(64);
+                // send checksums of local data to other servers:
+                ChecksumTree tree = new ChecksumTree(partitionConfig.getChecksumBucketCount());
                 for (String key : dataStore.keys()) {
-                    if (!distroMapper.responsible(KeyBuilder.getServiceName(key))) {
+                    String serviceName = KeyBuilder.getServiceName(key);
+                    if (!distroMapper.responsible(serviceName)) {
                         continue;
                     }
 
-                    keyChecksums.put(key, dataStore.get(key).value.getChecksum());
+                    tree.add(key, dataStore.get(key).value.getChecksum(), distroMapper.distroHash(serviceName));
                 }
 
-                if (keyChecksums.isEmpty()) {
+                checksumTree = tree;
+
+                if (tree.isEmpty()) {
                     return;
                 }
 
                 if (Loggers.DISTRO.isDebugEnabled()) {
-                    Loggers.DISTRO.debug("sync checksums: {}", keyChecksums);
+                    Loggers.DISTRO.debug("sync checksum root: {}", tree.getRoot());
                 }
 
+                Map<String, String> keyChecksums = null;
                 for (Server member : getServers()) {
-                    if (NetUtils.localServer().equals(member.getKey())) {
+                    final String server = member.getKey();
+                    if (NetUtils.localServer().equals(server)) {
+                        continue;
+                    }
+
+                    if (partitionConfig.isChecksumTreeEnabled()) {
+                        // the server may be of an old version, send the whole checksum map if it rejects the root:
+                        NamingProxy.syncChecksumRoot(tree.getRoot(), tree.getBucketCount(), server, new Runnable() {
+                            @Override
+                            public void run() {
+                                NamingProxy.syncCheckSums(tree.getChecksums(), server);
+                            }
+                        });
                         continue;
                     }
-                    NamingProxy.syncCheckSums(keyChecksums, member.getKey());
+
+                    if (keyChecksums == null) {
+                        keyChecksums = tree.getChecksums();
+                    }
+                    NamingProxy.syncCheckSums(keyChecksums, server);
                 }
             } catch (Exception e) {
                 Loggers.DISTRO.error("timed sync task failed.", e);
@@ -198,6 +287,10 @@ public class DataSyncer {
         }
     }
 
+    public ChecksumTree getChecksumTree() {
+        return checksumTree;
+    }
+
     public List<Server> getServers() {
         return serverListManager.getHealthyServers();
     }
@@ -0,0 +1,158 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instance level changes of one ephemeral datum between two versions.
+ * <p>
+ * A delta can only be applied on a datum whose version equals {@link #baseVersion}, the result
+ * is the datum of {@link #version}.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class DatumDelta {
+
+    private String key;
+
+    private long baseVersion;
+
+    private long version;
+
+    private List<Instance> updatedInstances = new ArrayList<>();
+
+    private List<String> removedInstances = new ArrayList<>();
+
+    public DatumDelta() {
+    }
+
+    public DatumDelta(String key, long baseVersion, long version) {
+        this.key = key;
+        this.baseVersion = baseVersion;
+        this.version = version;
+    }
+
+    /**
+     * Merge a subsequent delta into this one, later operations win
+     *
+     * @param next delta whose base version equals the version of this delta
+     * @return merged delta from the base version of this delta to the version of next
+     */
+    public DatumDelta merge(DatumDelta next) {
+
+        Map<String, Instance> operations = new LinkedHashMap<>();
+        for (String instanceKey : removedInstances) {
+            operations.put(instanceKey, null);
+        }
+        for (Instance instance : updatedInstances) {
+            operations.put(instance.getDatumKey(), instance);
+        }
+        for (String instanceKey : next.getRemovedInstances()) {
+            operations.put(instanceKey, null);
+        }
+        for (Instance instance : next.getUpdatedInstances()) {
+            operations.put(instance.getDatumKey(), instance);
+        }
+
+        DatumDelta merged = new DatumDelta(key, baseVersion, next.getVersion());
+        for (Map.Entry<String, Instance> entry : operations.entrySet()) {
+            if (entry.getValue() == null) {
+                merged.getRemovedInstances().add(entry.getKey());
+            } else {
+                merged.getUpdatedInstances().add(entry.getValue());
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Apply this delta on instances of the base version
+     *
+     * @param base instances of the base version
+     * @return instances of the new version
+     */
+    public Instances applyTo(Instances base) {
+
+        Map<String, Instance> instanceMap = new LinkedHashMap<>(base.getInstanceList().size());
+        for (Instance instance : base.getInstanceList()) {
+            instanceMap.put(instance.getDatumKey(), instance);
+        }
+        for (String instanceKey : removedInstances) {
+            instanceMap.remove(instanceKey);
+        }
+        for (Instance instance : updatedInstances) {
+            instanceMap.put(instance.getDatumKey(), instance);
+        }
+
+        Instances instances = new Instances();
+        instances.setInstanceList(new ArrayList<>(instanceMap.values()));
+        return instances;
+    }
+
+    @JSONField(serialize = false)
+    public boolean isEmpty() {
+        return updatedInstances.isEmpty() && removedInstances.isEmpty();
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    public void setBaseVersion(long baseVersion) {
+        this.baseVersion = baseVersion;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public List<Instance> getUpdatedInstances() {
+        return updatedInstances;
+    }
+
+    public void setUpdatedInstances(List<Instance> updatedInstances) {
+        this.updatedInstances = updatedInstances;
+    }
+
+    public List<String> getRemovedInstances() {
+        return removedInstances;
+    }
+
+    public void setRemovedInstances(List<String> removedInstances) {
+        this.removedInstances = removedInstances;
+    }
+}
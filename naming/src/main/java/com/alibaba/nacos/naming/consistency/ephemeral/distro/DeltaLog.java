@@ -0,0 +1,133 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Recent deltas of one locally written datum.
+ * <p>
+ * The log remembers a fingerprint of every instance of the latest version, so that the next write
+ * can be turned into instance level add/remove/update operations. Instances are mutated in place
+ * (health status, for example), comparing fingerprints instead of objects catches those changes.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class DeltaLog {
+
+    private long version = 0L;
+
+    private Map<String, Long> fingerprints = new HashMap<>(16);
+
+    private LinkedList<DatumDelta> history = new LinkedList<>();
+
+    /**
+     * Record a new version of the datum
+     *
+     * @param key         datum key
+     * @param baseVersion version the new value is based on
+     * @param newVersion  version of the new value
+     * @param value       new value
+     * @param maxHistory  max count of deltas to keep
+     */
+    public synchronized void record(String key, long baseVersion, long newVersion, Instances value, int maxHistory) {
+
+        Map<String, Long> newFingerprints = new HashMap<>(value.getInstanceList().size());
+
+        DatumDelta delta = new DatumDelta(key, baseVersion, newVersion);
+        for (Instance instance : value.getInstanceList()) {
+            String instanceKey = instance.getDatumKey();
+            long fingerprint = fingerprint(value.buildSignature(instance));
+            newFingerprints.put(instanceKey, fingerprint);
+
+            Long oldFingerprint = fingerprints.get(instanceKey);
+            if (oldFingerprint == null || oldFingerprint != fingerprint) {
+                delta.getUpdatedInstances().add(instance);
+            }
+        }
+
+        for (String instanceKey : fingerprints.keySet()) {
+            if (!newFingerprints.containsKey(instanceKey)) {
+                delta.getRemovedInstances().add(instanceKey);
+            }
+        }
+
+        if (version != baseVersion) {
+            // fingerprints do not belong to the base version, the delta is not trustable:
+            history.clear();
+        } else {
+            history.addLast(delta);
+            while (history.size() > maxHistory) {
+                history.removeFirst();
+            }
+        }
+
+        fingerprints = newFingerprints;
+        version = newVersion;
+    }
+
+    /**
+     * Get the merged delta between two versions
+     *
+     * @param fromVersion version the receiver holds
+     * @param toVersion   version to sync to
+     * @return merged delta, or null if the log does not cover the range
+     */
+    public synchronized DatumDelta since(long fromVersion, long toVersion) {
+
+        DatumDelta merged = null;
+        for (DatumDelta delta : history) {
+            if (delta.getVersion() <= fromVersion) {
+                continue;
+            }
+            if (delta.getVersion() > toVersion) {
+                break;
+            }
+            if (merged == null) {
+                if (delta.getBaseVersion() != fromVersion) {
+                    return null;
+                }
+                merged = delta;
+                continue;
+            }
+            merged = merged.merge(delta);
+        }
+
+        if (merged == null || merged.getVersion() != toVersion) {
+            return null;
+        }
+
+        return merged;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    private static long fingerprint(String signature) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < signature.length(); i++) {
+            hash = 31 * hash + signature.charAt(i);
+        }
+        return hash;
+    }
+}
@@ -21,7 +21,7 @@ import com.alibaba.nacos.core.utils.SystemUtils;
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.ServerStatus;
 import com.alibaba.nacos.naming.cluster.servers.Server;
-import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.SerializerNegotiator;
 import com.alibaba.nacos.naming.consistency.ApplyAction;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
@@ -31,16 +31,18 @@ import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.misc.*;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import com.alibaba.nacos.naming.pojo.Record;
-import org.apache.commons.lang3.StringUtils;
-import org.javatuples.Pair;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import javax.annotation.PostConstruct;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A consistency protocol algorithm called <b>Partition</b>
@@ -59,13 +61,18 @@ import java.util.concurrent.*;
 @org.springframework.stereotype.Service("distroConsistencyService")
 public class DistroConsistencyServiceImpl implements EphemeralConsistencyService {
 
-    private ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+    private final int notifyWorkerCount = Runtime.getRuntime().availableProcessors();
+
+    private ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(notifyWorkerCount, new ThreadFactory() {
+
+        private AtomicInteger index = new AtomicInteger();
+
         @Override
         public Thread newThread(Runnable r) {
             Thread t = new Thread(r);
 
             t.setDaemon(true);
-            t.setName("com.alibaba.nacos.naming.distro.notifier");
+            t.setName("com.alibaba.nacos.naming.distro.notifier-" + index.getAndIncrement());
 
             return t;
         }
@@ -84,7 +91,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     private DataSyncer dataSyncer;
 
     @Autowired
-    private Serializer serializer;
+    private SerializerNegotiator serializerNegotiator;
 
     @Autowired
     private ServerListManager serverListManager;
@@ -97,7 +104,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
 
     private boolean initialized = false;
 
-    public volatile Notifier notifier = new Notifier();
+    public volatile Notifier notifier = new Notifier(notifyWorkerCount);
 
     private Map<String, CopyOnWriteArrayList<RecordListener>> listeners = new ConcurrentHashMap<>();
 
@@ -116,7 +123,9 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
             }
         });
 
-        executor.submit(notifier);
+        for (Notifier.NotifyWorker worker : notifier.getWorkers()) {
+            executor.submit(worker);
+        }
     }
 
     public void load() throws Exception {
@@ -168,10 +177,26 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
             Datum<Instances> datum = new Datum<>();
             datum.value = (Instances) value;
             datum.key = key;
-            datum.timestamp.incrementAndGet();
-            dataStore.put(key, datum);
+            dataStore.putLocal(key, datum, globalConfig.getDeltaHistorySize());
+        }
+
+        if (!listeners.containsKey(key)) {
+            return;
         }
 
+        notifier.addTask(key, ApplyAction.CHANGE);
+    }
+
+    /**
+     * Put a datum synced from the responsible server, the version of remote datum is kept
+     *
+     * @param key   key of datum
+     * @param datum datum from remote server
+     */
+    public void onSync(String key, Datum<Instances> datum) {
+
+        dataStore.put(key, datum);
+
         if (!listeners.containsKey(key)) {
             return;
         }
@@ -179,6 +204,65 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
         notifier.addTask(key, ApplyAction.CHANGE);
     }
 
+    public void onReceiveDeltas(Map<String, DatumDelta> deltaMap, String server) {
+
+        List<String> toUpdateKeys = new ArrayList<>();
+        for (Map.Entry<String, DatumDelta> entry : deltaMap.entrySet()) {
+
+            String key = entry.getKey();
+            DatumDelta delta = entry.getValue();
+
+            if (!processDelta(key, delta)) {
+                // version gap found, the whole datum is needed:
+                toUpdateKeys.add(key);
+            }
+        }
+
+        if (toUpdateKeys.isEmpty()) {
+            return;
+        }
+
+        if (Loggers.DISTRO.isDebugEnabled()) {
+            Loggers.DISTRO.debug("version gap found, keys: {}, source: {}", toUpdateKeys, server);
+        }
+
+        GlobalExecutor.submitDataSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    byte[] result = NamingProxy.getData(toUpdateKeys, server);
+                    processData(result);
+                } catch (Exception e) {
+                    Loggers.DISTRO.error("get data from " + server + " failed!", e);
+                }
+            }
+        }, 0);
+    }
+
+    /**
+     * Apply delta on local datum
+     *
+     * @param key   key of datum
+     * @param delta delta from the responsible server
+     * @return true if applied, false if local datum is not of the base version of delta
+     */
+    public boolean processDelta(String key, DatumDelta delta) {
+
+        Datum localDatum = dataStore.get(key);
+        if (localDatum == null || localDatum.value == null
+            || localDatum.timestamp.get() != delta.getBaseVersion()) {
+            return false;
+        }
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = key;
+        datum.value = delta.applyTo((Instances) localDatum.value);
+        datum.timestamp.set(delta.getVersion());
+
+        onSync(key, datum);
+        return true;
+    }
+
     public void onRemove(String key) {
 
         dataStore.remove(key);
@@ -190,7 +274,84 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
         notifier.addTask(key, ApplyAction.DELETE);
     }
 
+    /**
+     * Compare the root of checksum tree of a server with local data, and descend into different buckets
+     *
+     * @param root        root hash of checksum tree of the server
+     * @param bucketCount bucket count of the checksum tree
+     * @param server      the server
+     */
+    public void onReceiveChecksumRoot(long root, int bucketCount, String server) {
+
+        if (syncChecksumTasks.containsKey(server)) {
+            // Already in process of this server:
+            Loggers.DISTRO.warn("sync checksum task already in process with {}", server);
+            return;
+        }
+
+        ChecksumTree localTree = buildChecksumTree(server, bucketCount);
+        if (localTree.getRoot() == root) {
+            return;
+        }
+
+        GlobalExecutor.submitDataSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long[] remoteBuckets = NamingProxy.getChecksumBuckets(server);
+                    if (remoteBuckets == null || remoteBuckets.length != bucketCount) {
+                        // checksum tree of the server is not built or rebuilt with another bucket count:
+                        return;
+                    }
+
+                    List<Integer> diffBuckets = localTree.diff(remoteBuckets);
+                    if (diffBuckets.isEmpty()) {
+                        return;
+                    }
+
+                    if (Loggers.DISTRO.isDebugEnabled()) {
+                        Loggers.DISTRO.debug("checksum buckets differ: {}, source: {}", diffBuckets, server);
+                    }
+
+                    Map<String, String> checksumMap = NamingProxy.getChecksums(diffBuckets, server);
+                    onReceiveChecksums(checksumMap, server, new HashSet<>(diffBuckets), bucketCount);
+                } catch (Exception e) {
+                    Loggers.DISTRO.error("compare checksum tree with " + server + " failed!", e);
+                }
+            }
+        }, 0);
+    }
+
+    private ChecksumTree buildChecksumTree(String server, int bucketCount) {
+
+        ChecksumTree tree = new ChecksumTree(bucketCount);
+        for (String key : dataStore.keys()) {
+            String serviceName = KeyBuilder.getServiceName(key);
+            if (!server.equals(distroMapper.mapSrv(serviceName))) {
+                continue;
+            }
+            Datum datum = dataStore.get(key);
+            if (datum == null) {
+                continue;
+            }
+            tree.add(key, datum.value == null ? null : datum.value.getChecksum(), distroMapper.distroHash(serviceName));
+        }
+        return tree;
+    }
+
     public void onReceiveChecksums(Map<String, String> checksumMap, String server) {
+        onReceiveChecksums(checksumMap, server, null, 0);
+    }
+
+    /**
+     * Sync data with checksums of a server
+     *
+     * @param checksumMap checksums of data the server is responsible for
+     * @param server      the server
+     * @param buckets     buckets of checksum tree the checksums cover, null if they cover all data
+     * @param bucketCount bucket count of the checksum tree
+     */
+    public void onReceiveChecksums(Map<String, String> checksumMap, String server, Set<Integer> buckets, int bucketCount) {
 
         if (syncChecksumTasks.containsKey(server)) {
             // Already in process of this server:
@@ -220,7 +381,13 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
 
             for (String key : dataStore.keys()) {
 
-                if (!server.equals(distroMapper.mapSrv(KeyBuilder.getServiceName(key)))) {
+                String serviceName = KeyBuilder.getServiceName(key);
+                if (!server.equals(distroMapper.mapSrv(serviceName))) {
+                    continue;
+                }
+
+                if (buckets != null
+                    && !buckets.contains(ChecksumTree.bucketOf(distroMapper.distroHash(serviceName), bucketCount))) {
                     continue;
                 }
 
@@ -269,7 +436,7 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
     public void processData(byte[] data) throws Exception {
         if (data.length > 0) {
             Map<String, Datum<Instances>> datumMap =
-                serializer.deserializeMap(data, Instances.class);
+                serializerNegotiator.detect(data).deserializeMap(data, Instances.class);
 
 
             for (Map.Entry<String, Datum<Instances>> entry : datumMap.entrySet()) {
@@ -353,78 +520,130 @@ public class DistroConsistencyServiceImpl implements EphemeralConsistencyService
         return initialized || !globalConfig.isDataWarmup();
     }
 
-    public class Notifier implements Runnable {
+    public class Notifier {
 
-        private ConcurrentHashMap<String, String> services = new ConcurrentHashMap<>(10 * 1024);
+        private ConcurrentHashMap<String, Long> services = new ConcurrentHashMap<>(10 * 1024);
 
-        private BlockingQueue<Pair> tasks = new LinkedBlockingQueue<Pair>(1024 * 1024);
+        private List<NotifyWorker> workers = new ArrayList<>();
+
+        public Notifier(int workerCount) {
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(new NotifyWorker(i, 1024 * 1024 / workerCount));
+            }
+        }
 
         public void addTask(String datumKey, ApplyAction action) {
 
-            if (services.containsKey(datumKey) && action == ApplyAction.CHANGE) {
+            long now = System.currentTimeMillis();
+            if (action == ApplyAction.CHANGE && services.putIfAbsent(datumKey, now) != null) {
+                // a change of this key is already waiting to be notified:
                 return;
             }
-            if (action == ApplyAction.CHANGE) {
-                services.put(datumKey, StringUtils.EMPTY);
+
+            NotifyWorker worker = workers.get(UtilsAndCommons.shakeUp(datumKey, workers.size()));
+            if (!worker.tasks.offer(new NotifyTask(datumKey, action, now))) {
+                if (action == ApplyAction.CHANGE) {
+                    services.remove(datumKey);
+                }
+                Loggers.DISTRO.error("[NACOS-DISTRO] notify queue of worker {} is full, key: {}, action: {}",
+                    worker.index, datumKey, action.name());
+                return;
             }
-            tasks.add(Pair.with(datumKey, action));
+            MetricsMonitor.getDistroNotifyTaskCountMonitor().incrementAndGet();
         }
 
         public int getTaskSize() {
-            return tasks.size();
+            return MetricsMonitor.getDistroNotifyTaskCountMonitor().get();
         }
 
-        @Override
-        public void run() {
-            Loggers.DISTRO.info("distro notifier started");
+        public List<NotifyWorker> getWorkers() {
+            return workers;
+        }
 
-            while (true) {
-                try {
+        /**
+         * Notify listeners of keys assigned to it, keys are assigned by hash so changes of one key are
+         * notified in order
+         */
+        public class NotifyWorker implements Runnable {
 
-                    Pair pair = tasks.take();
+            private int index;
 
-                    if (pair == null) {
-                        continue;
-                    }
+            private BlockingQueue<NotifyTask> tasks;
 
-                    String datumKey = (String) pair.getValue0();
-                    ApplyAction action = (ApplyAction) pair.getValue1();
+            public NotifyWorker(int index, int capacity) {
+                this.index = index;
+                this.tasks = new LinkedBlockingQueue<>(capacity);
+            }
 
-                    services.remove(datumKey);
+            @Override
+            public void run() {
+                Loggers.DISTRO.info("distro notify worker {} started", index);
 
-                    int count = 0;
+                while (true) {
+                    try {
 
-                    if (!listeners.containsKey(datumKey)) {
-                        continue;
-                    }
+                        NotifyTask task = tasks.take();
+                        MetricsMonitor.getDistroNotifyTaskCountMonitor().decrementAndGet();
 
-                    for (RecordListener listener : listeners.get(datumKey)) {
+                        String datumKey = task.datumKey;
+                        ApplyAction action = task.action;
 
-                        count++;
+                        if (action == ApplyAction.CHANGE) {
+                            services.remove(datumKey);
+                        }
 
-                        try {
-                            if (action == ApplyAction.CHANGE) {
-                                listener.onChange(datumKey, dataStore.get(datumKey).value);
-                                continue;
-                            }
+                        int count = 0;
+
+                        if (!listeners.containsKey(datumKey)) {
+                            continue;
+                        }
+
+                        for (RecordListener listener : listeners.get(datumKey)) {
 
-                            if (action == ApplyAction.DELETE) {
-                                listener.onDelete(datumKey);
-                                continue;
+                            count++;
+
+                            try {
+                                if (action == ApplyAction.CHANGE) {
+                                    listener.onChange(datumKey, dataStore.get(datumKey).value);
+                                    continue;
+                                }
+
+                                if (action == ApplyAction.DELETE) {
+                                    listener.onDelete(datumKey);
+                                    continue;
+                                }
+                            } catch (Throwable e) {
+                                Loggers.DISTRO.error("[NACOS-DISTRO] error while notifying listener of key: {}", datumKey, e);
                             }
-                        } catch (Throwable e) {
-                            Loggers.DISTRO.error("[NACOS-DISTRO] error while notifying listener of key: {}", datumKey, e);
                         }
-                    }
 
-                    if (Loggers.DISTRO.isDebugEnabled()) {
-                        Loggers.DISTRO.debug("[NACOS-DISTRO] datum change notified, key: {}, listener count: {}, action: {}",
-                            datumKey, count, action.name());
+                        MetricsMonitor.getDistroNotifyTimer()
+                            .record(System.currentTimeMillis() - task.addTime, TimeUnit.MILLISECONDS);
+
+                        if (Loggers.DISTRO.isDebugEnabled()) {
+                            Loggers.DISTRO.debug("[NACOS-DISTRO] datum change notified, key: {}, listener count: {}, action: {}",
+                                datumKey, count, action.name());
+                        }
+                    } catch (Throwable e) {
+                        Loggers.DISTRO.error("[NACOS-DISTRO] Error while handling notifying task", e);
                     }
-                } catch (Throwable e) {
-                    Loggers.DISTRO.error("[NACOS-DISTRO] Error while handling notifying task", e);
                 }
             }
         }
     }
+
+    private static class NotifyTask {
+
+        private String datumKey;
+
+        private ApplyAction action;
+
+        private long addTime;
+
+        NotifyTask(String datumKey, ApplyAction action, long addTime) {
+            this.datumKey = datumKey;
+            this.action = action;
+            this.addTime = addTime;
+        }
+    }
 }
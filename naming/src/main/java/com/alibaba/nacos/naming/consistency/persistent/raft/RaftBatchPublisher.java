@@ -0,0 +1,426 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.persistent.raft;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.misc.HttpClient;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.pojo.Record;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.Response;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group commit of datums published by the leader.
+ * <p>
+ * Concurrent publishes are queued and taken by one thread in batches. A batch is applied locally
+ * under {@link RaftCore#OPERATE_LOCK}, then handed to every follower without waiting for the previous
+ * batches to be acked, so the lock is no longer held during the round trip.
+ * <p>
+ * A follower rejects data carrying a term older than its own, and the term grows with every publish,
+ * so each follower gets its batches in order with at most one request in flight. Batches queued
+ * while a request is in flight are merged into the next request. Followers not supporting the batch
+ * API get the datums one by one through the single datum API.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class RaftBatchPublisher implements Runnable {
+
+    private static final int MAX_BATCH_SIZE = 256;
+
+    private static final int MAX_REQUEST_DATUMS = 1024;
+
+    private RaftCore raftCore;
+
+    private ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+
+            t.setDaemon(true);
+            t.setName("com.alibaba.nacos.naming.raft.publisher");
+
+            return t;
+        }
+    });
+
+    private BlockingQueue<PublishTask> tasks = new LinkedBlockingQueue<>();
+
+    private Map<String, Follower> followers = new ConcurrentHashMap<>(16);
+
+    public RaftBatchPublisher(RaftCore raftCore) {
+        this.raftCore = raftCore;
+    }
+
+    public void start() {
+        executor.submit(this);
+    }
+
+    /**
+     * Queue a datum to publish
+     *
+     * @param key   key of datum
+     * @param value value of datum
+     * @return task to wait for the result on
+     */
+    public PublishTask publish(String key, Record value) {
+        PublishTask task = new PublishTask(key, value);
+        tasks.add(task);
+        return task;
+    }
+
+    @Override
+    public void run() {
+        Loggers.RAFT.info("raft publisher started");
+
+        List<PublishTask> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(tasks.take());
+                tasks.drainTo(batch, MAX_BATCH_SIZE - 1);
+                publishBatch(batch);
+            } catch (Throwable e) {
+                Loggers.RAFT.error("[NACOS-RAFT] error while publishing batch", e);
+                for (PublishTask task : batch) {
+                    task.fail(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void publishBatch(List<PublishTask> batch) {
+
+        RaftPeerSet peers = raftCore.getPeerSet();
+        List<PublishTask> applied = new ArrayList<>(batch.size());
+        List<Datum> datums = new ArrayList<>(batch.size());
+
+        RaftCore.OPERATE_LOCK.lock();
+        try {
+            if (!raftCore.isLeader()) {
+                throw new IllegalStateException("not leader anymore, leader: " + raftCore.getLeader());
+            }
+
+            for (PublishTask task : batch) {
+                Datum datum = new Datum();
+                datum.key = task.key;
+                datum.value = task.value;
+                Datum oldDatum = raftCore.getDatum(task.key);
+                if (oldDatum == null) {
+                    datum.timestamp.set(1L);
+                } else {
+                    datum.timestamp.set(oldDatum.timestamp.incrementAndGet());
+                }
+
+                try {
+                    raftCore.onPublish(datum, peers.local());
+                    applied.add(task);
+                    datums.add(datum);
+                } catch (Exception e) {
+                    task.fail(e);
+                }
+            }
+        } finally {
+            RaftCore.OPERATE_LOCK.unlock();
+        }
+
+        if (applied.isEmpty()) {
+            return;
+        }
+
+        List<String> servers = new ArrayList<>(peers.allServersWithoutMySelf());
+        Batch replication = new Batch(applied, datums, peers.majorityCount(), servers.size() + 1);
+        // the leader itself:
+        replication.onResponse(true);
+
+        for (String server : servers) {
+            Follower follower = followers.get(server);
+            if (follower == null) {
+                followers.putIfAbsent(server, new Follower(server));
+                follower = followers.get(server);
+            }
+            follower.enqueue(replication);
+        }
+    }
+
+    public static class PublishTask {
+
+        private String key;
+
+        private Record value;
+
+        private long start = System.currentTimeMillis();
+
+        private CountDownLatch done = new CountDownLatch(1);
+
+        private volatile Throwable error;
+
+        PublishTask(String key, Record value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Wait until the datum is accepted by the majority
+         *
+         * @param timeoutMillis time to wait in milliseconds
+         * @throws Exception if the datum is rejected or the wait times out
+         */
+        public void await(long timeoutMillis) throws Exception {
+            if (!done.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                // only majority servers return success can we consider this update success
+                throw new IllegalStateException("data publish failed, caused failed to notify majority, key=" + key);
+            }
+
+            if (error instanceof Exception) {
+                throw (Exception) error;
+            }
+
+            if (error != null) {
+                throw new IllegalStateException("data publish failed, key=" + key, error);
+            }
+        }
+
+        void succeed() {
+            done.countDown();
+            Loggers.RAFT.info("signalPublish cost {} ms, key: {}", (System.currentTimeMillis() - start), key);
+        }
+
+        void fail(Throwable e) {
+            if (done.getCount() > 0) {
+                error = e;
+                done.countDown();
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private List<PublishTask> tasks;
+
+        private List<Datum> datums;
+
+        private int majorityCount;
+
+        private int serverCount;
+
+        private AtomicInteger acks = new AtomicInteger(0);
+
+        private AtomicInteger responses = new AtomicInteger(0);
+
+        Batch(List<PublishTask> tasks, List<Datum> datums, int majorityCount, int serverCount) {
+            this.tasks = tasks;
+            this.datums = datums;
+            this.majorityCount = majorityCount;
+            this.serverCount = serverCount;
+        }
+
+        void onResponse(boolean success) {
+            int responseCount = responses.incrementAndGet();
+            if (success && acks.incrementAndGet() == majorityCount) {
+                for (PublishTask task : tasks) {
+                    task.succeed();
+                }
+                return;
+            }
+
+            if (responseCount == serverCount && acks.get() < majorityCount) {
+                Loggers.RAFT.error("data publish failed, caused failed to notify majority, batch size={}", tasks.size());
+                IllegalStateException exception =
+                    new IllegalStateException("data publish failed, caused failed to notify majority");
+                for (PublishTask task : tasks) {
+                    task.fail(exception);
+                }
+            }
+        }
+    }
+
+    private class Follower {
+
+        private String server;
+
+        private Queue<Batch> pending = new ConcurrentLinkedQueue<>();
+
+        private AtomicBoolean sending = new AtomicBoolean(false);
+
+        private volatile boolean batchSupported = true;
+
+        Follower(String server) {
+            this.server = server;
+        }
+
+        void enqueue(Batch batch) {
+            pending.add(batch);
+            sendNext();
+        }
+
+        void sendNext() {
+            if (!sending.compareAndSet(false, true)) {
+                return;
+            }
+
+            List<Batch> batches = new ArrayList<>();
+            int datumCount = 0;
+            while (datumCount < MAX_REQUEST_DATUMS && !pending.isEmpty()) {
+                Batch batch = pending.poll();
+                batches.add(batch);
+                datumCount += batch.datums.size();
+            }
+
+            if (batches.isEmpty()) {
+                sending.set(false);
+                // a batch may have been added before the flag is cleared:
+                if (!pending.isEmpty()) {
+                    sendNext();
+                }
+                return;
+            }
+
+            List<Datum> datums = new ArrayList<>(datumCount);
+            for (Batch batch : batches) {
+                datums.addAll(batch.datums);
+            }
+
+            if (batchSupported) {
+                sendBatch(batches, datums);
+            } else {
+                sendOneByOne(batches, datums, 0);
+            }
+        }
+
+        private void sendBatch(final List<Batch> batches, final List<Datum> datums) {
+
+            JSONObject json = new JSONObject();
+            json.put("datums", datums);
+            json.put("source", raftCore.getPeerSet().local());
+
+            try {
+                HttpClient.asyncHttpPostLarge(RaftCore.buildURL(server, RaftCore.API_ON_PUB_BATCH),
+                    Collections.<String>emptyList(), JSON.toJSONString(json), new AsyncCompletionHandler<Integer>() {
+                        @Override
+                        public Integer onCompleted(Response response) throws Exception {
+                            if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                                Loggers.RAFT.warn("[RAFT] batch publish is not supported by peer {}, publish one by one",
+                                    server);
+                                batchSupported = false;
+                                sendOneByOne(batches, datums, 0);
+                                return 1;
+                            }
+
+                            boolean success = response.getStatusCode() == HttpURLConnection.HTTP_OK;
+                            if (!success) {
+                                Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datum count={}, peer={}, http code={}",
+                                    datums.size(), server, response.getStatusCode());
+                            }
+                            complete(batches, success);
+                            return success ? 0 : 1;
+                        }
+
+                        @Override
+                        public void onThrowable(Throwable t) {
+                            Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datum count={}, peer={}",
+                                datums.size(), server, t);
+                            complete(batches, false);
+                        }
+
+                        @Override
+                        public STATE onContentWriteCompleted() {
+                            return STATE.CONTINUE;
+                        }
+                    });
+            } catch (Exception e) {
+                Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datum count={}, peer={}",
+                    datums.size(), server, e);
+                complete(batches, false);
+            }
+        }
+
+        private void sendOneByOne(final List<Batch> batches, final List<Datum> datums, final int index) {
+
+            if (index == datums.size()) {
+                complete(batches, true);
+                return;
+            }
+
+            final Datum datum = datums.get(index);
+            JSONObject json = new JSONObject();
+            json.put("datum", datum);
+            json.put("source", raftCore.getPeerSet().local());
+
+            try {
+                HttpClient.asyncHttpPostLarge(RaftCore.buildURL(server, RaftCore.API_ON_PUB),
+                    Collections.singletonList("key=" + datum.key), JSON.toJSONString(json),
+                    new AsyncCompletionHandler<Integer>() {
+                        @Override
+                        public Integer onCompleted(Response response) throws Exception {
+                            if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                                Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datumId={}, peer={}, http code={}",
+                                    datum.key, server, response.getStatusCode());
+                                complete(batches, false);
+                                return 1;
+                            }
+                            sendOneByOne(batches, datums, index + 1);
+                            return 0;
+                        }
+
+                        @Override
+                        public void onThrowable(Throwable t) {
+                            Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datumId={}, peer={}",
+                                datum.key, server, t);
+                            complete(batches, false);
+                        }
+
+                        @Override
+                        public STATE onContentWriteCompleted() {
+                            return STATE.CONTINUE;
+                        }
+                    });
+            } catch (Exception e) {
+                Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datumId={}, peer={}", datum.key, server, e);
+                complete(batches, false);
+            }
+        }
+
+        private void complete(List<Batch> batches, boolean success) {
+            for (Batch batch : batches) {
+                batch.onResponse(success);
+            }
+            sending.set(false);
+            sendNext();
+        }
+    }
+}
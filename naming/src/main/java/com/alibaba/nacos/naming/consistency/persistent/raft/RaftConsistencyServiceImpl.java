@@ -27,6 +27,8 @@ import com.alibaba.nacos.naming.pojo.Record;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Use simplified Raft protocol to maintain the consistency status of Nacos cluster.
  *
@@ -102,6 +104,12 @@ public class RaftConsistencyServiceImpl implements PersistentConsistencyService
         }
     }
 
+    public void onPut(List<Datum> datums, RaftPeer source) throws NacosException {
+        for (Datum datum : datums) {
+            onPut(datum, source);
+        }
+    }
+
     public void onRemove(Datum datum, RaftPeer source) throws NacosException {
         try {
             raftCore.onDelete(datum.key, source);
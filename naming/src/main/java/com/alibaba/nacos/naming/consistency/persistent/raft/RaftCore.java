@@ -72,6 +72,8 @@ public class RaftCore {
 
     public static final String API_ON_PUB = UtilsAndCommons.NACOS_NAMING_CONTEXT + "/raft/datum/commit";
 
+    public static final String API_ON_PUB_BATCH = UtilsAndCommons.NACOS_NAMING_CONTEXT + "/raft/datum/commit/batch";
+
     public static final String API_ON_DEL = UtilsAndCommons.NACOS_NAMING_CONTEXT + "/raft/datum/commit";
 
     public static final String API_GET_PEER = UtilsAndCommons.NACOS_NAMING_CONTEXT + "/raft/peer";
@@ -113,6 +115,8 @@ public class RaftCore {
 
     public volatile Notifier notifier = new Notifier();
 
+    private RaftBatchPublisher publisher = new RaftBatchPublisher(this);
+
     private boolean initialized = false;
 
     @PostConstruct
@@ -121,6 +125,7 @@ public class RaftCore {
         Loggers.RAFT.info("initializing Raft sub-system");
 
         executor.submit(notifier);
+        publisher.start();
 
         long start = System.currentTimeMillis();
 
@@ -167,65 +172,8 @@ public class RaftCore {
             return;
         }
 
-        try {
-            OPERATE_LOCK.lock();
-            long start = System.currentTimeMillis();
-            final Datum datum = new Datum();
-            datum.key = key;
-            datum.value = value;
-            if (getDatum(key) == null) {
-                datum.timestamp.set(1L);
-            } else {
-                datum.timestamp.set(getDatum(key).timestamp.incrementAndGet());
-            }
-
-            JSONObject json = new JSONObject();
-            json.put("datum", datum);
-            json.put("source", peers.local());
-            // 注释：本节点发布 service 发布事件
-            onPublish(datum, peers.local());
-
-            final String content = JSON.toJSONString(json);
-
-            final CountDownLatch latch = new CountDownLatch(peers.majorityCount());
-            for (final String server : peers.allServersIncludeMyself()) {
-                // 注释：这里应该是避免特殊情况：步骤1 之前正在选举 leader，在这里之间选举出了 leader
-                if (isLeader(server)) {
-                    latch.countDown();
-                    continue;
-                }
-                final String url = buildURL(server, API_ON_PUB);
-                HttpClient.asyncHttpPostLarge(url, Arrays.asList("key=" + key), content, new AsyncCompletionHandler<Integer>() {
-                    @Override
-                    public Integer onCompleted(Response response) throws Exception {
-                        if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
-                            Loggers.RAFT.warn("[RAFT] failed to publish data to peer, datumId={}, peer={}, http code={}",
-                                datum.key, server, response.getStatusCode());
-                            return 1;
-                        }
-                        latch.countDown();
-                        return 0;
-                    }
-
-                    @Override
-                    public STATE onContentWriteCompleted() {
-                        return STATE.CONTINUE;
-                    }
-                });
-
-            }
-            // 注释：超时 5s 就算失败，但是其实本节点已经执行了 service 创建事件
-            if (!latch.await(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                // only majority servers return success can we consider this update success
-                Loggers.RAFT.error("data publish failed, caused failed to notify majority, key={}", key);
-                throw new IllegalStateException("data publish failed, caused failed to notify majority, key=" + key);
-            }
-
-            long end = System.currentTimeMillis();
-            Loggers.RAFT.info("signalPublish cost {} ms, key: {}", (end - start), key);
-        } finally {
-            OPERATE_LOCK.unlock();
-        }
+        // concurrent publishes are replicated to followers in batches:
+        publisher.publish(key, value).await(UtilsAndCommons.RAFT_PUBLISH_TIMEOUT);
     }
 
     public void signalDelete(final String key) throws Exception {
@@ -0,0 +1,421 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.persistent.raft;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.misc.Loggers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Segmented append-only log of datum changes with compacted snapshots.
+ * <p>
+ * Records are appended to the current segment file, a new segment is started when the current one
+ * is full. A record is laid out as: body length, CRC32 of body, then the body made of type, key length,
+ * key and value. A snapshot 'snapshot-N' holds one record per datum and replaces all segments before
+ * segment N, so recovery reads the latest snapshot and the segments from N on. Files are read through
+ * memory mapping, and a torn record at the tail of the last segment is truncated.
+ * <p>
+ * Concurrent appends share fsync calls: a writer returns once a force covering its record is done,
+ * no matter which writer issued it.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class RaftLog {
+
+    public static final byte TYPE_PUT = 1;
+
+    public static final byte TYPE_DELETE = 2;
+
+    public static final byte TYPE_TERM = 3;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final String FILE_ID_FORMAT = "%020d";
+
+    private static final int HEADER_SIZE = 8;
+
+    private static final int BODY_HEADER_SIZE = 5;
+
+    private static final int SNAPSHOT_BUFFER_SIZE = 1024 * 1024;
+
+    private File dir;
+
+    private long segmentSize;
+
+    private boolean opened = false;
+
+    private FileChannel channel;
+
+    private long segmentId;
+
+    private long segmentPosition;
+
+    private long snapshotId = 0L;
+
+    private long writtenBytes = 0L;
+
+    private volatile long syncedBytes = 0L;
+
+    private final Object syncLock = new Object();
+
+    public RaftLog(String dir, long segmentSize) {
+        this.dir = new File(dir);
+        this.segmentSize = segmentSize;
+    }
+
+    public interface RecordHandler {
+
+        /**
+         * Handle a record read from the log
+         *
+         * @param type  type of record
+         * @param key   key of record
+         * @param value value of record
+         * @throws Exception if the record can not be handled
+         */
+        void handle(byte type, String key, byte[] value) throws Exception;
+    }
+
+    /**
+     * Open the log for appending, the tail of the last segment is truncated if it is torn
+     *
+     * @throws IOException if the log can not be opened
+     */
+    public synchronized void open() throws IOException {
+        if (opened) {
+            return;
+        }
+
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IllegalStateException("can not make raft log dir: " + dir.getAbsolutePath());
+        }
+
+        List<Long> snapshots = listIds(SNAPSHOT_PREFIX, "");
+        snapshotId = snapshots.isEmpty() ? 0L : snapshots.get(snapshots.size() - 1);
+
+        List<Long> segments = listIds("", SEGMENT_SUFFIX);
+        long lastSegment = segments.isEmpty() ? 0L : segments.get(segments.size() - 1);
+        if (lastSegment == 0L || lastSegment < snapshotId) {
+            openSegment(Math.max(snapshotId, 1L));
+        } else {
+            File file = segmentFile(lastSegment);
+            long validEnd = scan(file, null);
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (validEnd < channel.size()) {
+                Loggers.RAFT.warn("[RAFT-LOG] truncate torn tail of segment {}, from {} to {}",
+                    file.getName(), channel.size(), validEnd);
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+            segmentId = lastSegment;
+            segmentPosition = validEnd;
+        }
+
+        opened = true;
+    }
+
+    public synchronized boolean isEmpty() {
+        if (snapshotId > 0) {
+            return false;
+        }
+        for (long id : listIds("", SEGMENT_SUFFIX)) {
+            if (segmentFile(id).length() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get count of segments written since the latest snapshot
+     *
+     * @return count of segments
+     */
+    public synchronized long getSegmentCountSinceSnapshot() {
+        return segmentId - Math.max(snapshotId, 1L) + 1;
+    }
+
+    /**
+     * Append a record
+     *
+     * @param type  type of record
+     * @param key   key of record
+     * @param value value of record
+     * @param sync  whether to wait for the record to be forced to disk
+     * @throws IOException if the record can not be written
+     */
+    public void append(byte type, String key, byte[] value, boolean sync) throws IOException {
+        ByteBuffer record = encode(type, key, value);
+        long end;
+        synchronized (this) {
+            if (segmentPosition > 0 && segmentPosition + record.remaining() > segmentSize) {
+                roll();
+            }
+            int length = record.remaining();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            segmentPosition += length;
+            writtenBytes += length;
+            end = writtenBytes;
+        }
+
+        if (sync) {
+            sync(end);
+        }
+    }
+
+    private void sync(long end) throws IOException {
+        synchronized (syncLock) {
+            if (syncedBytes >= end) {
+                return;
+            }
+
+            FileChannel current;
+            long upTo;
+            synchronized (this) {
+                current = channel;
+                upTo = writtenBytes;
+            }
+
+            try {
+                current.force(false);
+            } catch (ClosedChannelException e) {
+                // the segment is rolled, which forces it before closing
+            }
+            syncedBytes = Math.max(syncedBytes, upTo);
+        }
+    }
+
+    /**
+     * Read the latest snapshot and all segments after it
+     *
+     * @param handler handler of records
+     * @throws IOException if the log can not be read
+     */
+    public synchronized void replay(RecordHandler handler) throws IOException {
+        if (snapshotId > 0) {
+            scan(snapshotFile(snapshotId), handler);
+        }
+        for (long id : listIds("", SEGMENT_SUFFIX)) {
+            if (id >= snapshotId) {
+                scan(segmentFile(id), handler);
+            }
+        }
+    }
+
+    /**
+     * Write a snapshot of the datums and remove the segments it replaces.
+     * <p>
+     * A new segment is started first, all changes made while the snapshot is written go to that segment
+     * and are replayed on top of the snapshot.
+     *
+     * @param datums datums to write
+     * @param term   current term
+     * @throws IOException if the snapshot can not be written
+     */
+    public void snapshot(Map<String, Datum> datums, long term) throws IOException {
+        long id;
+        synchronized (this) {
+            roll();
+            id = segmentId;
+        }
+
+        long start = System.currentTimeMillis();
+        File tmpFile = new File(dir, snapshotFile(id).getName() + TMP_SUFFIX);
+        int count = 0;
+        try (FileChannel out = FileChannel.open(tmpFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), SNAPSHOT_BUFFER_SIZE);
+            for (Datum datum : datums.values()) {
+                writeTo(stream, encode(TYPE_PUT, datum.key,
+                    JSON.toJSONString(datum).getBytes(StandardCharsets.UTF_8)));
+                count++;
+            }
+            writeTo(stream, encode(TYPE_TERM, "", String.valueOf(term).getBytes(StandardCharsets.UTF_8)));
+            stream.flush();
+            out.force(true);
+        }
+        Files.move(tmpFile.toPath(), snapshotFile(id).toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+        synchronized (this) {
+            snapshotId = id;
+        }
+
+        for (long segment : listIds("", SEGMENT_SUFFIX)) {
+            if (segment < id) {
+                deleteFile(segmentFile(segment));
+            }
+        }
+        for (long snapshot : listIds(SNAPSHOT_PREFIX, "")) {
+            if (snapshot < id) {
+                deleteFile(snapshotFile(snapshot));
+            }
+        }
+
+        Loggers.RAFT.info("[RAFT-LOG] snapshot {} written, datum count: {}, cost: {} ms",
+            id, count, System.currentTimeMillis() - start);
+    }
+
+    private void roll() throws IOException {
+        channel.force(false);
+        syncedBytes = writtenBytes;
+        channel.close();
+        openSegment(segmentId + 1);
+    }
+
+    private void openSegment(long id) throws IOException {
+        channel = FileChannel.open(segmentFile(id).toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        segmentId = id;
+        segmentPosition = channel.size();
+    }
+
+    private long scan(File file, RecordHandler handler) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (in.size() == 0) {
+                return 0L;
+            }
+
+            MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            CRC32 crc32 = new CRC32();
+            long validEnd = 0L;
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < BODY_HEADER_SIZE || length > buffer.remaining()) {
+                    break;
+                }
+
+                byte[] body = new byte[length];
+                buffer.get(body);
+                crc32.reset();
+                crc32.update(body, 0, length);
+                if ((int) crc32.getValue() != checksum) {
+                    break;
+                }
+
+                ByteBuffer bodyBuffer = ByteBuffer.wrap(body);
+                byte type = bodyBuffer.get();
+                int keyLength = bodyBuffer.getInt();
+                if (keyLength < 0 || keyLength > bodyBuffer.remaining()) {
+                    break;
+                }
+                String key = new String(body, BODY_HEADER_SIZE, keyLength, StandardCharsets.UTF_8);
+                byte[] value = new byte[length - BODY_HEADER_SIZE - keyLength];
+                System.arraycopy(body, BODY_HEADER_SIZE + keyLength, value, 0, value.length);
+
+                if (handler != null) {
+                    try {
+                        handler.handle(type, key, value);
+                    } catch (Exception e) {
+                        Loggers.RAFT.warn("[RAFT-LOG] failed to handle record, key: {}, file: {}", key, file.getName(), e);
+                    }
+                }
+                validEnd = buffer.position();
+            }
+
+            if (validEnd < in.size()) {
+                Loggers.RAFT.warn("[RAFT-LOG] {} ends with an incomplete record at {}", file.getName(), validEnd);
+            }
+            return validEnd;
+        }
+    }
+
+    private static ByteBuffer encode(byte type, String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int length = BODY_HEADER_SIZE + keyBytes.length + value.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + length);
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.put(type);
+        buffer.putInt(keyBytes.length);
+        buffer.put(keyBytes);
+        buffer.put(value);
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.array(), HEADER_SIZE, length);
+        buffer.putInt(Integer.BYTES, (int) crc32.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeTo(OutputStream stream, ByteBuffer buffer) throws IOException {
+        stream.write(buffer.array(), buffer.position(), buffer.remaining());
+    }
+
+    private List<Long> listIds(String prefix, String suffix) {
+        List<Long> ids = new ArrayList<>();
+        String[] names = dir.list();
+        if (names == null) {
+            return ids;
+        }
+        for (String name : names) {
+            if (!name.startsWith(prefix) || !name.endsWith(suffix) || name.endsWith(TMP_SUFFIX)) {
+                continue;
+            }
+            String id = name.substring(prefix.length(), name.length() - suffix.length());
+            try {
+                ids.add(Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                Loggers.RAFT.warn("[RAFT-LOG] unknown file in log dir: {}", name);
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private File segmentFile(long id) {
+        return new File(dir, String.format(FILE_ID_FORMAT, id) + SEGMENT_SUFFIX);
+    }
+
+    private File snapshotFile(long id) {
+        return new File(dir, SNAPSHOT_PREFIX + String.format(FILE_ID_FORMAT, id));
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Loggers.RAFT.warn("[RAFT-LOG] failed to delete file: {}", file.getAbsolutePath());
+        }
+    }
+}
@@ -30,35 +30,124 @@ import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
+ * Datums are stored in a {@link RaftLog}. The one file per datum layout under the cache dir is only read
+ * to migrate data when the log is empty.
+ *
  * @author nacos
  */
 @Component
 public class RaftStore {
 
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    private static final long SNAPSHOT_SEGMENT_COUNT = 2L;
+
     private Properties meta = new Properties();
 
     private String metaFileName = UtilsAndCommons.DATA_BASE_DIR + File.separator + "meta.properties";
 
     private String cacheDir = UtilsAndCommons.DATA_BASE_DIR + File.separator + "data";
 
+    private String logDir = UtilsAndCommons.DATA_BASE_DIR + File.separator + "log";
+
+    private RaftLog raftLog = new RaftLog(logDir, SEGMENT_SIZE);
+
+    /**
+     * Datums written to the log. Updated before every append, so a snapshot taken after rolling the
+     * segment never misses a record in the segments it removes.
+     */
+    private ConcurrentMap<String, Datum> datums = new ConcurrentHashMap<>(1024);
+
+    private volatile boolean loaded = false;
+
+    private volatile long lastTerm = 0L;
+
+    private AtomicBoolean snapshotting = new AtomicBoolean(false);
+
+    private ScheduledExecutorService snapshotExecutor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r);
+
+            t.setDaemon(true);
+            t.setName("com.alibaba.nacos.naming.raft.snapshot");
+
+            return t;
+        }
+    });
+
     public synchronized void loadDatums(RaftCore.Notifier notifier, ConcurrentMap<String, Datum> datums) throws Exception {
 
-        Datum datum;
         long start = System.currentTimeMillis();
+        raftLog.open();
+
+        if (raftLog.isEmpty()) {
+            loadCaches(notifier, datums);
+            if (!datums.isEmpty()) {
+                Loggers.RAFT.info("migrate {} datums from cache files to raft log", datums.size());
+                raftLog.snapshot(datums, NumberUtils.toLong(loadMeta().getProperty("term"), 0L));
+            }
+        } else {
+            raftLog.replay(new RaftLog.RecordHandler() {
+                @Override
+                public void handle(byte type, String key, byte[] value) throws Exception {
+                    apply(type, key, value, datums);
+                }
+            });
+            for (String key : datums.keySet()) {
+                if (StringUtils.isNotBlank(KeyBuilder.getNamespace(key))) {
+                    notifier.addTask(key, ApplyAction.CHANGE);
+                }
+            }
+        }
+
+        this.datums.putAll(datums);
+        loaded = true;
+
+        Loggers.RAFT.info("finish loading all datums, size: {} cost {} ms.", datums.size(), (System.currentTimeMillis() - start));
+    }
+
+    private void apply(byte type, String key, byte[] value, ConcurrentMap<String, Datum> datums) throws Exception {
+        switch (type) {
+            case RaftLog.TYPE_PUT:
+                Datum datum = parseDatum(encodeFileName(key), new String(value, StandardCharsets.UTF_8));
+                if (datum != null) {
+                    datums.put(datum.key, datum);
+                }
+                break;
+            case RaftLog.TYPE_DELETE:
+                datums.remove(key);
+                break;
+            case RaftLog.TYPE_TERM:
+                lastTerm = Long.parseLong(new String(value, StandardCharsets.UTF_8));
+                break;
+            default:
+                Loggers.RAFT.warn("unknown raft log record type: {}, key: {}", type, key);
+        }
+    }
+
+    private void loadCaches(RaftCore.Notifier notifier, ConcurrentMap<String, Datum> datums) throws Exception {
+
+        Datum datum;
         for (File cache : listCaches()) {
             if (cache.isDirectory() && cache.listFiles() != null) {
                 for (File datumFile : cache.listFiles()) {
@@ -75,8 +164,6 @@ public class RaftStore {
                 datums.put(datum.key, datum);
             }
         }
-
-        Loggers.RAFT.info("finish loading all datums, size: {} cost {} ms.", datums.size(), (System.currentTimeMillis() - start));
     }
 
     public synchronized Properties loadMeta() throws Exception {
@@ -88,27 +175,16 @@ public class RaftStore {
         try (FileInputStream inStream = new FileInputStream(metaFile)) {
             meta.load(inStream);
         }
+        // the term in raft log is newer than the one in meta file:
+        if (lastTerm > 0) {
+            meta.setProperty("term", String.valueOf(lastTerm));
+        }
         return meta;
     }
 
-    public synchronized Datum load(String key) throws Exception {
-        long start = System.currentTimeMillis();
-        // load data
-        for (File cache : listCaches()) {
-            if (!cache.isFile()) {
-                Loggers.RAFT.warn("warning: encountered directory in cache dir: {}", cache.getAbsolutePath());
-            }
-
-            if (!StringUtils.equals(cache.getName(), encodeFileName(key))) {
-                continue;
-            }
-
-            Loggers.RAFT.info("finish loading datum, key: {} cost {} ms.",
-                key, (System.currentTimeMillis() - start));
-            return readDatum(cache, StringUtils.EMPTY);
-        }
-
-        return null;
+    public Datum load(String key) {
+        // every datum written or deleted goes through this store, no need to replay the log:
+        return datums.get(key);
     }
 
     public synchronized Datum readDatum(File file, String namespaceId) throws IOException {
@@ -120,77 +196,7 @@ public class RaftStore {
             buffer = ByteBuffer.allocate((int) file.length());
             fc.read(buffer);
 
-            String json = new String(buffer.array(), StandardCharsets.UTF_8);
-            if (StringUtils.isBlank(json)) {
-                return null;
-            }
-
-            if (KeyBuilder.matchSwitchKey(file.getName())) {
-                return JSON.parseObject(json, new TypeReference<Datum<SwitchDomain>>() {
-                });
-            }
-
-            if (KeyBuilder.matchServiceMetaKey(file.getName())) {
-
-                Datum<Service> serviceDatum;
-
-                try {
-                    serviceDatum = JSON.parseObject(json.replace("\\", ""), new TypeReference<Datum<Service>>() {
-                    });
-                } catch (Exception e) {
-                    JSONObject jsonObject = JSON.parseObject(json);
-
-                    serviceDatum = new Datum<>();
-                    serviceDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
-                    serviceDatum.key = jsonObject.getString("key");
-                    serviceDatum.value = JSON.parseObject(jsonObject.getString("value"), Service.class);
-                }
-
-                if (StringUtils.isBlank(serviceDatum.value.getGroupName())) {
-                    serviceDatum.value.setGroupName(Constants.DEFAULT_GROUP);
-                }
-                if (!serviceDatum.value.getName().contains(Constants.SERVICE_INFO_SPLITER)) {
-                    serviceDatum.value.setName(Constants.DEFAULT_GROUP
-                        + Constants.SERVICE_INFO_SPLITER + serviceDatum.value.getName());
-                }
-
-                return serviceDatum;
-            }
-
-            if (KeyBuilder.matchInstanceListKey(file.getName())) {
-
-                Datum<Instances> instancesDatum;
-
-                try {
-                    instancesDatum = JSON.parseObject(json, new TypeReference<Datum<Instances>>() {
-                    });
-                } catch (Exception e) {
-                    JSONObject jsonObject = JSON.parseObject(json);
-                    instancesDatum = new Datum<>();
-                    instancesDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
-
-                    String key = jsonObject.getString("key");
-                    String serviceName = KeyBuilder.getServiceName(key);
-                    key = key.substring(0, key.indexOf(serviceName)) +
-                        Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName;
-
-                    instancesDatum.key = key;
-                    instancesDatum.value = new Instances();
-                    instancesDatum.value.setInstanceList(JSON.parseObject(jsonObject.getString("value"),
-                        new TypeReference<List<Instance>>() {
-                        }));
-                    if (!instancesDatum.value.getInstanceList().isEmpty()) {
-                        for (Instance instance : instancesDatum.value.getInstanceList()) {
-                            instance.setEphemeral(false);
-                        }
-                    }
-                }
-
-                return instancesDatum;
-            }
-
-            return JSON.parseObject(json, Datum.class);
-
+            return parseDatum(file.getName(), new String(buffer.array(), StandardCharsets.UTF_8));
         } catch (Exception e) {
             Loggers.RAFT.warn("waning: failed to deserialize key: {}", file.getName());
             throw e;
@@ -201,56 +207,112 @@ public class RaftStore {
         }
     }
 
-    public synchronized void write(final Datum datum) throws Exception {
+    private Datum parseDatum(String fileName, String json) {
 
-        String namespaceId = KeyBuilder.getNamespace(datum.key);
+        if (StringUtils.isBlank(json)) {
+            return null;
+        }
 
-        File cacheFile;
+        if (KeyBuilder.matchSwitchKey(fileName)) {
+            return JSON.parseObject(json, new TypeReference<Datum<SwitchDomain>>() {
+            });
+        }
 
-        if (StringUtils.isNotBlank(namespaceId)) {
-            cacheFile = new File(cacheDir + File.separator + namespaceId + File.separator + encodeFileName(datum.key));
-        } else {
-            cacheFile = new File(cacheDir + File.separator + encodeFileName(datum.key));
+        if (KeyBuilder.matchServiceMetaKey(fileName)) {
+
+            Datum<Service> serviceDatum;
+
+            try {
+                serviceDatum = JSON.parseObject(json.replace("\\", ""), new TypeReference<Datum<Service>>() {
+                });
+            } catch (Exception e) {
+                JSONObject jsonObject = JSON.parseObject(json);
+
+                serviceDatum = new Datum<>();
+                serviceDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
+                serviceDatum.key = jsonObject.getString("key");
+                serviceDatum.value = JSON.parseObject(jsonObject.getString("value"), Service.class);
+            }
+
+            if (StringUtils.isBlank(serviceDatum.value.getGroupName())) {
+                serviceDatum.value.setGroupName(Constants.DEFAULT_GROUP);
+            }
+            if (!serviceDatum.value.getName().contains(Constants.SERVICE_INFO_SPLITER)) {
+                serviceDatum.value.setName(Constants.DEFAULT_GROUP
+                    + Constants.SERVICE_INFO_SPLITER + serviceDatum.value.getName());
+            }
+
+            return serviceDatum;
         }
 
-        if (!cacheFile.exists() && !cacheFile.getParentFile().mkdirs() && !cacheFile.createNewFile()) {
-            MetricsMonitor.getDiskException().increment();
+        if (KeyBuilder.matchInstanceListKey(fileName)) {
+
+            Datum<Instances> instancesDatum;
 
-            throw new IllegalStateException("can not make cache file: " + cacheFile.getName());
+            try {
+                instancesDatum = JSON.parseObject(json, new TypeReference<Datum<Instances>>() {
+                });
+            } catch (Exception e) {
+                JSONObject jsonObject = JSON.parseObject(json);
+                instancesDatum = new Datum<>();
+                instancesDatum.timestamp.set(jsonObject.getLongValue("timestamp"));
+
+                String key = jsonObject.getString("key");
+                String serviceName = KeyBuilder.getServiceName(key);
+                key = key.substring(0, key.indexOf(serviceName)) +
+                    Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName;
+
+                instancesDatum.key = key;
+                instancesDatum.value = new Instances();
+                instancesDatum.value.setInstanceList(JSON.parseObject(jsonObject.getString("value"),
+                    new TypeReference<List<Instance>>() {
+                    }));
+                if (!instancesDatum.value.getInstanceList().isEmpty()) {
+                    for (Instance instance : instancesDatum.value.getInstanceList()) {
+                        instance.setEphemeral(false);
+                    }
+                }
+            }
+
+            return instancesDatum;
         }
 
-        FileChannel fc = null;
-        ByteBuffer data;
+        return JSON.parseObject(json, Datum.class);
+    }
 
-        data = ByteBuffer.wrap(JSON.toJSONString(datum).getBytes(StandardCharsets.UTF_8));
+    public void write(final Datum datum) throws Exception {
 
+        datums.put(datum.key, datum);
         try {
-            fc = new FileOutputStream(cacheFile, false).getChannel();
-            fc.write(data, data.position());
-            fc.force(true);
+            raftLog.open();
+            raftLog.append(RaftLog.TYPE_PUT, datum.key, JSON.toJSONString(datum).getBytes(StandardCharsets.UTF_8), true);
         } catch (Exception e) {
             MetricsMonitor.getDiskException().increment();
             throw e;
-        } finally {
-            if (fc != null) {
-                fc.close();
-            }
         }
 
-        // remove old format file:
-        if (StringUtils.isNoneBlank(namespaceId)) {
-            if (datum.key.contains(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER)) {
-                String oldFormatKey =
-                    datum.key.replace(Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER, StringUtils.EMPTY);
-
-                cacheFile = new File(cacheDir + File.separator + namespaceId + File.separator + encodeFileName(oldFormatKey));
-                if (cacheFile.exists() && !cacheFile.delete()) {
-                    Loggers.RAFT.error("[RAFT-DELETE] failed to delete old format datum: {}, value: {}",
-                        datum.key, datum.value);
-                    throw new IllegalStateException("failed to delete old format datum: " + datum.key);
+        snapshotIfNecessary();
+    }
+
+    private void snapshotIfNecessary() {
+        if (!loaded || raftLog.getSegmentCountSinceSnapshot() <= SNAPSHOT_SEGMENT_COUNT
+            || !snapshotting.compareAndSet(false, true)) {
+            return;
+        }
+
+        snapshotExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    raftLog.snapshot(datums, NumberUtils.toLong(meta.getProperty("term"), 0L));
+                } catch (Throwable e) {
+                    MetricsMonitor.getDiskException().increment();
+                    Loggers.RAFT.error("[RAFT-LOG] failed to write snapshot", e);
+                } finally {
+                    snapshotting.set(false);
                 }
             }
-        }
+        });
     }
 
     private File[] listCaches() throws Exception {
@@ -264,37 +326,24 @@ public class RaftStore {
 
     public void delete(Datum datum) {
 
-        // datum key contains namespace info:
-        String namespaceId = KeyBuilder.getNamespace(datum.key);
-
-        if (StringUtils.isNotBlank(namespaceId)) {
-
-            File cacheFile = new File(cacheDir + File.separator + namespaceId + File.separator + encodeFileName(datum.key));
-            if (cacheFile.exists() && !cacheFile.delete()) {
-                Loggers.RAFT.error("[RAFT-DELETE] failed to delete datum: {}, value: {}", datum.key, datum.value);
-                throw new IllegalStateException("failed to delete datum: " + datum.key);
-            }
+        datums.remove(datum.key);
+        try {
+            raftLog.open();
+            raftLog.append(RaftLog.TYPE_DELETE, datum.key, new byte[0], true);
+        } catch (IOException e) {
+            MetricsMonitor.getDiskException().increment();
+            Loggers.RAFT.error("[RAFT-DELETE] failed to delete datum: {}, value: {}", datum.key, datum.value);
+            throw new IllegalStateException("failed to delete datum: " + datum.key, e);
         }
     }
 
     public void updateTerm(long term) throws Exception {
-        File file = new File(metaFileName);
-        if (!file.exists() && !file.getParentFile().mkdirs() && !file.createNewFile()) {
-            throw new IllegalStateException("failed to create meta file");
-        }
-
-        try (FileOutputStream outStream = new FileOutputStream(file)) {
-            // write meta
-            meta.setProperty("term", String.valueOf(term));
-            meta.store(outStream, null);
-        }
+        raftLog.open();
+        raftLog.append(RaftLog.TYPE_TERM, StringUtils.EMPTY, String.valueOf(term).getBytes(StandardCharsets.UTF_8), false);
+        meta.setProperty("term", String.valueOf(term));
     }
 
     private static String encodeFileName(String fileName) {
         return fileName.replace(':', '#');
     }
-
-    private static String decodeFileName(String fileName) {
-        return fileName.replace("#", ":");
-    }
 }
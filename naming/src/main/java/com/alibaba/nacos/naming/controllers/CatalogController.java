@@ -260,9 +260,11 @@ public class CatalogController {
         String keyword = WebUtils.optional(request, "keyword", StringUtils.EMPTY);
         String containedInstance = WebUtils.optional(request, "instance", StringUtils.EMPTY);
         boolean hasIpCount = Boolean.parseBoolean(WebUtils.optional(request, "hasIpCount", "false"));
+        String cursor = WebUtils.optional(request, "cursor", StringUtils.EMPTY);
 
         List<Service> services = new ArrayList<>();
-        int total = serviceManager.getPagedService(namespaceId, page - 1, pageSize, keyword, containedInstance, services, hasIpCount);
+        int total = serviceManager.getPagedService(namespaceId, page - 1, pageSize, keyword, containedInstance, cursor,
+            services, hasIpCount);
 
         if (CollectionUtils.isEmpty(services)) {
             result.put("serviceList", Collections.emptyList());
@@ -294,6 +296,9 @@ public class CatalogController {
 
         result.put("serviceList", serviceJsonArray);
         result.put("count", total);
+        if (services.size() == pageSize) {
+            result.put("nextCursor", services.get(services.size() - 1).getName());
+        }
 
         return result;
     }
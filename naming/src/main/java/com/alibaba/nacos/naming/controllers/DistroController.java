@@ -16,12 +16,18 @@
 package com.alibaba.nacos.naming.controllers;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
 import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.core.utils.WebUtils;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
 import com.alibaba.nacos.naming.cluster.transport.Serializer;
+import com.alibaba.nacos.naming.cluster.transport.SerializerNegotiator;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.ChecksumTree;
 import com.alibaba.nacos.naming.consistency.ephemeral.distro.DataStore;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DataSyncer;
+import com.alibaba.nacos.naming.consistency.ephemeral.distro.DatumDelta;
 import com.alibaba.nacos.naming.consistency.ephemeral.distro.DistroConsistencyServiceImpl;
 import com.alibaba.nacos.naming.core.Instances;
 import com.alibaba.nacos.naming.core.ServiceManager;
@@ -39,8 +45,9 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -56,12 +63,18 @@ public class DistroController {
     @Autowired
     private Serializer serializer;
 
+    @Autowired
+    private SerializerNegotiator serializerNegotiator;
+
     @Autowired
     private DistroConsistencyServiceImpl consistencyService;
 
     @Autowired
     private DataStore dataStore;
 
+    @Autowired
+    private DataSyncer dataSyncer;
+
     @Autowired
     private ServiceManager serviceManager;
 
@@ -71,15 +84,18 @@ public class DistroController {
     @RequestMapping(value = "/datum", method = RequestMethod.PUT)
     public String onSyncDatum(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
-        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        byte[] entity = IOUtils.toByteArray(request.getInputStream());
 
-        if (StringUtils.isBlank(entity)) {
+        if (entity.length == 0) {
             Loggers.DISTRO.error("[onSync] receive empty entity!");
             throw new NacosException(NacosException.INVALID_PARAM, "receive empty entity!");
         }
 
+        serializerNegotiator.onReceive(WebUtils.optional(request, "source", StringUtils.EMPTY),
+            request.getHeader(SerializerNegotiator.ACCEPT_HEADER));
+
         Map<String, Datum<Instances>> dataMap =
-            serializer.deserializeMap(entity.getBytes(), Instances.class);
+            serializerNegotiator.detect(entity).deserializeMap(entity, Instances.class);
 
         for (Map.Entry<String, Datum<Instances>> entry : dataMap.entrySet()) {
             if (KeyBuilder.matchEphemeralInstanceListKey(entry.getKey())) {
@@ -89,9 +105,35 @@ public class DistroController {
                     && switchDomain.isDefaultInstanceEphemeral()) {
                     serviceManager.createEmptyService(namespaceId, serviceName, true);
                 }
-                consistencyService.onPut(entry.getKey(), entry.getValue().value);
+                consistencyService.onSync(entry.getKey(), entry.getValue());
+            }
+        }
+        return "ok";
+    }
+
+    @RequestMapping(value = "/delta", method = RequestMethod.PUT)
+    public String onSyncDelta(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        String source = WebUtils.required(request, "source");
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        serializerNegotiator.onReceive(source, request.getHeader(SerializerNegotiator.ACCEPT_HEADER));
+
+        if (StringUtils.isBlank(entity)) {
+            Loggers.DISTRO.error("[onSyncDelta] receive empty entity!");
+            throw new NacosException(NacosException.INVALID_PARAM, "receive empty entity!");
+        }
+
+        Map<String, DatumDelta> deltaMap =
+            serializer.deserialize(entity.getBytes(), new TypeReference<Map<String, DatumDelta>>() {
+            });
+
+        Map<String, DatumDelta> ephemeralDeltaMap = new HashMap<>(deltaMap.size());
+        for (Map.Entry<String, DatumDelta> entry : deltaMap.entrySet()) {
+            if (KeyBuilder.matchEphemeralInstanceListKey(entry.getKey())) {
+                ephemeralDeltaMap.put(entry.getKey(), entry.getValue());
             }
         }
+        consistencyService.onReceiveDeltas(ephemeralDeltaMap, source);
         return "ok";
     }
 
@@ -99,6 +141,7 @@ public class DistroController {
     public String syncChecksum(HttpServletRequest request, HttpServletResponse response) throws Exception {
         String source = WebUtils.required(request, "source");
         String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        serializerNegotiator.onReceive(source, request.getHeader(SerializerNegotiator.ACCEPT_HEADER));
         Map<String, String> dataMap =
             serializer.deserialize(entity.getBytes(), new TypeReference<Map<String, String>>() {
         });
@@ -106,6 +149,43 @@ public class DistroController {
         return "ok";
     }
 
+    @RequestMapping(value = "/checksum/root", method = RequestMethod.PUT)
+    public String syncChecksumRoot(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String source = WebUtils.required(request, "source");
+        long root = Long.parseLong(WebUtils.required(request, "root"));
+        int bucketCount = Integer.parseInt(WebUtils.required(request, "bucketCount"));
+        serializerNegotiator.onReceive(source, request.getHeader(SerializerNegotiator.ACCEPT_HEADER));
+        if (bucketCount <= 0) {
+            throw new NacosException(NacosException.INVALID_PARAM, "invalid bucket count: " + bucketCount);
+        }
+        consistencyService.onReceiveChecksumRoot(root, bucketCount, source);
+        return "ok";
+    }
+
+    @RequestMapping(value = "/checksum/buckets", method = RequestMethod.GET)
+    public JSONObject getChecksumBuckets(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        ChecksumTree tree = dataSyncer.getChecksumTree();
+        JSONObject result = new JSONObject();
+        result.put("bucketCount", tree == null ? 0 : tree.getBucketCount());
+        result.put("buckets", tree == null ? new long[0] : tree.getBuckets());
+        return result;
+    }
+
+    @RequestMapping(value = "/checksums", method = RequestMethod.GET)
+    public Map<String, String> getChecksums(HttpServletRequest request, HttpServletResponse response) throws Exception {
+        String buckets = WebUtils.required(request, "buckets");
+        ChecksumTree tree = dataSyncer.getChecksumTree();
+        if (tree == null) {
+            return new HashMap<>(1);
+        }
+        String bucketSplitter = ",";
+        List<Integer> bucketIndexes = new ArrayList<>();
+        for (String bucket : buckets.split(bucketSplitter)) {
+            bucketIndexes.add(Integer.parseInt(bucket));
+        }
+        return tree.getChecksums(bucketIndexes);
+    }
+
     @RequestMapping(value = "/datum", method = RequestMethod.GET)
     public void get(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
@@ -116,11 +196,26 @@ public class DistroController {
         for (String key : keys.split(keySplitter)) {
             datumMap.put(key, consistencyService.get(key));
         }
-        response.getWriter().write(new String(serializer.serialize(datumMap), StandardCharsets.UTF_8));
+        writeDatums(datumMap, request, response);
     }
 
     @RequestMapping(value = "/datums", method = RequestMethod.GET)
     public void getAllDatums(HttpServletRequest request, HttpServletResponse response) throws Exception {
-        response.getWriter().write(new String(serializer.serialize(dataStore.getDataMap()), StandardCharsets.UTF_8));
+        writeDatums(dataStore.getDataMap(), request, response);
+    }
+
+    private void writeDatums(Map<String, Datum> datumMap, HttpServletRequest request,
+                             HttpServletResponse response) throws Exception {
+
+        Serializer datumSerializer =
+            serializerNegotiator.selectForResponse(request.getHeader(SerializerNegotiator.ACCEPT_HEADER));
+        byte[] data = datumSerializer.serialize(datumMap);
+
+        if (BinarySerializer.isBinary(data)) {
+            response.setContentType(SerializerNegotiator.BINARY_CONTENT_TYPE);
+        } else {
+            response.setContentType("application/json;charset=UTF-8");
+        }
+        response.getOutputStream().write(data);
     }
 }
@@ -20,10 +20,12 @@ import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.api.naming.CommonParams;
+import com.alibaba.nacos.api.naming.NamingResponseCode;
 import com.alibaba.nacos.api.naming.utils.NamingUtils;
 import com.alibaba.nacos.core.utils.WebUtils;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.InstanceListCache;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.core.ServiceManager;
 import com.alibaba.nacos.naming.exception.NacosException;
@@ -34,7 +36,11 @@ import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.push.ClientInfo;
 import com.alibaba.nacos.naming.push.DataSource;
 import com.alibaba.nacos.naming.push.PushService;
+import com.alibaba.nacos.naming.selector.NoneSelector;
 import com.alibaba.nacos.naming.web.CanDistro;
+import com.alibaba.nacos.naming.web.DistroForwarder;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.Response;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -43,10 +49,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Instance operation controller
@@ -57,6 +69,12 @@ import java.util.*;
 @RequestMapping(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance")
 public class InstanceController {
 
+    private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    private static final long BEAT_FORWARD_TIMEOUT = 2000L;
+
     @Autowired
     private DistroMapper distroMapper;
 
@@ -69,6 +87,11 @@ public class InstanceController {
     @Autowired
     private ServiceManager serviceManager;
 
+    @Autowired
+    private DistroForwarder distroForwarder;
+
+    private InstanceListCache instanceListCache = new InstanceListCache();
+
     private DataSource pushDataSource = new DataSource() {
 
         @Override
@@ -143,7 +166,7 @@ public class InstanceController {
     }
 
     @RequestMapping(value = "/list", method = RequestMethod.GET)
-    public JSONObject list(HttpServletRequest request) throws Exception {
+    public void list(HttpServletRequest request, HttpServletResponse response) throws Exception {
 
         String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID,
             Constants.DEFAULT_NAMESPACE_ID);
@@ -165,7 +188,61 @@ public class InstanceController {
 
         boolean healthyOnly = Boolean.parseBoolean(WebUtils.optional(request, "healthyOnly", "false"));
 
-        return doSrvIPXT(namespaceId, serviceName, agent, clusters, clientIP, udpPort, env, isCheck, app, tenant, healthyOnly);
+        Service service = serviceManager.getService(namespaceId, serviceName);
+
+        if (service == null || isCheck || !isCacheable(service, clientIP)) {
+            writeJson(response, doSrvIPXT(namespaceId, serviceName, agent, clusters, clientIP, udpPort, env,
+                isCheck, app, tenant, healthyOnly));
+            return;
+        }
+
+        checkIfDisabled(service);
+
+        long cacheMillis = addPushClient(namespaceId, serviceName, agent, clusters, clientIP, udpPort, app, tenant);
+
+        String version = service.getVersion();
+        String clientVersion = WebUtils.optional(request, "checksum", StringUtils.EMPTY);
+        if (StringUtils.isEmpty(clientVersion) && request.getHeader(IF_NONE_MATCH) != null) {
+            clientVersion = StringUtils.strip(request.getHeader(IF_NONE_MATCH), "\"");
+        }
+
+        response.setHeader("ETag", "\"" + version + "\"");
+        if (version.equals(clientVersion)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ClientInfo clientInfo = new ClientInfo(agent);
+        String cacheKey = StringUtils.join(new Object[]{namespaceId, serviceName, clusters, healthyOnly,
+            isJavaClientSince100(clientInfo), cacheMillis, env}, UtilsAndCommons.CACHE_KEY_SPLITER);
+
+        InstanceListCache.Entry entry = instanceListCache.get(cacheKey, version);
+        if (entry == null) {
+            JSONObject result = buildSrvIPXT(service, serviceName, clientInfo, clusters, clientIP, env,
+                false, healthyOnly, cacheMillis, InstanceListCache.LAST_REF_TIME_PLACEHOLDER);
+            entry = instanceListCache.put(cacheKey, version, result.toJSONString());
+            if (entry == null) {
+                result.put("lastRefTime", System.currentTimeMillis());
+                writeJson(response, result);
+                return;
+            }
+        }
+
+        response.setContentType(JSON_CONTENT_TYPE);
+        entry.writeTo(response.getOutputStream(), System.currentTimeMillis());
+    }
+
+    /**
+     * Responses can only be shared if they do not depend on the address of client
+     */
+    private boolean isCacheable(Service service, String clientIP) {
+        return service.getSelector() == null || service.getSelector() instanceof NoneSelector
+            || StringUtils.isBlank(clientIP);
+    }
+
+    private void writeJson(HttpServletResponse response, JSONObject result) throws IOException {
+        response.setContentType(JSON_CONTENT_TYPE);
+        response.getOutputStream().write(result.toJSONString().getBytes(StandardCharsets.UTF_8));
     }
 
     @RequestMapping(value = "", method = RequestMethod.GET)
@@ -220,28 +297,51 @@ public class InstanceController {
 
         String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID,
             Constants.DEFAULT_NAMESPACE_ID);
-        String beat = WebUtils.required(request, "beat");
-        RsInfo clientBeat = JSON.parseObject(beat, RsInfo.class);
+        String serviceName = WebUtils.required(request, CommonParams.SERVICE_NAME);
 
-        if (!switchDomain.isDefaultInstanceEphemeral() && !clientBeat.isEphemeral()) {
-            return result;
-        }
+        // a light beat only carries ip, port and cluster of an instance registered before:
+        String beat = WebUtils.optional(request, "beat", StringUtils.EMPTY);
+        RsInfo clientBeat = null;
+        String clusterName;
+        String ip;
+        int port;
 
-        if (StringUtils.isBlank(clientBeat.getCluster())) {
-            clientBeat.setCluster(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
-        }
-        String serviceName = WebUtils.required(request, CommonParams.SERVICE_NAME);
+        if (StringUtils.isNotBlank(beat)) {
+            clientBeat = JSON.parseObject(beat, RsInfo.class);
+
+            if (!switchDomain.isDefaultInstanceEphemeral() && !clientBeat.isEphemeral()) {
+                return result;
+            }
 
-        String clusterName = clientBeat.getCluster();
+            if (StringUtils.isBlank(clientBeat.getCluster())) {
+                clientBeat.setCluster(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+            }
+            clusterName = clientBeat.getCluster();
+            ip = clientBeat.getIp();
+            port = clientBeat.getPort();
+        } else {
+            clusterName = WebUtils.optional(request, CommonParams.CLUSTER_NAME, UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+            ip = WebUtils.required(request, "ip");
+            port = Integer.parseInt(WebUtils.required(request, "port"));
+        }
 
         if (Loggers.SRV_LOG.isDebugEnabled()) {
-            Loggers.SRV_LOG.debug("[CLIENT-BEAT] full arguments: beat: {}, serviceName: {}", clientBeat, serviceName);
+            Loggers.SRV_LOG.debug("[CLIENT-BEAT] full arguments: beat: {}, serviceName: {}, ip: {}, port: {}, cluster: {}",
+                clientBeat, serviceName, ip, port, clusterName);
         }
 
-        Instance instance = serviceManager.getInstance(namespaceId, serviceName, clientBeat.getCluster(), clientBeat.getIp(),
-            clientBeat.getPort());
+        Instance instance = serviceManager.getInstance(namespaceId, serviceName, clusterName, ip, port);
+
+        if (instance != null && !instance.isEphemeral()) {
+            return result;
+        }
 
         if (instance == null) {
+            if (clientBeat == null) {
+                result.put(CommonParams.CODE, NamingResponseCode.RESOURCE_NOT_FOUND);
+                return result;
+            }
+
             instance = new Instance();
             instance.setPort(clientBeat.getPort());
             instance.setIp(clientBeat.getIp());
@@ -253,20 +353,186 @@ public class InstanceController {
             instance.setEphemeral(clientBeat.isEphemeral());
 
             serviceManager.registerInstance(namespaceId, serviceName, instance);
-        }
+        } else {
+            Service service = serviceManager.getService(namespaceId, serviceName);
 
-        Service service = serviceManager.getService(namespaceId, serviceName);
+            if (service == null) {
+                throw new NacosException(NacosException.SERVER_ERROR, "service not found: " + serviceName + "@" + namespaceId);
+            }
 
-        if (service == null) {
-            throw new NacosException(NacosException.SERVER_ERROR, "service not found: " + serviceName + "@" + namespaceId);
+            service.processClientBeat(instance);
         }
 
-        service.processClientBeat(clientBeat);
+        result.put(CommonParams.CODE, NamingResponseCode.OK);
         result.put("clientBeatInterval", instance.getInstanceHeartBeatInterval());
+        result.put("lightBeatEnabled", switchDomain.isLightBeatEnabled());
         return result;
     }
 
 
+    /**
+     * Refresh the beats of many instances at once.
+     * <p>
+     * Every beat is a light beat, see {@link #beat(HttpServletRequest)}. Beats of services this server is not
+     * responsible for are forwarded to their responsible servers, one request per server, and the request is
+     * completed asynchronously once all of them answered or the forward timeout passed. The response carries
+     * the beat interval of every instance in the order of the request, 0 if the instance is not found or is
+     * persistent, and -1 if the responsible server failed to answer in time. Beats not found are listed in
+     * 'notFound', beats not acknowledged by their responsible servers are listed in 'failed'.
+     */
+    @RequestMapping(value = "/beat/batch", method = RequestMethod.PUT)
+    public DeferredResult<JSONObject> batchBeat(HttpServletRequest request) throws Exception {
+
+        String namespaceId = WebUtils.optional(request, CommonParams.NAMESPACE_ID,
+            Constants.DEFAULT_NAMESPACE_ID);
+        final List<RsInfo> beats = JSON.parseArray(WebUtils.required(request, "beats"), RsInfo.class);
+
+        for (RsInfo beat : beats) {
+            if (beat == null || StringUtils.isBlank(beat.getServiceName()) || StringUtils.isBlank(beat.getIp())
+                || beat.getPort() <= 0) {
+                throw new NacosException(NacosException.INVALID_PARAM, "beat format invalid: " + beat);
+            }
+        }
+
+        // beats forwarded from other server should not be forwarded again:
+        String userAgent = request.getHeader("User-Agent");
+        boolean fromPeer = StringUtils.contains(userAgent, UtilsAndCommons.NACOS_SERVER_HEADER);
+
+        final long[] intervals = new long[beats.size()];
+        Map<String, List<Integer>> remoteBeats = new HashMap<>(8);
+
+        for (int i = 0; i < beats.size(); i++) {
+            RsInfo beat = beats.get(i);
+            if (StringUtils.isBlank(beat.getCluster())) {
+                beat.setCluster(UtilsAndCommons.DEFAULT_CLUSTER_NAME);
+            }
+            String serviceName = beat.getServiceName();
+            if (!serviceName.contains(Constants.SERVICE_INFO_SPLITER)) {
+                serviceName = Constants.DEFAULT_GROUP + Constants.SERVICE_INFO_SPLITER + serviceName;
+                beat.setServiceName(serviceName);
+            }
+
+            if (fromPeer || distroMapper.responsible(serviceName)) {
+                Service service = serviceManager.getService(namespaceId, serviceName);
+                Instance instance = serviceManager.getInstance(namespaceId, serviceName, beat.getCluster(),
+                    beat.getIp(), beat.getPort());
+                if (service != null && instance != null && instance.isEphemeral()) {
+                    service.processClientBeat(instance);
+                    intervals[i] = instance.getInstanceHeartBeatInterval();
+                }
+                continue;
+            }
+
+            String server = distroMapper.mapSrv(serviceName);
+            List<Integer> serverBeats = remoteBeats.get(server);
+            if (serverBeats == null) {
+                serverBeats = new ArrayList<>();
+                remoteBeats.put(server, serverBeats);
+            }
+            serverBeats.add(i);
+            intervals[i] = -1L;
+        }
+
+        final DeferredResult<JSONObject> result = new DeferredResult<>(BEAT_FORWARD_TIMEOUT);
+        if (remoteBeats.isEmpty()) {
+            result.setResult(batchBeatResult(beats, intervals));
+            return result;
+        }
+
+        Runnable complete = new Runnable() {
+            @Override
+            public void run() {
+                result.setResult(batchBeatResult(beats, intervals));
+            }
+        };
+        result.onTimeout(complete);
+        forwardBeats(namespaceId, beats, remoteBeats, intervals, complete);
+        return result;
+    }
+
+    private JSONObject batchBeatResult(List<RsInfo> beats, long[] intervals) {
+        JSONArray notFound = new JSONArray();
+        JSONArray failed = new JSONArray();
+        JSONArray intervalArray = new JSONArray(intervals.length);
+        // late responses of forwarded beats may still be updating:
+        synchronized (intervals) {
+            for (int i = 0; i < intervals.length; i++) {
+                intervalArray.add(intervals[i]);
+                if (intervals[i] == 0) {
+                    notFound.add(beats.get(i));
+                } else if (intervals[i] < 0) {
+                    failed.add(beats.get(i));
+                }
+            }
+        }
+
+        JSONObject result = new JSONObject();
+        result.put(CommonParams.CODE, NamingResponseCode.OK);
+        result.put("clientBeatInterval", switchDomain.getClientBeatInterval());
+        result.put("lightBeatEnabled", switchDomain.isLightBeatEnabled());
+        result.put("intervals", intervalArray);
+        result.put("notFound", notFound);
+        result.put("failed", failed);
+        return result;
+    }
+
+    private void forwardBeats(String namespaceId, List<RsInfo> beats, Map<String, List<Integer>> remoteBeats,
+                              final long[] intervals, final Runnable complete) {
+
+        final AtomicInteger pending = new AtomicInteger(remoteBeats.size());
+
+        for (Map.Entry<String, List<Integer>> entry : remoteBeats.entrySet()) {
+            final String server = entry.getKey();
+            final List<Integer> indexes = entry.getValue();
+
+            List<RsInfo> serverBeats = new ArrayList<>(indexes.size());
+            for (int index : indexes) {
+                serverBeats.add(beats.get(index));
+            }
+
+            try {
+                distroForwarder.sendBeats(server, namespaceId, serverBeats, (int) BEAT_FORWARD_TIMEOUT,
+                    new AsyncCompletionHandler() {
+                        @Override
+                        public Object onCompleted(Response response) throws Exception {
+                            try {
+                                if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                                    Loggers.SRV_LOG.warn("[CLIENT-BEAT] failed to forward beats to {}, code: {}",
+                                        server, response.getStatusCode());
+                                    return null;
+                                }
+                                JSONArray serverIntervals = JSON.parseObject(response.getResponseBody())
+                                    .getJSONArray("intervals");
+                                synchronized (intervals) {
+                                    for (int i = 0; i < indexes.size() && i < serverIntervals.size(); i++) {
+                                        intervals[indexes.get(i)] = serverIntervals.getLongValue(i);
+                                    }
+                                }
+                                return null;
+                            } finally {
+                                countDown(pending, complete);
+                            }
+                        }
+
+                        @Override
+                        public void onThrowable(Throwable t) {
+                            Loggers.SRV_LOG.warn("[CLIENT-BEAT] failed to forward beats to " + server, t);
+                            countDown(pending, complete);
+                        }
+                    });
+            } catch (Exception e) {
+                Loggers.SRV_LOG.warn("[CLIENT-BEAT] failed to forward beats to " + server, e);
+                countDown(pending, complete);
+            }
+        }
+    }
+
+    private void countDown(AtomicInteger pending, Runnable complete) {
+        if (pending.decrementAndGet() == 0) {
+            complete.run();
+        }
+    }
+
     @RequestMapping("/statuses")
     public JSONObject listWithHealthStatus(HttpServletRequest request) throws NacosException {
 
@@ -302,6 +568,46 @@ public class InstanceController {
         return result;
     }
 
+    /**
+     * Get the instance statuses of services in one request
+     *
+     * @param request http request with full names of services, separated by comma
+     * @return statuses of the services found
+     */
+    @RequestMapping(value = "/statuses/batch", method = RequestMethod.POST)
+    public JSONObject batchListWithHealthStatus(HttpServletRequest request) {
+
+        String[] keys = StringUtils.split(WebUtils.required(request, "keys"), ",");
+
+        JSONArray services = new JSONArray();
+        for (String key : keys) {
+            if (!key.contains(UtilsAndCommons.NAMESPACE_SERVICE_CONNECTOR)) {
+                continue;
+            }
+
+            String[] names = key.split(UtilsAndCommons.NAMESPACE_SERVICE_CONNECTOR);
+            Service service = serviceManager.getService(names[0], names[1]);
+            if (service == null) {
+                continue;
+            }
+
+            JSONArray ipArray = new JSONArray();
+            for (Instance ip : service.allIPs()) {
+                ipArray.add(ip.toIPAddr() + "_" + ip.isHealthy());
+            }
+
+            JSONObject serviceJson = new JSONObject();
+            serviceJson.put("namespaceId", names[0]);
+            serviceJson.put("serviceName", names[1]);
+            serviceJson.put("ips", ipArray);
+            services.add(serviceJson);
+        }
+
+        JSONObject result = new JSONObject();
+        result.put("services", services);
+        return result;
+    }
+
     private Instance parseInstance(HttpServletRequest request) throws Exception {
 
         String serviceName = WebUtils.required(request, CommonParams.SERVICE_NAME);
@@ -383,6 +689,15 @@ public class InstanceController {
 
         checkIfDisabled(service);
 
+        long cacheMillis = addPushClient(namespaceId, serviceName, agent, clusters, clientIP, udpPort, app, tid);
+
+        return buildSrvIPXT(service, serviceName, clientInfo, clusters, clientIP, env, isCheck, healthyOnly,
+            cacheMillis, System.currentTimeMillis());
+    }
+
+    private long addPushClient(String namespaceId, String serviceName, String agent, String clusters,
+                               String clientIP, int udpPort, String app, String tid) {
+
         long cacheMillis = switchDomain.getDefaultCacheMillis();
 
         // now try to enable the push
@@ -402,6 +717,20 @@ public class InstanceController {
             cacheMillis = switchDomain.getDefaultCacheMillis();
         }
 
+        return cacheMillis;
+    }
+
+    private boolean isJavaClientSince100(ClientInfo clientInfo) {
+        return clientInfo.type == ClientInfo.ClientType.JAVA &&
+            clientInfo.version.compareTo(VersionUtil.parseVersion("1.0.0")) >= 0;
+    }
+
+    private JSONObject buildSrvIPXT(Service service, String serviceName, ClientInfo clientInfo, String clusters,
+                                    String clientIP, String env, boolean isCheck, boolean healthyOnly,
+                                    long cacheMillis, long lastRefTime) {
+
+        JSONObject result = new JSONObject();
+
         List<Instance> srvedIPs;
 
         srvedIPs = service.srvIPs(Arrays.asList(StringUtils.split(clusters, ",")));
@@ -427,8 +756,8 @@ public class InstanceController {
             result.put("hosts", new JSONArray());
             result.put("name", serviceName);
             result.put("cacheMillis", cacheMillis);
-            result.put("lastRefTime", System.currentTimeMillis());
-            result.put("checksum", service.getChecksum());
+            result.put("lastRefTime", lastRefTime);
+            result.put("checksum", service.getVersion());
             result.put("useSpecifiedURL", false);
             result.put("clusters", clusters);
             result.put("env", env);
@@ -519,8 +848,8 @@ public class InstanceController {
         }
         result.put("name", serviceName);
         result.put("cacheMillis", cacheMillis);
-        result.put("lastRefTime", System.currentTimeMillis());
-        result.put("checksum", service.getChecksum());
+        result.put("lastRefTime", lastRefTime);
+        result.put("checksum", service.getVersion());
         result.put("useSpecifiedURL", false);
         result.put("clusters", clusters);
         result.put("env", env);
@@ -181,6 +181,25 @@ public class OperatorController {
         return result;
     }
 
+    /**
+     * Get the mapping of services to servers, for clients to send requests to responsible servers directly.
+     * <p>
+     * A service belongs to servers[hash % servers.size()], or to its server on the consistent hash ring built
+     * with virtualNodes nodes of every server if consistentHash is true, see {@link DistroMapper}.
+     */
+    @RequestMapping(value = "/distro/ring", method = RequestMethod.GET)
+    public JSONObject distroRing(HttpServletRequest request) {
+
+        JSONObject result = new JSONObject();
+        result.put("distroEnabled", distroMapper.isDistroEnabled());
+        result.put("consistentHash", distroMapper.isConsistentHash());
+        result.put("virtualNodes", DistroMapper.VIRTUAL_NODES);
+        result.put("version", distroMapper.getVersion());
+        result.put("servers", distroMapper.getHealthyList());
+
+        return result;
+    }
+
     @RequestMapping(value = "/distro/status", method = RequestMethod.GET)
     public JSONObject distroStatus(HttpServletRequest request) {
 
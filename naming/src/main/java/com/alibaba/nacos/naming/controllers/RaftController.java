@@ -215,24 +215,34 @@ public class RaftController {
         String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
         String value = URLDecoder.decode(entity, "UTF-8");
         JSONObject jsonObject = JSON.parseObject(value);
-        String key = "key";
 
         RaftPeer source = JSON.parseObject(jsonObject.getString("source"), RaftPeer.class);
-        JSONObject datumJson = jsonObject.getJSONObject("datum");
+        Datum datum = parseDatum(jsonObject.getJSONObject("datum"));
 
-        Datum datum = null;
-        if (KeyBuilder.matchInstanceListKey(datumJson.getString(key))) {
-            datum = JSON.parseObject(jsonObject.getString("datum"), new TypeReference<Datum<Instances>>() {
-            });
-        } else if (KeyBuilder.matchSwitchKey(datumJson.getString(key))) {
-            datum = JSON.parseObject(jsonObject.getString("datum"), new TypeReference<Datum<SwitchDomain>>() {
-            });
-        } else if (KeyBuilder.matchServiceMetaKey(datumJson.getString(key))) {
-            datum = JSON.parseObject(jsonObject.getString("datum"), new TypeReference<Datum<Service>>() {
-            });
+        raftConsistencyService.onPut(datum, source);
+        return "ok";
+    }
+
+    @NeedAuth
+    @RequestMapping(value = "/datum/commit/batch", method = RequestMethod.POST)
+    public String onPublishBatch(HttpServletRequest request, HttpServletResponse response) throws Exception {
+
+        response.setHeader("Content-Type", "application/json; charset=" + getAcceptEncoding(request));
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("Content-Encode", "gzip");
+
+        String entity = IOUtils.toString(request.getInputStream(), "UTF-8");
+        JSONObject jsonObject = JSON.parseObject(entity);
+
+        RaftPeer source = JSON.parseObject(jsonObject.getString("source"), RaftPeer.class);
+        JSONArray datumArray = jsonObject.getJSONArray("datums");
+
+        List<Datum> datums = new ArrayList<>(datumArray.size());
+        for (int i = 0; i < datumArray.size(); i++) {
+            datums.add(parseDatum(datumArray.getJSONObject(i)));
         }
 
-        raftConsistencyService.onPut(datum, source);
+        raftConsistencyService.onPut(datums, source);
         return "ok";
     }
 
@@ -284,4 +294,22 @@ public class RaftController {
         encode = encode.contains(",") ? encode.substring(0, encode.indexOf(",")) : encode;
         return encode.contains(";") ? encode.substring(0, encode.indexOf(";")) : encode;
     }
+
+    private Datum parseDatum(JSONObject datumJson) {
+        String key = "key";
+        String datumString = datumJson.toJSONString();
+
+        Datum datum = null;
+        if (KeyBuilder.matchInstanceListKey(datumJson.getString(key))) {
+            datum = JSON.parseObject(datumString, new TypeReference<Datum<Instances>>() {
+            });
+        } else if (KeyBuilder.matchSwitchKey(datumJson.getString(key))) {
+            datum = JSON.parseObject(datumString, new TypeReference<Datum<SwitchDomain>>() {
+            });
+        } else if (KeyBuilder.matchServiceMetaKey(datumJson.getString(key))) {
+            datum = JSON.parseObject(datumString, new TypeReference<Datum<Service>>() {
+            });
+        }
+        return datum;
+    }
 }
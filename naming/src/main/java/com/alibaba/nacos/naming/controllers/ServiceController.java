@@ -41,6 +41,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.net.URLDecoder;
 import java.util.*;
 
@@ -159,7 +160,8 @@ public class ServiceController {
         String groupName = WebUtils.optional(request, CommonParams.GROUP_NAME, Constants.DEFAULT_GROUP);
         String selectorString = WebUtils.optional(request, "selector", StringUtils.EMPTY);
 
-        List<String> serviceNameList = serviceManager.getAllServiceNameList(namespaceId);
+        List<String> serviceNameList = new ArrayList<>(serviceManager.getServiceIndex(namespaceId)
+            .getServiceNames(groupName + Constants.SERVICE_INFO_SPLITER));
 
         JSONObject result = new JSONObject();
 
@@ -169,15 +171,6 @@ public class ServiceController {
             return result;
         }
 
-        Iterator<String> iterator = serviceNameList.iterator();
-
-        while (iterator.hasNext()) {
-            String serviceName = iterator.next();
-            if (!serviceName.startsWith(groupName + Constants.SERVICE_INFO_SPLITER)) {
-                iterator.remove();
-            }
-        }
-
         if (StringUtils.isNotBlank(selectorString)) {
 
             JSONObject selectorJson = JSON.parseObject(selectorString);
@@ -210,6 +203,18 @@ public class ServiceController {
         }
 
         int start = (pageNo - 1) * pageSize;
+
+        // names are sorted, paging from the last service of previous page is not affected by changes of services.
+        // the cursor is the nextCursor returned with previous page, a name without group is of the requested group:
+        String cursor = WebUtils.optional(request, "cursor", StringUtils.EMPTY);
+        if (StringUtils.isNotBlank(cursor)) {
+            if (!cursor.contains(Constants.SERVICE_INFO_SPLITER)) {
+                cursor = NamingUtils.getGroupedName(cursor, groupName);
+            }
+            int position = Collections.binarySearch(serviceNameList, cursor);
+            start = position < 0 ? -position - 1 : position + 1;
+        }
+
         int end = start + pageSize;
 
         if (start < 0) {
@@ -220,6 +225,10 @@ public class ServiceController {
             end = serviceNameList.size();
         }
 
+        if (end > start && end < serviceNameList.size()) {
+            result.put("nextCursor", serviceNameList.get(end - 1));
+        }
+
         for (int i = start; i < end; i++) {
             serviceNameList.set(i, serviceNameList.get(i).replace(groupName + Constants.SERVICE_INFO_SPLITER, ""));
         }
@@ -346,6 +355,28 @@ public class ServiceController {
         return "ok";
     }
 
+    @RequestMapping(value = "/status/bitmap", method = RequestMethod.POST)
+    public String serviceHealthReport(HttpServletRequest request) throws Exception {
+
+        String serverIP = WebUtils.required(request, "clientIP");
+
+        if (!serverListManager.contains(serverIP)) {
+            throw new NacosException(NacosException.INVALID_PARAM,
+                "ip: " + serverIP + " is not in serverlist");
+        }
+
+        ServiceHealthReport report;
+        try {
+            report = ServiceHealthReport.decode(IOUtils.toByteArray(request.getInputStream()));
+        } catch (IOException e) {
+            Loggers.SRV_LOG.warn("[DOMAIN-STATUS] receive malformed health report from: " + serverIP, e);
+            return "fail";
+        }
+
+        serviceManager.onReceiveHealthReport(report);
+        return "ok";
+    }
+
     @RequestMapping(value = "/checksum", method = RequestMethod.PUT)
     public JSONObject checksum(HttpServletRequest request) throws Exception {
 
@@ -16,6 +16,7 @@
 package com.alibaba.nacos.naming.core;
 
 import com.alibaba.fastjson.annotation.JSONField;
+import com.alibaba.nacos.naming.healthcheck.ClientBeatExpiryReactor;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckReactor;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckStatus;
 import com.alibaba.nacos.naming.healthcheck.HealthCheckTask;
@@ -54,6 +55,9 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
     @JSONField(serialize = false)
     private Set<Instance> ephemeralInstances = new HashSet<>();
 
+    @JSONField(serialize = false)
+    private volatile InstanceSnapshot snapshot = InstanceSnapshot.EMPTY;
+
     @JSONField(serialize = false)
     private Service service;
 
@@ -93,15 +97,39 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
         this.defIPPort = defIPPort;
     }
 
+    /**
+     * Get all instances of this cluster
+     *
+     * @return unmodifiable list of instances
+     */
     public List<Instance> allIPs() {
-        List<Instance> allInstances = new ArrayList<>();
-        allInstances.addAll(persistentInstances);
-        allInstances.addAll(ephemeralInstances);
-        return allInstances;
+        return snapshot.getAllInstances();
     }
 
+    /**
+     * Get ephemeral or persistent instances of this cluster
+     *
+     * @param ephemeral true to get ephemeral instances, false to get persistent instances
+     * @return unmodifiable list of instances
+     */
     public List<Instance> allIPs(boolean ephemeral) {
-        return ephemeral ? new ArrayList<>(ephemeralInstances) : new ArrayList<>(persistentInstances);
+        return snapshot.getInstances(ephemeral);
+    }
+
+    /**
+     * Find an instance of this cluster
+     *
+     * @param ip   ip of instance
+     * @param port port of instance
+     * @return instance, null if not found
+     */
+    public Instance getInstance(String ip, int port) {
+        return snapshot.getInstance(ip, port);
+    }
+
+    @JSONField(serialize = false)
+    public InstanceSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public void init() {
@@ -118,6 +146,9 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
         if (checkTask != null) {
             checkTask.setCancelled(true);
         }
+        for (Instance ip : ephemeralInstances) {
+            ClientBeatExpiryReactor.disarm(this, ip);
+        }
     }
 
     public HealthCheckTask getHealthCheckTask() {
@@ -230,6 +261,15 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
 
         List<Instance> deadIPs = subtract(oldIPMap.values(), ips);
 
+        if (ephemeral) {
+            for (Instance ip : ips) {
+                ClientBeatExpiryReactor.arm(this, ip);
+            }
+            for (Instance ip : deadIPs) {
+                ClientBeatExpiryReactor.disarm(this, ip);
+            }
+        }
+
         if (deadIPs.size() > 0) {
             Loggers.EVT_LOG.info("{} {SYNC} {IP-DEAD} cluster: {}, dead ips size: {}, content: {}",
                 getService().getName(), getName(), deadIPs.size(), deadIPs.toString());
@@ -246,6 +286,8 @@ public class Cluster extends com.alibaba.nacos.api.naming.pojo.Cluster implement
         } else {
             persistentInstances = toUpdateInstances;
         }
+
+        snapshot = InstanceSnapshot.of(persistentInstances, ephemeralInstances);
     }
 
     public List<Instance> updatedIPs(Collection<Instance> a, Collection<Instance> b) {
@@ -15,6 +15,7 @@
  */
 package com.alibaba.nacos.naming.core;
 
+import com.alibaba.nacos.common.util.ConsistentHashRing;
 import com.alibaba.nacos.core.utils.SystemUtils;
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.servers.Server;
@@ -36,8 +37,18 @@ import java.util.List;
 @Component("distroMapper")
 public class DistroMapper implements ServerChangeListener {
 
+    public static final int VIRTUAL_NODES = 160;
+
+    private static final String MODULO_VERSION_PREFIX = "m";
+
+    private static final String CONSISTENT_HASH_VERSION_PREFIX = "c";
+
     private List<String> healthyList = new ArrayList<>();
 
+    private volatile int healthyListHash = healthyList.hashCode();
+
+    private volatile ConsistentHashRing ring = ConsistentHashRing.EMPTY;
+
     public List<String> getHealthyList() {
         return healthyList;
     }
@@ -79,6 +90,10 @@ public class DistroMapper implements ServerChangeListener {
             return true;
         }
 
+        if (switchDomain.isDistroConsistentHashEnabled()) {
+            return NetUtils.localServer().equals(ring.get(serviceName));
+        }
+
         int target = distroHash(serviceName) % healthyList.size();
         return target >= index && target <= lastIndex;
     }
@@ -89,6 +104,10 @@ public class DistroMapper implements ServerChangeListener {
         }
 
         try {
+            if (switchDomain.isDistroConsistentHashEnabled()) {
+                String server = ring.get(serviceName);
+                return server == null ? NetUtils.localServer() : server;
+            }
             return healthyList.get(distroHash(serviceName) % healthyList.size());
         } catch (Exception e) {
             Loggers.SRV_LOG.warn("distro mapper failed, return localhost: " + NetUtils.localServer(), e);
@@ -97,6 +116,25 @@ public class DistroMapper implements ServerChangeListener {
         }
     }
 
+    /**
+     * Get version of the mapping, servers with the same healthy list and hash mode have the same version
+     *
+     * @return version of the mapping
+     */
+    public String getVersion() {
+        String prefix = switchDomain.isDistroConsistentHashEnabled() ?
+            CONSISTENT_HASH_VERSION_PREFIX : MODULO_VERSION_PREFIX;
+        return prefix + Integer.toHexString(healthyListHash);
+    }
+
+    public boolean isConsistentHash() {
+        return switchDomain.isDistroConsistentHashEnabled();
+    }
+
+    public boolean isDistroEnabled() {
+        return switchDomain.isDistroEnabled() && !SystemUtils.STANDALONE_MODE;
+    }
+
     public int distroHash(String serviceName) {
         return Math.abs(serviceName.hashCode() % Integer.MAX_VALUE);
     }
@@ -113,6 +151,8 @@ public class DistroMapper implements ServerChangeListener {
         for (Server server : latestReachableMembers) {
             newHealthyList.add(server.getKey());
         }
+        ring = ConsistentHashRing.of(newHealthyList, VIRTUAL_NODES);
         healthyList = newHealthyList;
+        healthyListHash = newHealthyList.hashCode();
     }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of encoded instance list responses.
+ * <p>
+ * An entry is valid as long as the version of the service equals the version the entry was built
+ * with. The 'lastRefTime' field differs in every response, so an entry is kept as the bytes before
+ * and after the value of that field, and the current time is written between them.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class InstanceListCache {
+
+    public static final long LAST_REF_TIME_PLACEHOLDER = 0L;
+
+    private static final String LAST_REF_TIME_KEY = "\"lastRefTime\":";
+
+    private static final String LAST_REF_TIME_MARKER = LAST_REF_TIME_KEY + LAST_REF_TIME_PLACEHOLDER;
+
+    private static final long MAX_SIZE = 100000L;
+
+    private static final long EXPIRE_MINUTES = 10L;
+
+    private Cache<String, Entry> cache = CacheBuilder.newBuilder()
+        .maximumSize(MAX_SIZE)
+        .expireAfterAccess(EXPIRE_MINUTES, TimeUnit.MINUTES)
+        .build();
+
+    /**
+     * Get the cached response
+     *
+     * @param key      cache key
+     * @param version  current version of the service
+     * @return cached response, null if absent or built with another version
+     */
+    public Entry get(String key, String version) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || !entry.version.equals(version)) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Cache an encoded response
+     *
+     * @param key      cache key
+     * @param version  version of the service the response is built with
+     * @param json     encoded response, with lastRefTime set to {@link #LAST_REF_TIME_PLACEHOLDER}
+     * @return cached response, null if the response can not be cached
+     */
+    public Entry put(String key, String version, String json) {
+        int index = json.indexOf(LAST_REF_TIME_MARKER);
+        if (index < 0) {
+            return null;
+        }
+        Entry entry = new Entry(version,
+            json.substring(0, index + LAST_REF_TIME_KEY.length()).getBytes(StandardCharsets.UTF_8),
+            json.substring(index + LAST_REF_TIME_MARKER.length()).getBytes(StandardCharsets.UTF_8));
+        cache.put(key, entry);
+        return entry;
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public static class Entry {
+
+        private String version;
+
+        private byte[] head;
+
+        private byte[] tail;
+
+        Entry(String version, byte[] head, byte[] tail) {
+            this.version = version;
+            this.head = head;
+            this.tail = tail;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public void writeTo(OutputStream outputStream, long lastRefTime) throws IOException {
+            outputStream.write(head);
+            outputStream.write(String.valueOf(lastRefTime).getBytes(StandardCharsets.UTF_8));
+            outputStream.write(tail);
+        }
+    }
+}
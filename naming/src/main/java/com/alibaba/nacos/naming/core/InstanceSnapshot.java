@@ -0,0 +1,226 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the instances of a cluster or a service.
+ * <p>
+ * A new snapshot is published each time the instance list is updated, so readers get the lists
+ * without copying and without locking. The membership of the lists never changes, but instances
+ * are shared with the writer: the health status of an instance is updated in place by health
+ * checkers, so healthy instances are counted on read instead of being partitioned here.
+ * <p>
+ * Instances are indexed by ip on first lookup, so finding the instance of a client beat is a hash
+ * lookup instead of a scan of the list.
+ * <p>
+ * The canonical order of instances, sorted by datum key, is also built on first use. It is the same on
+ * every server holding the same instances, so health statuses can be exchanged as a bitset over it, see
+ * {@link ServiceHealthReport}.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class InstanceSnapshot {
+
+    public static final InstanceSnapshot EMPTY = new InstanceSnapshot(Collections.<Instance>emptyList(),
+        Collections.<Instance>emptyList(), Collections.<Instance>emptyList());
+
+    private final List<Instance> persistentInstances;
+
+    private final List<Instance> ephemeralInstances;
+
+    private final List<Instance> allInstances;
+
+    private volatile Map<String, Instance[]> ipIndex;
+
+    private volatile CanonicalOrder canonicalOrder;
+
+    private InstanceSnapshot(List<Instance> persistentInstances, List<Instance> ephemeralInstances,
+                             List<Instance> allInstances) {
+        this.persistentInstances = persistentInstances;
+        this.ephemeralInstances = ephemeralInstances;
+        this.allInstances = allInstances;
+    }
+
+    /**
+     * Create a snapshot, all instances are persistent instances followed by ephemeral instances
+     *
+     * @param persistentInstances persistent instances
+     * @param ephemeralInstances  ephemeral instances
+     * @return snapshot
+     */
+    public static InstanceSnapshot of(Collection<Instance> persistentInstances,
+                                      Collection<Instance> ephemeralInstances) {
+        List<Instance> allInstances = new ArrayList<>(persistentInstances.size() + ephemeralInstances.size());
+        allInstances.addAll(persistentInstances);
+        allInstances.addAll(ephemeralInstances);
+        return new InstanceSnapshot(
+            Collections.unmodifiableList(new ArrayList<>(persistentInstances)),
+            Collections.unmodifiableList(new ArrayList<>(ephemeralInstances)),
+            Collections.unmodifiableList(allInstances));
+    }
+
+    /**
+     * Create a snapshot with the given order of all instances
+     *
+     * @param persistentInstances persistent instances
+     * @param ephemeralInstances  ephemeral instances
+     * @param allInstances        all instances
+     * @return snapshot
+     */
+    public static InstanceSnapshot of(Collection<Instance> persistentInstances,
+                                      Collection<Instance> ephemeralInstances,
+                                      Collection<Instance> allInstances) {
+        return new InstanceSnapshot(
+            Collections.unmodifiableList(new ArrayList<>(persistentInstances)),
+            Collections.unmodifiableList(new ArrayList<>(ephemeralInstances)),
+            Collections.unmodifiableList(new ArrayList<>(allInstances)));
+    }
+
+    public List<Instance> getAllInstances() {
+        return allInstances;
+    }
+
+    public List<Instance> getInstances(boolean ephemeral) {
+        return ephemeral ? ephemeralInstances : persistentInstances;
+    }
+
+    /**
+     * Find an instance by ip and port
+     *
+     * @param ip   ip of instance
+     * @param port port of instance
+     * @return instance, null if not found
+     */
+    public Instance getInstance(String ip, int port) {
+        Map<String, Instance[]> index = ipIndex;
+        if (index == null) {
+            index = buildIpIndex();
+            ipIndex = index;
+        }
+
+        Instance[] instances = index.get(ip);
+        if (instances == null) {
+            return null;
+        }
+        for (Instance instance : instances) {
+            if (instance.getPort() == port) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get all instances sorted by datum key
+     *
+     * @return instances in canonical order, must not be modified
+     */
+    public Instance[] getCanonicalInstances() {
+        return getCanonicalOrder().instances;
+    }
+
+    /**
+     * Get the hash of datum keys of all instances in canonical order
+     *
+     * @return membership hash
+     */
+    public long getMembershipHash() {
+        return getCanonicalOrder().membershipHash;
+    }
+
+    public int size() {
+        return allInstances.size();
+    }
+
+    public int getHealthyCount() {
+        int healthyCount = 0;
+        for (int i = 0; i < allInstances.size(); i++) {
+            if (allInstances.get(i).isHealthy()) {
+                healthyCount++;
+            }
+        }
+        return healthyCount;
+    }
+
+    private CanonicalOrder getCanonicalOrder() {
+        CanonicalOrder order = canonicalOrder;
+        if (order == null) {
+            order = new CanonicalOrder(allInstances);
+            canonicalOrder = order;
+        }
+        return order;
+    }
+
+    private Map<String, Instance[]> buildIpIndex() {
+        Map<String, Instance[]> index = new HashMap<>(allInstances.size() * 2);
+        for (Instance instance : allInstances) {
+            Instance[] instances = index.get(instance.getIp());
+            if (instances == null) {
+                instances = new Instance[]{instance};
+            } else {
+                instances = Arrays.copyOf(instances, instances.length + 1);
+                instances[instances.length - 1] = instance;
+            }
+            index.put(instance.getIp(), instances);
+        }
+        return index;
+    }
+
+    private static class CanonicalOrder {
+
+        private final Instance[] instances;
+
+        private final long membershipHash;
+
+        CanonicalOrder(List<Instance> allInstances) {
+            final String[] keys = new String[allInstances.size()];
+            Integer[] order = new Integer[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = allInstances.get(i).getDatumKey();
+                order[i] = i;
+            }
+
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    return keys[o1].compareTo(keys[o2]);
+                }
+            });
+
+            instances = new Instance[keys.length];
+            Hasher hasher = Hashing.murmur3_128().newHasher();
+            for (int i = 0; i < order.length; i++) {
+                instances[i] = allInstances.get(order[i]);
+                hasher.putString(keys[order[i]], StandardCharsets.UTF_8).putByte((byte) 0);
+            }
+            membershipHash = hasher.hash().asLong();
+        }
+    }
+}
@@ -73,9 +73,7 @@ public class Instances implements Record {
         StringBuilder sb = new StringBuilder();
         Collections.sort(instanceList);
         for (Instance ip : instanceList) {
-            String string = ip.getIp() + ":" + ip.getPort() + "_" + ip.getWeight() + "_"
-                + ip.isHealthy() + "_" + ip.isEnabled() + "_" + ip.getClusterName() + "_" + convertMap2String(ip.getMetadata());
-            sb.append(string);
+            sb.append(buildSignature(ip));
             sb.append(",");
         }
         MessageDigest md5;
@@ -90,6 +88,17 @@ public class Instances implements Record {
         lastCalculateTime = System.currentTimeMillis();
     }
 
+    /**
+     * Build the string that identifies all checksum relevant fields of an instance
+     *
+     * @param ip instance
+     * @return signature of the instance
+     */
+    public String buildSignature(Instance ip) {
+        return ip.getIp() + ":" + ip.getPort() + "_" + ip.getWeight() + "_"
+            + ip.isHealthy() + "_" + ip.isEnabled() + "_" + ip.getClusterName() + "_" + convertMap2String(ip.getMetadata());
+    }
+
     public String convertMap2String(Map<String, String> map) {
 
         if (map == null || map.isEmpty()) {
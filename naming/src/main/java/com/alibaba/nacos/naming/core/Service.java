@@ -21,9 +21,6 @@ import com.alibaba.nacos.naming.boot.SpringContext;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
 import com.alibaba.nacos.naming.consistency.RecordListener;
 import com.alibaba.nacos.naming.healthcheck.ClientBeatCheckTask;
-import com.alibaba.nacos.naming.healthcheck.ClientBeatProcessor;
-import com.alibaba.nacos.naming.healthcheck.HealthCheckReactor;
-import com.alibaba.nacos.naming.healthcheck.RsInfo;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
 import com.alibaba.nacos.naming.pojo.Record;
@@ -73,6 +70,21 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     private volatile String checksum;
 
+    @JSONField(serialize = false)
+    private volatile String version;
+
+    @JSONField(serialize = false)
+    private volatile ServiceSnapshot snapshot;
+
+    @JSONField(serialize = false)
+    private volatile ServiceIndex serviceIndex;
+
+    /**
+     * ip and ip:port of all instances, as indexed in the service index
+     */
+    @JSONField(serialize = false)
+    private Set<String> addresses = Collections.emptySet();
+
     /**
      * TODO set customized push expire time:
      */
@@ -100,11 +112,24 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         this.ipDeleteTimeout = ipDeleteTimeout;
     }
 
-    public void processClientBeat(final RsInfo rsInfo) {
-        ClientBeatProcessor clientBeatProcessor = new ClientBeatProcessor();
-        clientBeatProcessor.setService(this);
-        clientBeatProcessor.setRsInfo(rsInfo);
-        HealthCheckReactor.scheduleNow(clientBeatProcessor);
+    /**
+     * Refresh the last beat of an ephemeral instance in place
+     *
+     * @param instance instance the beat is sent for
+     */
+    public void processClientBeat(Instance instance) {
+        if (!instance.isEphemeral()) {
+            // health of persistent instances is checked by the server, not by client beats:
+            return;
+        }
+        // re-arm the expiry of the instance, see ClientBeatExpiryReactor:
+        instance.setLastBeat(System.currentTimeMillis());
+        if (!instance.isMarked() && !instance.isHealthy()) {
+            instance.setHealthy(true);
+            Loggers.EVT_LOG.info("service: {} {POS} {IP-ENABLED} valid: {}:{}@{}, region: {}, msg: client beat ok",
+                getName(), instance.getIp(), instance.getPort(), instance.getClusterName(), UtilsAndCommons.LOCALHOST_SITE);
+            getPushService().serviceChanged(this);
+        }
     }
 
     public Boolean getEnabled() {
@@ -137,6 +162,13 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     public void setSelector(Selector selector) {
         this.selector = selector;
+        resetVersion();
+    }
+
+    @Override
+    public void setMetadata(Map<String, String> metadata) {
+        super.setMetadata(metadata);
+        resetVersion();
     }
 
     @Override
@@ -181,18 +213,12 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
     }
 
     public int healthyInstanceCount() {
-
-        int healthyCount = 0;
-        for (Instance instance : allIPs()) {
-            if (instance.isHealthy()) {
-                healthyCount++;
-            }
-        }
-        return healthyCount;
+        return getSnapshot().getHealthyCount();
     }
 
     public boolean meetProtectThreshold() {
-        return (healthyInstanceCount() * 1.0 / allIPs().size()) <= getProtectThreshold();
+        InstanceSnapshot current = getSnapshot();
+        return (current.getHealthyCount() * 1.0 / current.size()) <= getProtectThreshold();
     }
 
     public void updateIPs(Collection<Instance> instances, boolean ephemeral) {
@@ -239,6 +265,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         }
 
         setLastModifiedMillis(System.currentTimeMillis());
+        updateAddressIndex();
         getPushService().serviceChanged(this);
         StringBuilder stringBuilder = new StringBuilder();
 
@@ -251,9 +278,43 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     }
 
-    public void init() {
+    private synchronized void updateAddressIndex() {
+        Set<String> newAddresses = ServiceIndex.addressesOf(allIPs());
+        ServiceIndex index = serviceIndex;
+        if (index != null) {
+            index.updateAddresses(getName(), addresses, newAddresses);
+        }
+        addresses = newAddresses;
+    }
 
-        HealthCheckReactor.scheduleCheck(clientBeatCheckTask);
+    /**
+     * Index this service in the service index of its namespace
+     *
+     * @param serviceIndex service index of namespace
+     */
+    public synchronized void index(ServiceIndex serviceIndex) {
+        this.serviceIndex = serviceIndex;
+        serviceIndex.addService(getName());
+        serviceIndex.updateAddresses(getName(), Collections.emptySet(), addresses);
+    }
+
+    /**
+     * Remove this service from the service index of its namespace
+     */
+    public synchronized void unindex() {
+        ServiceIndex index = serviceIndex;
+        if (index != null) {
+            index.removeService(getName(), addresses);
+        }
+        serviceIndex = null;
+    }
+
+    @JSONField(serialize = false)
+    public ClientBeatCheckTask getClientBeatCheckTask() {
+        return clientBeatCheckTask;
+    }
+
+    public void init() {
 
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
             entry.getValue().setService(this);
@@ -265,28 +326,67 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
             entry.getValue().destroy();
         }
-        HealthCheckReactor.cancelCheck(clientBeatCheckTask);
     }
 
+    /**
+     * Get all instances of this service
+     *
+     * @return unmodifiable list of instances
+     */
     public List<Instance> allIPs() {
-        List<Instance> allIPs = new ArrayList<>();
-        for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
-            allIPs.addAll(entry.getValue().allIPs());
-        }
-
-        return allIPs;
+        return getSnapshot().getAllInstances();
     }
 
+    /**
+     * Get ephemeral or persistent instances of this service
+     *
+     * @param ephemeral true to get ephemeral instances, false to get persistent instances
+     * @return unmodifiable list of instances
+     */
     public List<Instance> allIPs(boolean ephemeral) {
-        List<Instance> allIPs = new ArrayList<>();
+        return getSnapshot().getInstances(ephemeral);
+    }
+
+    /**
+     * Get the snapshot of instances of all clusters
+     * <p>
+     * The snapshot is built from snapshots of clusters and rebuilt only when one of the clusters
+     * publishes a new snapshot or the clusters change.
+     *
+     * @return snapshot of instances
+     */
+    @JSONField(serialize = false)
+    public InstanceSnapshot getSnapshot() {
+
+        ServiceSnapshot current = snapshot;
+        if (current != null && current.isUpToDate(clusterMap)) {
+            return current.instances;
+        }
+
+        Map<String, InstanceSnapshot> clusterSnapshots = new HashMap<>(clusterMap.size());
+        List<Instance> persistentInstances = new ArrayList<>();
+        List<Instance> ephemeralInstances = new ArrayList<>();
+        List<Instance> allInstances = new ArrayList<>();
         for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
-            allIPs.addAll(entry.getValue().allIPs(ephemeral));
+            InstanceSnapshot clusterSnapshot = entry.getValue().getSnapshot();
+            clusterSnapshots.put(entry.getKey(), clusterSnapshot);
+            persistentInstances.addAll(clusterSnapshot.getInstances(false));
+            ephemeralInstances.addAll(clusterSnapshot.getInstances(true));
+            allInstances.addAll(clusterSnapshot.getAllInstances());
         }
 
-        return allIPs;
+        current = new ServiceSnapshot(clusterSnapshots,
+            InstanceSnapshot.of(persistentInstances, ephemeralInstances, allInstances));
+        snapshot = current;
+        return current.instances;
     }
 
     public List<Instance> allIPs(List<String> clusters) {
+        if (clusters.size() == 1) {
+            Cluster clusterObj = clusterMap.get(clusters.get(0));
+            return clusterObj == null ? new ArrayList<>() : clusterObj.allIPs();
+        }
+
         List<Instance> allIPs = new ArrayList<>();
         for (String cluster : clusters) {
             Cluster clusterObj = clusterMap.get(cluster);
@@ -302,8 +402,7 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     public List<Instance> srvIPs(List<String> clusters) {
         if (CollectionUtils.isEmpty(clusters)) {
-            clusters = new ArrayList<>();
-            clusters.addAll(clusterMap.keySet());
+            return allIPs();
         }
         return allIPs(clusters);
     }
@@ -429,15 +528,90 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
 
     @Override
     public String getChecksum() {
+        String current = checksum;
+        if (StringUtils.isEmpty(current)) {
+            return ensureChecksum();
+        }
+
+        return current;
+    }
+
+    /**
+     * Drop the current checksum, it will be recalculated when it is read next time.
+     * <p>
+     * Used when the health status of instances is changed in place.
+     */
+    public synchronized void resetChecksum() {
+        checksum = null;
+        version = null;
+    }
+
+    /**
+     * Version of everything returned to clients with the instances of this service.
+     * <p>
+     * The checksum only covers what servers compare with each other, the version also covers the enabled and
+     * ephemeral flags, instance id and metadata of instances, and the metadata and selector of the service,
+     * so it is used as the ETag of instance list responses. It is dropped along with the checksum, and when
+     * the metadata or selector is changed.
+     *
+     * @return version
+     */
+    @JSONField(serialize = false)
+    public String getVersion() {
+        String current = version;
+        if (StringUtils.isEmpty(current)) {
+            return ensureVersion();
+        }
+
+        return current;
+    }
+
+    private synchronized void resetVersion() {
+        version = null;
+    }
+
+    private synchronized String ensureVersion() {
+        if (StringUtils.isNotEmpty(version)) {
+            return version;
+        }
+
+        List<Instance> ips = new ArrayList<>(allIPs());
+        if (CollectionUtils.isNotEmpty(ips)) {
+            Collections.sort(ips);
+        }
+
+        StringBuilder versionString = new StringBuilder(getChecksum());
+        versionString.append(JSON.toJSONString(new TreeMap<>(getMetadata())));
+        versionString.append(JSON.toJSONString(selector));
+        for (Instance ip : ips) {
+            versionString.append(ip.getIp()).append(":").append(ip.getPort()).append("_")
+                .append(ip.getWeight()).append("_").append(ip.isHealthy()).append("_")
+                .append(ip.isEnabled()).append("_").append(ip.isEphemeral()).append("_")
+                .append(ip.getClusterName()).append("_").append(ip.getInstanceId()).append("_")
+                .append(JSON.toJSONString(new TreeMap<>(ip.getMetadata()))).append(",");
+        }
+
+        try {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            version = new BigInteger(1, md5.digest(versionString.toString().getBytes(Charset.forName("UTF-8"))))
+                .toString(16);
+        } catch (Exception e) {
+            Loggers.SRV_LOG.error("[NACOS-DOM] error while calculating version(md5)", e);
+            version = RandomStringUtils.randomAscii(32);
+        }
+        return version;
+    }
+
+    private synchronized String ensureChecksum() {
         if (StringUtils.isEmpty(checksum)) {
             recalculateChecksum();
         }
-
         return checksum;
     }
 
     public synchronized void recalculateChecksum() {
-        List<Instance> ips = allIPs();
+        version = null;
+        List<Instance> ips = new ArrayList<>(allIPs());
 
         StringBuilder ipsString = new StringBuilder();
         ipsString.append(getServiceString());
@@ -511,4 +685,28 @@ public class Service extends com.alibaba.nacos.api.naming.pojo.Service implement
             cluster.validate();
         }
     }
+
+    private static class ServiceSnapshot {
+
+        private Map<String, InstanceSnapshot> clusterSnapshots;
+
+        private InstanceSnapshot instances;
+
+        ServiceSnapshot(Map<String, InstanceSnapshot> clusterSnapshots, InstanceSnapshot instances) {
+            this.clusterSnapshots = clusterSnapshots;
+            this.instances = instances;
+        }
+
+        boolean isUpToDate(Map<String, Cluster> clusterMap) {
+            if (clusterSnapshots.size() != clusterMap.size()) {
+                return false;
+            }
+            for (Map.Entry<String, Cluster> entry : clusterMap.entrySet()) {
+                if (clusterSnapshots.get(entry.getKey()) != entry.getValue().getSnapshot()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Health statuses of services reported by their responsible server to the other servers.
+ * <p>
+ * Every service is reported as a version, the membership hash and size of its instances and a bitset of
+ * health statuses over the canonical order of instances, see {@link InstanceSnapshot#getCanonicalInstances()}.
+ * A receiver holding the same instances applies the bits directly; one holding other instances has to fetch
+ * the statuses of the service by address instead.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class ServiceHealthReport {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final String source;
+
+    private final Map<String, List<Entry>> entries = new HashMap<>(16);
+
+    public ServiceHealthReport(String source) {
+        this.source = source;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Map<String, List<Entry>> getEntries() {
+        return entries;
+    }
+
+    public void add(String namespaceId, Entry entry) {
+        entries.computeIfAbsent(namespaceId, k -> new ArrayList<>()).add(entry);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Encode the report
+     *
+     * @return bytes of the report
+     * @throws IOException if failed to encode
+     */
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        out.writeUTF(source);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, List<Entry>> namespace : entries.entrySet()) {
+            out.writeUTF(namespace.getKey());
+            out.writeInt(namespace.getValue().size());
+            for (Entry entry : namespace.getValue()) {
+                out.writeUTF(entry.serviceName);
+                out.writeLong(entry.version);
+                out.writeLong(entry.membershipHash);
+                out.writeInt(entry.instanceCount);
+                out.write(entry.bitmap);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a report
+     *
+     * @param data bytes of the report
+     * @return report
+     * @throws IOException if the data is malformed
+     */
+    public static ServiceHealthReport decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte format = in.readByte();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("unknown format of service health report: " + format);
+        }
+
+        ServiceHealthReport report = new ServiceHealthReport(in.readUTF());
+        int namespaceCount = in.readInt();
+        for (int i = 0; i < namespaceCount; i++) {
+            String namespaceId = in.readUTF();
+            int entryCount = in.readInt();
+            for (int j = 0; j < entryCount; j++) {
+                String serviceName = in.readUTF();
+                long version = in.readLong();
+                long membershipHash = in.readLong();
+                int instanceCount = in.readInt();
+                if (instanceCount < 0) {
+                    throw new IOException("malformed service health report, instance count: " + instanceCount);
+                }
+                byte[] bitmap = new byte[bitmapLength(instanceCount)];
+                in.readFully(bitmap);
+                report.add(namespaceId, new Entry(serviceName, version, membershipHash, instanceCount, bitmap));
+            }
+        }
+        return report;
+    }
+
+    private static int bitmapLength(int instanceCount) {
+        return (instanceCount + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    public static class Entry {
+
+        private final String serviceName;
+
+        private final long version;
+
+        private final long membershipHash;
+
+        private final int instanceCount;
+
+        private final byte[] bitmap;
+
+        Entry(String serviceName, long version, long membershipHash, int instanceCount, byte[] bitmap) {
+            this.serviceName = serviceName;
+            this.version = version;
+            this.membershipHash = membershipHash;
+            this.instanceCount = instanceCount;
+            this.bitmap = bitmap;
+        }
+
+        /**
+         * Create an entry with the current health statuses of instances
+         *
+         * @param serviceName name of service
+         * @param version     version of the statuses
+         * @param snapshot    instances of service
+         * @return entry
+         */
+        public static Entry of(String serviceName, long version, InstanceSnapshot snapshot) {
+            Instance[] instances = snapshot.getCanonicalInstances();
+            byte[] bitmap = new byte[bitmapLength(instances.length)];
+            for (int i = 0; i < instances.length; i++) {
+                if (instances[i].isHealthy()) {
+                    bitmap[i / Byte.SIZE] |= 1 << (i % Byte.SIZE);
+                }
+            }
+            return new Entry(serviceName, version, snapshot.getMembershipHash(), instances.length, bitmap);
+        }
+
+        /**
+         * Check if the statuses are the same as the ones of another entry, regardless of version
+         *
+         * @param other another entry
+         * @return true if the membership and health statuses are the same
+         */
+        public boolean sameStatuses(Entry other) {
+            return other != null && membershipHash == other.membershipHash
+                && instanceCount == other.instanceCount && Arrays.equals(bitmap, other.bitmap);
+        }
+
+        /**
+         * Check if the entry describes the given instances
+         *
+         * @param snapshot instances of service
+         * @return true if the bits can be applied to the instances in canonical order
+         */
+        public boolean matches(InstanceSnapshot snapshot) {
+            return instanceCount == snapshot.size() && membershipHash == snapshot.getMembershipHash();
+        }
+
+        public boolean isHealthy(int index) {
+            return (bitmap[index / Byte.SIZE] & (1 << (index % Byte.SIZE))) != 0;
+        }
+
+        public String getServiceName() {
+            return serviceName;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public long getMembershipHash() {
+            return membershipHash;
+        }
+
+        public int getInstanceCount() {
+            return instanceCount;
+        }
+    }
+}
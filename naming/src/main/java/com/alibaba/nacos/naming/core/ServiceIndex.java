@@ -0,0 +1,141 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Secondary indexes of the services of one namespace.
+ * <p>
+ * Service names are kept sorted, so services can be listed by prefix and paged from the name of the last
+ * service of previous page, which stays stable while services are added or removed. Services are also
+ * indexed by the ip and ip:port of their instances, updated whenever the instances of a service change.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class ServiceIndex {
+
+    private static final String IP_PORT_SPLITER = ":";
+
+    private final NavigableSet<String> serviceNames = new ConcurrentSkipListSet<>();
+
+    private final ConcurrentMap<String, Set<String>> addressIndex = new ConcurrentHashMap<>();
+
+    public void addService(String serviceName) {
+        serviceNames.add(serviceName);
+    }
+
+    /**
+     * Remove a service from all indexes
+     *
+     * @param serviceName name of service
+     * @param addresses   addresses the service is indexed by
+     */
+    public void removeService(String serviceName, Collection<String> addresses) {
+        serviceNames.remove(serviceName);
+        for (String address : addresses) {
+            unindex(address, serviceName);
+        }
+    }
+
+    /**
+     * Re-index a service by the addresses of its instances
+     *
+     * @param serviceName  name of service
+     * @param oldAddresses addresses the service is indexed by
+     * @param newAddresses addresses of current instances of the service
+     */
+    public void updateAddresses(String serviceName, Set<String> oldAddresses, Set<String> newAddresses) {
+        for (String address : oldAddresses) {
+            if (!newAddresses.contains(address)) {
+                unindex(address, serviceName);
+            }
+        }
+
+        for (String address : newAddresses) {
+            if (!oldAddresses.contains(address)) {
+                addressIndex.compute(address, (key, services) -> {
+                    if (services == null) {
+                        services = ConcurrentHashMap.newKeySet();
+                    }
+                    services.add(serviceName);
+                    return services;
+                });
+            }
+        }
+    }
+
+    private void unindex(String address, String serviceName) {
+        addressIndex.computeIfPresent(address, (key, services) -> {
+            services.remove(serviceName);
+            return services.isEmpty() ? null : services;
+        });
+    }
+
+    /**
+     * Get services having an instance at an address
+     *
+     * @param address ip or ip:port
+     * @return names of services
+     */
+    public Set<String> getServicesByAddress(String address) {
+        Set<String> services = addressIndex.get(address);
+        return services == null ? Collections.emptySet() : Collections.unmodifiableSet(services);
+    }
+
+    /**
+     * Get all service names, sorted
+     *
+     * @return view of service names
+     */
+    public NavigableSet<String> getServiceNames() {
+        return Collections.unmodifiableNavigableSet(serviceNames);
+    }
+
+    /**
+     * Get service names starting with a prefix, sorted
+     *
+     * @param prefix prefix of service names
+     * @return view of service names
+     */
+    public NavigableSet<String> getServiceNames(String prefix) {
+        return Collections.unmodifiableNavigableSet(
+            serviceNames.subSet(prefix, true, prefix + Character.MAX_VALUE, false));
+    }
+
+    /**
+     * Get the addresses a service is indexed by
+     *
+     * @param instances instances of service
+     * @return ip and ip:port of every instance
+     */
+    public static Set<String> addressesOf(Collection<Instance> instances) {
+        Set<String> addresses = new HashSet<>(instances.size() * 4);
+        for (Instance instance : instances) {
+            addresses.add(instance.getIp());
+            addresses.add(instance.getIp() + IP_PORT_SPLITER + instance.getPort());
+        }
+        return addresses;
+    }
+}
@@ -23,6 +23,7 @@ import com.alibaba.nacos.api.exception.NacosException;
 import com.alibaba.nacos.api.naming.utils.NamingUtils;
 import com.alibaba.nacos.naming.cluster.ServerListManager;
 import com.alibaba.nacos.naming.cluster.servers.Server;
+import com.alibaba.nacos.naming.cluster.servers.ServerChangeListener;
 import com.alibaba.nacos.naming.consistency.ConsistencyService;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
@@ -42,10 +43,12 @@ import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -55,16 +58,29 @@ import java.util.stream.Collectors;
  */
 @Component
 @DependsOn("nacosApplicationContext")
-public class ServiceManager implements RecordListener<Service> {
+public class ServiceManager implements RecordListener<Service>, ServerChangeListener {
+
+    private static final String SERVICE_KEYWORD_SYNTAX = "[0-9a-zA-Z@\\.:_-]+";
+
+    private static final int FULL_REPORT_ROUNDS = 6;
+
+    private static final int STATUS_BATCH_SIZE = 100;
 
     /**
      * Map<namespace, Map<group::serviceName, Service>>
      */
     private Map<String, Map<String, Service>> serviceMap = new ConcurrentHashMap<>();
 
+    private ConcurrentMap<String, ServiceIndex> serviceIndexes = new ConcurrentHashMap<>();
+
     private LinkedBlockingDeque<ServiceKey> toBeUpdatedServicesQueue = new LinkedBlockingDeque<>(1024 * 1024);
 
-    private Synchronizer synchronizer = new ServiceStatusSynchronizer();
+    private ServiceStatusSynchronizer synchronizer = new ServiceStatusSynchronizer();
+
+    /**
+     * Map<source, Map<namespace##serviceName, version of the last health report applied>>
+     */
+    private ConcurrentMap<String, ConcurrentMap<String, Long>> reportVersions = new ConcurrentHashMap<>();
 
     private final Lock lock = new ReentrantLock();
 
@@ -92,6 +108,8 @@ public class ServiceManager implements RecordListener<Service> {
 
         UtilsAndCommons.SERVICE_UPDATE_EXECUTOR.submit(new UpdatedServiceProcessor());
 
+        serverListManager.listen(this);
+
         try {
             Loggers.SRV_LOG.info("listen for service meta change");
             consistencyService.listen(KeyBuilder.SERVICE_META_KEY_PREFIX, this);
@@ -180,6 +198,29 @@ public class ServiceManager implements RecordListener<Service> {
         }
 
         chooseServiceMap(namespace).remove(name);
+        if (service != null) {
+            service.unindex();
+        }
+
+        String serviceKey = UtilsAndCommons.assembleFullServiceName(namespace, name);
+        for (ConcurrentMap<String, Long> versions : reportVersions.values()) {
+            versions.remove(serviceKey);
+        }
+    }
+
+    @Override
+    public void onChangeServerList(List<Server> servers) {
+        Set<String> serverKeys = new HashSet<>();
+        for (Server server : servers) {
+            serverKeys.add(server.getKey());
+        }
+        // forget the report versions of the peers left the cluster:
+        reportVersions.keySet().retainAll(serverKeys);
+    }
+
+    @Override
+    public void onChangeHealthyServerList(List<Server> healthyServer) {
+
     }
 
     private class UpdatedServiceProcessor implements Runnable {
@@ -230,6 +271,44 @@ public class ServiceManager implements RecordListener<Service> {
         }
     }
 
+    private class BatchServiceUpdater implements Runnable {
+
+        private final String serverIP;
+
+        private final List<String> keys;
+
+        BatchServiceUpdater(String serverIP, List<String> keys) {
+            this.serverIP = serverIP;
+            this.keys = keys;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < keys.size(); i += STATUS_BATCH_SIZE) {
+                List<String> batch = keys.subList(i, Math.min(keys.size(), i + STATUS_BATCH_SIZE));
+                try {
+                    String result = synchronizer.getStatuses(serverIP, batch);
+                    if (result == null) {
+                        continue;
+                    }
+
+                    JSONArray services = JSON.parseObject(result).getJSONArray("services");
+                    for (int j = 0; j < services.size(); j++) {
+                        JSONObject serviceJson = services.getJSONObject(j);
+                        Service service = getService(serviceJson.getString("namespaceId"),
+                            serviceJson.getString("serviceName"));
+                        if (service != null) {
+                            updateHealthStatus(service, serviceJson.getJSONArray("ips"));
+                        }
+                    }
+                } catch (Exception e) {
+                    Loggers.SRV_LOG.warn("[DOMAIN-UPDATER] Exception while update services: {} from {}, error: {}",
+                        batch, serverIP, e);
+                }
+            }
+        }
+    }
+
     public int getPagedClusterState(String namespaceId, int startPage, int pageSize, String keyword, String containedInstance, List<RaftPeer> raftPeerList, RaftPeerSet raftPeerSet) {
 
         List<RaftPeer> matchList = new ArrayList<>(raftPeerSet.allPeers());
@@ -269,7 +348,72 @@ public class ServiceManager implements RecordListener<Service> {
         Message msg = synchronizer.get(serverIP, UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
         JSONObject serviceJson = JSON.parseObject(msg.getData());
 
-        JSONArray ipList = serviceJson.getJSONArray("ips");
+        Service service = getService(namespaceId, serviceName);
+
+        if (service == null) {
+            return;
+        }
+
+        updateHealthStatus(service, serviceJson.getJSONArray("ips"));
+    }
+
+    /**
+     * Apply a health report of another server
+     * <p>
+     * The statuses of a service are applied directly if the instances are the same as the ones of the
+     * reporter, otherwise the statuses of such services are fetched from the reporter in batches.
+     *
+     * @param report health report
+     */
+    public void onReceiveHealthReport(ServiceHealthReport report) {
+        String source = report.getSource();
+        List<String> mismatched = new ArrayList<>();
+        ConcurrentMap<String, Long> versions = reportVersions.computeIfAbsent(source, s -> new ConcurrentHashMap<>(16));
+
+        for (Map.Entry<String, List<ServiceHealthReport.Entry>> namespace : report.getEntries().entrySet()) {
+            String namespaceId = namespace.getKey();
+            for (ServiceHealthReport.Entry entry : namespace.getValue()) {
+                String key = UtilsAndCommons.assembleFullServiceName(namespaceId, entry.getServiceName());
+                Service service = getService(namespaceId, entry.getServiceName());
+
+                if (service == null) {
+                    versions.remove(key);
+                    continue;
+                }
+
+                Long appliedVersion = versions.get(key);
+                if (appliedVersion != null && appliedVersion > entry.getVersion()) {
+                    continue;
+                }
+                versions.put(key, entry.getVersion());
+
+                InstanceSnapshot snapshot = service.getSnapshot();
+                if (!entry.matches(snapshot)) {
+                    if (Loggers.SRV_LOG.isDebugEnabled()) {
+                        Loggers.SRV_LOG.debug("instances of {} are not consistent, remote: {}, count: {}, local count: {}",
+                            key, source, entry.getInstanceCount(), snapshot.size());
+                    }
+                    mismatched.add(key);
+                    continue;
+                }
+
+                Instance[] instances = snapshot.getCanonicalInstances();
+                boolean changed = false;
+                for (int i = 0; i < instances.length; i++) {
+                    changed |= updateHealthStatus(service, instances[i], entry.isHealthy(i));
+                }
+                if (changed) {
+                    pushService.serviceChanged(service);
+                }
+            }
+        }
+
+        if (!mismatched.isEmpty()) {
+            GlobalExecutor.submitServiceUpdate(new BatchServiceUpdater(source, mismatched));
+        }
+    }
+
+    private void updateHealthStatus(Service service, JSONArray ipList) {
         Map<String, String> ipsMap = new HashMap<>(ipList.size());
         for (int i = 0; i < ipList.size(); i++) {
 
@@ -278,42 +422,39 @@ public class ServiceManager implements RecordListener<Service> {
             ipsMap.put(strings[0], strings[1]);
         }
 
-        Service service = getService(namespaceId, serviceName);
-
-        if (service == null) {
-            return;
-        }
-
         boolean changed = false;
 
         List<Instance> instances = service.allIPs();
         for (Instance instance : instances) {
-
-            boolean valid = Boolean.parseBoolean(ipsMap.get(instance.toIPAddr()));
-            if (valid != instance.isHealthy()) {
-                changed = true;
-                instance.setHealthy(valid);
-                Loggers.EVT_LOG.info("{} {SYNC} IP-{} : {}@{}{}",
-                    serviceName, (instance.isHealthy() ? "ENABLED" : "DISABLED"),
-                    instance.getIp(), instance.getPort(), instance.getClusterName());
-            }
+            changed |= updateHealthStatus(service, instance, Boolean.parseBoolean(ipsMap.get(instance.toIPAddr())));
         }
 
         if (changed) {
             pushService.serviceChanged(service);
         }
 
-        StringBuilder stringBuilder = new StringBuilder();
-        List<Instance> allIps = service.allIPs();
-        for (Instance instance : allIps) {
-            stringBuilder.append(instance.toIPAddr()).append("_").append(instance.isHealthy()).append(",");
-        }
-
         if (changed && Loggers.EVT_LOG.isDebugEnabled()) {
+            StringBuilder stringBuilder = new StringBuilder();
+            List<Instance> allIps = service.allIPs();
+            for (Instance instance : allIps) {
+                stringBuilder.append(instance.toIPAddr()).append("_").append(instance.isHealthy()).append(",");
+            }
+
             Loggers.EVT_LOG.debug("[HEALTH-STATUS-UPDATED] namespace: {}, service: {}, ips: {}",
                 service.getNamespaceId(), service.getName(), stringBuilder.toString());
         }
+    }
+
+    private boolean updateHealthStatus(Service service, Instance instance, boolean valid) {
+        if (valid == instance.isHealthy()) {
+            return false;
+        }
 
+        instance.setHealthy(valid);
+        Loggers.EVT_LOG.info("{} {SYNC} IP-{} : {}@{}{}",
+            service.getName(), (instance.isHealthy() ? "ENABLED" : "DISABLED"),
+            instance.getIp(), instance.getPort(), instance.getClusterName());
+        return true;
     }
 
     public Set<String> getAllServiceNames(String namespaceId) {
@@ -527,21 +668,12 @@ public class ServiceManager implements RecordListener<Service> {
             return null;
         }
 
-        List<String> clusters = new ArrayList<>();
-        clusters.add(cluster);
-
-        List<Instance> ips = service.allIPs(clusters);
-        if (ips == null || ips.isEmpty()) {
+        Cluster clusterObj = service.getClusterMap().get(cluster);
+        if (clusterObj == null) {
             return null;
         }
 
-        for (Instance instance : ips) {
-            if (instance.getIp().equals(ip) && instance.getPort() == port) {
-                return instance;
-            }
-        }
-
-        return null;
+        return clusterObj.getInstance(ip, port);
     }
 
     public List<Instance> updateIpAddresses(Service service, String action, boolean ephemeral, Instance... ips) throws NacosException {
@@ -630,6 +762,25 @@ public class ServiceManager implements RecordListener<Service> {
             }
         }
         serviceMap.get(service.getNamespaceId()).put(service.getName(), service);
+        service.index(getServiceIndex(service.getNamespaceId()));
+    }
+
+    /**
+     * Get the service index of a namespace
+     *
+     * @param namespaceId namespace ID
+     * @return service index, empty if the namespace has no service
+     */
+    public ServiceIndex getServiceIndex(String namespaceId) {
+        ServiceIndex index = serviceIndexes.get(namespaceId);
+        if (index == null) {
+            index = new ServiceIndex();
+            ServiceIndex old = serviceIndexes.putIfAbsent(namespaceId, index);
+            if (old != null) {
+                index = old;
+            }
+        }
+        return index;
     }
 
 
@@ -645,10 +796,10 @@ public class ServiceManager implements RecordListener<Service> {
 
     public List<Service> searchServices(String namespaceId, String regex) {
         List<Service> result = new ArrayList<>();
+        Pattern pattern = Pattern.compile(regex);
         for (Map.Entry<String, Service> entry : chooseServiceMap(namespaceId).entrySet()) {
             Service service = entry.getValue();
-            String key = service.getName() + ":" + ArrayUtils.toString(service.getOwners());
-            if (key.matches(regex)) {
+            if (matches(service, pattern)) {
                 result.add(service);
             }
         }
@@ -679,68 +830,88 @@ public class ServiceManager implements RecordListener<Service> {
     }
 
     public int getPagedService(String namespaceId, int startPage, int pageSize, String keyword, String containedInstance, List<Service> serviceList, boolean hasIpCount) {
+        return getPagedService(namespaceId, startPage, pageSize, keyword, containedInstance, null, serviceList, hasIpCount);
+    }
 
-        List<Service> matchList;
+    /**
+     * Get a page of services, sorted by name
+     *
+     * @param namespaceId       namespace ID
+     * @param startPage         page number, starting from 0
+     * @param pageSize          page size
+     * @param keyword           part of service name to match, or a regular expression
+     * @param containedInstance ip or ip:port of an instance the services should have
+     * @param cursor            nextCursor returned with previous page, which is the grouped name of its last service,
+     *                          a name without group is of default group. startPage is ignored if it is not blank
+     * @param serviceList       list to add services of the page to
+     * @param hasIpCount        only return services having instances
+     * @return count of all matched services
+     */
+    public int getPagedService(String namespaceId, int startPage, int pageSize, String keyword, String containedInstance,
+                               String cursor, List<Service> serviceList, boolean hasIpCount) {
 
-        if (chooseServiceMap(namespaceId) == null) {
+        Map<String, Service> services = chooseServiceMap(namespaceId);
+        if (services == null) {
             return 0;
         }
 
-        if (StringUtils.isNotBlank(keyword)) {
-            matchList = searchServices(namespaceId, ".*" + keyword + ".*");
-        } else {
-            matchList = new ArrayList<>(chooseServiceMap(namespaceId).values());
-        }
-
-        if (!CollectionUtils.isEmpty(matchList) && hasIpCount) {
-            matchList = matchList.stream().filter(s -> !CollectionUtils.isEmpty(s.allIPs())).collect(Collectors.toList());
-        }
+        ServiceIndex index = getServiceIndex(namespaceId);
+        Collection<String> candidates = StringUtils.isNotBlank(containedInstance) ?
+            new TreeSet<>(index.getServicesByAddress(containedInstance)) : index.getServiceNames();
 
-        if (StringUtils.isNotBlank(containedInstance)) {
+        // plain service names are matched as a part of name, without the cost of regular expressions:
+        boolean literal = StringUtils.isBlank(keyword) || keyword.matches(SERVICE_KEYWORD_SYNTAX);
+        Pattern pattern = literal ? null : Pattern.compile(".*" + keyword + ".*");
 
-            boolean contained;
-            for (int i = 0; i < matchList.size(); i++) {
-                Service service = matchList.get(i);
-                contained = false;
-                List<Instance> instances = service.allIPs();
-                for (Instance instance : instances) {
-                    if (containedInstance.contains(":")) {
-                        if (StringUtils.equals(instance.getIp() + ":" + instance.getPort(), containedInstance)) {
-                            contained = true;
-                            break;
-                        }
-                    } else {
-                        if (StringUtils.equals(instance.getIp(), containedInstance)) {
-                            contained = true;
-                            break;
-                        }
-                    }
-                }
-                if (!contained) {
-                    matchList.remove(i);
-                    i--;
-                }
-            }
+        boolean hasCursor = StringUtils.isNotBlank(cursor);
+        if (hasCursor && !cursor.contains(Constants.SERVICE_INFO_SPLITER)) {
+            cursor = NamingUtils.getGroupedName(cursor, Constants.DEFAULT_GROUP);
         }
+        int skip = hasCursor ? 0 : startPage * pageSize;
+        int total = 0;
+        List<Service> head = new ArrayList<>();
+        List<Service> page = new ArrayList<>();
 
-        if (pageSize >= matchList.size()) {
-            serviceList.addAll(matchList);
-            return matchList.size();
-        }
+        for (String serviceName : candidates) {
+            if (literal && StringUtils.isNotBlank(keyword) && !serviceName.contains(keyword)) {
+                continue;
+            }
 
-        for (int i = 0; i < matchList.size(); i++) {
-            if (i < startPage * pageSize) {
+            Service service = services.get(serviceName);
+            if (service == null) {
+                continue;
+            }
+            if (pattern != null && !matches(service, pattern)) {
+                continue;
+            }
+            if (hasIpCount && service.allIPs().isEmpty()) {
                 continue;
             }
 
-            serviceList.add(matchList.get(i));
+            total++;
+            if (head.size() < pageSize) {
+                head.add(service);
+            }
 
-            if (serviceList.size() >= pageSize) {
-                break;
+            if (hasCursor && serviceName.compareTo(cursor) <= 0) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            if (page.size() < pageSize) {
+                page.add(service);
             }
         }
 
-        return matchList.size();
+        serviceList.addAll(!hasCursor && pageSize >= total ? head : page);
+        return total;
+    }
+
+    private boolean matches(Service service, Pattern pattern) {
+        String key = service.getName() + ":" + ArrayUtils.toString(service.getOwners());
+        return pattern.matcher(key).matches();
     }
 
     public static class ServiceChecksum {
@@ -767,8 +938,19 @@ public class ServiceManager implements RecordListener<Service> {
         }
     }
 
+    /**
+     * Report health statuses of responsible services to the other servers.
+     * <p>
+     * Only services whose membership or health statuses changed since the last round are reported, all
+     * services are reported again every {@link #FULL_REPORT_ROUNDS} rounds in case a report is lost or a
+     * server restarts. Servers not supporting health reports still receive checksums of all services.
+     */
     private class ServiceReporter implements Runnable {
 
+        private Map<String, ServiceHealthReport.Entry> reported = new HashMap<>(16);
+
+        private int round = 0;
+
         @Override
         public void run() {
             try {
@@ -780,10 +962,18 @@ public class ServiceManager implements RecordListener<Service> {
                     return;
                 }
 
-                for (String namespaceId : allServiceNames.keySet()) {
+                List<Server> sameSiteServers = serverListManager.getServers();
 
-                    ServiceChecksum checksum = new ServiceChecksum(namespaceId);
+                if (sameSiteServers == null || sameSiteServers.size() <= 0) {
+                    return;
+                }
+
+                boolean fullReport = round++ % FULL_REPORT_ROUNDS == 0;
+                long now = System.currentTimeMillis();
+                ServiceHealthReport report = new ServiceHealthReport(NetUtils.localServer());
+                Map<String, ServiceHealthReport.Entry> current = new HashMap<>(reported.size() + 16);
 
+                for (String namespaceId : allServiceNames.keySet()) {
                     for (String serviceName : allServiceNames.get(namespaceId)) {
                         if (!distroMapper.responsible(serviceName)) {
                             continue;
@@ -795,25 +985,44 @@ public class ServiceManager implements RecordListener<Service> {
                             continue;
                         }
 
-                        service.recalculateChecksum();
+                        String key = UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName);
+                        ServiceHealthReport.Entry last = reported.get(key);
+                        ServiceHealthReport.Entry entry = ServiceHealthReport.Entry.of(serviceName,
+                            last == null ? now : Math.max(now, last.getVersion() + 1), service.getSnapshot());
+
+                        if (entry.sameStatuses(last)) {
+                            entry = last;
+                            if (!fullReport) {
+                                current.put(key, entry);
+                                continue;
+                            }
+                        }
 
-                        checksum.addItem(serviceName, service.getChecksum());
+                        current.put(key, entry);
+                        report.add(namespaceId, entry);
                     }
+                }
+                reported = current;
 
-                    Message msg = new Message();
-
-                    msg.setData(JSON.toJSONString(checksum));
-
-                    List<Server> sameSiteServers = serverListManager.getServers();
+                byte[] data = report.isEmpty() ? null : report.encode();
+                Map<String, Message> checksums = null;
 
-                    if (sameSiteServers == null || sameSiteServers.size() <= 0) {
-                        return;
+                for (Server server : sameSiteServers) {
+                    if (server.getKey().equals(NetUtils.localServer())) {
+                        continue;
                     }
 
-                    for (Server server : sameSiteServers) {
-                        if (server.getKey().equals(NetUtils.localServer())) {
-                            continue;
+                    if (synchronizer.supportsHealthReport(server.getKey())) {
+                        if (data != null) {
+                            synchronizer.sendHealthReport(server.getKey(), data);
                         }
+                        continue;
+                    }
+
+                    if (checksums == null) {
+                        checksums = buildChecksums(allServiceNames);
+                    }
+                    for (Message msg : checksums.values()) {
                         synchronizer.send(server.getKey(), msg);
                     }
                 }
@@ -823,6 +1032,37 @@ public class ServiceManager implements RecordListener<Service> {
                 UtilsAndCommons.SERVICE_SYNCHRONIZATION_EXECUTOR.schedule(this, switchDomain.getServiceStatusSynchronizationPeriodMillis(), TimeUnit.MILLISECONDS);
             }
         }
+
+        private Map<String, Message> buildChecksums(Map<String, Set<String>> allServiceNames) {
+            Map<String, Message> checksums = new HashMap<>(allServiceNames.size());
+            for (String namespaceId : allServiceNames.keySet()) {
+
+                ServiceChecksum checksum = new ServiceChecksum(namespaceId);
+
+                for (String serviceName : allServiceNames.get(namespaceId)) {
+                    if (!distroMapper.responsible(serviceName)) {
+                        continue;
+                    }
+
+                    Service service = getService(namespaceId, serviceName);
+
+                    if (service == null) {
+                        continue;
+                    }
+
+                    service.recalculateChecksum();
+
+                    checksum.addItem(serviceName, service.getChecksum());
+                }
+
+                Message msg = new Message();
+
+                msg.setData(JSON.toJSONString(checksum));
+
+                checksums.put(namespaceId, msg);
+            }
+            return checksums;
+        }
     }
 
     private static class ServiceKey {
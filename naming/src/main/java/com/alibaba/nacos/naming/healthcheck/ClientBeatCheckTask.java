@@ -27,9 +27,9 @@ import com.alibaba.nacos.naming.misc.*;
 import com.alibaba.nacos.naming.push.PushService;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.Response;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.net.HttpURLConnection;
-import java.util.List;
 
 
 /**
@@ -56,6 +56,11 @@ public class ClientBeatCheckTask implements Runnable {
         return SpringContext.getAppContext().getBean(DistroMapper.class);
     }
 
+    @JSONField(serialize = false)
+    public ApplicationEventPublisher getEventPublisher() {
+        return SpringContext.getAppContext();
+    }
+
     public GlobalConfig getGlobalConfig() {
         return SpringContext.getAppContext().getBean(GlobalConfig.class);
     }
@@ -71,48 +76,63 @@ public class ClientBeatCheckTask implements Runnable {
                 return;
             }
             // 注释：对实例判断，最后心跳时间和当前时间对比，是否已经超时，就直接剔除
-            List<Instance> instances = service.allIPs(true);
-
-            // first set health status of instances:
-            for (Instance instance : instances) {
-                if (System.currentTimeMillis() - instance.getLastBeat() > instance.getInstanceHeartBeatTimeOut()) {
-                    if (!instance.isMarked()) {
-                        if (instance.isHealthy()) {
-                            instance.setHealthy(false);
-                            Loggers.EVT_LOG.info("{POS} {IP-DISABLED} valid: {}:{}@{}@{}, region: {}, msg: client timeout after {}, last beat: {}",
-                                instance.getIp(), instance.getPort(), instance.getClusterName(), service.getName(),
-                                UtilsAndCommons.LOCALHOST_SITE, instance.getInstanceHeartBeatTimeOut(), instance.getLastBeat());
-                            getPushService().serviceChanged(service);
-                            SpringContext.getAppContext().publishEvent(new InstanceHeartbeatTimeoutEvent(this, instance));
-                        }
-                    }
-                }
+            long now = System.currentTimeMillis();
+            for (Instance instance : service.allIPs(true)) {
+                check(instance, now);
             }
+        } catch (Exception e) {
+            Loggers.SRV_LOG.warn("Exception while processing client beat time out.", e);
+        }
+    }
 
-            if (!getGlobalConfig().isExpireInstance()) {
-                return;
-            }
+    /**
+     * Update status of an ephemeral instance, remove it if it has been expired
+     *
+     * @param instance instance to check
+     * @param now      current time in milliseconds
+     * @return time in milliseconds when the instance should be checked again
+     */
+    public long check(Instance instance, long now) {
+
+        if (!getDistroMapper().responsible(service.getName())) {
+            return now + instance.getInstanceHeartBeatTimeOut();
+        }
 
-            // then remove obsolete instances:
-            for (Instance instance : instances) {
+        long lastBeat = instance.getLastBeat();
 
-                if (instance.isMarked()) {
-                    continue;
-                }
+        // first set health status of instance:
+        if (now - lastBeat > instance.getInstanceHeartBeatTimeOut() && !instance.isMarked() && instance.isHealthy()) {
+            instance.setHealthy(false);
+            Loggers.EVT_LOG.info("{POS} {IP-DISABLED} valid: {}:{}@{}@{}, region: {}, msg: client timeout after {}, last beat: {}",
+                instance.getIp(), instance.getPort(), instance.getClusterName(), service.getName(),
+                UtilsAndCommons.LOCALHOST_SITE, instance.getInstanceHeartBeatTimeOut(), lastBeat);
+            getPushService().serviceChanged(service);
+            getEventPublisher().publishEvent(new InstanceHeartbeatTimeoutEvent(this, instance));
+        }
 
-                if (System.currentTimeMillis() - instance.getLastBeat() > instance.getIpDeleteTimeout()) {
-                    // delete instance
-                    Loggers.SRV_LOG.info("[AUTO-DELETE-IP] service: {}, ip: {}", service.getName(), JSON.toJSONString(instance));
-                    deleteIP(instance);
-                }
-            }
+        boolean expireInstance = getGlobalConfig().isExpireInstance();
 
-        } catch (Exception e) {
-            Loggers.SRV_LOG.warn("Exception while processing client beat time out.", e);
+        if (instance.isMarked()) {
+            return now + instance.getInstanceHeartBeatTimeOut();
         }
 
-    }
+        if (now - lastBeat <= instance.getInstanceHeartBeatTimeOut()) {
+            return lastBeat + instance.getInstanceHeartBeatTimeOut() + 1;
+        }
+
+        if (!expireInstance) {
+            return now + instance.getInstanceHeartBeatTimeOut();
+        }
 
+        // then remove obsolete instance:
+        if (now - lastBeat > instance.getIpDeleteTimeout()) {
+            Loggers.SRV_LOG.info("[AUTO-DELETE-IP] service: {}, ip: {}", service.getName(), JSON.toJSONString(instance));
+            deleteIP(instance);
+            return now + instance.getInstanceHeartBeatTimeOut();
+        }
+
+        return lastBeat + instance.getIpDeleteTimeout() + 1;
+    }
 
     private void deleteIP(Instance instance) {
 
@@ -0,0 +1,147 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.healthcheck;
+
+import com.alibaba.nacos.common.util.TimingWheel;
+import com.alibaba.nacos.naming.core.Cluster;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expire client beats of all ephemeral instances with one timing wheel.
+ * <p>
+ * Every ephemeral instance has one entry in the wheel, expiring when the instance should be checked again,
+ * see {@link ClientBeatCheckTask#check(Instance, long)}. A client beat only refreshes the last beat of the
+ * instance; the entry reads it when it expires and is re-armed at the new deadline, so beats cost no wheel
+ * operation and the work of each tick is proportional to the entries expiring in it.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+public class ClientBeatExpiryReactor {
+
+    private static final long TICK_MILLIS = 500L;
+
+    private static final int WHEEL_SIZE = 128;
+
+    private static final TimingWheel<Entry> WHEEL = new TimingWheel<>(WHEEL_SIZE, TICK_MILLIS, System.currentTimeMillis());
+
+    private static final ConcurrentMap<String, Entry> ENTRIES = new ConcurrentHashMap<>(1024);
+
+    private static final ScheduledExecutorService EXECUTOR = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("com.alibaba.nacos.naming.health.beat.expiry");
+            return thread;
+        }
+    });
+
+    static {
+        EXECUTOR.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    tick(System.currentTimeMillis());
+                } catch (Throwable e) {
+                    Loggers.SRV_LOG.error("[CLIENT-BEAT] failed to expire client beats", e);
+                }
+            }
+        }, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Track an ephemeral instance, or refresh the instance object of a tracked one
+     *
+     * @param cluster  cluster of the instance
+     * @param instance instance to track
+     */
+    public static void arm(Cluster cluster, Instance instance) {
+        String key = entryKey(cluster, instance);
+        Entry entry = ENTRIES.get(key);
+        if (entry != null) {
+            entry.instance = instance;
+            return;
+        }
+
+        entry = new Entry(cluster.getService().getClientBeatCheckTask(), instance);
+        if (ENTRIES.putIfAbsent(key, entry) == null) {
+            WHEEL.add(entry, instance.getLastBeat() + instance.getInstanceHeartBeatTimeOut() + 1);
+        }
+    }
+
+    /**
+     * Stop tracking an instance
+     *
+     * @param cluster  cluster of the instance
+     * @param instance instance removed
+     */
+    public static void disarm(Cluster cluster, Instance instance) {
+        Entry entry = ENTRIES.remove(entryKey(cluster, instance));
+        if (entry != null) {
+            entry.removed = true;
+        }
+    }
+
+    public static int size() {
+        return ENTRIES.size();
+    }
+
+    static void tick(long now) {
+        for (Entry entry : WHEEL.advance(now)) {
+            if (entry.removed) {
+                continue;
+            }
+
+            long next;
+            try {
+                next = entry.task.check(entry.instance, now);
+            } catch (Exception e) {
+                Loggers.SRV_LOG.warn("Exception while processing client beat time out.", e);
+                next = now + entry.instance.getInstanceHeartBeatTimeOut();
+            }
+            WHEEL.add(entry, next);
+        }
+    }
+
+    private static String entryKey(Cluster cluster, Instance instance) {
+        return cluster.getService().getNamespaceId() + UtilsAndCommons.NAMESPACE_SERVICE_CONNECTOR
+            + cluster.getService().getName() + UtilsAndCommons.NAMESPACE_SERVICE_CONNECTOR + instance.getDatumKey();
+    }
+
+    private static class Entry {
+
+        private final ClientBeatCheckTask task;
+
+        private volatile Instance instance;
+
+        private volatile boolean removed = false;
+
+        Entry(ClientBeatCheckTask task, Instance instance) {
+            this.task = task;
+            this.instance = instance;
+        }
+    }
+}
@@ -33,14 +33,26 @@ import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.nacos.naming.misc.Loggers.SRV_LOG;
 
 /**
  * HTTP health check processor
+ * <p>
+ * Connections to checked instances are kept alive in a bounded pool and reused by later rounds. The probes
+ * of a round are spread over the first half of its interval in slices, and the number of probes in flight
+ * is limited, extra probes wait until earlier ones finish.
  *
  * @author xuanyin.zy
  */
@@ -55,15 +67,46 @@ public class HttpHealthCheckProcessor implements HealthCheckProcessor {
 
     private static AsyncHttpClient asyncHttpClient;
 
+    private static final String TYPE = "HTTP";
+
+    private static final String RESULT_OK = "ok";
+
+    private static final String RESULT_FAIL = "fail";
+
+    private static final String RESULT_ERROR = "error";
+
     private static final int CONNECT_TIMEOUT_MS = 500;
 
+    private static final int MAX_CONNECTIONS_PER_HOST = 4;
+
+    private static final int IDLE_CONNECTION_IN_POOL_TIMEOUT_MS = (int) TimeUnit.SECONDS.toMillis(30L);
+
+    private static final int MAX_IN_FLIGHT = 4096;
+
+    private static final int MAX_SLICES = 10;
+
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+
+    private static final Queue<Probe> WAITING = new ConcurrentLinkedQueue<>();
+
+    private static final ScheduledExecutorService PACER = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("com.alibaba.nacos.naming.health.http.pacer");
+            return thread;
+        }
+    });
+
     static {
         try {
             AsyncHttpClientConfig.Builder builder = new AsyncHttpClientConfig.Builder();
 
             builder.setMaximumConnectionsTotal(-1);
-            builder.setMaximumConnectionsPerHost(-1);
-            builder.setAllowPoolingConnection(false);
+            builder.setMaximumConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+            builder.setAllowPoolingConnection(true);
+            builder.setIdleConnectionInPoolTimeoutInMs(IDLE_CONNECTION_IN_POOL_TIMEOUT_MS);
             builder.setFollowRedirects(false);
             builder.setIdleConnectionTimeoutInMs(CONNECT_TIMEOUT_MS);
             builder.setConnectionTimeoutInMs(CONNECT_TIMEOUT_MS);
@@ -79,7 +122,7 @@ public class HttpHealthCheckProcessor implements HealthCheckProcessor {
 
     @Override
     public String getType() {
-        return "HTTP";
+        return TYPE;
     }
 
     @Override
@@ -93,66 +136,159 @@ public class HttpHealthCheckProcessor implements HealthCheckProcessor {
             return;
         }
 
-        Cluster cluster = task.getCluster();
-
-        for (Instance ip : ips) {
-            try {
+        // spread probes over half of the interval, so the round is done before next one begins:
+        final int slices = Math.min(ips.size(), MAX_SLICES);
+        long sliceDelay = task.getCheckRTNormalized() / 2 / slices;
+        for (int i = 0; i < slices; i++) {
+            final List<Instance> slice = new ArrayList<>(ips.size() / slices + 1);
+            for (int j = i; j < ips.size(); j += slices) {
+                slice.add(ips.get(j));
+            }
 
-                if (ip.isMarked()) {
-                    if (SRV_LOG.isDebugEnabled()) {
-                        SRV_LOG.debug("http check, ip is marked as to skip health check, ip: {}" + ip.getIp());
-                    }
-                    continue;
+            if (i == 0) {
+                check(task, slice);
+                continue;
+            }
+            PACER.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    check(task, slice);
                 }
+            }, sliceDelay * i, TimeUnit.MILLISECONDS);
+        }
+    }
 
-                if (!ip.markChecking()) {
-                    SRV_LOG.warn("http check started before last one finished, service: {}:{}:{}",
-                        task.getCluster().getService().getName(), task.getCluster().getName(), ip.getIp());
+    private void check(HealthCheckTask task, List<Instance> ips) {
+        if (task.isCancelled()) {
+            return;
+        }
 
-                    healthCheckCommon.reEvaluateCheckRT(task.getCheckRTNormalized() * 2, task, switchDomain.getHttpHealthParams());
-                    continue;
+        for (Instance ip : ips) {
+            if (ip.isMarked()) {
+                if (SRV_LOG.isDebugEnabled()) {
+                    SRV_LOG.debug("http check, ip is marked as to skip health check, ip: {}" + ip.getIp());
                 }
+                continue;
+            }
 
-                AbstractHealthChecker.Http healthChecker = (AbstractHealthChecker.Http) cluster.getHealthChecker();
+            if (!ip.markChecking()) {
+                SRV_LOG.warn("http check started before last one finished, service: {}:{}:{}",
+                    task.getCluster().getService().getName(), task.getCluster().getName(), ip.getIp());
 
-                int ckPort = cluster.isUseIPPort4Check() ? ip.getPort() : cluster.getDefCkport();
-                URL host = new URL("http://" + ip.getIp() + ":" + ckPort);
-                URL target = new URL(host, healthChecker.getPath());
+                healthCheckCommon.reEvaluateCheckRT(task.getCheckRTNormalized() * 2, task, switchDomain.getHttpHealthParams());
+                continue;
+            }
 
-                AsyncHttpClient.BoundRequestBuilder builder = asyncHttpClient.prepareGet(target.toString());
-                Map<String, String> customHeaders = healthChecker.getCustomHeaders();
-                for (Map.Entry<String, String> entry : customHeaders.entrySet()) {
-                    if ("Host".equals(entry.getKey())) {
-                        builder.setVirtualHost(entry.getValue());
-                        continue;
-                    }
+            Probe probe = new Probe(ip, task);
+            if (IN_FLIGHT.incrementAndGet() > MAX_IN_FLIGHT) {
+                IN_FLIGHT.decrementAndGet();
+                WAITING.add(probe);
+                // the in flight probes may have all finished before the probe is queued:
+                sendWaiting();
+                continue;
+            }
+            send(probe);
+        }
+    }
+
+    private void sendWaiting() {
+        while (!WAITING.isEmpty()) {
+            if (IN_FLIGHT.incrementAndGet() > MAX_IN_FLIGHT) {
+                IN_FLIGHT.decrementAndGet();
+                return;
+            }
 
-                    builder.setHeader(entry.getKey(), entry.getValue());
+            Probe probe = WAITING.poll();
+            if (probe == null) {
+                IN_FLIGHT.decrementAndGet();
+                return;
+            }
+            send(probe);
+        }
+    }
+
+    private void finish(Probe probe, String result) {
+        MetricsMonitor.getHealthCheckTimer(TYPE, result).record(System.currentTimeMillis() - probe.startTime,
+            TimeUnit.MILLISECONDS);
+        IN_FLIGHT.decrementAndGet();
+        sendWaiting();
+    }
+
+    private void send(Probe probe) {
+        Instance ip = probe.ip;
+        HealthCheckTask task = probe.task;
+        Cluster cluster = task.getCluster();
+
+        try {
+            AbstractHealthChecker.Http healthChecker = (AbstractHealthChecker.Http) cluster.getHealthChecker();
+
+            int ckPort = cluster.isUseIPPort4Check() ? ip.getPort() : cluster.getDefCkport();
+            URL host = new URL("http://" + ip.getIp() + ":" + ckPort);
+            URL target = new URL(host, healthChecker.getPath());
+
+            AsyncHttpClient.BoundRequestBuilder builder = asyncHttpClient.prepareGet(target.toString());
+            Map<String, String> customHeaders = healthChecker.getCustomHeaders();
+            for (Map.Entry<String, String> entry : customHeaders.entrySet()) {
+                if ("Host".equals(entry.getKey())) {
+                    builder.setVirtualHost(entry.getValue());
+                    continue;
                 }
 
-                builder.execute(new HttpHealthCheckCallback(ip, task));
-                MetricsMonitor.getHttpHealthCheckMonitor().incrementAndGet();
-            } catch (Throwable e) {
-                ip.setCheckRT(switchDomain.getHttpHealthParams().getMax());
-                healthCheckCommon.checkFail(ip, task, "http:error:" + e.getMessage());
-                healthCheckCommon.reEvaluateCheckRT(switchDomain.getHttpHealthParams().getMax(), task, switchDomain.getHttpHealthParams());
+                builder.setHeader(entry.getKey(), entry.getValue());
             }
+
+            probe.startTime = System.currentTimeMillis();
+            builder.execute(new HttpHealthCheckCallback(probe));
+            MetricsMonitor.getHttpHealthCheckMonitor().incrementAndGet();
+        } catch (Throwable e) {
+            ip.setCheckRT(switchDomain.getHttpHealthParams().getMax());
+            healthCheckCommon.checkFail(ip, task, "http:error:" + e.getMessage());
+            healthCheckCommon.reEvaluateCheckRT(switchDomain.getHttpHealthParams().getMax(), task, switchDomain.getHttpHealthParams());
+            finish(probe, RESULT_ERROR);
         }
     }
 
-    private class HttpHealthCheckCallback extends AsyncCompletionHandler<Integer> {
-        private Instance ip;
-        private HealthCheckTask task;
+    private static class Probe {
+
+        private final Instance ip;
+
+        private final HealthCheckTask task;
 
         private long startTime = System.currentTimeMillis();
 
-        public HttpHealthCheckCallback(Instance ip, HealthCheckTask task) {
+        Probe(Instance ip, HealthCheckTask task) {
             this.ip = ip;
             this.task = task;
         }
+    }
+
+    private class HttpHealthCheckCallback extends AsyncCompletionHandler<Integer> {
+        private Probe probe;
+        private Instance ip;
+        private HealthCheckTask task;
+
+        private long startTime;
+
+        public HttpHealthCheckCallback(Probe probe) {
+            this.probe = probe;
+            this.ip = probe.ip;
+            this.task = probe.task;
+            this.startTime = probe.startTime;
+        }
 
         @Override
         public Integer onCompleted(Response response) throws Exception {
+            String result = RESULT_ERROR;
+            try {
+                int httpCode = checkResponse(response);
+                result = HttpURLConnection.HTTP_OK == httpCode ? RESULT_OK : RESULT_FAIL;
+                return httpCode;
+            } finally {
+                finish(probe, result);
+            }
+        }
+
+        private Integer checkResponse(Response response) {
             ip.setCheckRT(System.currentTimeMillis() - startTime);
 
             int httpCode = response.getStatusCode();
@@ -174,6 +310,14 @@ public class HttpHealthCheckProcessor implements HealthCheckProcessor {
 
         @Override
         public void onThrowable(Throwable t) {
+            try {
+                checkThrowable(t);
+            } finally {
+                finish(probe, RESULT_ERROR);
+            }
+        }
+
+        private void checkThrowable(Throwable t) {
             ip.setCheckRT(System.currentTimeMillis() - startTime);
 
             Throwable cause = t;
@@ -15,6 +15,7 @@
  */
 package com.alibaba.nacos.naming.healthcheck;
 
+import com.alibaba.nacos.common.util.TimingWheel;
 import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.misc.Loggers;
@@ -24,6 +25,7 @@ import org.apache.commons.collections.CollectionUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
@@ -32,16 +34,22 @@ import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.alibaba.nacos.naming.misc.Loggers.SRV_LOG;
 
 /**
  * TCP health check processor
+ * <p>
+ * Instances are sharded to several selector loops by address. Every loop owns its selector, its queue of
+ * probes and one timing wheel of connect deadlines, so probes are registered and expired without locks or
+ * per probe tasks. A loop keeps a bounded number of connects in flight and admits queued probes as earlier
+ * ones finish, which paces large check rounds instead of opening all connections at once.
  *
  * @author nacos
  */
 @Component
-public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
+public class TcpSuperSenseProcessor implements HealthCheckProcessor {
 
     @Autowired
     private HealthCheckCommon healthCheckCommon;
@@ -51,10 +59,6 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
 
     public static final int CONNECT_TIMEOUT_MS = 500;
 
-    private Map<String, BeatKey> keyMap = new ConcurrentHashMap<>();
-
-    private BlockingQueue<Beat> taskQueue = new LinkedBlockingQueue<Beat>();
-
     /**
      * this value has been carefully tuned, do not modify unless you're confident
      */
@@ -66,40 +70,45 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
      */
     private static final long TCP_KEEP_ALIVE_MILLIS = 0;
 
-    private static ScheduledExecutorService TCP_CHECK_EXECUTOR
-        = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+    /**
+     * maximum connects in flight of one selector loop, further probes wait in its queue
+     */
+    private static final int MAX_CONNECTS_PER_LOOP = 2048;
+
+    private static final long TICK_MILLIS = 50L;
+
+    private static final int WHEEL_SIZE = 64;
+
+    private static final long MAX_WAIT_TIME_MILLIS = 500L;
+
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30L);
+
+    private static final int READ_BUFFER_SIZE = 128;
+
+    private static ScheduledExecutorService NIO_EXECUTOR
+        = new ScheduledThreadPoolExecutor(NIO_THREAD_COUNT, new ThreadFactory() {
         @Override
         public Thread newThread(Runnable r) {
-            Thread t = new Thread(r);
-            t.setName("nacos.naming.tcp.check.worker");
-            t.setDaemon(true);
-            return t;
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("nacos.supersense.checker");
+            return thread;
         }
     });
 
-    private static ScheduledExecutorService NIO_EXECUTOR
-        = Executors.newScheduledThreadPool(NIO_THREAD_COUNT,
-        new ThreadFactory() {
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r);
-                thread.setDaemon(true);
-                thread.setName("nacos.supersense.checker");
-                return thread;
-            }
-        }
-    );
-
-    private Selector selector;
+    private final SelectorLoop[] loops = new SelectorLoop[NIO_THREAD_COUNT];
 
     public TcpSuperSenseProcessor() {
         try {
-            selector = Selector.open();
-
-            TCP_CHECK_EXECUTOR.submit(this);
-
+            for (int i = 0; i < loops.length; i++) {
+                loops[i] = new SelectorLoop();
+            }
         } catch (Exception e) {
-            throw new IllegalStateException("Error while initializing SuperSense(TM).");
+            throw new IllegalStateException("Error while initializing SuperSense(TM).", e);
+        }
+
+        for (SelectorLoop loop : loops) {
+            NIO_EXECUTOR.submit(loop);
         }
     }
 
@@ -132,98 +141,247 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
             }
 
             Beat beat = new Beat(ip, task);
-            taskQueue.add(beat);
+            loops[shard(ip)].submit(beat);
             MetricsMonitor.getTcpHealthCheckMonitor().incrementAndGet();
         }
     }
 
-    private void processTask() throws Exception {
-        Collection<Callable<Void>> tasks = new LinkedList<>();
-        do {
-            Beat beat = taskQueue.poll(CONNECT_TIMEOUT_MS / 2, TimeUnit.MILLISECONDS);
-            if (beat == null) {
-                return;
-            }
-
-            tasks.add(new TaskProcessor(beat));
-        } while (taskQueue.size() > 0 && tasks.size() < NIO_THREAD_COUNT * 64);
+    private int shard(Instance ip) {
+        return ((ip.getIp().hashCode() * 31 + ip.getPort()) & Integer.MAX_VALUE) % loops.length;
+    }
 
-        for (Future<?> f : NIO_EXECUTOR.invokeAll(tasks)) {
-            f.get();
+    private static void close(SelectionKey key) {
+        try {
+            key.cancel();
+            key.channel().close();
+        } catch (Exception ignore) {
         }
     }
 
-    @Override
-    public void run() {
-        while (true) {
-            try {
-                processTask();
+    private class SelectorLoop implements Runnable {
 
-                int readyCount = selector.selectNow();
-                if (readyCount <= 0) {
-                    continue;
+        private final Selector selector;
+
+        private final Queue<Beat> taskQueue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicBoolean wakenUp = new AtomicBoolean(false);
+
+        private final TimingWheel<Beat> deadlines = new TimingWheel<>(WHEEL_SIZE, TICK_MILLIS, System.currentTimeMillis());
+
+        /**
+         * connection state of every instance checked by this loop, accessed by the loop thread only
+         */
+        private final Map<String, BeatKey> keyMap = new HashMap<>();
+
+        private int connecting = 0;
+
+        private long lastSweepTime = System.currentTimeMillis();
+
+        SelectorLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        void submit(Beat beat) {
+            taskQueue.add(beat);
+            if (wakenUp.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    wakenUp.set(false);
+                    if (taskQueue.isEmpty() || connecting >= MAX_CONNECTS_PER_LOOP) {
+                        selector.select(TICK_MILLIS);
+                    } else {
+                        selector.selectNow();
+                    }
+
+                    Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+                    while (iter.hasNext()) {
+                        SelectionKey key = iter.next();
+                        iter.remove();
+
+                        processKey(key);
+                    }
+
+                    long now = System.currentTimeMillis();
+                    expire(now);
+                    connect(now);
+                    sweep(now);
+                } catch (Throwable e) {
+                    SRV_LOG.error("[HEALTH-CHECK] error while processing NIO task", e);
                 }
+            }
+        }
 
-                Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
-                while (iter.hasNext()) {
-                    SelectionKey key = iter.next();
-                    iter.remove();
+        private void connect(long now) {
+            while (connecting < MAX_CONNECTS_PER_LOOP) {
+                Beat beat = taskQueue.poll();
+                if (beat == null) {
+                    return;
+                }
 
-                    NIO_EXECUTOR.execute(new PostProcessor(key));
+                long waited = now - beat.getStartTime();
+                if (waited > MAX_WAIT_TIME_MILLIS) {
+                    Loggers.SRV_LOG.warn("beat task waited too long: " + waited + "ms");
                 }
-            } catch (Throwable e) {
-                SRV_LOG.error("[HEALTH-CHECK] error while processing NIO task", e);
+
+                connect(beat, now);
             }
         }
-    }
 
-    public class PostProcessor implements Runnable {
-        SelectionKey key;
+        private void connect(Beat beat, long now) {
+            Instance instance = beat.getIp();
+            Cluster cluster = beat.getTask().getCluster();
 
-        public PostProcessor(SelectionKey key) {
-            this.key = key;
+            BeatKey beatKey = keyMap.get(beat.toString());
+            if (beatKey != null && beatKey.key != null && beatKey.key.isValid()) {
+                if (now - beatKey.birthTime < TCP_KEEP_ALIVE_MILLIS) {
+                    instance.setBeingChecked(false);
+                    return;
+                }
+
+                close(beatKey.key);
+            }
+
+            SocketChannel channel = null;
+            try {
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                // only by setting this can we make the socket close event asynchronous
+                channel.socket().setSoLinger(false, -1);
+                channel.socket().setReuseAddress(true);
+                channel.socket().setKeepAlive(true);
+                channel.socket().setTcpNoDelay(true);
+
+                int port = cluster.isUseIPPort4Check() ? instance.getPort() : cluster.getDefCkport();
+                beat.setStartTime(now);
+                boolean connected = channel.connect(new InetSocketAddress(instance.getIp(), port));
+
+                SelectionKey key = channel.register(selector,
+                    connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT | SelectionKey.OP_READ);
+                key.attach(beat);
+                beat.key = key;
+
+                if (beatKey == null) {
+                    beatKey = new BeatKey();
+                    keyMap.put(beat.toString(), beatKey);
+                }
+                beatKey.key = key;
+                beatKey.birthTime = now;
+
+                if (connected) {
+                    beat.finishCheck(true, false, System.currentTimeMillis() - now, "tcp:ok+");
+                    return;
+                }
+
+                connecting++;
+                beat.connecting = true;
+                deadlines.add(beat, now + CONNECT_TIMEOUT_MS);
+            } catch (Exception e) {
+                beat.finishCheck(false, false, switchDomain.getTcpHealthParams().getMax(), "tcp:error:" + e.getMessage());
+
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (Exception ignore) {
+                    }
+                }
+            }
         }
 
-        @Override
-        public void run() {
+        private void processKey(SelectionKey key) {
             Beat beat = (Beat) key.attachment();
             SocketChannel channel = (SocketChannel) key.channel();
             try {
                 if (!beat.isHealthy()) {
                     //invalid beat means this server is no longer responsible for the current service
-                    key.cancel();
-                    key.channel().close();
-
-                    beat.finishCheck();
+                    close(key);
+                    if (finishConnect(beat)) {
+                        beat.finishCheck();
+                    }
                     return;
                 }
 
                 if (key.isValid() && key.isConnectable()) {
                     //connected
                     channel.finishConnect();
-                    beat.finishCheck(true, false, System.currentTimeMillis() - beat.getTask().getStartTime(), "tcp:ok+");
+                    key.interestOps(SelectionKey.OP_READ);
+                    if (finishConnect(beat)) {
+                        beat.finishCheck(true, false, System.currentTimeMillis() - beat.getTask().getStartTime(), "tcp:ok+");
+                    }
                 }
 
                 if (key.isValid() && key.isReadable()) {
                     //disconnected
-                    ByteBuffer buffer = ByteBuffer.allocate(128);
+                    ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
                     if (channel.read(buffer) == -1) {
-                        key.cancel();
-                        key.channel().close();
+                        close(key);
                     } else {
                         // not terminate request, ignore
                     }
                 }
             } catch (ConnectException e) {
                 // unable to connect, possibly port not opened
-                beat.finishCheck(false, true, switchDomain.getTcpHealthParams().getMax(), "tcp:unable2connect:" + e.getMessage());
+                if (finishConnect(beat)) {
+                    beat.finishCheck(false, true, switchDomain.getTcpHealthParams().getMax(), "tcp:unable2connect:" + e.getMessage());
+                }
+                close(key);
             } catch (Exception e) {
-                beat.finishCheck(false, false, switchDomain.getTcpHealthParams().getMax(), "tcp:error:" + e.getMessage());
+                if (finishConnect(beat)) {
+                    beat.finishCheck(false, false, switchDomain.getTcpHealthParams().getMax(), "tcp:error:" + e.getMessage());
+                }
+                close(key);
+            }
+        }
 
-                try {
-                    key.cancel();
-                    key.channel().close();
-                } catch (Exception ignore) {
+        private void expire(long now) {
+            for (Beat beat : deadlines.advance(now)) {
+                if (!finishConnect(beat)) {
+                    continue;
+                }
+
+                beat.finishCheck(false, false, beat.getTask().getCheckRTNormalized() * 2, "tcp:timeout");
+                if (beat.key != null) {
+                    close(beat.key);
+                }
+            }
+        }
+
+        /**
+         * Mark the connect of a beat as finished
+         *
+         * @param beat beat of the connect
+         * @return false if the connect has already finished
+         */
+        private boolean finishConnect(Beat beat) {
+            if (!beat.connecting) {
+                return false;
+            }
+
+            beat.connecting = false;
+            connecting--;
+            return true;
+        }
+
+        private void sweep(long now) {
+            if (now - lastSweepTime < SWEEP_INTERVAL_MILLIS) {
+                return;
+            }
+            lastSweepTime = now;
+
+            Iterator<BeatKey> iter = keyMap.values().iterator();
+            while (iter.hasNext()) {
+                BeatKey beatKey = iter.next();
+                // instances not checked any more, e.g. removed or handed over to other server:
+                if (now - beatKey.birthTime > SWEEP_INTERVAL_MILLIS) {
+                    if (beatKey.key != null) {
+                        close(beatKey.key);
+                    }
+                    iter.remove();
                 }
             }
         }
@@ -236,6 +394,12 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
 
         long startTime = System.currentTimeMillis();
 
+        SelectionKey key;
+
+        boolean connecting = false;
+
+        private String id;
+
         Beat(Instance ip, HealthCheckTask task) {
             this.ip = ip;
             this.task = task;
@@ -279,8 +443,6 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
                 } else {
                     healthCheckCommon.checkFail(ip, task, msg);
                 }
-
-                keyMap.remove(task.toString());
             }
 
             healthCheckCommon.reEvaluateCheckRT(rt, task, switchDomain.getTcpHealthParams());
@@ -288,10 +450,13 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
 
         @Override
         public String toString() {
-            return task.getCluster().getService().getName() + ":"
-                + task.getCluster().getName() + ":"
-                + ip.getIp() + ":"
-                + ip.getPort();
+            if (id == null) {
+                id = task.getCluster().getService().getName() + ":"
+                    + task.getCluster().getName() + ":"
+                    + ip.getIp() + ":"
+                    + ip.getPort();
+            }
+            return id;
         }
 
         @Override
@@ -309,113 +474,12 @@ public class TcpSuperSenseProcessor implements HealthCheckProcessor, Runnable {
         }
     }
 
+    /**
+     * connection of an instance, kept and reused across check rounds
+     */
     private static class BeatKey {
         public SelectionKey key;
         public long birthTime;
-
-        public BeatKey(SelectionKey key) {
-            this.key = key;
-            this.birthTime = System.currentTimeMillis();
-        }
-    }
-
-    private static class TimeOutTask implements Runnable {
-        SelectionKey key;
-
-        public TimeOutTask(SelectionKey key) {
-            this.key = key;
-        }
-
-        @Override
-        public void run() {
-            if (key != null && key.isValid()) {
-                SocketChannel channel = (SocketChannel) key.channel();
-                Beat beat = (Beat) key.attachment();
-
-                if (channel.isConnected()) {
-                    return;
-                }
-
-                try {
-                    channel.finishConnect();
-                } catch (Exception ignore) {
-                }
-
-                try {
-                    beat.finishCheck(false, false, beat.getTask().getCheckRTNormalized() * 2, "tcp:timeout");
-                    key.cancel();
-                    key.channel().close();
-                } catch (Exception ignore) {
-                }
-            }
-        }
-    }
-
-    private class TaskProcessor implements Callable<Void> {
-
-        private static final int MAX_WAIT_TIME_MILLISECONDS = 500;
-        Beat beat;
-
-        public TaskProcessor(Beat beat) {
-            this.beat = beat;
-        }
-
-        @Override
-        public Void call() {
-            long waited = System.currentTimeMillis() - beat.getStartTime();
-            if (waited > MAX_WAIT_TIME_MILLISECONDS) {
-                Loggers.SRV_LOG.warn("beat task waited too long: " + waited + "ms");
-            }
-
-            SocketChannel channel = null;
-            try {
-                Instance instance = beat.getIp();
-                Cluster cluster = beat.getTask().getCluster();
-
-                BeatKey beatKey = keyMap.get(beat.toString());
-                if (beatKey != null && beatKey.key.isValid()) {
-                    if (System.currentTimeMillis() - beatKey.birthTime < TCP_KEEP_ALIVE_MILLIS) {
-                        instance.setBeingChecked(false);
-                        return null;
-                    }
-
-                    beatKey.key.cancel();
-                    beatKey.key.channel().close();
-                }
-
-                channel = SocketChannel.open();
-                channel.configureBlocking(false);
-                // only by setting this can we make the socket close event asynchronous
-                channel.socket().setSoLinger(false, -1);
-                channel.socket().setReuseAddress(true);
-                channel.socket().setKeepAlive(true);
-                channel.socket().setTcpNoDelay(true);
-
-                int port = cluster.isUseIPPort4Check() ? instance.getPort() : cluster.getDefCkport();
-                channel.connect(new InetSocketAddress(instance.getIp(), port));
-
-                SelectionKey key
-                    = channel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_READ);
-                key.attach(beat);
-                keyMap.put(beat.toString(), new BeatKey(key));
-
-                beat.setStartTime(System.currentTimeMillis());
-
-                NIO_EXECUTOR.schedule(new TimeOutTask(key),
-                    CONNECT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-            } catch (Exception e) {
-                beat.finishCheck(false, false, switchDomain.getTcpHealthParams().getMax(), "tcp:error:" + e.getMessage());
-
-                if (channel != null) {
-                    try {
-                        channel.close();
-                    } catch (Exception ignore) {
-                    }
-                }
-            }
-
-            return null;
-        }
     }
 
     @Override
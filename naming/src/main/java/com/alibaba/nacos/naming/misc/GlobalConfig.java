@@ -36,6 +36,21 @@ public class GlobalConfig {
     @Value("${nacos.naming.distro.syncRetryDelay:5000}")
     private long syncRetryDelay = 5000L;
 
+    @Value("${nacos.naming.distro.deltaSyncEnabled:true}")
+    private boolean deltaSyncEnabled = true;
+
+    @Value("${nacos.naming.distro.deltaHistorySize:16}")
+    private int deltaHistorySize = 16;
+
+    @Value("${nacos.naming.distro.serializer:json}")
+    private String distroSerializer = "json";
+
+    @Value("${nacos.naming.distro.checksumTreeEnabled:true}")
+    private boolean checksumTreeEnabled = true;
+
+    @Value("${nacos.naming.distro.checksumBucketCount:1024}")
+    private int checksumBucketCount = 1024;
+
     @Value("${nacos.naming.data.warmup:false}")
     private boolean dataWarmup = false;
 
@@ -54,6 +69,26 @@ public class GlobalConfig {
         return syncRetryDelay;
     }
 
+    public boolean isDeltaSyncEnabled() {
+        return deltaSyncEnabled;
+    }
+
+    public int getDeltaHistorySize() {
+        return deltaHistorySize;
+    }
+
+    public String getDistroSerializer() {
+        return distroSerializer;
+    }
+
+    public boolean isChecksumTreeEnabled() {
+        return checksumTreeEnabled;
+    }
+
+    public int getChecksumBucketCount() {
+        return checksumBucketCount;
+    }
+
     public boolean isDataWarmup() {
         return dataWarmup;
     }
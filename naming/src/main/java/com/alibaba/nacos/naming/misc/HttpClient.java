@@ -17,8 +17,10 @@ package com.alibaba.nacos.naming.misc;
 
 import com.alibaba.nacos.common.util.HttpMethod;
 import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHandler;
 import com.ning.http.client.AsyncHttpClient;
 import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.PerRequestConfig;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.io.IOUtils;
@@ -29,6 +31,7 @@ import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -53,6 +56,7 @@ import java.util.zip.GZIPInputStream;
 public class HttpClient {
     private static final int TIME_OUT_MILLIS = 10000;
     private static final int CON_TIME_OUT_MILLIS = 5000;
+    private static final String CHARSET = "charset";
 
     private static AsyncHttpClient asyncHttpClient;
 
@@ -91,6 +95,10 @@ public class HttpClient {
         return request(url, headers, paramValues, CON_TIME_OUT_MILLIS, TIME_OUT_MILLIS, "UTF-8", "GET");
     }
 
+    public static HttpResult httpPut(String url, List<String> headers, Map<String, String> paramValues) {
+        return request(url, headers, paramValues, CON_TIME_OUT_MILLIS, TIME_OUT_MILLIS, "UTF-8", "PUT");
+    }
+
     public static HttpResult request(String url, List<String> headers, Map<String, String> paramValues, int connectTimeout, int readTimeout, String encoding, String method) {
         HttpURLConnection conn = null;
         try {
@@ -130,30 +138,32 @@ public class HttpClient {
         asyncHttpRequest(url, headers, paramValues, handler, HttpMethod.DELETE);
     }
 
+    public static void asyncHttpPut(String url, List<String> headers, Map<String, String> paramValues, AsyncCompletionHandler handler) throws Exception {
+        asyncHttpRequest(url, headers, paramValues, handler, HttpMethod.PUT);
+    }
+
     public static void asyncHttpRequest(String url, List<String> headers, Map<String, String> paramValues, AsyncCompletionHandler handler, String method) throws Exception {
+        asyncHttpRequest(url, headers, paramValues, handler, method, -1);
+    }
+
+    /**
+     * Send a request with pooled connections
+     *
+     * @param url         url
+     * @param headers     request headers, as 'name=value'
+     * @param paramValues request parameters
+     * @param handler     response handler
+     * @param method      request method
+     * @param timeoutMs   request timeout in milliseconds, the default timeout is used if not positive
+     * @throws Exception if failed to send
+     */
+    public static void asyncHttpRequest(String url, List<String> headers, Map<String, String> paramValues, AsyncCompletionHandler handler, String method, int timeoutMs) throws Exception {
         if (!MapUtils.isEmpty(paramValues)) {
             String encodedContent = encodingParams(paramValues, "UTF-8");
             url += (null == encodedContent) ? "" : ("?" + encodedContent);
         }
 
-        AsyncHttpClient.BoundRequestBuilder builder;
-
-        switch (method) {
-            case HttpMethod.GET:
-                builder = asyncHttpClient.prepareGet(url);
-                break;
-            case HttpMethod.POST:
-                builder = asyncHttpClient.preparePost(url);
-                break;
-            case HttpMethod.PUT:
-                builder = asyncHttpClient.preparePut(url);
-                break;
-            case HttpMethod.DELETE:
-                builder = asyncHttpClient.prepareDelete(url);
-                break;
-            default:
-                throw new RuntimeException("not supported method:" + method);
-        }
+        AsyncHttpClient.BoundRequestBuilder builder = prepare(url, method);
 
         if (!CollectionUtils.isEmpty(headers)) {
             for (String header : headers) {
@@ -162,6 +172,7 @@ public class HttpClient {
         }
 
         builder.setHeader("Accept-Charset", "UTF-8");
+        setTimeout(builder, timeoutMs);
 
         if (handler != null) {
             builder.execute(handler);
@@ -170,6 +181,52 @@ public class HttpClient {
         }
     }
 
+    /**
+     * Send a request with pooled connections, the response is passed to the handler part by part as it arrives
+     *
+     * @param url       url with query string
+     * @param headers   request headers
+     * @param method    request method
+     * @param timeoutMs request timeout in milliseconds, the default timeout is used if not positive
+     * @param handler   response handler
+     * @throws Exception if failed to send
+     */
+    public static <T> void asyncHttpRequest(String url, Map<String, String> headers, String method, int timeoutMs, AsyncHandler<T> handler) throws Exception {
+        AsyncHttpClient.BoundRequestBuilder builder = prepare(url, method);
+
+        if (!MapUtils.isEmpty(headers)) {
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                builder.setHeader(entry.getKey(), entry.getValue());
+            }
+        }
+        setTimeout(builder, timeoutMs);
+
+        builder.execute(handler);
+    }
+
+    private static void setTimeout(AsyncHttpClient.BoundRequestBuilder builder, int timeoutMs) {
+        if (timeoutMs > 0) {
+            PerRequestConfig config = new PerRequestConfig();
+            config.setRequestTimeoutInMs(timeoutMs);
+            builder.setPerRequestConfig(config);
+        }
+    }
+
+    private static AsyncHttpClient.BoundRequestBuilder prepare(String url, String method) {
+        switch (method) {
+            case HttpMethod.GET:
+                return asyncHttpClient.prepareGet(url);
+            case HttpMethod.POST:
+                return asyncHttpClient.preparePost(url);
+            case HttpMethod.PUT:
+                return asyncHttpClient.preparePut(url);
+            case HttpMethod.DELETE:
+                return asyncHttpClient.prepareDelete(url);
+            default:
+                throw new RuntimeException("not supported method:" + method);
+        }
+    }
+
     public static void asyncHttpPostLarge(String url, List<String> headers, String content, AsyncCompletionHandler handler) throws Exception {
         asyncHttpPostLarge(url, headers, content.getBytes(), handler);
     }
@@ -318,16 +375,13 @@ public class HttpClient {
                 httpPut.setHeader(entry.getKey(), entry.getValue());
             }
 
-            httpPut.setEntity(new StringEntity(new String(content, "UTF-8"), ContentType.create("application/json", "UTF-8")));
+            httpPut.setEntity(new ByteArrayEntity(content, ContentType.create("application/json", "UTF-8")));
 
             HttpResponse response = httpClient.execute(httpPut);
             HttpEntity entity = response.getEntity();
 
-            HeaderElement[] headerElements = entity.getContentType().getElements();
-            String charset = headerElements[0].getParameterByName("charset").getValue();
-
             return new HttpResult(response.getStatusLine().getStatusCode(),
-                IOUtils.toString(entity.getContent(), charset), Collections.<String, String>emptyMap());
+                IOUtils.toString(entity.getContent(), getCharset(entity)), Collections.<String, String>emptyMap());
         } catch (Exception e) {
             return new HttpResult(500, e.toString(), Collections.<String, String>emptyMap());
         }
@@ -352,11 +406,9 @@ public class HttpClient {
             HttpResponse response = httpClient.execute(httpGetWithEntity);
             HttpEntity entity = response.getEntity();
 
-            HeaderElement[] headerElements = entity.getContentType().getElements();
-            String charset = headerElements[0].getParameterByName("charset").getValue();
-
+            byte[] data = IOUtils.toByteArray(entity.getContent());
             return new HttpResult(response.getStatusLine().getStatusCode(),
-                IOUtils.toString(entity.getContent(), charset), Collections.<String, String>emptyMap());
+                new String(data, getCharset(entity)), data, Collections.<String, String>emptyMap());
         } catch (Exception e) {
             return new HttpResult(500, e.toString(), Collections.<String, String>emptyMap());
         }
@@ -410,12 +462,27 @@ public class HttpClient {
             inputStream = new GZIPInputStream(inputStream);
         }
 
-        HttpResult result = new HttpResult(respCode, IOUtils.toString(inputStream, getCharset(conn)), respHeaders);
+        byte[] data = IOUtils.toByteArray(inputStream);
+        HttpResult result = new HttpResult(respCode, new String(data, getCharset(conn)), data, respHeaders);
         inputStream.close();
 
         return result;
     }
 
+    private static String getCharset(HttpEntity entity) {
+        if (entity.getContentType() == null) {
+            return "UTF-8";
+        }
+
+        HeaderElement[] headerElements = entity.getContentType().getElements();
+        NameValuePair charset = headerElements.length == 0 ? null : headerElements[0].getParameterByName(CHARSET);
+        if (charset == null) {
+            return "UTF-8";
+        }
+
+        return charset.getValue();
+    }
+
     private static String getCharset(HttpURLConnection conn) {
         String contentType = conn.getContentType();
         if (StringUtils.isEmpty(contentType)) {
@@ -488,11 +555,17 @@ public class HttpClient {
     public static class HttpResult {
         final public int code;
         final public String content;
+        final public byte[] data;
         final private Map<String, String> respHeaders;
 
         public HttpResult(int code, String content, Map<String, String> respHeaders) {
+            this(code, content, null, respHeaders);
+        }
+
+        public HttpResult(int code, String content, byte[] data, Map<String, String> respHeaders) {
             this.code = code;
             this.content = content;
+            this.data = data;
             this.respHeaders = respHeaders;
         }
 
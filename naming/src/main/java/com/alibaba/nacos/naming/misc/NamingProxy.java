@@ -16,7 +16,10 @@
 package com.alibaba.nacos.naming.misc;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.naming.boot.RunningConfig;
+import com.alibaba.nacos.naming.cluster.transport.BinarySerializer;
+import com.alibaba.nacos.naming.cluster.transport.SerializerNegotiator;
 import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.Response;
 import org.apache.commons.lang3.StringUtils;
@@ -32,12 +35,20 @@ public class NamingProxy {
 
     private static final String DATA_ON_SYNC_URL = "/distro/datum";
 
+    private static final String DELTA_ON_SYNC_URL = "/distro/delta";
+
     private static final String DATA_GET_URL = "/distro/datum";
 
     private static final String ALL_DATA_GET_URL = "/distro/datums";
 
     private static final String TIMESTAMP_SYNC_URL = "/distro/checksum";
 
+    private static final String CHECKSUM_ROOT_SYNC_URL = "/distro/checksum/root";
+
+    private static final String CHECKSUM_BUCKETS_GET_URL = "/distro/checksum/buckets";
+
+    private static final String CHECKSUMS_GET_URL = "/distro/checksums";
+
     public static void syncCheckSums(Map<String, String> checksumMap, String server) {
 
         try {
@@ -46,6 +57,7 @@ public class NamingProxy {
             headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
             headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
             headers.put("Connection", "Keep-Alive");
+            headers.put(SerializerNegotiator.ACCEPT_HEADER, SerializerNegotiator.ACCEPTED_SERIALIZERS);
 
             HttpClient.asyncHttpPutLarge("http://" + server + RunningConfig.getContextPath()
                     + UtilsAndCommons.NACOS_NAMING_CONTEXT + TIMESTAMP_SYNC_URL + "?source=" + NetUtils.localServer(),
@@ -74,15 +86,103 @@ public class NamingProxy {
         }
     }
 
+    /**
+     * Send the root hash of checksum tree to a server without waiting for the response
+     *
+     * @param root        root hash
+     * @param bucketCount bucket count of checksum tree
+     * @param server      target server
+     * @param onRejected  called if the request failed or the server does not support checksum tree
+     */
+    public static void syncChecksumRoot(long root, int bucketCount, String server, Runnable onRejected) {
+
+        Map<String, String> params = new HashMap<>(8);
+        params.put("source", NetUtils.localServer());
+        params.put("root", String.valueOf(root));
+        params.put("bucketCount", String.valueOf(bucketCount));
+
+        List<String> headers = Arrays.asList(SerializerNegotiator.ACCEPT_HEADER, SerializerNegotiator.ACCEPTED_SERIALIZERS);
+        String url = "http://" + server + RunningConfig.getContextPath() + UtilsAndCommons.NACOS_NAMING_CONTEXT
+            + CHECKSUM_ROOT_SYNC_URL;
+
+        try {
+            HttpClient.asyncHttpPut(url, headers, params, new AsyncCompletionHandler() {
+                @Override
+                public Object onCompleted(Response response) throws Exception {
+                    if (HttpURLConnection.HTTP_OK == response.getStatusCode()) {
+                        return null;
+                    }
+
+                    if (Loggers.DISTRO.isDebugEnabled()) {
+                        Loggers.DISTRO.debug("failed to req API: {}, code: {}, msg: {}", url,
+                            response.getStatusCode(), response.getResponseBody());
+                    }
+                    onRejected.run();
+                    return null;
+                }
+
+                @Override
+                public void onThrowable(Throwable t) {
+                    if (Loggers.DISTRO.isDebugEnabled()) {
+                        Loggers.DISTRO.debug("failed to req API: " + url, t);
+                    }
+                    onRejected.run();
+                }
+            });
+        } catch (Exception e) {
+            Loggers.DISTRO.warn("failed to req API: " + url, e);
+            onRejected.run();
+        }
+    }
+
+    public static long[] getChecksumBuckets(String server) throws Exception {
+
+        Map<String, String> params = new HashMap<>(8);
+        HttpClient.HttpResult result = HttpClient.httpGet("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUM_BUCKETS_GET_URL, null, params);
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            return JSON.parseObject(result.content).getObject("buckets", long[].class);
+        }
+
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUM_BUCKETS_GET_URL + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
+    public static Map<String, String> getChecksums(List<Integer> buckets, String server) throws Exception {
+
+        Map<String, String> params = new HashMap<>(8);
+        params.put("buckets", StringUtils.join(buckets, ","));
+
+        HttpClient.HttpResult result = HttpClient.httpGet("http://" + server + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUMS_GET_URL, null, params);
+
+        if (HttpURLConnection.HTTP_OK == result.code) {
+            return JSON.parseObject(result.content, new TypeReference<Map<String, String>>() {
+            });
+        }
+
+        throw new IOException("failed to req API: " + "http://" + server
+            + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + CHECKSUMS_GET_URL + ". code: "
+            + result.code + " msg: " + result.content);
+    }
+
     public static byte[] getData(List<String> keys, String server) throws Exception {
 
         Map<String, String> params = new HashMap<>(8);
         params.put("keys", StringUtils.join(keys, ","));
+
+        Map<String, String> headers = new HashMap<>(8);
+        headers.put(SerializerNegotiator.ACCEPT_HEADER, SerializerNegotiator.ACCEPTED_SERIALIZERS);
+
         HttpClient.HttpResult result = HttpClient.httpGetLarge("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL, new HashMap<>(8), JSON.toJSONString(params));
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_GET_URL, headers, JSON.toJSONString(params));
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            return result.data;
         }
 
         throw new IOException("failed to req API: " + "http://" + server
@@ -94,11 +194,12 @@ public class NamingProxy {
     public static byte[] getAllData(String server) throws Exception {
 
         Map<String, String> params = new HashMap<>(8);
+        List<String> headers = Arrays.asList(SerializerNegotiator.ACCEPT_HEADER, SerializerNegotiator.ACCEPTED_SERIALIZERS);
         HttpClient.HttpResult result = HttpClient.httpGet("http://" + server + RunningConfig.getContextPath()
-            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL, new ArrayList<>(), params);
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + ALL_DATA_GET_URL, headers, params);
 
         if (HttpURLConnection.HTTP_OK == result.code) {
-            return result.content.getBytes();
+            return result.data;
         }
 
         throw new IOException("failed to req API: " + "http://" + server
@@ -117,9 +218,14 @@ public class NamingProxy {
             headers.put("Accept-Encoding", "gzip,deflate,sdch");
             headers.put("Connection", "Keep-Alive");
             headers.put("Content-Encoding", "gzip");
+            headers.put(SerializerNegotiator.ACCEPT_HEADER, SerializerNegotiator.ACCEPTED_SERIALIZERS);
+            if (BinarySerializer.isBinary(data)) {
+                headers.put("Content-Type", SerializerNegotiator.BINARY_CONTENT_TYPE);
+            }
 
             HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + curServer + RunningConfig.getContextPath()
-                + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL, headers, data);
+                + UtilsAndCommons.NACOS_NAMING_CONTEXT + DATA_ON_SYNC_URL + "?source=" + NetUtils.localServer(),
+                headers, data);
 
             if (HttpURLConnection.HTTP_OK == result.code) {
                 return true;
@@ -139,6 +245,35 @@ public class NamingProxy {
         return false;
     }
 
+    public static boolean syncDelta(byte[] data, String curServer) {
+        try {
+            Map<String, String> headers = new HashMap<>(128);
+
+            headers.put("Client-Version", UtilsAndCommons.SERVER_VERSION);
+            headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
+            headers.put("Accept-Encoding", "gzip,deflate,sdch");
+            headers.put("Connection", "Keep-Alive");
+            headers.put("Content-Encoding", "gzip");
+            headers.put(SerializerNegotiator.ACCEPT_HEADER, SerializerNegotiator.ACCEPTED_SERIALIZERS);
+
+            HttpClient.HttpResult result = HttpClient.httpPutLarge("http://" + curServer + RunningConfig.getContextPath()
+                + UtilsAndCommons.NACOS_NAMING_CONTEXT + DELTA_ON_SYNC_URL + "?source=" + NetUtils.localServer(),
+                headers, data);
+
+            if (HttpURLConnection.HTTP_OK == result.code) {
+                return true;
+            }
+
+            throw new IOException("failed to req API:" + "http://" + curServer
+                + RunningConfig.getContextPath()
+                + UtilsAndCommons.NACOS_NAMING_CONTEXT + DELTA_ON_SYNC_URL + ". code:"
+                + result.code + " msg: " + result.content);
+        } catch (Exception e) {
+            Loggers.SRV_LOG.warn("NamingProxy", e);
+        }
+        return false;
+    }
+
     public static String reqAPI(String api, Map<String, String> params, String curServer) throws Exception {
         try {
             List<String> headers = Arrays.asList("Client-Version", UtilsAndCommons.SERVER_VERSION,
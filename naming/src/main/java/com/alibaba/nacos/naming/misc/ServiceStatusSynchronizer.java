@@ -23,12 +23,28 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.net.HttpURLConnection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author nacos
  */
 public class ServiceStatusSynchronizer implements Synchronizer {
+
+    private static final String HEALTH_REPORT_URL = "/service/status/bitmap";
+
+    private static final String BATCH_STATUSES_URL = "/instance/statuses/batch";
+
+    private static final long LEGACY_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Servers not supporting health reports, to the time to try again
+     */
+    private final ConcurrentMap<String, Long> legacyServers = new ConcurrentHashMap<>(8);
+
     @Override
     public void send(final String serverIP, Message msg) {
         if(serverIP == null) {
@@ -98,4 +114,71 @@ public class ServiceStatusSynchronizer implements Synchronizer {
 
         return msg;
     }
+
+    /**
+     * Check if a server is known to support health reports
+     *
+     * @param serverIP target server
+     * @return false if the server rejected a report recently
+     */
+    public boolean supportsHealthReport(String serverIP) {
+        Long retryTime = legacyServers.get(serverIP);
+        return retryTime == null || retryTime < System.currentTimeMillis();
+    }
+
+    /**
+     * Send an encoded {@link com.alibaba.nacos.naming.core.ServiceHealthReport} to a server
+     *
+     * @param serverIP target server
+     * @param data     encoded report
+     */
+    public void sendHealthReport(final String serverIP, byte[] data) {
+        final String url = "http://" + serverIP + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + HEALTH_REPORT_URL + "?clientIP=" + NetUtils.localServer();
+
+        try {
+            HttpClient.asyncHttpPostLarge(url, null, data, new AsyncCompletionHandler() {
+                @Override
+                public Integer onCompleted(Response response) throws Exception {
+                    if (response.getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                        Loggers.SRV_LOG.info("[STATUS-SYNCHRONIZE] server does not support health report, fall back to checksums: {}",
+                            serverIP);
+                        legacyServers.put(serverIP, System.currentTimeMillis() + LEGACY_RETRY_MILLIS);
+                        return 1;
+                    }
+                    if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                        Loggers.SRV_LOG.warn("[STATUS-SYNCHRONIZE] failed to send health report, remote server: {}, code: {}",
+                            serverIP, response.getStatusCode());
+                        return 1;
+                    }
+                    legacyServers.remove(serverIP);
+                    return 0;
+                }
+            });
+        } catch (Exception e) {
+            Loggers.SRV_LOG.warn("[STATUS-SYNCHRONIZE] failed to send health report, remote server: " + serverIP, e);
+        }
+    }
+
+    /**
+     * Get the instance statuses of services from a server in one request
+     *
+     * @param serverIP target server
+     * @param keys     full names of services, with namespace
+     * @return statuses of services as returned by server, null if failed
+     */
+    public String getStatuses(String serverIP, List<String> keys) {
+        Map<String, String> params = new HashMap<>(2);
+        params.put("keys", StringUtils.join(keys, ","));
+
+        HttpClient.HttpResult result = HttpClient.httpPost("http://" + serverIP + RunningConfig.getContextPath()
+            + UtilsAndCommons.NACOS_NAMING_CONTEXT + BATCH_STATUSES_URL, null, params);
+
+        if (result.code != HttpURLConnection.HTTP_OK) {
+            Loggers.SRV_LOG.warn("[STATUS-SYNCHRONIZE] failed to get service statuses from: {}, code: {}, msg: {}",
+                serverIP, result.code, result.content);
+            return null;
+        }
+        return result.content;
+    }
 }
@@ -36,6 +36,8 @@ public class SwitchDomain implements Record, Cloneable {
 
     private long clientBeatInterval = TimeUnit.SECONDS.toMillis(5);
 
+    private boolean lightBeatEnabled = true;
+
     private long defaultCacheMillis = TimeUnit.SECONDS.toMillis(3);
 
     private float distroThreshold = 0.7F;
@@ -44,6 +46,12 @@ public class SwitchDomain implements Record, Cloneable {
 
     private boolean distroEnabled = true;
 
+    /**
+     * Map services to servers by a consistent hash ring instead of hash modulo server count. All servers
+     * must use the same mode, so switch it for the whole cluster.
+     */
+    private boolean distroConsistentHashEnabled = false;
+
     private boolean enableStandalone = true;
 
     private boolean pushEnabled = true;
@@ -113,6 +121,14 @@ public class SwitchDomain implements Record, Cloneable {
         this.clientBeatInterval = clientBeatInterval;
     }
 
+    public boolean isLightBeatEnabled() {
+        return lightBeatEnabled;
+    }
+
+    public void setLightBeatEnabled(boolean lightBeatEnabled) {
+        this.lightBeatEnabled = lightBeatEnabled;
+    }
+
     public boolean isEnableStandalone() {
         return enableStandalone;
     }
@@ -218,6 +234,14 @@ public class SwitchDomain implements Record, Cloneable {
         this.distroEnabled = distroEnabled;
     }
 
+    public boolean isDistroConsistentHashEnabled() {
+        return distroConsistentHashEnabled;
+    }
+
+    public void setDistroConsistentHashEnabled(boolean distroConsistentHashEnabled) {
+        this.distroConsistentHashEnabled = distroConsistentHashEnabled;
+    }
+
     public boolean isPushEnabled() {
         return pushEnabled;
     }
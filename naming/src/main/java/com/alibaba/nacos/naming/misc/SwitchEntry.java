@@ -25,6 +25,7 @@ public class SwitchEntry {
     public static final String BATCH = "batch";
     public static final String DISTRO_THRESHOLD = "distroThreshold";
     public static final String CLIENT_BEAT_INTERVAL = "clientBeatInterval";
+    public static final String LIGHT_BEAT_ENABLED = "lightBeatEnabled";
     public static final String PUSH_VERSION = "pushVersion";
     public static final String CLIENT_JAVA = "java";
     public static final String CLIENT_C = "c";
@@ -34,6 +35,7 @@ public class SwitchEntry {
     public static final String DEFAULT_CACHE_MILLIS = "defaultCacheMillis";
     public static final String MASTERS = "masters";
     public static final String DISTRO = "distro";
+    public static final String DISTRO_CONSISTENT_HASH = "distroConsistentHash";
     public static final String CHECK = "check";
     public static final String PUSH_ENABLED = "pushEnabled";
     public static final String SERVICE_STATUS_SYNC_PERIOD = "serviceStatusSynchronizationPeriodMillis";
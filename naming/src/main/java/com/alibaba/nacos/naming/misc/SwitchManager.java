@@ -115,6 +115,10 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
                 switchDomain.setClientBeatInterval(clientBeatInterval);
             }
 
+            if (entry.equals(SwitchEntry.LIGHT_BEAT_ENABLED)) {
+                switchDomain.setLightBeatEnabled(Boolean.parseBoolean(value));
+            }
+
             if (entry.equals(SwitchEntry.PUSH_VERSION)) {
 
                 String type = value.split(":")[0];
@@ -168,6 +172,11 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
                 switchDomain.setDistroEnabled(enabled);
             }
 
+            if (entry.equals(SwitchEntry.DISTRO_CONSISTENT_HASH)) {
+                boolean enabled = Boolean.parseBoolean(value);
+                switchDomain.setDistroConsistentHashEnabled(enabled);
+            }
+
             if (entry.equals(SwitchEntry.CHECK)) {
                 boolean enabled = Boolean.parseBoolean(value);
                 switchDomain.setHealthCheckEnabled(enabled);
@@ -284,10 +293,12 @@ public class SwitchManager implements RecordListener<SwitchDomain> {
         switchDomain.setAdWeightMap(newSwitchDomain.getAdWeightMap());
         switchDomain.setDefaultPushCacheMillis(newSwitchDomain.getDefaultPushCacheMillis());
         switchDomain.setClientBeatInterval(newSwitchDomain.getClientBeatInterval());
+        switchDomain.setLightBeatEnabled(newSwitchDomain.isLightBeatEnabled());
         switchDomain.setDefaultCacheMillis(newSwitchDomain.getDefaultCacheMillis());
         switchDomain.setDistroThreshold(newSwitchDomain.getDistroThreshold());
         switchDomain.setHealthCheckEnabled(newSwitchDomain.isHealthCheckEnabled());
         switchDomain.setDistroEnabled(newSwitchDomain.isDistroEnabled());
+        switchDomain.setDistroConsistentHashEnabled(newSwitchDomain.isDistroConsistentHashEnabled());
         switchDomain.setPushEnabled(newSwitchDomain.isPushEnabled());
         switchDomain.setEnableStandalone(newSwitchDomain.isEnableStandalone());
         switchDomain.setCheckTimes(newSwitchDomain.getCheckTimes());
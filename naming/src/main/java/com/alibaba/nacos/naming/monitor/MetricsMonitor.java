@@ -16,10 +16,13 @@
 package com.alibaba.nacos.naming.monitor;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.ImmutableTag;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -41,6 +44,31 @@ public class MetricsMonitor {
     private static AtomicLong leaderStatus = new AtomicLong();
     private static AtomicInteger totalPush = new AtomicInteger();
     private static AtomicInteger failedPush = new AtomicInteger();
+    private static AtomicInteger distroNotifyTaskCount = new AtomicInteger();
+    private static Timer distroNotifyTimer = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "distroNotify")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .register(Metrics.globalRegistry);
+    private static Timer pushChangeToSendTimer = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "pushChangeToSend")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofMinutes(1))
+        .register(Metrics.globalRegistry);
+    private static Timer pushSendToAckTimer = Timer.builder("nacos_timer")
+        .tags("module", "naming", "name", "pushSendToAck")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .minimumExpectedValue(Duration.ofMillis(1))
+        .maximumExpectedValue(Duration.ofMinutes(1))
+        .register(Metrics.globalRegistry);
+    private static DistributionSummary pushFanOutSummary = DistributionSummary.builder("nacos_summary")
+        .tags("module", "naming", "name", "pushFanOut")
+        .publishPercentiles(0.5, 0.95, 0.99)
+        .minimumExpectedValue(1L)
+        .maximumExpectedValue(1000000L)
+        .register(Metrics.globalRegistry);
+    private static Counter pushRetransmitCounter = Metrics.counter("nacos_counter",
+        "module", "naming", "name", "pushRetransmit");
 
     static {
         List<Tag> tags = new ArrayList<Tag>();
@@ -92,6 +120,11 @@ public class MetricsMonitor {
         tags.add(new ImmutableTag("module", "naming"));
         tags.add(new ImmutableTag("name", "failedPush"));
         Metrics.gauge("nacos_monitor", tags, failedPush);
+
+        tags = new ArrayList<Tag>();
+        tags.add(new ImmutableTag("module", "naming"));
+        tags.add(new ImmutableTag("name", "distroNotifyTaskCount"));
+        Metrics.gauge("nacos_monitor", tags, distroNotifyTaskCount);
     }
 
     public static AtomicInteger getMysqlHealthCheckMonitor() {
@@ -134,6 +167,51 @@ public class MetricsMonitor {
         return failedPush;
     }
 
+    public static AtomicInteger getDistroNotifyTaskCountMonitor() {
+        return distroNotifyTaskCount;
+    }
+
+    public static Timer getDistroNotifyTimer() {
+        return distroNotifyTimer;
+    }
+
+    public static Timer getPushChangeToSendTimer() {
+        return pushChangeToSendTimer;
+    }
+
+    public static Timer getPushSendToAckTimer() {
+        return pushSendToAckTimer;
+    }
+
+    public static DistributionSummary getPushFanOutSummary() {
+        return pushFanOutSummary;
+    }
+
+    public static Counter getPushRetransmitCounter() {
+        return pushRetransmitCounter;
+    }
+
+    /**
+     * Get the timer of health checks, tagged by check type and result only, so the number of timers is bounded
+     *
+     * @param type   type of health check
+     * @param result result of health check
+     * @return timer
+     */
+    public static Timer getHealthCheckTimer(String type, String result) {
+        return Timer.builder("nacos_timer")
+            .tags("module", "naming", "name", "healthCheck", "type", type, "result", result)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(1))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(Metrics.globalRegistry);
+    }
+
+    public static Counter getPushDropCounter(String reason) {
+        return Metrics.counter("nacos_counter",
+            "module", "naming", "name", "pushDrop", "reason", reason);
+    }
+
     public static Counter getDiskException() {
         return Metrics.counter("nacos_exception",
             "module", "naming", "name", "disk");
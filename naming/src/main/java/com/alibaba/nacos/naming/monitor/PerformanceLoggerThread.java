@@ -25,7 +25,6 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
@@ -123,31 +122,10 @@ public class PerformanceLoggerThread {
     }
 
     private long getMaxPushCost() {
-        long max = -1;
-
-        for (Map.Entry<String, Long> entry : PushService.pushCostMap.entrySet()) {
-            if (entry.getValue() > max) {
-                max = entry.getValue();
-            }
-        }
-
-        return max;
+        return PushService.getMaxPushCost();
     }
 
     private long getAvgPushCost() {
-        int size = 0;
-        long totalCost = 0;
-        long avgCost = -1;
-
-        for (Map.Entry<String, Long> entry : PushService.pushCostMap.entrySet()) {
-            size += 1;
-            totalCost += entry.getValue();
-        }
-        PushService.pushCostMap.clear();
-
-        if (size > 0 && totalCost > 0) {
-            avgCost = totalCost / size;
-        }
-        return avgCost;
+        return PushService.getAndResetAvgPushCost();
     }
 }
@@ -16,11 +16,14 @@
 package com.alibaba.nacos.naming.push;
 
 import com.alibaba.fastjson.JSON;
+import com.alibaba.nacos.common.util.TimingWheel;
 import com.alibaba.nacos.naming.core.Service;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.alibaba.nacos.naming.monitor.MetricsMonitor;
 import com.alibaba.nacos.naming.pojo.Subscriber;
+import com.alibaba.nacos.naming.selector.NoneSelector;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.codehaus.jackson.util.VersionUtil;
@@ -34,14 +37,18 @@ import org.springframework.stereotype.Component;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
-import java.nio.charset.Charset;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -59,23 +66,48 @@ public class PushService implements ApplicationContextAware, ApplicationListener
 
     private static final int MAX_RETRY_TIMES = 1;
 
-    private static volatile ConcurrentMap<String, Receiver.AckEntry> ackMap
-        = new ConcurrentHashMap<String, Receiver.AckEntry>();
+    private static final int RETRANSMIT_WHEEL_SIZE = 128;
+
+    private static final long RETRANSMIT_TICK_MILLIS = 100L;
+
+    private static final int PUSH_BATCH_SIZE = 512;
+
+    private static final int SEND_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private static final String DROP_ACK_TIMEOUT = "ackTimeout";
+
+    private static final String DROP_PREPARE_FAILED = "prepareFailed";
+
+    private static final String DROP_SEND_FAILED = "sendFailed";
+
+    private static final String DROP_SEND_BUFFER_FULL = "sendBufferFull";
+
+    /**
+     * push rounds waiting for acks, keyed by the sequence number (lastRefTime) of the round
+     */
+    private static ConcurrentMap<Long, PushRound> roundMap = new ConcurrentHashMap<>();
+
+    private static AtomicLong lastSequence = new AtomicLong(0L);
+
+    private static TimingWheel<Long> retransmitWheel = new TimingWheel<>(RETRANSMIT_WHEEL_SIZE, RETRANSMIT_TICK_MILLIS,
+        System.currentTimeMillis());
 
     private static ConcurrentMap<String, ConcurrentMap<String, PushClient>> clientMap
         = new ConcurrentHashMap<String, ConcurrentMap<String, PushClient>>();
 
-    private static volatile ConcurrentHashMap<String, Long> udpSendTimeMap = new ConcurrentHashMap<String, Long>();
+    private static AtomicLong maxPushCost = new AtomicLong(-1L);
+
+    private static LongAdder totalPushCost = new LongAdder();
 
-    public static volatile ConcurrentHashMap<String, Long> pushCostMap = new ConcurrentHashMap<String, Long>();
+    private static LongAdder ackCount = new LongAdder();
 
-    private static int totalPush = 0;
+    private static AtomicInteger totalPush = new AtomicInteger(0);
 
-    private static int failedPush = 0;
+    private static AtomicInteger failedPush = new AtomicInteger(0);
 
-    private static ConcurrentHashMap<String, Long> lastPushMillisMap = new ConcurrentHashMap<>();
+    private static DatagramChannel udpChannel;
 
-    private static DatagramSocket udpSocket;
+    private static Selector ackSelector;
 
     private static Map<String, Future> futureMap = new ConcurrentHashMap<>();
     private static ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
@@ -98,9 +130,26 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         }
     });
 
+    private static ExecutorService pushWorkers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                t.setName("com.alibaba.nacos.naming.push.worker");
+                return t;
+            }
+        });
+
     static {
         try {
-            udpSocket = new DatagramSocket();
+            udpChannel = DatagramChannel.open();
+            udpChannel.configureBlocking(false);
+            udpChannel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_SIZE);
+            udpChannel.bind(null);
+
+            ackSelector = Selector.open();
+            udpChannel.register(ackSelector, SelectionKey.OP_READ);
 
             Receiver receiver = new Receiver();
 
@@ -120,7 +169,10 @@ public class PushService implements ApplicationContextAware, ApplicationListener
                 }
             }, 0, 20, TimeUnit.SECONDS);
 
-        } catch (SocketException e) {
+            executorService.scheduleAtFixedRate(new Retransmitter(), RETRANSMIT_TICK_MILLIS, RETRANSMIT_TICK_MILLIS,
+                TimeUnit.MILLISECONDS);
+
+        } catch (IOException e) {
             Loggers.SRV_LOG.error("[NACOS-PUSH] failed to init push service");
         }
     }
@@ -135,74 +187,124 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         Service service = event.getService();
         String serviceName = service.getName();
         String namespaceId = service.getNamespaceId();
+        long changedNanos = System.nanoTime();
 
         Future future = udpSender.schedule(new Runnable() {
             @Override
             public void run() {
-                try {
-                    Loggers.PUSH.info(serviceName + " is changed, add it to push queue.");
-                    ConcurrentMap<String, PushClient> clients = clientMap.get(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
-                    if (MapUtils.isEmpty(clients)) {
-                        return;
+                pushWorkers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Loggers.PUSH.info(serviceName + " is changed, add it to push queue.");
+                            push(service, changedNanos);
+                        } catch (Exception e) {
+                            Loggers.PUSH.error("[NACOS-PUSH] failed to push serviceName: {} to client, error: {}", serviceName, e);
+
+                        } finally {
+                            futureMap.remove(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
+                        }
                     }
+                });
+            }
+        }, 1000, TimeUnit.MILLISECONDS);
 
-                    Map<String, Object> cache = new HashMap<>(16);
-                    long lastRefTime = System.nanoTime();
-                    for (PushClient client : clients.values()) {
-                        if (client.zombie()) {
-                            Loggers.PUSH.debug("client is zombie: " + client.toString());
-                            clients.remove(client.toString());
-                            Loggers.PUSH.debug("client is zombie: " + client.toString());
-                            continue;
-                        }
+        futureMap.put(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName), future);
 
-                        Receiver.AckEntry ackEntry;
-                        Loggers.PUSH.debug("push serviceName: {} to client: {}", serviceName, client.toString());
-                        String key = getPushCacheKey(serviceName, client.getIp(), client.getAgent());
-                        byte[] compressData = null;
-                        Map<String, Object> data = null;
-                        if (switchDomain.getDefaultPushCacheMillis() >= 20000 && cache.containsKey(key)) {
-                            org.javatuples.Pair pair = (org.javatuples.Pair) cache.get(key);
-                            compressData = (byte[]) (pair.getValue0());
-                            data = (Map<String, Object>) pair.getValue1();
-
-                            Loggers.PUSH.debug("[PUSH-CACHE] cache hit: {}:{}", serviceName, client.getAddrStr());
-                        }
+    }
 
-                        if (compressData != null) {
-                            ackEntry = prepareAckEntry(client, compressData, data, lastRefTime);
-                        } else {
-                            ackEntry = prepareAckEntry(client, prepareHostsData(client), lastRefTime);
-                            if (ackEntry != null) {
-                                cache.put(key, new org.javatuples.Pair<>(ackEntry.origin.getData(), ackEntry.data));
-                            }
-                        }
+    /**
+     * Push the service to all its subscribers as one round.
+     * <p>
+     * Subscribers receiving the same data are grouped, and the data of a group is encoded and compressed
+     * only once. All packets of a round carry the same sequence number, which the round is tracked by
+     * until it is acked or given up by the retransmitter.
+     *
+     * @param service      service changed
+     * @param changedNanos time the change is notified, in nanoseconds
+     */
+    private void push(Service service, long changedNanos) {
+        String serviceName = service.getName();
+        ConcurrentMap<String, PushClient> clients = clientMap.get(
+            UtilsAndCommons.assembleFullServiceName(service.getNamespaceId(), serviceName));
+        if (MapUtils.isEmpty(clients)) {
+            return;
+        }
 
-                        Loggers.PUSH.info("serviceName: {} changed, schedule push for: {}, agent: {}, key: {}",
-                            client.getServiceName(), client.getAddrStr(), client.getAgent(), (ackEntry == null ? null : ackEntry.key));
+        // pushed data depends on the IP of the client only when a selector applies:
+        boolean clientAware = service.getSelector() != null && !(service.getSelector() instanceof NoneSelector);
 
-                        udpPush(ackEntry);
-                    }
-                } catch (Exception e) {
-                    Loggers.PUSH.error("[NACOS-PUSH] failed to push serviceName: {} to client, error: {}", serviceName, e);
+        Map<String, List<PushClient>> groups = new HashMap<>(16);
+        for (PushClient client : clients.values()) {
+            if (client.zombie()) {
+                Loggers.PUSH.debug("client is zombie: " + client.toString());
+                clients.remove(client.toString());
+                continue;
+            }
 
-                } finally {
-                    futureMap.remove(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName));
-                }
+            String key = getPushCacheKey(client, clientAware);
+            List<PushClient> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(client);
+        }
 
+        if (groups.isEmpty()) {
+            return;
+        }
+
+        long sequence = nextSequence();
+        PushRound round = new PushRound();
+        roundMap.put(sequence, round);
+
+        int clientCount = 0;
+        for (List<PushClient> group : groups.values()) {
+            PushClient first = group.get(0);
+            Map<String, Object> data;
+            byte[] dataBytes;
+            try {
+                data = prepareHostsData(first);
+                data.put("lastRefTime", sequence);
+                dataBytes = compressIfNecessary(JSON.toJSONString(data).getBytes(StandardCharsets.UTF_8));
+            } catch (Exception e) {
+                Loggers.PUSH.error("[NACOS-PUSH] failed to prepare data for client: {}, error: {}", first, e);
+                failedPush.addAndGet(group.size());
+                MetricsMonitor.getPushDropCounter(DROP_PREPARE_FAILED).increment(group.size());
+                continue;
             }
-        }, 1000, TimeUnit.MILLISECONDS);
 
-        futureMap.put(UtilsAndCommons.assembleFullServiceName(namespaceId, serviceName), future);
+            for (int i = 0; i < group.size(); i += PUSH_BATCH_SIZE) {
+                round.pendingTasks.incrementAndGet();
+                pushWorkers.execute(new PushTask(round, sequence, changedNanos,
+                    group.subList(i, Math.min(i + PUSH_BATCH_SIZE, group.size())), dataBytes, data));
+            }
+            clientCount += group.size();
+        }
+
+        scheduleRetransmit(sequence);
+        MetricsMonitor.getPushFanOutSummary().record(clientCount);
 
+        Loggers.PUSH.info("serviceName: {} changed, schedule push for {} clients in {} groups, sequence: {}",
+            serviceName, clientCount, groups.size(), sequence);
+    }
+
+    private static void scheduleRetransmit(long sequence) {
+        retransmitWheel.add(sequence, System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(ACK_TIMEOUT_NANOS));
+    }
+
+    private static long nextSequence() {
+        // we apply lastRefTime as sequence num for further ack, it must be unique among rounds:
+        return lastSequence.accumulateAndGet(System.nanoTime(), (last, now) -> Math.max(now, last + 1));
     }
 
     public int getTotalPush() {
-        return totalPush;
+        return totalPush.get();
     }
 
     public void setTotalPush(int totalPush) {
-        PushService.totalPush = totalPush;
+        PushService.totalPush.set(totalPush);
     }
 
     public void addClient(String namespaceId,
@@ -281,35 +383,15 @@ public class PushService implements ApplicationContextAware, ApplicationListener
 
     }
 
-    private static Receiver.AckEntry prepareAckEntry(PushClient client, byte[] dataBytes, Map<String, Object> data,
-                                                     long lastRefTime) {
-        String key = getACKKey(client.getSocketAddr().getAddress().getHostAddress(),
-            client.getSocketAddr().getPort(),
-            lastRefTime);
-        DatagramPacket packet = null;
-        try {
-            packet = new DatagramPacket(dataBytes, dataBytes.length, client.socketAddr);
-            Receiver.AckEntry ackEntry = new Receiver.AckEntry(key, packet);
-            ackEntry.data = data;
-
-            // we must store the key be fore send, otherwise there will be a chance the
-            // ack returns before we put in
-            ackEntry.data = data;
-
-            return ackEntry;
-        } catch (Exception e) {
-            Loggers.PUSH.error("[NACOS-PUSH] failed to prepare data: {} to client: {}, error: {}",
-                data, client.getSocketAddr(), e);
-        }
-
-        return null;
-    }
-
-    public static String getPushCacheKey(String serviceName, String clientIP, String agent) {
-        return serviceName + UtilsAndCommons.CACHE_KEY_SPLITER + agent;
+    private static String getPushCacheKey(PushClient client, boolean clientAware) {
+        String key = client.getClusters() + UtilsAndCommons.CACHE_KEY_SPLITER + client.getAgent();
+        return clientAware ? key + UtilsAndCommons.CACHE_KEY_SPLITER + client.getIp() : key;
     }
 
     public void serviceChanged(Service service) {
+        // health status may have been changed in place, the checksum must not be reused:
+        service.resetChecksum();
+
         // merge some change events to reduce the push frequency:
         if (futureMap.containsKey(UtilsAndCommons.assembleFullServiceName(service.getNamespaceId(), service.getName()))) {
             return;
@@ -344,20 +426,60 @@ public class PushService implements ApplicationContextAware, ApplicationListener
     }
 
     public static List<Receiver.AckEntry> getFailedPushes() {
-        return new ArrayList<Receiver.AckEntry>(ackMap.values());
+        List<Receiver.AckEntry> failedPushes = new ArrayList<Receiver.AckEntry>();
+        for (PushRound round : roundMap.values()) {
+            failedPushes.addAll(round.ackEntries.values());
+        }
+        return failedPushes;
     }
 
     public int getFailedPushCount() {
-        return ackMap.size() + failedPush;
+        int unacked = 0;
+        for (PushRound round : roundMap.values()) {
+            unacked += round.ackEntries.size();
+        }
+        return unacked + failedPush.get();
     }
 
     public void setFailedPush(int failedPush) {
-        PushService.failedPush = failedPush;
+        PushService.failedPush.set(failedPush);
     }
 
 
+    private static void recordPushCost(long pushCost) {
+        long max;
+        do {
+            max = maxPushCost.get();
+        } while (pushCost > max && !maxPushCost.compareAndSet(max, pushCost));
+        totalPushCost.add(pushCost);
+        ackCount.increment();
+    }
+
+    /**
+     * Get the max cost of pushes acked since last reset
+     *
+     * @return max cost in milliseconds, -1 if no push is acked
+     */
+    public static long getMaxPushCost() {
+        return maxPushCost.get();
+    }
+
+    /**
+     * Get the average cost of pushes acked since last reset, and reset the push cost statistics
+     *
+     * @return average cost in milliseconds, -1 if no push is acked
+     */
+    public static long getAndResetAvgPushCost() {
+        maxPushCost.set(-1L);
+        long count = ackCount.sumThenReset();
+        long totalCost = totalPushCost.sumThenReset();
+        return count > 0 && totalCost > 0 ? totalCost / count : -1L;
+    }
+
     public static void resetPushState() {
-        ackMap.clear();
+        for (PushRound round : roundMap.values()) {
+            round.ackEntries.clear();
+        }
     }
 
     public class PushClient {
@@ -520,97 +642,140 @@ public class PushService implements ApplicationContextAware, ApplicationListener
         return cmd;
     }
 
-    private static Receiver.AckEntry prepareAckEntry(PushClient client, Map<String, Object> data, long lastRefTime) {
-        if (MapUtils.isEmpty(data)) {
-            Loggers.PUSH.error("[NACOS-PUSH] pushing empty data for client is not allowed: {}", client);
-            return null;
+    private static void udpPush(PushRound round, Receiver.AckEntry ackEntry) {
+        if (ackEntry.getRetryTimes() > MAX_RETRY_TIMES) {
+            Loggers.PUSH.warn("max re-push times reached, retry times {}, key: {}", ackEntry.retryTimes, ackEntry.key);
+            round.ackEntries.remove(ackEntry.key);
+            failedPush.incrementAndGet();
+            MetricsMonitor.getPushDropCounter(DROP_ACK_TIMEOUT).increment();
+            return;
         }
 
-        data.put("lastRefTime", lastRefTime);
+        try {
+            // we must store the key before send, otherwise there will be a chance the
+            // ack returns before we put in
+            if (ackEntry.getRetryTimes() == 0) {
+                round.ackEntries.put(ackEntry.key, ackEntry);
+                totalPush.incrementAndGet();
+            } else {
+                MetricsMonitor.getPushRetransmitCounter().increment();
+            }
+            ackEntry.sendNanos = System.nanoTime();
+
+            Loggers.PUSH.debug("send udp packet: " + ackEntry.key);
+            DatagramPacket packet = ackEntry.origin;
+            int sent = udpChannel.send(ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()),
+                packet.getSocketAddress());
+            if (sent == 0) {
+                // send buffer is full, the packet is sent again by the retransmitter:
+                Loggers.PUSH.warn("udp send buffer is full, packet delayed: {}", ackEntry.key);
+                MetricsMonitor.getPushDropCounter(DROP_SEND_BUFFER_FULL).increment();
+            }
 
-        // we apply lastRefTime as sequence num for further ack
-        String key = getACKKey(client.getSocketAddr().getAddress().getHostAddress(),
-            client.getSocketAddr().getPort(),
-            lastRefTime);
+            ackEntry.increaseRetryTime();
+        } catch (Exception e) {
+            Loggers.PUSH.error("[NACOS-PUSH] failed to push data: {} to client: {}, error: {}",
+                ackEntry.data, ackEntry.origin.getAddress().getHostAddress(), e);
+            round.ackEntries.remove(ackEntry.key);
+            failedPush.incrementAndGet();
+            MetricsMonitor.getPushDropCounter(DROP_SEND_FAILED).increment();
+        }
+    }
 
-        String dataStr = JSON.toJSONString(data);
+    private static String getACKKey(String host, int port, long lastRefTime) {
+        return StringUtils.strip(host) + "," + port + "," + lastRefTime;
+    }
 
-        try {
-            byte[] dataBytes = dataStr.getBytes(StandardCharsets.UTF_8);
-            dataBytes = compressIfNecessary(dataBytes);
+    private static class PushRound {
 
-            DatagramPacket packet = new DatagramPacket(dataBytes, dataBytes.length, client.socketAddr);
+        private ConcurrentMap<String, Receiver.AckEntry> ackEntries = new ConcurrentHashMap<>(16);
 
-            // we must store the key be fore send, otherwise there will be a chance the
-            // ack returns before we put in
-            Receiver.AckEntry ackEntry = new Receiver.AckEntry(key, packet);
-            ackEntry.data = data;
+        /**
+         * Push tasks of this round not finished yet, the round must stay in roundMap until they have
+         * registered their ack entries, otherwise the acks of late tasks are never matched.
+         */
+        private AtomicInteger pendingTasks = new AtomicInteger();
 
-            return ackEntry;
-        } catch (Exception e) {
-            Loggers.PUSH.error("[NACOS-PUSH] failed to prepare data: {} to client: {}, error: {}",
-                data, client.getSocketAddr(), e);
-            return null;
+        private boolean isDone() {
+            // check pending tasks first, a finished task has put all its ack entries before the decrement:
+            return pendingTasks.get() == 0 && ackEntries.isEmpty();
         }
     }
 
-    private static Receiver.AckEntry udpPush(Receiver.AckEntry ackEntry) {
-        if (ackEntry == null) {
-            Loggers.PUSH.error("[NACOS-PUSH] ackEntry is null.");
-            return null;
-        }
+    private static class PushTask implements Runnable {
 
-        if (ackEntry.getRetryTimes() > MAX_RETRY_TIMES) {
-            Loggers.PUSH.warn("max re-push times reached, retry times {}, key: {}", ackEntry.retryTimes, ackEntry.key);
-            ackMap.remove(ackEntry.key);
-            udpSendTimeMap.remove(ackEntry.key);
-            failedPush += 1;
-            return ackEntry;
-        }
+        private PushRound round;
 
-        try {
-            if (!ackMap.containsKey(ackEntry.key)) {
-                totalPush++;
-            }
-            ackMap.put(ackEntry.key, ackEntry);
-            udpSendTimeMap.put(ackEntry.key, System.currentTimeMillis());
+        private long sequence;
 
-            Loggers.PUSH.info("send udp packet: " + ackEntry.key);
-            udpSocket.send(ackEntry.origin);
+        private long changedNanos;
 
-            ackEntry.increaseRetryTime();
+        private List<PushClient> clients;
 
-            executorService.schedule(new Retransmitter(ackEntry), TimeUnit.NANOSECONDS.toMillis(ACK_TIMEOUT_NANOS),
-                TimeUnit.MILLISECONDS);
+        private byte[] dataBytes;
 
-            return ackEntry;
-        } catch (Exception e) {
-            Loggers.PUSH.error("[NACOS-PUSH] failed to push data: {} to client: {}, error: {}",
-                ackEntry.data, ackEntry.origin.getAddress().getHostAddress(), e);
-            ackMap.remove(ackEntry.key);
-            udpSendTimeMap.remove(ackEntry.key);
-            failedPush += 1;
+        private Map<String, Object> data;
 
-            return null;
+        PushTask(PushRound round, long sequence, long changedNanos, List<PushClient> clients, byte[] dataBytes,
+                 Map<String, Object> data) {
+            this.round = round;
+            this.sequence = sequence;
+            this.changedNanos = changedNanos;
+            this.clients = clients;
+            this.dataBytes = dataBytes;
+            this.data = data;
         }
-    }
 
-    private static String getACKKey(String host, int port, long lastRefTime) {
-        return StringUtils.strip(host) + "," + port + "," + lastRefTime;
-    }
+        @Override
+        public void run() {
+            try {
+                pushAll();
+            } finally {
+                round.pendingTasks.decrementAndGet();
+            }
+        }
 
-    public static class Retransmitter implements Runnable {
-        Receiver.AckEntry ackEntry;
+        private void pushAll() {
+            for (PushClient client : clients) {
+                String key = getACKKey(client.getIp(), client.getSocketAddr().getPort(), sequence);
+                Receiver.AckEntry ackEntry = new Receiver.AckEntry(key,
+                    new DatagramPacket(dataBytes, dataBytes.length, client.getSocketAddr()));
+                ackEntry.data = data;
 
-        public Retransmitter(Receiver.AckEntry ackEntry) {
-            this.ackEntry = ackEntry;
+                Loggers.PUSH.debug("push serviceName: {} to client: {}, key: {}", client.getServiceName(), client, key);
+                udpPush(round, ackEntry);
+                if (ackEntry.getRetryTimes() > 0) {
+                    MetricsMonitor.getPushChangeToSendTimer().record(ackEntry.sendNanos - changedNanos,
+                        TimeUnit.NANOSECONDS);
+                }
+            }
         }
+    }
+
+    public static class Retransmitter implements Runnable {
 
         @Override
         public void run() {
-            if (ackMap.containsKey(ackEntry.key)) {
-                Loggers.PUSH.info("retry to push data, key: " + ackEntry.key);
-                udpPush(ackEntry);
+            try {
+                for (long sequence : retransmitWheel.advance(System.currentTimeMillis())) {
+                    PushRound round = roundMap.get(sequence);
+                    if (round == null) {
+                        continue;
+                    }
+
+                    for (Receiver.AckEntry ackEntry : round.ackEntries.values()) {
+                        Loggers.PUSH.info("retry to push data, key: " + ackEntry.key);
+                        udpPush(round, ackEntry);
+                    }
+
+                    if (round.isDone()) {
+                        roundMap.remove(sequence);
+                    } else {
+                        scheduleRetransmit(sequence);
+                    }
+                }
+            } catch (Throwable e) {
+                Loggers.PUSH.error("[NACOS-PUSH] error while retransmitting data", e);
             }
         }
     }
@@ -618,43 +783,53 @@ public class PushService implements ApplicationContextAware, ApplicationListener
     public static class Receiver implements Runnable {
         @Override
         public void run() {
+            ByteBuffer buffer = ByteBuffer.allocate(1024 * 64);
             while (true) {
-                byte[] buffer = new byte[1024 * 64];
-                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-
                 try {
-                    udpSocket.receive(packet);
-
-                    String json = new String(packet.getData(), 0, packet.getLength(), Charset.forName("UTF-8")).trim();
-                    AckPacket ackPacket = JSON.parseObject(json, AckPacket.class);
-
-                    InetSocketAddress socketAddress = (InetSocketAddress) packet.getSocketAddress();
-                    String ip = socketAddress.getAddress().getHostAddress();
-                    int port = socketAddress.getPort();
-
-                    if (System.nanoTime() - ackPacket.lastRefTime > ACK_TIMEOUT_NANOS) {
-                        Loggers.PUSH.warn("ack takes too long from {} ack json: {}", packet.getSocketAddress(), json);
+                    ackSelector.select();
+                    ackSelector.selectedKeys().clear();
+
+                    InetSocketAddress socketAddress;
+                    while ((socketAddress = (InetSocketAddress) udpChannel.receive(buffer)) != null) {
+                        String json = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+                        buffer.clear();
+                        onAck(json, socketAddress);
                     }
+                } catch (Throwable e) {
+                    Loggers.PUSH.error("[NACOS-PUSH] error while receiving ack data", e);
+                }
+            }
+        }
 
-                    String ackKey = getACKKey(ip, port, ackPacket.lastRefTime);
-                    AckEntry ackEntry = ackMap.remove(ackKey);
-                    if (ackEntry == null) {
-                        throw new IllegalStateException("unable to find ackEntry for key: " + ackKey
-                            + ", ack json: " + json);
-                    }
+        private void onAck(String json, InetSocketAddress socketAddress) {
+            try {
+                AckPacket ackPacket = JSON.parseObject(json, AckPacket.class);
 
-                    long pushCost = System.currentTimeMillis() - udpSendTimeMap.get(ackKey);
+                String ip = socketAddress.getAddress().getHostAddress();
+                int port = socketAddress.getPort();
+
+                if (System.nanoTime() - ackPacket.lastRefTime > ACK_TIMEOUT_NANOS) {
+                    Loggers.PUSH.warn("ack takes too long from {} ack json: {}", socketAddress, json);
+                }
 
-                    Loggers.PUSH.info("received ack: {} from: {}:, cost: {} ms, unacked: {}, total push: {}",
-                        json, ip, port, pushCost, ackMap.size(), totalPush);
+                String ackKey = getACKKey(ip, port, ackPacket.lastRefTime);
+                PushRound round = roundMap.get(ackPacket.lastRefTime);
+                AckEntry ackEntry = round == null ? null : round.ackEntries.remove(ackKey);
+                if (ackEntry == null) {
+                    Loggers.PUSH.warn("unable to find ackEntry for key: {}, ack json: {}", ackKey, json);
+                    return;
+                }
 
-                    pushCostMap.put(ackKey, pushCost);
+                long pushCostNanos = System.nanoTime() - ackEntry.sendNanos;
+                long pushCost = TimeUnit.NANOSECONDS.toMillis(pushCostNanos);
 
-                    udpSendTimeMap.remove(ackKey);
+                Loggers.PUSH.info("received ack: {} from: {}:{}, cost: {} ms, total push: {}",
+                    json, ip, port, pushCost, totalPush.get());
 
-                } catch (Throwable e) {
-                    Loggers.PUSH.error("[NACOS-PUSH] error while receiving ack data", e);
-                }
+                recordPushCost(pushCost);
+                MetricsMonitor.getPushSendToAckTimer().record(pushCostNanos, TimeUnit.NANOSECONDS);
+            } catch (Throwable e) {
+                Loggers.PUSH.error("[NACOS-PUSH] error while handling ack data: " + json, e);
             }
         }
 
@@ -676,6 +851,7 @@ public class PushService implements ApplicationContextAware, ApplicationListener
             public String key;
             public DatagramPacket origin;
             private AtomicInteger retryTimes = new AtomicInteger(0);
+            private volatile long sendNanos;
             public Map<String, Object> data;
         }
 
@@ -17,8 +17,8 @@ package com.alibaba.nacos.naming.web;
 
 import com.alibaba.nacos.api.common.Constants;
 import com.alibaba.nacos.api.naming.CommonParams;
+import com.alibaba.nacos.common.util.HttpMethod;
 import com.alibaba.nacos.naming.core.DistroMapper;
-import com.alibaba.nacos.naming.misc.HttpClient;
 import com.alibaba.nacos.naming.misc.Loggers;
 import com.alibaba.nacos.naming.misc.SwitchDomain;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
@@ -32,18 +32,14 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.security.AccessControlException;
-import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.List;
 
 /**
  * @author nacos
  */
 public class DistroFilter implements Filter {
 
-    private static final int PROXY_CONNECT_TIMEOUT = 2000;
-    private static final int PROXY_READ_TIMEOUT = 2000;
+    private static final String BEAT_PATH = UtilsAndCommons.NACOS_NAMING_CONTEXT
+        + UtilsAndCommons.NACOS_NAMING_INSTANCE_CONTEXT + "/beat";
 
     @Autowired
     private DistroMapper distroMapper;
@@ -54,6 +50,9 @@ public class DistroFilter implements Filter {
     @Autowired
     private FilterBase filterBase;
 
+    @Autowired
+    private DistroForwarder distroForwarder;
+
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
 
@@ -64,6 +63,9 @@ public class DistroFilter implements Filter {
         HttpServletRequest req = (HttpServletRequest) servletRequest;
         HttpServletResponse resp = (HttpServletResponse) servletResponse;
 
+        // let clients routing requests by themselves know when their mapping is out of date:
+        resp.setHeader(UtilsAndCommons.DISTRO_VERSION_HEADER, distroMapper.getVersion());
+
         String urlString = req.getRequestURI();
 
         if (StringUtils.isNotBlank(req.getQueryString())) {
@@ -107,25 +109,7 @@ public class DistroFilter implements Filter {
                     return;
                 }
 
-                List<String> headerList = new ArrayList<>(16);
-                Enumeration<String> headers = req.getHeaderNames();
-                while (headers.hasMoreElements()) {
-                    String headerName = headers.nextElement();
-                    headerList.add(headerName);
-                    headerList.add(req.getHeader(headerName));
-                }
-                HttpClient.HttpResult result =
-                    HttpClient.request("http://" + distroMapper.mapSrv(groupedServiceName) + urlString, headerList,
-                        StringUtils.isBlank(req.getQueryString()) ? HttpClient.translateParameterMap(req.getParameterMap()) : new HashMap<>(2)
-                        , PROXY_CONNECT_TIMEOUT, PROXY_READ_TIMEOUT, "UTF-8", req.getMethod());
-
-                try {
-                    resp.setCharacterEncoding("UTF-8");
-                    resp.getWriter().write(result.content);
-                    resp.setStatus(result.code);
-                } catch (Exception ignore) {
-                    Loggers.SRV_LOG.warn("[DISTRO-FILTER] request failed: " + distroMapper.mapSrv(groupedServiceName) + urlString);
-                }
+                distroForwarder.forward(distroMapper.mapSrv(groupedServiceName), urlString, isBeat(req, path), req, resp);
                 return;
             }
 
@@ -146,6 +130,10 @@ public class DistroFilter implements Filter {
 
     }
 
+    private boolean isBeat(HttpServletRequest req, String path) {
+        return HttpMethod.PUT.equals(req.getMethod()) && path.endsWith(BEAT_PATH);
+    }
+
     @Override
     public void destroy() {
 
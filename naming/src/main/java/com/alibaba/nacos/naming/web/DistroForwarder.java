@@ -0,0 +1,498 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.web;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.nacos.api.common.Constants;
+import com.alibaba.nacos.api.naming.CommonParams;
+import com.alibaba.nacos.api.naming.NamingResponseCode;
+import com.alibaba.nacos.common.util.HttpMethod;
+import com.alibaba.nacos.core.utils.WebUtils;
+import com.alibaba.nacos.naming.boot.RunningConfig;
+import com.alibaba.nacos.naming.healthcheck.RsInfo;
+import com.alibaba.nacos.naming.misc.HttpClient;
+import com.alibaba.nacos.naming.misc.Loggers;
+import com.alibaba.nacos.naming.misc.SwitchDomain;
+import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.ning.http.client.AsyncCompletionHandler;
+import com.ning.http.client.AsyncHandler;
+import com.ning.http.client.HttpResponseBodyPart;
+import com.ning.http.client.HttpResponseHeaders;
+import com.ning.http.client.HttpResponseStatus;
+import com.ning.http.client.Response;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Forward requests to their responsible servers without blocking servlet threads.
+ * <p>
+ * A forwarded request is put into asynchronous mode and proxied over the pooled connections of
+ * {@link HttpClient}, the response of the responsible server is written back once it is received completely.
+ * Instance beats are not proxied one by one: beats for the same server are queued for a short while and sent
+ * as one batch beat request.
+ * <p>
+ * Parameters and headers are copied when the request is forwarded, as the request must not be touched by
+ * callback threads. Upstream requests time out before the asynchronous request does, and a response is
+ * written only once: either by a callback, or with a timeout status when the asynchronous request times out.
+ *
+ * @author nkorange
+ * @since 1.1.3
+ */
+@Component
+public class DistroForwarder {
+
+    private static final long FORWARD_TIMEOUT = 5000L;
+
+    private static final int BATCH_TIMEOUT = 1500;
+
+    private static final int PROXY_TIMEOUT = 3000;
+
+    private static final int MAX_BATCH_SIZE = 32;
+
+    private static final long BATCH_DELAY_MILLIS = 50L;
+
+    private static final String BATCH_BEAT_API = UtilsAndCommons.NACOS_NAMING_CONTEXT
+        + UtilsAndCommons.NACOS_NAMING_INSTANCE_CONTEXT + "/beat/batch";
+
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    private static final Set<String> SKIPPED_HEADERS = new HashSet<>(Arrays.asList("host", "connection",
+        "content-length", "transfer-encoding", "accept-encoding", "user-agent"));
+
+    private final ConcurrentMap<String, BeatBatch> beatBatches = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("com.alibaba.nacos.naming.distro.beat.forwarder");
+            return thread;
+        }
+    });
+
+    @Autowired
+    private SwitchDomain switchDomain;
+
+    /**
+     * Forward a request to its responsible server
+     *
+     * @param server    responsible server
+     * @param urlString request URI with query string
+     * @param beat      if the request is an instance beat
+     * @param req       request
+     * @param resp      response
+     */
+    public void forward(String server, String urlString, boolean beat, HttpServletRequest req, HttpServletResponse resp) {
+        Exchange exchange = new Exchange(server, urlString, req, resp);
+        AsyncContext asyncContext = req.startAsync(req, resp);
+        asyncContext.setTimeout(FORWARD_TIMEOUT);
+        asyncContext.addListener(exchange);
+        exchange.asyncContext = asyncContext;
+
+        if (beat && enqueueBeat(exchange, req)) {
+            return;
+        }
+        proxy(exchange);
+    }
+
+    private boolean enqueueBeat(Exchange exchange, HttpServletRequest req) {
+        String beat = WebUtils.optional(req, "beat", StringUtils.EMPTY);
+
+        RsInfo rsInfo;
+        if (StringUtils.isNotBlank(beat)) {
+            rsInfo = JSON.parseObject(beat, RsInfo.class);
+            if (!switchDomain.isDefaultInstanceEphemeral() && !rsInfo.isEphemeral()) {
+                return false;
+            }
+            exchange.fullBeat = true;
+        } else {
+            String ip = req.getParameter("ip");
+            String port = req.getParameter("port");
+            if (StringUtils.isBlank(ip) || !StringUtils.isNumeric(port)) {
+                return false;
+            }
+            rsInfo = new RsInfo();
+            rsInfo.setIp(ip);
+            rsInfo.setPort(Integer.parseInt(port));
+            rsInfo.setCluster(WebUtils.optional(req, CommonParams.CLUSTER_NAME, UtilsAndCommons.DEFAULT_CLUSTER_NAME));
+        }
+        rsInfo.setServiceName(req.getParameter(CommonParams.SERVICE_NAME));
+        exchange.beat = rsInfo;
+
+        String namespaceId = WebUtils.optional(req, CommonParams.NAMESPACE_ID, Constants.DEFAULT_NAMESPACE_ID);
+        String key = exchange.server + UtilsAndCommons.NAMESPACE_SERVICE_CONNECTOR + namespaceId;
+        BeatBatch batch = beatBatches.get(key);
+        if (batch == null) {
+            batch = new BeatBatch(exchange.server, namespaceId);
+            BeatBatch old = beatBatches.putIfAbsent(key, batch);
+            if (old != null) {
+                batch = old;
+            }
+        }
+
+        List<Exchange> full = null;
+        synchronized (batch) {
+            batch.exchanges.add(exchange);
+            if (batch.exchanges.size() >= MAX_BATCH_SIZE) {
+                full = batch.drain();
+            } else if (!batch.scheduled) {
+                batch.scheduled = true;
+                final BeatBatch scheduled = batch;
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        List<Exchange> exchanges;
+                        synchronized (scheduled) {
+                            exchanges = scheduled.drain();
+                        }
+                        sendBatch(scheduled, exchanges);
+                    }
+                }, BATCH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full != null) {
+            sendBatch(batch, full);
+        }
+        return true;
+    }
+
+    private void sendBatch(BeatBatch batch, final List<Exchange> exchanges) {
+        if (exchanges.isEmpty()) {
+            return;
+        }
+
+        List<RsInfo> beats = new ArrayList<>(exchanges.size());
+        for (Exchange exchange : exchanges) {
+            beats.add(exchange.beat);
+        }
+
+        try {
+            sendBeats(batch.server, batch.namespaceId, beats, BATCH_TIMEOUT, new AsyncCompletionHandler() {
+                @Override
+                public Object onCompleted(Response response) throws Exception {
+                    if (response.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                        Loggers.SRV_LOG.warn("[DISTRO-FILTER] batch beat failed, server: {}, code: {}",
+                            batch.server, response.getStatusCode());
+                        proxyAll(exchanges);
+                        return null;
+                    }
+                    completeBeats(exchanges, JSON.parseObject(response.getResponseBody()));
+                    return null;
+                }
+
+                @Override
+                public void onThrowable(Throwable t) {
+                    Loggers.SRV_LOG.warn("[DISTRO-FILTER] batch beat failed, server: " + batch.server, t);
+                    proxyAll(exchanges);
+                }
+            });
+        } catch (Exception e) {
+            Loggers.SRV_LOG.warn("[DISTRO-FILTER] batch beat failed, server: " + batch.server, e);
+            proxyAll(exchanges);
+        }
+    }
+
+    /**
+     * Send beats of instances to a server in one batch beat request
+     *
+     * @param server      target server
+     * @param namespaceId namespace of the instances
+     * @param beats       light beats of the instances
+     * @param timeoutMs   request timeout in milliseconds
+     * @param handler     response handler
+     * @throws Exception if failed to send
+     */
+    public void sendBeats(String server, String namespaceId, List<RsInfo> beats, int timeoutMs,
+                          AsyncCompletionHandler handler) throws Exception {
+        Map<String, String> params = new HashMap<>(4);
+        params.put(CommonParams.NAMESPACE_ID, namespaceId);
+        params.put("beats", JSON.toJSONString(beats));
+        List<String> headers = Arrays.asList("User-Agent=" + UtilsAndCommons.SERVER_VERSION,
+            "Client-Version=" + UtilsAndCommons.SERVER_VERSION);
+
+        HttpClient.asyncHttpRequest("http://" + server + RunningConfig.getContextPath() + BATCH_BEAT_API,
+            headers, params, handler, HttpMethod.PUT, timeoutMs);
+    }
+
+    private void completeBeats(List<Exchange> exchanges, JSONObject result) {
+        JSONArray intervals = result.getJSONArray("intervals");
+        long defaultInterval = result.getLongValue("clientBeatInterval");
+        boolean lightBeatEnabled = result.getBooleanValue("lightBeatEnabled");
+
+        for (int i = 0; i < exchanges.size(); i++) {
+            Exchange exchange = exchanges.get(i);
+            long interval = intervals == null || i >= intervals.size() ? -1L : intervals.getLongValue(i);
+
+            JSONObject beatResult = new JSONObject();
+            if (interval > 0) {
+                beatResult.put(CommonParams.CODE, NamingResponseCode.OK);
+                beatResult.put("clientBeatInterval", interval);
+                beatResult.put("lightBeatEnabled", lightBeatEnabled);
+            } else if (interval == 0 && !exchange.fullBeat) {
+                beatResult.put(CommonParams.CODE, NamingResponseCode.RESOURCE_NOT_FOUND);
+                beatResult.put("clientBeatInterval", defaultInterval);
+            } else {
+                // a full beat of an unknown instance registers it, which a batch beat can not do:
+                proxy(exchange);
+                continue;
+            }
+            exchange.write(beatResult.toJSONString());
+        }
+    }
+
+    private void proxyAll(List<Exchange> exchanges) {
+        for (Exchange exchange : exchanges) {
+            proxy(exchange);
+        }
+    }
+
+    private void proxy(final Exchange exchange) {
+        if (exchange.isDone()) {
+            return;
+        }
+
+        String url = "http://" + exchange.server + exchange.urlString;
+        if (StringUtils.isBlank(exchange.queryString) && !exchange.params.isEmpty()) {
+            try {
+                url += "?" + HttpClient.encodingParams(HttpClient.translateParameterMap(exchange.params), "UTF-8");
+            } catch (Exception e) {
+                exchange.fail(e);
+                return;
+            }
+        }
+
+        try {
+            HttpClient.asyncHttpRequest(url, exchange.headers, exchange.method, PROXY_TIMEOUT, new AsyncHandler<Void>() {
+
+                private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+                private int status = HttpServletResponse.SC_OK;
+
+                private String contentType;
+
+                @Override
+                public void onThrowable(Throwable t) {
+                    exchange.fail(t);
+                }
+
+                @Override
+                public STATE onBodyPartReceived(HttpResponseBodyPart bodyPart) throws Exception {
+                    if (exchange.isDone()) {
+                        return STATE.ABORT;
+                    }
+                    bodyPart.writeTo(body);
+                    return STATE.CONTINUE;
+                }
+
+                @Override
+                public STATE onStatusReceived(HttpResponseStatus responseStatus) throws Exception {
+                    status = responseStatus.getStatusCode();
+                    return STATE.CONTINUE;
+                }
+
+                @Override
+                public STATE onHeadersReceived(HttpResponseHeaders headers) throws Exception {
+                    contentType = headers.getHeaders().getFirstValue(CONTENT_TYPE);
+                    return STATE.CONTINUE;
+                }
+
+                @Override
+                public Void onCompleted() throws Exception {
+                    exchange.write(status, contentType, body.toByteArray());
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            exchange.fail(e);
+        }
+    }
+
+    private static class BeatBatch {
+
+        private final String server;
+
+        private final String namespaceId;
+
+        private List<Exchange> exchanges = new ArrayList<>();
+
+        private boolean scheduled = false;
+
+        BeatBatch(String server, String namespaceId) {
+            this.server = server;
+            this.namespaceId = namespaceId;
+        }
+
+        List<Exchange> drain() {
+            List<Exchange> drained = exchanges;
+            exchanges = new ArrayList<>();
+            scheduled = false;
+            return drained.isEmpty() ? Collections.<Exchange>emptyList() : drained;
+        }
+    }
+
+    private static class Exchange implements AsyncListener {
+
+        private static final String JSON_CONTENT_TYPE = "application/json;charset=UTF-8";
+
+        private final String server;
+
+        private final String urlString;
+
+        private final String method;
+
+        private final String queryString;
+
+        private final Map<String, String[]> params;
+
+        private final Map<String, String> headers = new HashMap<>(16);
+
+        private final HttpServletResponse resp;
+
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        private volatile AsyncContext asyncContext;
+
+        private RsInfo beat;
+
+        private boolean fullBeat = false;
+
+        Exchange(String server, String urlString, HttpServletRequest req, HttpServletResponse resp) {
+            this.server = server;
+            this.urlString = urlString;
+            this.method = req.getMethod();
+            this.queryString = req.getQueryString();
+            this.params = new HashMap<>(req.getParameterMap());
+            this.resp = resp;
+
+            Enumeration<String> headerNames = req.getHeaderNames();
+            while (headerNames.hasMoreElements()) {
+                String headerName = headerNames.nextElement();
+                if (!SKIPPED_HEADERS.contains(headerName.toLowerCase())) {
+                    headers.put(headerName, req.getHeader(headerName));
+                }
+            }
+            headers.put("User-Agent", UtilsAndCommons.SERVER_VERSION);
+        }
+
+        boolean isDone() {
+            return done.get();
+        }
+
+        void write(String content) {
+            write(HttpServletResponse.SC_OK, JSON_CONTENT_TYPE, content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void write(int status, String contentType, byte[] content) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                resp.setStatus(status);
+                if (contentType != null) {
+                    resp.setHeader(CONTENT_TYPE, contentType);
+                }
+                resp.getOutputStream().write(content);
+            } catch (Exception e) {
+                Loggers.SRV_LOG.warn("[DISTRO-FILTER] failed to write response of {}", server + urlString);
+            }
+            complete();
+        }
+
+        void fail(Throwable t) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            Loggers.SRV_LOG.warn("[DISTRO-FILTER] request failed: " + server + urlString, t);
+            error(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, t.toString());
+            complete();
+        }
+
+        private void error(int status, String message) {
+            if (!resp.isCommitted()) {
+                try {
+                    resp.reset();
+                    resp.setStatus(status);
+                    resp.setCharacterEncoding("UTF-8");
+                    resp.getWriter().write(message);
+                } catch (Exception ignore) {
+                }
+            }
+        }
+
+        private void complete() {
+            try {
+                asyncContext.complete();
+            } catch (IllegalStateException ignore) {
+                // the request has already completed
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            Loggers.SRV_LOG.warn("[DISTRO-FILTER] request timed out: {}", server + urlString);
+            error(HttpServletResponse.SC_GATEWAY_TIMEOUT, "forward timed out: " + server);
+            complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            done.set(true);
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            done.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+        }
+    }
+}
@@ -31,6 +31,7 @@ public class NamingConfig {
         registration.setFilter(distroFilter());
         registration.addUrlPatterns("/v1/ns/*");
         registration.setName("distroFilter");
+        registration.setAsyncSupported(true);
         registration.setOrder(6);
 
         return registration;
@@ -42,6 +43,7 @@ public class NamingConfig {
         registration.setFilter(trafficReviseFilter());
         registration.addUrlPatterns("/v1/ns/*");
         registration.setName("trafficReviseFilter");
+        registration.setAsyncSupported(true);
         registration.setOrder(1);
 
         return registration;
@@ -54,6 +56,7 @@ public class NamingConfig {
         registration.setFilter(authFilter());
         registration.addUrlPatterns("/v1/ns/*");
         registration.setName("authFilter");
+        registration.setAsyncSupported(true);
         registration.setOrder(5);
 
         return registration;
@@ -0,0 +1,113 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.cluster.transport;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author nkorange
+ */
+public class BinarySerializerTest {
+
+    private static final String KEY = "com.alibaba.nacos.naming.iplist.ephemeral.public##nacos.test.1";
+
+    private BinarySerializer serializer = new BinarySerializer(new FastJsonSerializer());
+
+    @Test
+    public void serializeDatumMap() {
+
+        Instance instance1 = new Instance("1.1.1.1", 8080, "c1");
+        instance1.setWeight(2.5D);
+        instance1.setServiceName("nacos.test.1");
+        instance1.getMetadata().put("site", "et2");
+        Instance instance2 = new Instance("1.1.1.2", 65535, "c1");
+        instance2.setWeight(0.123D);
+        instance2.setHealthy(false);
+        instance2.setServiceName("nacos.test.1");
+
+        List<Instance> instanceList = new ArrayList<>();
+        instanceList.add(instance1);
+        instanceList.add(instance2);
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = KEY;
+        datum.value = new Instances();
+        datum.value.setInstanceList(instanceList);
+        datum.timestamp.set(12345L);
+
+        Map<String, Datum> datumMap = new HashMap<>(2);
+        datumMap.put(KEY, datum);
+
+        byte[] data = serializer.serialize(datumMap);
+        Assert.assertTrue(BinarySerializer.isBinary(data));
+        Assert.assertTrue(data.length < new FastJsonSerializer().serialize(datumMap).length);
+
+        Map<String, Datum<Instances>> result = serializer.deserializeMap(data, Instances.class);
+        Datum<Instances> resultDatum = result.get(KEY);
+        Assert.assertEquals(KEY, resultDatum.key);
+        Assert.assertEquals(12345L, resultDatum.timestamp.get());
+        Assert.assertEquals(datum.value.getChecksum(), resultDatum.value.getChecksum());
+
+        Instance result1 = resultDatum.value.getInstanceList().get(0);
+        Assert.assertEquals("c1", result1.getClusterName());
+        Assert.assertEquals("et2", result1.getMetadata().get("site"));
+        Assert.assertEquals(instance1.getLastBeat(), result1.getLastBeat());
+        Assert.assertEquals(0.123D, resultDatum.value.getInstanceList().get(1).getWeight(), 0.0D);
+    }
+
+    @Test
+    public void deserializeJson() {
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = KEY;
+        datum.value = new Instances();
+        datum.value.getInstanceList().add(new Instance("1.1.1.1", 8080));
+
+        Map<String, Datum> datumMap = new HashMap<>(2);
+        datumMap.put(KEY, datum);
+
+        byte[] data = new FastJsonSerializer().serialize(datumMap);
+        Assert.assertFalse(BinarySerializer.isBinary(data));
+
+        Map<String, Datum<Instances>> result = serializer.deserializeMap(data, Instances.class);
+        Assert.assertEquals(1, result.get(KEY).value.getInstanceList().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void deserializeCorruptedBinary() {
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = KEY;
+        datum.value = new Instances();
+        datum.value.getInstanceList().add(new Instance("1.1.1.1", 8080));
+
+        Map<String, Datum> datumMap = new HashMap<>(2);
+        datumMap.put(KEY, datum);
+
+        byte[] data = serializer.serialize(datumMap);
+        serializer.deserializeMap(Arrays.copyOf(data, data.length / 2), Instances.class);
+    }
+}
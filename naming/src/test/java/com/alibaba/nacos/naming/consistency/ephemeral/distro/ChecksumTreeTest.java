@@ -0,0 +1,70 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author nkorange
+ */
+public class ChecksumTreeTest {
+
+    private static final int BUCKET_COUNT = 16;
+
+    @Test
+    public void sameDataSameRoot() {
+
+        ChecksumTree tree1 = new ChecksumTree(BUCKET_COUNT);
+        tree1.add("key1", "checksum1", 1);
+        tree1.add("key2", "checksum2", 2);
+        tree1.add("key3", "checksum3", 17);
+
+        ChecksumTree tree2 = new ChecksumTree(BUCKET_COUNT);
+        tree2.add("key3", "checksum3", 17);
+        tree2.add("key2", "checksum2", 2);
+        tree2.add("key1", "checksum1", 1);
+
+        Assert.assertEquals(tree1.getRoot(), tree2.getRoot());
+        Assert.assertTrue(tree1.diff(tree2.getBuckets()).isEmpty());
+    }
+
+    @Test
+    public void diffOnlyChangedBuckets() {
+
+        ChecksumTree tree1 = new ChecksumTree(BUCKET_COUNT);
+        tree1.add("key1", "checksum1", 1);
+        tree1.add("key2", "checksum2", 2);
+        tree1.add("key3", "checksum3", 17);
+
+        ChecksumTree tree2 = new ChecksumTree(BUCKET_COUNT);
+        tree2.add("key1", "checksum1-new", 1);
+        tree2.add("key2", "checksum2", 2);
+
+        Assert.assertNotEquals(tree1.getRoot(), tree2.getRoot());
+
+        List<Integer> diff = tree1.diff(tree2.getBuckets());
+        Assert.assertEquals(1, diff.size());
+        Assert.assertEquals(1, diff.get(0).intValue());
+
+        Map<String, String> checksums = tree2.getChecksums(diff);
+        Assert.assertEquals(1, checksums.size());
+        Assert.assertEquals("checksum1-new", checksums.get("key1"));
+    }
+}
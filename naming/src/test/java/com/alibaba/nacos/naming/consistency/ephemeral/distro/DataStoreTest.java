@@ -0,0 +1,118 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.consistency.ephemeral.distro;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.core.Instance;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * @author nkorange
+ */
+public class DataStoreTest {
+
+    private static final String KEY = "com.alibaba.nacos.naming.iplist.ephemeral.public##nacos.test.1";
+
+    private DataStore dataStore;
+
+    @Before
+    public void before() {
+        dataStore = new DataStore();
+    }
+
+    @Test
+    public void putLocalAndGetDelta() {
+
+        Instance instance1 = new Instance("1.1.1.1", 1);
+        Instance instance2 = new Instance("1.1.1.2", 2);
+        putLocal(instance1, instance2);
+        Assert.assertEquals(1L, dataStore.get(KEY).timestamp.get());
+
+        Instance instance3 = new Instance("1.1.1.3", 3);
+        instance1.setHealthy(false);
+        putLocal(instance1, instance3);
+        Assert.assertEquals(2L, dataStore.get(KEY).timestamp.get());
+
+        DatumDelta delta = dataStore.getDelta(KEY, 1L, 2L);
+        Assert.assertNotNull(delta);
+        Assert.assertEquals(2, delta.getUpdatedInstances().size());
+        Assert.assertEquals(Arrays.asList(instance2.getDatumKey()), delta.getRemovedInstances());
+
+        // version 3 does not exist yet:
+        Assert.assertNull(dataStore.getDelta(KEY, 1L, 3L));
+    }
+
+    @Test
+    public void mergeAndApplyDelta() {
+
+        Instance instance1 = new Instance("1.1.1.1", 1);
+        Instance instance2 = new Instance("1.1.1.2", 2);
+        putLocal(instance1, instance2);
+        Instances base = copy(dataStore.get(KEY));
+
+        Instance instance3 = new Instance("1.1.1.3", 3);
+        putLocal(instance1, instance2, instance3);
+        putLocal(instance1, instance3);
+
+        DatumDelta delta = dataStore.getDelta(KEY, 1L, 3L);
+        Assert.assertNotNull(delta);
+        Assert.assertEquals(1L, delta.getBaseVersion());
+        Assert.assertEquals(3L, delta.getVersion());
+
+        Instances result = delta.applyTo(base);
+        Assert.assertEquals(2, result.getInstanceList().size());
+        Assert.assertTrue(result.getInstanceList().contains(instance1));
+        Assert.assertTrue(result.getInstanceList().contains(instance3));
+        Assert.assertEquals(((Instances) dataStore.get(KEY).value).getChecksum(), result.getChecksum());
+    }
+
+    @Test
+    public void remotePutInvalidatesDelta() {
+
+        putLocal(new Instance("1.1.1.1", 1));
+        putLocal(new Instance("1.1.1.2", 2));
+
+        Datum<Instances> datum = new Datum<>();
+        datum.key = KEY;
+        datum.value = new Instances();
+        datum.timestamp.set(5L);
+        dataStore.put(KEY, datum);
+
+        Assert.assertNull(dataStore.getDelta(KEY, 1L, 2L));
+    }
+
+    private void putLocal(Instance... instances) {
+        Datum<Instances> datum = new Datum<>();
+        datum.key = KEY;
+        datum.value = new Instances();
+        datum.value.setInstanceList(new ArrayList<>(Arrays.asList(instances)));
+        dataStore.putLocal(KEY, datum, 16);
+    }
+
+    private Instances copy(Datum datum) {
+        List<Instance> instanceList = new ArrayList<>(((Instances) datum.value).getInstanceList());
+        Instances instances = new Instances();
+        instances.setInstanceList(instanceList);
+        return instances;
+    }
+}
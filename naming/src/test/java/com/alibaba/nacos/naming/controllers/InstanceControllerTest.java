@@ -24,7 +24,9 @@ import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeerSet;
 import com.alibaba.nacos.naming.core.Cluster;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.exception.ResponseExceptionHandler;
 import com.alibaba.nacos.naming.misc.UtilsAndCommons;
+import com.alibaba.nacos.naming.web.DistroForwarder;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,18 +34,22 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockServletContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author nkorange
@@ -59,12 +65,16 @@ public class InstanceControllerTest extends BaseTest {
     @Mock
     private RaftPeerSet peerSet;
 
+    @Spy
+    private DistroForwarder distroForwarder = new DistroForwarder();
+
     private MockMvc mockmvc;
 
     @Before
     public void before() {
         super.before();
-        mockmvc = MockMvcBuilders.standaloneSetup(instanceController).build();
+        mockmvc = MockMvcBuilders.standaloneSetup(instanceController)
+            .setControllerAdvice(new ResponseExceptionHandler()).build();
     }
 
     @Test
@@ -164,4 +174,134 @@ public class InstanceControllerTest extends BaseTest {
         JSONArray hosts = result.getJSONArray("hosts");
         Assert.assertEquals(hosts.size(), 0);
     }
+
+    @Test
+    public void getInstancesWithChecksum() throws Exception {
+
+        Service service = new Service();
+        service.setName(TEST_SERVICE_NAME);
+
+        Cluster cluster = new Cluster(UtilsAndCommons.DEFAULT_CLUSTER_NAME, service);
+        service.addCluster(cluster);
+
+        Instance instance = new Instance();
+        instance.setIp("10.10.10.10");
+        instance.setPort(8888);
+        instance.setServiceName(TEST_SERVICE_NAME);
+        List<Instance> ipList = new ArrayList<>();
+        ipList.add(instance);
+        service.updateIPs(ipList, false);
+        service.recalculateChecksum();
+
+        Mockito.when(serviceManager.getService(Constants.DEFAULT_NAMESPACE_ID, TEST_SERVICE_NAME)).thenReturn(service);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+                .param("serviceName", TEST_SERVICE_NAME);
+
+        // the second request is served from cache:
+        mockmvc.perform(builder).andReturn();
+        MockHttpServletResponse response = mockmvc.perform(builder).andReturn().getResponse();
+        JSONObject result = JSON.parseObject(response.getContentAsString());
+        Assert.assertEquals(service.getVersion(), result.getString("checksum"));
+        Assert.assertEquals(1, result.getJSONArray("hosts").size());
+        Assert.assertTrue(result.getLongValue("lastRefTime") > 0);
+
+        builder = MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+            .param("serviceName", TEST_SERVICE_NAME)
+            .param("checksum", service.getVersion());
+        response = mockmvc.perform(builder).andReturn().getResponse();
+        Assert.assertEquals(304, response.getStatus());
+        Assert.assertEquals(0, response.getContentAsByteArray().length);
+
+        String oldVersion = service.getVersion();
+        instance.setHealthy(false);
+        service.resetChecksum();
+        response = mockmvc.perform(builder).andReturn().getResponse();
+        Assert.assertEquals(200, response.getStatus());
+        result = JSON.parseObject(response.getContentAsString());
+        Assert.assertNotEquals(oldVersion, result.getString("checksum"));
+        Assert.assertEquals(service.getVersion(), result.getString("checksum"));
+
+        // metadata is not covered by the checksum, but is returned to clients:
+        builder = MockMvcRequestBuilders.get(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/list")
+            .param("serviceName", TEST_SERVICE_NAME)
+            .param("checksum", service.getVersion());
+        String checksum = service.getChecksum();
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("key", "value");
+        service.setMetadata(metadata);
+        Assert.assertEquals(checksum, service.getChecksum());
+        response = mockmvc.perform(builder).andReturn().getResponse();
+        Assert.assertEquals(200, response.getStatus());
+        result = JSON.parseObject(response.getContentAsString());
+        Assert.assertEquals("value", result.getJSONObject("metadata").getString("key"));
+    }
+
+    @Test
+    public void batchBeatWithFailedForward() throws Exception {
+        Mockito.when(distroMapper.responsible(Mockito.anyString())).thenReturn(false);
+        // nothing listens on this port:
+        Mockito.when(distroMapper.mapSrv(Mockito.anyString())).thenReturn("127.0.0.1:1");
+
+        JSONObject beat = new JSONObject();
+        beat.put("serviceName", TEST_SERVICE_NAME);
+        beat.put("ip", "10.10.10.10");
+        beat.put("port", 8888);
+        JSONArray beats = new JSONArray();
+        beats.add(beat);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/beat/batch")
+                .param("beats", beats.toJSONString());
+        MvcResult mvcResult = mockmvc.perform(builder).andReturn();
+        Assert.assertTrue(mvcResult.getRequest().isAsyncStarted());
+        mvcResult.getAsyncResult(5000L);
+        MockHttpServletResponse response = mockmvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+            .andReturn().getResponse();
+        JSONObject result = JSON.parseObject(response.getContentAsString());
+
+        Assert.assertEquals(-1L, result.getJSONArray("intervals").getLongValue(0));
+        Assert.assertEquals(0, result.getJSONArray("notFound").size());
+        Assert.assertEquals(1, result.getJSONArray("failed").size());
+        Assert.assertEquals("10.10.10.10", result.getJSONArray("failed").getJSONObject(0).getString("ip"));
+    }
+
+    @Test
+    public void batchBeatWithoutServiceName() throws Exception {
+        JSONObject beat = new JSONObject();
+        beat.put("ip", "10.10.10.10");
+        beat.put("port", 8888);
+        JSONArray beats = new JSONArray();
+        beats.add(beat);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/beat/batch")
+                .param("beats", beats.toJSONString());
+        Assert.assertEquals(400, mockmvc.perform(builder).andReturn().getResponse().getStatus());
+    }
+
+    @Test
+    public void batchBeatWithLightBeatDisabled() throws Exception {
+        Mockito.when(distroMapper.responsible(Mockito.anyString())).thenReturn(true);
+        switchDomain.setLightBeatEnabled(false);
+
+        JSONObject beat = new JSONObject();
+        beat.put("serviceName", TEST_SERVICE_NAME);
+        beat.put("ip", "10.10.10.10");
+        beat.put("port", 8888);
+        JSONArray beats = new JSONArray();
+        beats.add(beat);
+
+        MockHttpServletRequestBuilder builder =
+            MockMvcRequestBuilders.put(UtilsAndCommons.NACOS_NAMING_CONTEXT + "/instance/beat/batch")
+                .param("beats", beats.toJSONString());
+        MvcResult mvcResult = mockmvc.perform(builder).andReturn();
+        MockHttpServletResponse response = mockmvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+            .andReturn().getResponse();
+        JSONObject result = JSON.parseObject(response.getContentAsString());
+
+        Assert.assertFalse(result.getBooleanValue("lightBeatEnabled"));
+        Assert.assertEquals(1, result.getJSONArray("notFound").size());
+    }
 }
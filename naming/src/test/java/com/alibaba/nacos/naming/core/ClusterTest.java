@@ -93,6 +93,33 @@ public class ClusterTest {
         Assert.assertEquals(2345, ips.get(1).getPort());
     }
 
+    @Test
+    public void getInstance() {
+
+        Instance instance1 = new Instance();
+        instance1.setIp("1.1.1.1");
+        instance1.setPort(1234);
+
+        Instance instance2 = new Instance();
+        instance2.setIp("1.1.1.1");
+        instance2.setPort(2345);
+
+        List<Instance> list = new ArrayList<>();
+        list.add(instance1);
+        list.add(instance2);
+
+        cluster.updateIPs(list, false);
+
+        Assert.assertSame(instance1, cluster.getInstance("1.1.1.1", 1234));
+        Assert.assertSame(instance2, cluster.getInstance("1.1.1.1", 2345));
+        Assert.assertNull(cluster.getInstance("1.1.1.1", 3456));
+        Assert.assertNull(cluster.getInstance("2.2.2.2", 1234));
+
+        list.remove(instance1);
+        cluster.updateIPs(list, false);
+        Assert.assertNull(cluster.getInstance("1.1.1.1", 1234));
+    }
+
     @Test
     public void testValidate() {
         Service service = new Service("nacos.service.2");
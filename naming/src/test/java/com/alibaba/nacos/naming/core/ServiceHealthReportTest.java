@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author nkorange
+ */
+public class ServiceHealthReportTest {
+
+    @Test
+    public void testCanonicalOrder() {
+        Instance a = new Instance("1.1.1.1", 1);
+        Instance b = new Instance("1.1.1.2", 1);
+        Instance c = new Instance("1.1.1.3", 1);
+
+        InstanceSnapshot snapshot1 = InstanceSnapshot.of(Arrays.asList(c, a), Collections.singletonList(b));
+        InstanceSnapshot snapshot2 = InstanceSnapshot.of(Collections.<Instance>emptyList(), Arrays.asList(b, a, c));
+
+        Assert.assertArrayEquals(new Instance[]{a, b, c}, snapshot1.getCanonicalInstances());
+        Assert.assertEquals(snapshot1.getMembershipHash(), snapshot2.getMembershipHash());
+        Assert.assertNotEquals(snapshot1.getMembershipHash(),
+            InstanceSnapshot.of(Arrays.asList(a, b), Collections.<Instance>emptyList()).getMembershipHash());
+    }
+
+    @Test
+    public void testEncodeAndDecode() throws Exception {
+        List<Instance> instances = Arrays.asList(new Instance("1.1.1.1", 1), new Instance("1.1.1.2", 1),
+            new Instance("1.1.1.3", 1), new Instance("1.1.1.4", 1), new Instance("1.1.1.5", 1),
+            new Instance("1.1.1.6", 1), new Instance("1.1.1.7", 1), new Instance("1.1.1.8", 1),
+            new Instance("1.1.1.9", 1));
+        for (int i = 0; i < instances.size(); i++) {
+            instances.get(i).setHealthy(i % 3 == 0);
+        }
+        InstanceSnapshot snapshot = InstanceSnapshot.of(instances, Collections.<Instance>emptyList());
+
+        ServiceHealthReport report = new ServiceHealthReport("1.1.1.1:8848");
+        report.add("public", ServiceHealthReport.Entry.of("DEFAULT_GROUP@@test", 100L, snapshot));
+        report.add("public", ServiceHealthReport.Entry.of("DEFAULT_GROUP@@empty", 1L, InstanceSnapshot.EMPTY));
+
+        ServiceHealthReport decoded = ServiceHealthReport.decode(report.encode());
+        Assert.assertEquals("1.1.1.1:8848", decoded.getSource());
+        Assert.assertEquals(2, decoded.getEntries().get("public").size());
+
+        ServiceHealthReport.Entry entry = decoded.getEntries().get("public").get(0);
+        Assert.assertEquals("DEFAULT_GROUP@@test", entry.getServiceName());
+        Assert.assertEquals(100L, entry.getVersion());
+        Assert.assertTrue(entry.matches(snapshot));
+        Assert.assertTrue(entry.sameStatuses(report.getEntries().get("public").get(0)));
+
+        Instance[] canonical = snapshot.getCanonicalInstances();
+        for (int i = 0; i < canonical.length; i++) {
+            Assert.assertEquals(canonical[i].isHealthy(), entry.isHealthy(i));
+        }
+
+        canonical[4].setHealthy(!canonical[4].isHealthy());
+        Assert.assertFalse(entry.sameStatuses(ServiceHealthReport.Entry.of("DEFAULT_GROUP@@test", 101L, snapshot)));
+        Assert.assertFalse(entry.matches(InstanceSnapshot.EMPTY));
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.core;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * @author nkorange
+ */
+public class ServiceIndexTest {
+
+    @Test
+    public void testServiceNames() {
+        ServiceIndex index = new ServiceIndex();
+        index.addService("DEFAULT_GROUP@@b");
+        index.addService("DEFAULT_GROUP@@a");
+        index.addService("other@@c");
+
+        Assert.assertEquals(Arrays.asList("DEFAULT_GROUP@@a", "DEFAULT_GROUP@@b", "other@@c"),
+            Arrays.asList(index.getServiceNames().toArray()));
+        Assert.assertEquals(Arrays.asList("DEFAULT_GROUP@@a", "DEFAULT_GROUP@@b"),
+            Arrays.asList(index.getServiceNames("DEFAULT_GROUP@@").toArray()));
+
+        index.removeService("DEFAULT_GROUP@@a", Collections.emptySet());
+        Assert.assertEquals(1, index.getServiceNames("DEFAULT_GROUP@@").size());
+    }
+
+    @Test
+    public void testAddresses() {
+        ServiceIndex index = new ServiceIndex();
+        Set<String> addresses = ServiceIndex.addressesOf(Arrays.asList(new Instance("1.1.1.1", 1),
+            new Instance("1.1.1.1", 2)));
+        Assert.assertEquals(3, addresses.size());
+
+        index.updateAddresses("a", Collections.emptySet(), addresses);
+        index.updateAddresses("b", Collections.emptySet(), ServiceIndex.addressesOf(
+            Collections.singletonList(new Instance("1.1.1.1", 1))));
+        Assert.assertEquals(2, index.getServicesByAddress("1.1.1.1").size());
+        Assert.assertEquals(Collections.singleton("a"), index.getServicesByAddress("1.1.1.1:2"));
+
+        Set<String> newAddresses = ServiceIndex.addressesOf(Collections.singletonList(new Instance("2.2.2.2", 1)));
+        index.updateAddresses("a", addresses, newAddresses);
+        Assert.assertEquals(Collections.singleton("b"), index.getServicesByAddress("1.1.1.1"));
+        Assert.assertTrue(index.getServicesByAddress("1.1.1.1:2").isEmpty());
+
+        index.removeService("a", newAddresses);
+        Assert.assertTrue(index.getServicesByAddress("2.2.2.2").isEmpty());
+    }
+}
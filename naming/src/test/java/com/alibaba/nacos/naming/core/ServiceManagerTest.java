@@ -16,6 +16,7 @@
 package com.alibaba.nacos.naming.core;
 
 import com.alibaba.nacos.naming.BaseTest;
+import com.alibaba.nacos.naming.cluster.servers.Server;
 import com.alibaba.nacos.naming.consistency.ConsistencyService;
 import com.alibaba.nacos.naming.consistency.Datum;
 import com.alibaba.nacos.naming.consistency.KeyBuilder;
@@ -27,7 +28,12 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static org.mockito.Mockito.when;
 
@@ -84,4 +90,51 @@ public class ServiceManagerTest extends BaseTest {
         service.setNamespaceId(TEST_NAMESPACE);
         serviceManager.updateIpAddresses(service, UtilsAndCommons.UPDATE_INSTANCE_ACTION_ADD, true);
     }
+
+    @Test
+    public void testGetPagedServiceByCursor() {
+        for (String name : new String[]{"DEFAULT_GROUP@@a", "DEFAULT_GROUP@@b", "DEFAULT_GROUP@@c", "g@@a"}) {
+            Service service = new Service(name);
+            service.setNamespaceId(TEST_NAMESPACE);
+            serviceManager.putService(service);
+        }
+
+        List<Service> page = new ArrayList<>();
+        Assert.assertEquals(4, serviceManager.getPagedService(TEST_NAMESPACE, 0, 2, null, null, "DEFAULT_GROUP@@a",
+            page, false));
+        Assert.assertEquals("DEFAULT_GROUP@@b", page.get(0).getName());
+        Assert.assertEquals("DEFAULT_GROUP@@c", page.get(1).getName());
+
+        // a name without group is of default group
+        page.clear();
+        serviceManager.getPagedService(TEST_NAMESPACE, 0, 2, null, null, "c", page, false);
+        Assert.assertEquals(1, page.size());
+        Assert.assertEquals("g@@a", page.get(0).getName());
+    }
+
+    @Test
+    public void testReportVersionsForgotten() throws Exception {
+        ReflectionTestUtils.setField(serviceManager, "consistencyService", consistencyService);
+        Service service = new Service(TEST_SERVICE_NAME);
+        service.setNamespaceId(TEST_NAMESPACE);
+        serviceManager.putService(service);
+
+        String serviceKey = UtilsAndCommons.assembleFullServiceName(TEST_NAMESPACE, TEST_SERVICE_NAME);
+        Map<String, ConcurrentMap<String, Long>> reportVersions =
+            (Map<String, ConcurrentMap<String, Long>>) ReflectionTestUtils.getField(serviceManager, "reportVersions");
+        for (String source : new String[]{"1.1.1.1:8848", "2.2.2.2:8848"}) {
+            ConcurrentMap<String, Long> versions = new ConcurrentHashMap<>(16);
+            versions.put(serviceKey, 1L);
+            reportVersions.put(source, versions);
+        }
+
+        Server server = new Server();
+        server.setIp("1.1.1.1");
+        server.setServePort(8848);
+        serviceManager.onChangeServerList(Collections.singletonList(server));
+        Assert.assertEquals(Collections.singleton("1.1.1.1:8848"), reportVersions.keySet());
+
+        serviceManager.onDelete(KeyBuilder.buildServiceMetaKey(TEST_NAMESPACE, TEST_SERVICE_NAME));
+        Assert.assertTrue(reportVersions.get("1.1.1.1:8848").isEmpty());
+    }
 }
@@ -55,4 +55,42 @@ public class ServiceTest extends BaseTest {
         instances.remove(null);
         Assert.assertEquals(instances, service.allIPs(true));
     }
+
+    @Test
+    public void testSnapshot() {
+        service.setName("test-service");
+        List<Instance> instances = new ArrayList<>();
+        instances.add(new Instance("1.1.1.1", 1, "c1"));
+        instances.add(new Instance("1.1.1.2", 2, "c2"));
+        service.updateIPs(instances, true);
+
+        List<Instance> ips = service.allIPs();
+        Assert.assertEquals(2, ips.size());
+        Assert.assertSame(ips, service.allIPs());
+        Assert.assertEquals(2, service.healthyInstanceCount());
+
+        instances.get(0).setHealthy(false);
+        Assert.assertEquals(1, service.healthyInstanceCount());
+
+        List<Instance> persistentInstances = new ArrayList<>();
+        persistentInstances.add(new Instance("1.1.1.3", 3, "c1"));
+        service.updateIPs(persistentInstances, false);
+
+        Assert.assertNotSame(ips, service.allIPs());
+        Assert.assertEquals(3, service.allIPs().size());
+        Assert.assertEquals(persistentInstances, service.allIPs(false));
+        Assert.assertEquals(2, service.allIPs(true).size());
+    }
+
+    @Test
+    public void testProcessClientBeatOfPersistentInstance() {
+        Instance instance = new Instance("1.1.1.1", 1, "c1");
+        instance.setEphemeral(false);
+        instance.setHealthy(false);
+        instance.setLastBeat(0L);
+
+        service.processClientBeat(instance);
+        Assert.assertFalse(instance.isHealthy());
+        Assert.assertEquals(0L, instance.getLastBeat());
+    }
 }
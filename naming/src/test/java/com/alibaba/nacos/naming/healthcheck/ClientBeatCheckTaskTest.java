@@ -4,6 +4,7 @@ import com.alibaba.nacos.api.naming.PreservedMetadataKeys;
 import com.alibaba.nacos.naming.core.DistroMapper;
 import com.alibaba.nacos.naming.core.Instance;
 import com.alibaba.nacos.naming.core.Service;
+import com.alibaba.nacos.naming.healthcheck.events.InstanceHeartbeatTimeoutEvent;
 import com.alibaba.nacos.naming.misc.GlobalConfig;
 import com.alibaba.nacos.naming.push.PushService;
 import org.junit.Assert;
@@ -15,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
@@ -39,6 +41,8 @@ public class ClientBeatCheckTaskTest {
     private GlobalConfig globalConfig;
     @Mock
     private PushService pushService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
 
     @Before
@@ -47,6 +51,7 @@ public class ClientBeatCheckTaskTest {
         Mockito.doReturn(distroMapperSpy).when(clientBeatCheckTask).getDistroMapper();
         Mockito.doReturn(globalConfig).when(clientBeatCheckTask).getGlobalConfig();
         Mockito.doReturn(pushService).when(clientBeatCheckTask).getPushService();
+        Mockito.doReturn(eventPublisher).when(clientBeatCheckTask).getEventPublisher();
     }
 
     @Test
@@ -124,4 +129,26 @@ public class ClientBeatCheckTaskTest {
 
         clientBeatCheckTask.run();
     }
+
+    @Test
+    public void testNextCheckTime() {
+        long now = System.currentTimeMillis();
+        Instance instance = new Instance();
+        instance.setLastBeat(now - 1000);
+        instance.setHealthy(true);
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(PreservedMetadataKeys.HEART_BEAT_TIMEOUT, "5000");
+        metadata.put(PreservedMetadataKeys.IP_DELETE_TIMEOUT, "10000");
+        instance.setMetadata(metadata);
+        Mockito.doReturn(true).when(distroMapperSpy).responsible(null);
+        Mockito.doReturn(true).when(globalConfig).isExpireInstance();
+
+        Assert.assertEquals(now + 4001, clientBeatCheckTask.check(instance, now));
+        Assert.assertTrue(instance.isHealthy());
+
+        instance.setLastBeat(now - 6000);
+        Assert.assertEquals(now + 4001, clientBeatCheckTask.check(instance, now));
+        Assert.assertFalse(instance.isHealthy());
+        Mockito.verify(eventPublisher).publishEvent(Mockito.any(InstanceHeartbeatTimeoutEvent.class));
+    }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.raft;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftBatchPublisher;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftCore;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeer;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftPeerSet;
+import com.alibaba.nacos.naming.core.Instances;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author nkorange
+ */
+public class RaftBatchPublisherTest {
+
+    @Test
+    public void publishInOrder() throws Exception {
+
+        RaftPeerSet peers = Mockito.mock(RaftPeerSet.class);
+        Mockito.when(peers.local()).thenReturn(new RaftPeer());
+        Mockito.when(peers.majorityCount()).thenReturn(1);
+        Mockito.when(peers.allServersWithoutMySelf()).thenReturn(Collections.<String>emptySet());
+
+        RaftCore raftCore = Mockito.mock(RaftCore.class);
+        Mockito.when(raftCore.getPeerSet()).thenReturn(peers);
+        Mockito.when(raftCore.isLeader()).thenReturn(true);
+
+        RaftBatchPublisher publisher = new RaftBatchPublisher(raftCore);
+        publisher.start();
+
+        RaftBatchPublisher.PublishTask task1 = publisher.publish("key1", new Instances());
+        RaftBatchPublisher.PublishTask task2 = publisher.publish("key2", new Instances());
+        RaftBatchPublisher.PublishTask task3 = publisher.publish("key1", new Instances());
+        task1.await(1000L);
+        task2.await(1000L);
+        task3.await(1000L);
+
+        ArgumentCaptor<Datum> captor = ArgumentCaptor.forClass(Datum.class);
+        Mockito.verify(raftCore, Mockito.times(3)).onPublish(captor.capture(), Mockito.any(RaftPeer.class));
+        List<Datum> datums = captor.getAllValues();
+        Assert.assertEquals("key1", datums.get(0).key);
+        Assert.assertEquals("key2", datums.get(1).key);
+        Assert.assertEquals("key1", datums.get(2).key);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void publishWithoutLeadership() throws Exception {
+
+        RaftCore raftCore = Mockito.mock(RaftCore.class);
+        Mockito.when(raftCore.getPeerSet()).thenReturn(Mockito.mock(RaftPeerSet.class));
+        Mockito.when(raftCore.isLeader()).thenReturn(false);
+
+        RaftBatchPublisher publisher = new RaftBatchPublisher(raftCore);
+        publisher.start();
+
+        publisher.publish("key1", new Instances()).await(1000L);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 1999-2018 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.nacos.naming.raft;
+
+import com.alibaba.nacos.naming.consistency.Datum;
+import com.alibaba.nacos.naming.consistency.persistent.raft.RaftLog;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @author nkorange
+ */
+public class RaftLogTest {
+
+    private static final long SEGMENT_SIZE = 256L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replayAfterReopen() throws Exception {
+
+        String dir = folder.getRoot().getAbsolutePath();
+        RaftLog raftLog = new RaftLog(dir, SEGMENT_SIZE);
+        raftLog.open();
+        Assert.assertTrue(raftLog.isEmpty());
+
+        for (int i = 0; i < 20; i++) {
+            raftLog.append(RaftLog.TYPE_PUT, "key" + (i % 5), bytes("value" + i), true);
+        }
+        raftLog.append(RaftLog.TYPE_DELETE, "key0", new byte[0], true);
+        Assert.assertTrue(raftLog.getSegmentCountSinceSnapshot() > 1);
+
+        Map<String, String> result = replay(new RaftLog(dir, SEGMENT_SIZE));
+        Assert.assertEquals(4, result.size());
+        Assert.assertEquals("value19", result.get("key4"));
+        Assert.assertNull(result.get("key0"));
+    }
+
+    @Test
+    public void snapshotRemovesSegments() throws Exception {
+
+        String dir = folder.getRoot().getAbsolutePath();
+        RaftLog raftLog = new RaftLog(dir, SEGMENT_SIZE);
+        raftLog.open();
+
+        Map<String, Datum> datums = new HashMap<>(16);
+        for (int i = 0; i < 20; i++) {
+            raftLog.append(RaftLog.TYPE_PUT, "key" + i, bytes("value" + i), true);
+            Datum datum = new Datum();
+            datum.key = "key" + i;
+            datums.put(datum.key, datum);
+        }
+
+        raftLog.snapshot(datums, 100L);
+        Assert.assertEquals(1L, raftLog.getSegmentCountSinceSnapshot());
+        raftLog.append(RaftLog.TYPE_DELETE, "key1", new byte[0], true);
+
+        File[] files = folder.getRoot().listFiles();
+        Assert.assertNotNull(files);
+        Assert.assertEquals(2, files.length);
+
+        Map<String, String> result = replay(new RaftLog(dir, SEGMENT_SIZE));
+        Assert.assertEquals("100", result.remove("term"));
+        Assert.assertEquals(19, result.size());
+        Assert.assertNull(result.get("key1"));
+    }
+
+    @Test
+    public void truncateTornTail() throws Exception {
+
+        String dir = folder.getRoot().getAbsolutePath();
+        RaftLog raftLog = new RaftLog(dir, SEGMENT_SIZE * 16);
+        raftLog.open();
+        raftLog.append(RaftLog.TYPE_PUT, "key1", bytes("value1"), true);
+        raftLog.append(RaftLog.TYPE_PUT, "key2", bytes("value2"), true);
+
+        File segment = folder.getRoot().listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 1);
+        }
+
+        RaftLog reopened = new RaftLog(dir, SEGMENT_SIZE * 16);
+        reopened.open();
+        reopened.append(RaftLog.TYPE_PUT, "key3", bytes("value3"), true);
+
+        Map<String, String> result = replay(new RaftLog(dir, SEGMENT_SIZE * 16));
+        Assert.assertEquals(2, result.size());
+        Assert.assertEquals("value1", result.get("key1"));
+        Assert.assertEquals("value3", result.get("key3"));
+    }
+
+    private Map<String, String> replay(RaftLog raftLog) throws Exception {
+        final Map<String, String> result = new HashMap<>(16);
+        raftLog.open();
+        raftLog.replay(new RaftLog.RecordHandler() {
+            @Override
+            public void handle(byte type, String key, byte[] value) {
+                if (type == RaftLog.TYPE_PUT) {
+                    result.put(key, new String(value, StandardCharsets.UTF_8));
+                } else if (type == RaftLog.TYPE_DELETE) {
+                    result.remove(key);
+                } else {
+                    result.put("term", new String(value, StandardCharsets.UTF_8));
+                }
+            }
+        });
+        return result;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}